@@ -324,7 +324,7 @@ public class Application_D2 {
 			String description = a.getDescription();
 			String price = fmtPrice(a.getUnitPrice());
 			String currency = a.getCurrency().toString();
-			double rate = taxRateMapper.get(a.getTax());
+			double rate = a.getTax().getRate();
 			String vat = String.format("%4s%s %s", String.valueOf(rate), "%", a.getTax());
 			//
 			tf.row(id, description, price, currency, vat);  // write row into table
@@ -493,16 +493,6 @@ public class Application_D2 {
 	}
 
 
-	/**
-	 * Map TAX enum to tax rate as number.
-	 */
-	final Map<TAX, Double> taxRateMapper = Map.of(
-			TAX.TAXFREE,             0.0,   // tax free rate
-			TAX.GER_VAT,            19.0,   // German VAT tax (MwSt) 19.0%
-			TAX.GER_VAT_REDUCED,     7.0    // German reduced VAT tax (MwSt) 7.0%
-			);
-
-
 	/**
 	 * Calculate included VAT (Value-Added Tax) from a gross price/value based on
 	 * a tax rate (VAT is called <i>"Mehrwertsteuer" (MwSt.)</i> in Germany).
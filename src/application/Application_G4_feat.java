@@ -1,7 +1,7 @@
 package application;
 
+import java.util.List;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import system.IoC;
 import system.Repository;
@@ -59,19 +59,18 @@ public class Application_G4_feat {
         StringBuilder sb = new StringBuilder(String.format("Remove comments in %s.run()", app));
 
         ioc.getDataStore().build(ds -> ioc.createDataFactory(ds).create());
-        var orders = orderRepository.findAll();
         var labelPrinter = ioc.getLabelPrinter();
 
         /*
          * Filter orders before printing:
-         *  - convert Iterable<Order> from findAll() to Stream<Order>,
+         *  - obtain Stream<Order> from orderRepository.stream(),
          *  - apply filters on order stream,
          *  - return as filtered Iterable<Order>.
          */
-       orders = StreamSupport.stream(orders.spliterator(), false)
+        List<Order> orders = orderRepository.stream()
             .collect(Collectors.toList());
 
-        long count = StreamSupport.stream(orders.spliterator(), false).count();
+        long count = orders.size();
         msg = String.format("Printing %d address-labels:\n", count);
 
         /*
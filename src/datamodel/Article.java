@@ -1,5 +1,8 @@
 package datamodel;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 
 /**
  * Class of entity type <i>Article</i>.
@@ -39,6 +42,24 @@ public class Article {
      */
     private TAX tax = TAX.GER_VAT;
 
+    /**
+     * Number of price or tax changes of this article, e.g. to recognize that
+     * an order item was accounted with an outdated price or tax rate.
+     */
+    private volatile long version = 0L;
+
+    /**
+     * Number of price or tax changes of all articles, e.g. to recognize that
+     * cached order totals may be outdated.
+     */
+    private static final AtomicLong modificationCount = new AtomicLong();
+
+    /**
+     * Updater that increments {@link #version} atomically.
+     */
+    private static final AtomicLongFieldUpdater<Article> versionUpdater =
+        AtomicLongFieldUpdater.newUpdater(Article.class, "version");
+
 
 
 
@@ -128,7 +149,10 @@ public class Article {
      * @return chainable self-reference.
      */
     public Article setUnitPrice(long unitPrice) {
-        if(unitPrice >= 0) this.unitPrice = unitPrice;
+        if(unitPrice >= 0 && unitPrice != this.unitPrice) {
+            this.unitPrice = unitPrice;
+            modified();
+        }
         return this;
     }
 
@@ -170,8 +194,41 @@ public class Article {
      */
     public Article setTax(TAX tax) {
         if(tax == null) throw new IllegalArgumentException("invalid tax (null).");
-        this.tax = tax;
+        if(tax != this.tax) {
+            this.tax = tax;
+            modified();
+        }
         return this;
     }
 
+    /**
+     * Version getter, the version changes with every change of price or tax of
+     * this article.
+     * @return number of price or tax changes of this article.
+     */
+    public long getVersion() {
+        
+        return version;
+    }
+
+    /**
+     * Modification count getter, the count changes with every change of price
+     * or tax of any article after the version of the article has changed.
+     * @return number of price or tax changes of all articles.
+     */
+    public static long getModificationCount() {
+        
+        return modificationCount.get();
+    }
+
+    /**
+     * Count a change of price or tax of this article, called after the change by
+     * setters and by sub-classes that store prices or tax rates elsewhere, e.g.
+     * flyweight articles of a catalog that also store the version elsewhere.
+     */
+    protected void modified() {
+        versionUpdater.incrementAndGet(this);
+        modificationCount.incrementAndGet();
+    }
+
 }
\ No newline at end of file
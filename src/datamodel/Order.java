@@ -3,6 +3,7 @@ package datamodel;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.function.Consumer;
 
 
 /**
@@ -44,6 +45,35 @@ public class Order {
      */
     public Customer owns;
 
+    /**
+     * Listeners notified after the creation date changed, e.g. to move the order
+     * in a time index of a repository, {@code null} until a listener is added.
+     */
+    private List<Consumer<? super Order>> creationDateListeners = null;
+
+    /**
+     * Number of modifications of items, incremented when items are added or
+     * deleted or units of items change, e.g. to recognize that cached order
+     * totals are outdated.
+     */
+    private volatile long modificationCount = 0L;
+
+    /**
+     * Running gross values of items in cent per tax rate, indexed by {@link TAX#ordinal()}.
+     */
+    private final long[] values = new long[TAX.values().length];
+
+    /**
+     * Running VAT of items in cent per tax rate, indexed by {@link TAX#ordinal()}.
+     */
+    private final long[] vats = new long[TAX.values().length];
+
+    /**
+     * Article modification count the running totals were checked with, items
+     * are checked for changed articles when prices or tax rates have changed.
+     */
+    private long articleModificationCount = Article.getModificationCount();
+
 
 
 
@@ -111,7 +141,40 @@ public class Order {
         long lowerBound = dateFormat("2020-01-01 00:00:00");
         long upperBound = System.currentTimeMillis() + (24*60*60*1000L) -10;
         if(datetime < lowerBound || datetime > upperBound) throw new IllegalArgumentException("invalid datetime argument (outside bounds 01/01/2020 <= datetime <= now() + 1day).");
-        creationDate.setTime(datetime);
+        if(creationDate.getTime() != datetime) {
+            creationDate.setTime(datetime);
+            List<Consumer<? super Order>> listeners;
+            synchronized(this) {
+                listeners = creationDateListeners==null? null : List.copyOf(creationDateListeners);
+            }
+            if(listeners != null) {
+                listeners.forEach(listener -> listener.accept(this));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Add listener that is notified after the creation date of the order changed.
+     * A listener that was already added is not added again.
+     * @param listener listener called with the order after its creation date changed.
+     * @throws IllegalArgumentException if listener is null.
+     * @return chainable self-reference.
+     */
+    public synchronized Order addCreationDateListener(Consumer<? super Order> listener) {
+        if(listener == null) throw new IllegalArgumentException("listener is null.");
+        if(creationDateListeners == null) creationDateListeners = new ArrayList<>(1);
+        if( ! creationDateListeners.contains(listener)) creationDateListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Remove listener added with {@link #addCreationDateListener(Consumer)}.
+     * @param listener listener to remove, no effect if listener was not added.
+     * @return chainable self-reference.
+     */
+    public synchronized Order removeCreationDateListener(Consumer<? super Order> listener) {
+        if(creationDateListeners != null) creationDateListeners.remove(listener);
         return this;
     }
 
@@ -142,7 +205,18 @@ public class Order {
      */
     public Iterable<OrderItem> getItems() {
         
-        return items;
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Modification count getter, the count changes with every added or deleted
+     * item or change of units and remains unchanged while the items of the order
+     * remain unchanged.
+     * @return number of modifications of items of the order.
+     */
+    public long getModificationCount() {
+        
+        return modificationCount;
     }
 
     /**
@@ -152,10 +226,14 @@ public class Order {
      * @throws IllegalArgumentException if article is null or units not a positive {@code units > 0} number.
      * @return chainable self-reference.
      */
-    public Order addItem(Article article, int units) {
+    public synchronized Order addItem(Article article, int units) {
         if(article == null)throw new IllegalArgumentException("article is null.");
         if(units <= 0)throw new IllegalArgumentException("units are negative.");
-        items.add(new OrderItem(article, units));
+        var item = new OrderItem(article, units);
+        item.setOrder(this);
+        items.add(item);
+        account(item);
+        modificationCount++;
         return this;
     }
 
@@ -163,15 +241,141 @@ public class Order {
      * Delete i-th item from order, {@code i >= 0 && i < items.size()}, otherwise method has no effect.
      * @param i index of item to delete, only a valid index deletes item.
      */
-    public void deleteItem(int i) {
-        if(i >= 0 && i < itemsCount()) items.remove(i);
+    public synchronized void deleteItem(int i) {
+        if(i >= 0 && i < itemsCount()) {
+            unaccount(items.get(i));
+            items.remove(i).setOrder(null);
+            modificationCount++;
+        }
     }
 
     /**
      * Delete all ordered items.
      */
-    public void deleteAllItems() {
-        items.clear();
+    public synchronized void deleteAllItems() {
+        if( ! items.isEmpty()) {
+            items.forEach(item -> item.setOrder(null));
+            items.clear();
+            Arrays.fill(values, 0L);
+            Arrays.fill(vats, 0L);
+            articleModificationCount = Article.getModificationCount();
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Gross value getter, sum of values of all items maintained as items change.
+     * @return gross value of order in cent.
+     */
+    public synchronized long getValue() {
+        refresh();
+        long value = 0L;
+        for(long v : values) value += v;
+        return value;
+    }
+
+    /**
+     * Gross value getter for items of one tax rate.
+     * @param tax tax rate of items.
+     * @throws IllegalArgumentException if tax is null.
+     * @return gross value of items with tax rate in cent.
+     */
+    public synchronized long getValue(TAX tax) {
+        if(tax == null) throw new IllegalArgumentException("tax is null.");
+        refresh();
+        return values[tax.ordinal()];
+    }
+
+    /**
+     * VAT getter, sum of VAT of all items ({@link TAX#includedVAT(long)} of each
+     * item value) maintained as items change.
+     * @return VAT included in gross value of order in cent.
+     */
+    public synchronized long getVAT() {
+        refresh();
+        long vat = 0L;
+        for(long v : vats) vat += v;
+        return vat;
+    }
+
+    /**
+     * VAT getter for items of one tax rate.
+     * @param tax tax rate of items.
+     * @throws IllegalArgumentException if tax is null.
+     * @return VAT included in gross value of items with tax rate in cent.
+     */
+    public synchronized long getVAT(TAX tax) {
+        if(tax == null) throw new IllegalArgumentException("tax is null.");
+        refresh();
+        return vats[tax.ordinal()];
+    }
+
+    /**
+     * Update units of an item of this order, called by {@link OrderItem#setUnitsOrdered(int)}.
+     * @param item item of this order.
+     * @param units new number of units ordered.
+     */
+    synchronized void updateUnits(OrderItem item, int units) {
+        if(item.getUnitsOrdered() != units) {
+            unaccount(item);
+            item.assignUnits(units);
+            account(item);
+            modificationCount++;
+        }
+    }
+
+    /**
+     * Add value and VAT of an item with the current price and tax rate of its
+     * article to the running totals and record them with the item.
+     * @param item item to account.
+     */
+    private void account(OrderItem item) {
+        var article = item.getArticle();
+        item.accountedVersion = article.getVersion();   // before price and tax
+        item.accountedPrice = article.getUnitPrice();
+        item.accountedTax = article.getTax();
+        add(item, 1);
+    }
+
+    /**
+     * Subtract value and VAT an item was accounted with from the running totals.
+     * @param item item to subtract.
+     */
+    private void unaccount(OrderItem item) {
+        add(item, -1);
+    }
+
+    /**
+     * Add or subtract value and VAT of an item with the price and tax rate it
+     * was accounted with.
+     * @param item accounted item.
+     * @param sign 1 to add, -1 to subtract.
+     */
+    private void add(OrderItem item, int sign) {
+        var tax = item.accountedTax;
+        long value = item.accountedPrice * item.getUnitsOrdered();
+        values[tax.ordinal()] += sign * value;
+        vats[tax.ordinal()] += sign * tax.includedVAT(value);
+    }
+
+    /**
+     * Account items again whose article changed price or tax rate since they
+     * were accounted. Versions of articles are only compared after a change of
+     * any article, the first read of an order after such a change compares the
+     * versions of its items in {@code O(items)}, only items of changed articles
+     * are accounted again.
+     */
+    private void refresh() {
+        long count = Article.getModificationCount();
+        if(count != articleModificationCount) {
+            for(OrderItem item : items) {
+                if(item.getArticle().getVersion() != item.accountedVersion) {
+                    unaccount(item);
+                    account(item);
+                }
+            }
+            articleModificationCount = count;
+        }
     }
 
 }
\ No newline at end of file
@@ -24,6 +24,20 @@ public class OrderItem {
      */
     private int unitsOrdered;
 
+    /**
+     * Order the item is part of, updated when units change, {@code null} for
+     * items that are not part of an order.
+     */
+    private Order order;
+
+    /**
+     * Unit price, tax rate and article version the item was accounted with in
+     * the running totals of its order, maintained by the order.
+     */
+    long accountedPrice;
+    TAX accountedTax;
+    long accountedVersion;
+
 
     /**
      * Constructor of ordered line item with article and units arguments.
@@ -66,6 +80,27 @@ public class OrderItem {
         if(units < 0) {
             throw new IllegalArgumentException("Number of units ordered must be positive!");
         }
+        if(order == null) {
+            this.unitsOrdered = units;
+        } else {
+            order.updateUnits(this, units);
+        }
+    }
+
+    /**
+     * Assign units, called by the order the item is part of.
+     * @param units number of units ordered.
+     */
+    void assignUnits(int units) {
+        this.unitsOrdered = units;
+    }
+
+    /**
+     * Attach item to order or detach with {@code null}.
+     * @param order order the item is part of or {@code null}.
+     */
+    void setOrder(Order order) {
+        this.order = order;
     }
 
 }
\ No newline at end of file
@@ -14,11 +14,43 @@ package datamodel;
  * @author <code style=color:blue>{@value application.package_info#Author}</code>
  */
 public enum TAX {
-    TAXFREE,
-    GER_VAT,
-    GER_VAT_REDUCED;
+    TAXFREE(0),
+    GER_VAT(19),
+    GER_VAT_REDUCED(7);
 
+    /**
+     * Tax rate in percent.
+     */
+    private final long percent;
+
+    /**
+     * Constructor with tax rate.
+     * @param percent tax rate in percent.
+     */
+    private TAX(long percent) {
+        this.percent = percent;
+    }
+
+    /**
+     * Tax rate getter.
+     * @return tax rate in percent, e.g. {@code 19.0} for {@link #GER_VAT}.
+     */
     public double getRate() {
-        return 0;
+        return percent;
+    }
+
+    /**
+     * Calculate the VAT included in a gross value with the rational factor
+     * {@code percent / (100 + percent)} in integer arithmetic, rounded half-up
+     * to cent. The value is split into a multiple of the denominator and a
+     * remainder, so the product cannot overflow.
+     * @param grossValue gross value in cent.
+     * @return VAT included in gross value in cent.
+     */
+    public long includedVAT(long grossValue) {
+        long denominator = 100 + percent;
+        long quotient = Math.floorDiv(grossValue, denominator);
+        long remainder = Math.floorMod(grossValue, denominator);
+        return quotient * percent + (2 * remainder * percent + denominator) / (2 * denominator);
     }
 }
\ No newline at end of file
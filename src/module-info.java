@@ -17,6 +17,9 @@
 module se1_bestellsystem {
     opens application;
     exports datamodel;  // to enable Javadocs
+    exports system;     // to let other modules provide storage engines
+
+    uses system.StorageEngine;
 
     requires org.junit.jupiter.api;
 }
@@ -0,0 +1,297 @@
+package system;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+
+import datamodel.Order;
+import datamodel.TAX;
+
+
+/**
+ * Aggregation of orders of a {@link DataStore}, obtained from
+ * {@link IoC#createAggregator(DataStore)}.
+ * <p>
+ * Methods compute grouped sums of value, VAT and units of order items by tax
+ * rate, customer, article or creation day. Orders are read from a snapshot of
+ * the data store (see {@link DataStore#snapshot()} for its cost outside concurrent
+ * mode) and aggregated in parallel, each thread sums into its own
+ * accumulator of primitive arrays, accumulators are merged at the end. Values
+ * and VATs equal the results of {@link Calculator#calculateOrderItemValue} and
+ * {@link Calculator#calculateOrderItemVAT} summed over items.
+ * </p>
+ * <p>
+ * The snapshot fixes the set of orders. Orders are shared with the data store,
+ * an order changed in place during an aggregation, e.g. with
+ * {@code Order.addItem()}, contributes its items either before or after the change.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+
+public interface Aggregator {
+
+
+    /**
+     * Aggregate orders of the data store by a grouping.
+     *
+     * @param <K> generic type of group keys.
+     * @param grouping grouping, one of {@link #BY_TAX}, {@link #BY_CUSTOMER},
+     * {@link #BY_ARTICLE} or {@link #byDay(ZoneId)}.
+     * @return sums by key of grouping.
+     * @throws IllegalArgumentException if grouping is null.
+     */
+    <K extends Comparable<? super K>> Aggregates<K> aggregate(Grouping<K> grouping);
+
+
+    /**
+     * Aggregate orders by a grouping, e.g. orders that are not stored in the
+     * data store.
+     *
+     * @param <K> generic type of group keys.
+     * @param grouping grouping, one of {@link #BY_TAX}, {@link #BY_CUSTOMER},
+     * {@link #BY_ARTICLE} or {@link #byDay(ZoneId)}.
+     * @param orders orders to aggregate.
+     * @return sums by key of grouping.
+     * @throws IllegalArgumentException if an argument is null or orders contains null.
+     */
+    <K extends Comparable<? super K>> Aggregates<K> aggregate(Grouping<K> grouping, Iterable<Order> orders);
+
+
+    /**
+     * Grouping by tax rate of articles.
+     */
+    Grouping<TAX> BY_TAX = new Grouping<>("tax", null);
+
+    /**
+     * Grouping by customer id.
+     */
+    Grouping<Long> BY_CUSTOMER = new Grouping<>("customer", null);
+
+    /**
+     * Grouping by article id.
+     */
+    Grouping<String> BY_ARTICLE = new Grouping<>("article", null);
+
+
+    /**
+     * Return grouping by day of creation of orders.
+     *
+     * @param zone time zone in which days begin and end.
+     * @return grouping by day.
+     * @throws IllegalArgumentException if zone is null.
+     */
+    static Grouping<LocalDate> byDay(ZoneId zone) {
+        if (zone == null)
+            throw new IllegalArgumentException("argument zone is null.");
+
+        return new Grouping<>("day", zone);
+    }
+
+
+    /**
+     * Grouping of order items by a key.
+     *
+     * @param <K> generic type of group keys.
+     */
+    final class Grouping<K> {
+
+        /**
+         * Name of grouping, e.g. {@code "tax"}.
+         */
+        private final String name;
+
+        /**
+         * Time zone of grouping by day, {@code null} for other groupings.
+         */
+        private final ZoneId zone;
+
+        /**
+         * Private constructor, groupings are constants of {@link Aggregator}.
+         *
+         * @param name name of grouping.
+         * @param zone time zone of grouping by day.
+         */
+        private Grouping(String name, ZoneId zone) {
+            this.name = name;
+            this.zone = zone;
+        }
+
+        /**
+         * Return name of grouping.
+         *
+         * @return name of grouping, {@code "tax"}, {@code "customer"},
+         * {@code "article"} or {@code "day"}.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Return time zone of grouping by day.
+         *
+         * @return time zone or {@code null} for other groupings.
+         */
+        public ZoneId getZone() {
+            return zone;
+        }
+    }
+
+
+    /**
+     * Sums of value, VAT and units of order items by group key, keys are sorted
+     * in their natural order and sums are stored in primitive arrays at the
+     * index of their key.
+     *
+     * @param <K> generic type of group keys.
+     */
+    final class Aggregates<K extends Comparable<? super K>> {
+
+        /**
+         * Sorted group keys.
+         */
+        private final List<K> keys;
+
+        /**
+         * Values, VATs and units of groups.
+         */
+        private final long[] values, vats, units;
+
+        /**
+         * Constructor of aggregates, the arrays are not copied.
+         *
+         * @param keys group keys in natural order.
+         * @param values values of groups in cent.
+         * @param vats VATs of groups in cent.
+         * @param units units of groups.
+         * @throws IllegalArgumentException if an argument is null or sizes differ.
+         */
+        public Aggregates(List<K> keys, long[] values, long[] vats, long[] units) {
+            if (keys == null || values == null || vats == null || units == null)
+                throw new IllegalArgumentException("argument keys, values, vats or units is null.");
+            if (values.length != keys.size() || vats.length != keys.size() || units.length != keys.size())
+                throw new IllegalArgumentException("arguments keys, values, vats and units differ in size.");
+
+            this.keys = Collections.unmodifiableList(keys);
+            this.values = values;
+            this.vats = vats;
+            this.units = units;
+        }
+
+        /**
+         * Return number of groups.
+         *
+         * @return number of groups.
+         */
+        public int size() {
+            return keys.size();
+        }
+
+        /**
+         * Return group keys in natural order.
+         *
+         * @return read-only list of keys.
+         */
+        public List<K> getKeys() {
+            return keys;
+        }
+
+        /**
+         * Return values of groups, the array is not copied.
+         *
+         * @return array of values in cent.
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        /**
+         * Return VATs of groups, the array is not copied.
+         *
+         * @return array of VATs in cent.
+         */
+        public long[] getVATs() {
+            return vats;
+        }
+
+        /**
+         * Return units of groups, the array is not copied.
+         *
+         * @return array of units.
+         */
+        public long[] getUnits() {
+            return units;
+        }
+
+        /**
+         * Return value of a group.
+         *
+         * @param key group key.
+         * @return value in cent, 0 if no group has the key.
+         */
+        public long getValue(K key) {
+            int i = indexOf(key);
+            return i < 0 ? 0L : values[i];
+        }
+
+        /**
+         * Return VAT of a group.
+         *
+         * @param key group key.
+         * @return VAT in cent, 0 if no group has the key.
+         */
+        public long getVAT(K key) {
+            int i = indexOf(key);
+            return i < 0 ? 0L : vats[i];
+        }
+
+        /**
+         * Return units of a group.
+         *
+         * @param key group key.
+         * @return units, 0 if no group has the key.
+         */
+        public long getUnits(K key) {
+            int i = indexOf(key);
+            return i < 0 ? 0L : units[i];
+        }
+
+        /**
+         * Return sum of the values of all groups.
+         *
+         * @return total value.
+         */
+        public long getTotalValue() {
+            long sum = 0;
+            for (long v : values) {
+                sum += v;
+            }
+            return sum;
+        }
+
+        /**
+         * Return sum of the VATs of all groups.
+         *
+         * @return total VAT.
+         */
+        public long getTotalVAT() {
+            long sum = 0;
+            for (long v : vats) {
+                sum += v;
+            }
+            return sum;
+        }
+
+        /**
+         * Find index of a group key.
+         *
+         * @param key group key.
+         * @return index of key or a negative number if no group has the key.
+         */
+        private int indexOf(K key) {
+            return key == null ? -1 : Collections.binarySearch(keys, key);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package system;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Asynchronous facade of a {@link Repository}, obtained from
+ * {@link IoC#createAsyncRepository(Repository, int)}.
+ * <p>
+ * Methods return immediately with a {@link CompletableFuture} that completes
+ * with the result of the corresponding {@link Repository} method, or
+ * exceptionally with the exception it threw. Calls run on virtual threads where
+ * the Java runtime provides them, waiting calls then do not occupy platform
+ * threads. At most a bounded number of calls run against the repository at the
+ * same time, further calls wait for their turn.
+ * </p>
+ * <p>
+ * With more than one concurrent call, the repository is used by multiple threads
+ * and must be thread-safe, e.g. a repository of a {@link DataStore} opened with
+ * {@link StorageEngine#CONCURRENT}. Repositories that are not thread-safe are
+ * used with a maximum concurrency of 1, which serializes calls.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ */
+
+public interface AsyncRepository<T, ID> {
+
+
+    /**
+     * Return the repository the facade runs calls against.
+     *
+     * @return synchronous repository.
+     */
+    Repository<T, ID> repository();
+
+
+    /**
+     * Return maximum number of calls that run against the repository at the
+     * same time.
+     *
+     * @return maximum number of concurrent calls.
+     */
+    int getMaxConcurrency();
+
+
+    /**
+     * Asynchronously return number of objects in repository.
+     *
+     * @return future number of objects in repository.
+     */
+    CompletableFuture<Long> countAsync();
+
+
+    /**
+     * Asynchronously return all objects of the repository as list.
+     *
+     * @return future list of all objects.
+     */
+    CompletableFuture<List<T>> findAllAsync();
+
+
+    /**
+     * Asynchronously look up an object by its {@literal id}.
+     *
+     * @param id {@literal id} of object to find.
+     * @return future result of lookup.
+     */
+    CompletableFuture<Optional<T>> findByIdAsync(ID id);
+
+
+    /**
+     * Asynchronously test whether an object with {@literal id} exists.
+     *
+     * @param id {@literal id} of object.
+     * @return future true if object exists.
+     */
+    CompletableFuture<Boolean> existsByIdAsync(ID id);
+
+
+    /**
+     * Asynchronously look up objects by their {@literal ids}.
+     *
+     * @param ids {@literal ids} of objects to find.
+     * @return future list of found objects.
+     */
+    CompletableFuture<List<T>> findAllByIdAsync(Iterable<ID> ids);
+
+
+    /**
+     * Asynchronously look up objects by the key of a named index.
+     *
+     * @param name name of index.
+     * @param key key in index.
+     * @return future list of objects with key.
+     */
+    CompletableFuture<List<T>> findAllByIndexAsync(String name, Object key);
+
+
+    /**
+     * Asynchronously evaluate a query of the repository, the query is built
+     * by the caller and evaluated on the facade's threads.
+     *
+     * @param query query obtained from {@link #repository()}.
+     * @return future list of objects that match the query.
+     */
+    CompletableFuture<List<T>> listAsync(Query<T> query);
+
+
+    /**
+     * Asynchronously save object to repository.
+     *
+     * @param <S> sub-class of {@code <T>}.
+     * @param entity object saved to the repository.
+     * @return future saved object.
+     */
+    <S extends T> CompletableFuture<S> saveAsync(S entity);
+
+
+    /**
+     * Asynchronously save objects to repository in one bulk call.
+     *
+     * @param <S> sub-class of {@code <T>}.
+     * @param entities objects saved to the repository.
+     * @return future saved objects.
+     */
+    <S extends T> CompletableFuture<Iterable<S>> saveAllAsync(Iterable<S> entities);
+
+
+    /**
+     * Asynchronously delete object with {@literal id} from repository.
+     *
+     * @param id {@literal id} of object to delete.
+     * @return future that completes when object was deleted.
+     */
+    CompletableFuture<Void> deleteByIdAsync(ID id);
+
+
+    /**
+     * Asynchronously delete object from repository.
+     *
+     * @param entity object to delete.
+     * @return future that completes when object was deleted.
+     */
+    CompletableFuture<Void> deleteAsync(T entity);
+
+
+    /**
+     * Asynchronously delete objects with {@literal ids} from repository.
+     *
+     * @param ids {@literal ids} of objects to delete.
+     * @return future that completes when objects were deleted.
+     */
+    CompletableFuture<Void> deleteAllByIdAsync(Iterable<? extends ID> ids);
+
+}
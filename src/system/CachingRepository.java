@@ -0,0 +1,62 @@
+package system;
+
+
+/**
+ * {@link Repository} that caches objects of a slower backend repository, e.g.
+ * a repository backed by disk, obtained from {@link IoC#createCachingRepository(Repository, java.util.function.Function, int)}.
+ * <p>
+ * Lookups by id are answered from a bounded cache of recently used objects and
+ * load objects from the backend on a miss. Changes are written through to the
+ * backend and then discard the cached object. Other lookups (e.g. {@link #findAll()}
+ * or queries) are passed to the backend.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ */
+
+public interface CachingRepository<T, ID> extends Repository<T, ID> {
+
+
+    /**
+     * Return number of lookups by id that were answered from the cache.
+     *
+     * @return number of cache hits.
+     */
+    long getHitCount();
+
+
+    /**
+     * Return number of lookups by id that were passed to the backend.
+     *
+     * @return number of cache misses.
+     */
+    long getMissCount();
+
+
+    /**
+     * Return number of objects in cache.
+     *
+     * @return number of cached objects.
+     */
+    int getCacheSize();
+
+
+    /**
+     * Discard cached object with {@literal id}, e.g. after the backend was
+     * changed without passing through the cache.
+     *
+     * @param id {@literal id} of object to discard from cache.
+     */
+    void invalidate(ID id);
+
+
+    /**
+     * Discard all cached objects.
+     */
+    void invalidateAll();
+
+}
@@ -4,6 +4,8 @@ import datamodel.Order;
 import datamodel.OrderItem;
 import datamodel.TAX;
 
+import java.util.ArrayList;
+
 /**
  * {@link Calculator} is a singleton {@link system} component that performs calculations.
  */
@@ -59,4 +61,140 @@ public interface Calculator {
      * @return the tax rate as a double value.
      */
     double value(TAX taxRate);
+
+    /**
+     * Calculate value and VAT of many orders, e.g. for month-end revenue runs.
+     * Implementations compute both totals of an order in one pass over its items.
+     *
+     * @param orders the orders to calculate totals for.
+     * @return value and VAT of each order in iteration order.
+     * @throws IllegalArgumentException if orders is null or contains null.
+     */
+    default Totals calculateTotals(Iterable<Order> orders) {
+        if (orders == null)
+            throw new IllegalArgumentException("argument orders is null.");
+
+        var list = new ArrayList<Order>();
+        orders.forEach(list::add);
+        var totals = new Totals(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            totals.values[i] = calculateOrderValue(list.get(i));
+            totals.vats[i] = calculateOrderVAT(list.get(i));
+        }
+        return totals;
+    }
+
+    /**
+     * Calculate value and VAT of many orders in parallel, e.g. for batches of
+     * millions of orders. The result equals the result of {@link #calculateTotals(Iterable)}.
+     *
+     * @param orders the orders to calculate totals for.
+     * @return value and VAT of each order in iteration order.
+     * @throws IllegalArgumentException if orders is null or contains null.
+     */
+    default Totals calculateTotalsParallel(Iterable<Order> orders) {
+        return calculateTotals(orders);
+    }
+
+    /**
+     * Calculate the sum of the values of the items of many orders, e.g. for bulk
+     * analytics over millions of items. The result equals the sum of
+     * {@link #calculateOrderItemValue(OrderItem)} of all items. The items of an
+     * order are read while holding the lock of the order.
+     *
+     * @param orders the orders with items.
+     * @return total value of items.
+     * @throws IllegalArgumentException if orders is null or contains null.
+     */
+    default long calculateItemsValue(Iterable<Order> orders) {
+        if (orders == null)
+            throw new IllegalArgumentException("argument orders is null.");
+
+        long sum = 0;
+        for (Order order : orders) {
+            if (order == null)
+                throw new IllegalArgumentException("argument order is null.");
+            synchronized (order) {
+                for (OrderItem item : order.getItems()) {
+                    sum += calculateOrderItemValue(item);
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Values and VATs of orders calculated by {@link #calculateTotals(Iterable)},
+     * stored in primitive arrays indexed by the position of the order.
+     */
+    final class Totals {
+
+        /**
+         * Values and VATs of orders.
+         */
+        private final long[] values, vats;
+
+        /**
+         * Constructor of totals of a number of orders.
+         *
+         * @param size number of orders.
+         */
+        public Totals(int size) {
+            this.values = new long[size];
+            this.vats = new long[size];
+        }
+
+        /**
+         * Return number of orders.
+         *
+         * @return number of orders.
+         */
+        public int size() {
+            return values.length;
+        }
+
+        /**
+         * Return values of orders, the array is not copied.
+         *
+         * @return array of order values.
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        /**
+         * Return VATs of orders, the array is not copied.
+         *
+         * @return array of order VATs.
+         */
+        public long[] getVATs() {
+            return vats;
+        }
+
+        /**
+         * Return sum of the values of all orders.
+         *
+         * @return total value.
+         */
+        public long getTotalValue() {
+            long sum = 0;
+            for (long v : values) {
+                sum += v;
+            }
+            return sum;
+        }
+
+        /**
+         * Return sum of the VATs of all orders.
+         *
+         * @return total VAT.
+         */
+        public long getTotalVAT() {
+            long sum = 0;
+            for (long v : vats) {
+                sum += v;
+            }
+            return sum;
+        }
+    }
 }
\ No newline at end of file
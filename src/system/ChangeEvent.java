@@ -0,0 +1,67 @@
+package system;
+
+
+/**
+ * {@link ChangeEvent} describes one change of an object in a {@link DataStore}:
+ * an insert, an update that replaced an object with the same {@literal id} or
+ * a delete. Events are delivered to subscribers registered with
+ * {@link DataStore#subscribe(Class, int, java.util.function.Consumer)} in the
+ * order given by their sequence numbers.
+ *
+ * @param <T> generic type of changed {@link datamodel} objects.
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+
+public interface ChangeEvent<T> {
+
+    /**
+     * Type of change.
+     */
+    enum Type {
+        INSERT, UPDATE, DELETE
+    }
+
+
+    /**
+     * Return sequence number of the change, increasing in the order in which
+     * changes were applied to the data store.
+     *
+     * @return sequence number of the change.
+     */
+    long getSequence();
+
+
+    /**
+     * Return type of change.
+     *
+     * @return type of change.
+     */
+    Type getType();
+
+
+    /**
+     * Return {@literal id} of changed object.
+     *
+     * @return {@literal id} of changed object.
+     */
+    Object getId();
+
+
+    /**
+     * Return object before the change, {@code null} for inserts.
+     *
+     * @return object before the change.
+     */
+    T getBefore();
+
+
+    /**
+     * Return object after the change, {@code null} for deletes.
+     *
+     * @return object after the change.
+     */
+    T getAfter();
+
+}
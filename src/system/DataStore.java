@@ -1,5 +1,6 @@
 package system;
 
+import java.nio.file.Path;
 import java.util.function.Consumer;
 
 import datamodel.*;
@@ -17,7 +18,7 @@ import datamodel.*;
  * @author <code style=color:blue>{@value application.package_info#Author}</code>
  */
 
-public interface DataStore {
+public interface DataStore extends AutoCloseable {
 
     /**
      * Save object (entity) to a repository. Object replaces a prior object
@@ -34,7 +35,8 @@ public interface DataStore {
 
     /**
      * Save a collection of objects (entities) to a repository. Objects replace
-     * prior objects with the same {@literal id}.
+     * prior objects with the same {@literal id}. The collection may contain
+     * objects of different {@link datamodel} classes.
      * 
      * @param <T> generic type of a {@link datamodel} class.
      * @param entities collection of objects (entities) saved to repository.
@@ -53,24 +55,165 @@ public interface DataStore {
     DataStore build(Consumer<DataStore> factory);
 
     /**
-     * Return repository of customers.
+     * Run work that saves and deletes objects as one transaction. The work receives
+     * a {@link DataStore} that buffers all changes and reads committed objects
+     * together with the changes buffered so far. After the work returns, all
+     * changes are applied to the customers, articles and orders repositories in
+     * one batch. Nothing is applied if the work throws an exception.
+     * <p>
+     * Snapshots obtained by {@link #snapshot()} see all changes of a transaction
+     * or none. Reads of the live repositories, e.g. {@code orders().findAll()} by
+     * another thread, are not isolated and may see a part of the changes while
+     * they are applied; reads that must see all changes or none use a snapshot.
+     * Customers and articles are applied before the orders that refer to them.
+     * In durable mode, the changes are journaled as one record before they are
+     * applied, the record becomes durable with a single commit to disk. If the
+     * record cannot be journaled, nothing is applied.
+     * </p>
+     * 
+     * @param work callout that performs changes on the transaction's data store.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal work} is {@literal null}.
+     * @throws java.io.UncheckedIOException if the changes cannot be journaled.
+     */
+    DataStore transaction(Consumer<DataStore> work);
+
+
+    /**
+     * Write a binary snapshot of all customers, articles and orders to a file.
+     * An existing file is replaced only after the new snapshot was written completely.
+     * 
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be written.
+     */
+    DataStore dump(Path file);
+
+
+    /**
+     * Load a binary snapshot written by {@link #dump(Path)}. The file is memory-mapped
+     * and objects are decoded directly from the mapped buffer. Loaded objects replace
+     * objects with the same {@literal id}.
+     * 
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be read.
+     */
+    DataStore load(Path file);
+
+
+    /**
+     * Return a read-only view of the data store frozen at the current point in time.
+     * The view shows all changes completed before the call and none made after it.
+     * Methods of the view that modify objects throw {@link UnsupportedOperationException}.
+     * <p>
+     * In concurrent mode ({@link StorageEngine#CONCURRENT}), the view walks the live
+     * repositories without copying objects and writers are not blocked while the
+     * view is used, e.g. by long-running reports. Repositories outside concurrent
+     * mode cannot be walked while they change: lookups by id exclude writers of
+     * other threads for their duration and each scan, e.g. {@code findAll()}, a
+     * stream or a query, copies the references of all visible objects of a
+     * repository while writers of other threads are excluded.
+     * </p>
+     * <p>
+     * The view must be closed after use, since objects changed after the view was
+     * created are kept until then, e.g.
+     * {@code try(DataStore snapshot = dataStore.snapshot()) { ... }}.
+     * </p>
+     * <p>
+     * The view freezes which objects exist and which object is stored under each
+     * id, it does not freeze the state of objects. Objects are shared with the
+     * live data store: an object that is changed in place after the view was
+     * created, e.g. with {@code Order.addItem()} on a stored order, shows the
+     * change in the view as well. Objects that must not change for open views are
+     * replaced by saving a changed copy under the same id.
+     * </p>
+     * 
+     * @return read-only view of data store.
+     */
+    DataStore snapshot();
+
+
+    /**
+     * Subscribe to inserts, updates and deletes of objects of a type. Events are
+     * delivered in the order in which changes were applied, one at a time, on a
+     * delivery thread of the subscription.
+     * <p>
+     * Delivery is bounded: when more than {@literal capacity} events wait for the
+     * subscriber, threads that change objects are blocked after their change until
+     * the subscriber catches up. Changes made by subscribers on their delivery
+     * threads are never blocked, so subscribers that write back into data stores
+     * do not deadlock each other, and queues may exceed their capacity by these
+     * changes. Subscribers that write back run concurrently with other writers,
+     * which requires concurrent mode. A subscriber that throws an exception or
+     * error is cancelled.
+     * </p>
+     * 
+     * @param <T> generic type of objects, e.g. {@link Order}.
+     * @param type class of objects of which events are delivered, {@code Object.class} for all.
+     * @param capacity maximum number of events waiting for the subscriber.
+     * @param subscriber callout that receives events.
+     * @return subscription that stops delivery when closed.
+     * @throws IllegalArgumentException {@literal type} or {@literal subscriber} is
+     * {@literal null} or {@literal capacity} is not positive.
+     */
+    <T> Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber);
+
+
+    /**
+     * Subscription to {@link ChangeEvent}s returned by
+     * {@link DataStore#subscribe(Class, int, Consumer)}.
+     */
+    interface Subscription extends AutoCloseable {
+
+        /**
+         * Return true until the subscription is closed or cancelled.
+         * 
+         * @return true if events are delivered.
+         */
+        boolean isActive();
+
+        /**
+         * Stop delivery, events not yet delivered are discarded.
+         */
+        @Override
+        void close();
+    }
+
+
+    /**
+     * Close data store and release resources such as open files. The default
+     * implementation has no resources to release.
+     */
+    @Override
+    default void close() { }
+
+
+    /**
+     * Return repository of customers. Customers can be looked up by primitive
+     * {@code long} ids.
      * 
      * @return repository of customers.
      */
-    Repository<Customer, Long> customers();
+    LongIdRepository<Customer> customers();
 
     /**
-     * Return repository of articles.
+     * Return repository of articles. Articles are indexed by {@link TAX}
+     * in index {@code "tax"}.
      * 
      * @return repository of articles.
      */
     Repository<Article, String> articles();
 
     /**
-     * Return repository of orders.
+     * Return repository of orders. Orders can be looked up by numeric ids and
+     * are indexed by the id of the owning customer in index {@code "customer"},
+     * e.g. {@code orders().findAllByIndex("customer", 892474L)}.
      * 
      * @return repository of orders.
      */
-    Repository<Order, String> orders();
+    OrderRepository orders();
 
 }
@@ -23,7 +23,8 @@ public interface IoC {
     }
 
     /**
-     * DataStore component getter.
+     * DataStore component getter. The singleton is closed when the JVM shuts
+     * down, e.g. to write back the snapshot of the {@code "mapped"} engine.
      *  
      * @return reference to DataStore singleton instance. 
      */
@@ -59,6 +60,70 @@ public interface IoC {
     */
     DataFactory createDataFactory(DataStore dataStore);
 
+    /**
+     * Create repository for large, read-mostly article catalogs that stores
+     * articles off-heap and returns flyweight {@link datamodel.Article} views.
+     * The catalog is independent of the {@link DataStore}.
+     *
+     * @param capacity expected number of articles.
+     * @return reference to new article catalog.
+     */
+    Repository<datamodel.Article, String> createArticleCatalog(int capacity);
+
+    /**
+     * Create cache in front of a slower backend repository that keeps the
+     * {@literal capacity} most recently used objects and writes changes through
+     * to the backend.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     * @param <ID> generic type of object identifier (id).
+     * @param backend repository that holds all objects.
+     * @param getIdFunc function that obtains id from an object, e.g. {@code Customer::getId}.
+     * @param capacity maximum number of cached objects.
+     * @return reference to new caching repository.
+     */
+    <T, ID> CachingRepository<T, ID> createCachingRepository(Repository<T, ID> backend,
+            java.util.function.Function<T, ID> getIdFunc, int capacity);
+
+    /**
+     * Open a new data store with a storage engine, e.g. to compare engines on
+     * the same workload.
+     *
+     * @param engine name of {@link StorageEngine}, e.g. {@code "journal"}, or
+     * {@code null} to choose the engine by properties.
+     * @param properties configuration of data store, e.g. {@link StorageEngine#JOURNAL}.
+     * @return new data store, closed by the caller.
+     * @throws IllegalArgumentException engine is unknown or a property is
+     * missing or invalid.
+     */
+    DataStore createDataStore(String engine, java.util.Map<String, String> properties);
+
+    /**
+     * Create asynchronous facade of a repository that runs calls on virtual
+     * threads and lets at most {@literal maxConcurrency} calls run against the
+     * repository at the same time. A {@literal maxConcurrency} greater than 1
+     * requires a thread-safe repository, e.g. of a data store in concurrent mode.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     * @param <ID> generic type of object identifier (id).
+     * @param repository repository calls run against.
+     * @param maxConcurrency maximum number of concurrent calls.
+     * @return reference to new asynchronous repository.
+     * @throws IllegalArgumentException {@literal repository} is {@literal null},
+     * {@literal maxConcurrency} is not positive or greater than 1 for a repository
+     * of a data store outside concurrent mode.
+     */
+    <T, ID> AsyncRepository<T, ID> createAsyncRepository(Repository<T, ID> repository, int maxConcurrency);
+
+    /**
+     * Create aggregator that computes grouped sums of value, VAT and units of
+     * the orders of a data store in parallel, e.g. revenue by customer or day.
+     *
+     * @param dataStore data store with orders.
+     * @return reference to new aggregator.
+     */
+    Aggregator createAggregator(DataStore dataStore);
+
     public LabelPrinter getLabelPrinter();
 
 }
@@ -0,0 +1,50 @@
+package system;
+
+import java.util.Optional;
+
+
+/**
+ * Specialization of a {@link Repository} for objects with numeric {@code long}
+ * identifiers such as {@link datamodel.Customer}.
+ * <p>
+ * The interface adds overloads with primitive {@code long} ids. Implementations
+ * can store objects by primitive keys and look them up without boxing ids into
+ * {@link Long} objects.
+ * </p>
+ * 
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ * 
+ * @param <T> generic type of Repository objects (entities).
+ */
+
+public interface LongIdRepository<T> extends Repository<T, Long> {
+
+
+    /**
+     * Return result of a lookup of an object by its primitive {@literal id}.
+     * 
+     * @param id {@literal id} of object to find.
+     * @return result of lookup of an object by its {@literal id}.
+     */
+    Optional<T> findById(long id);
+
+
+    /**
+     * Return result of a lookup of an object by its primitive {@literal id}.
+     * 
+     * @param id {@literal id} of object to find.
+     * @return true if an object with {@literal id} exists in repository.
+     */
+    boolean existsById(long id);
+
+
+    /**
+     * Delete object with primitive id: {@literal id} from repository, if objects exists.
+     * No change of repository if no object with id: {@literal id} exists.
+     * 
+     * @param id {@literal id} of entity to delete.
+     */
+    void deleteById(long id);
+
+}
@@ -0,0 +1,73 @@
+package system;
+
+import java.util.Optional;
+
+import datamodel.Order;
+
+
+/**
+ * Specialization of a {@link Repository} for {@link Order} objects.
+ * <p>
+ * Order ids are Strings at the interface, but are usually numbers such as
+ * {@code "8592356245"}. Implementations can store orders with numeric ids by
+ * primitive {@code long} keys. The overloads with primitive ids look up orders
+ * without creating or hashing id Strings.
+ * </p>
+ * <p>
+ * Primitive keys are used outside concurrent mode only. In concurrent mode,
+ * orders are stored by String ids in a thread-safe map and the overloads with
+ * primitive ids format the id on each lookup.
+ * </p>
+ * <p>
+ * Orders are kept in a sorted index by creation date, which is also available
+ * as index {@code "creationDate"} to {@link #findAllByIndex(String, Object)}.
+ * The index follows changes of {@link Order#setCreationDate(long)}.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+
+public interface OrderRepository extends Repository<Order, String> {
+
+
+    /**
+     * Return result of a lookup of an order by its numeric {@literal id}.
+     *
+     * @param id numeric {@literal id} of order to find.
+     * @return result of lookup of an order by its {@literal id}.
+     */
+    Optional<Order> findById(long id);
+
+
+    /**
+     * Return result of a lookup of an order by its numeric {@literal id}.
+     *
+     * @param id numeric {@literal id} of order to find.
+     * @return true if an order with {@literal id} exists in repository.
+     */
+    boolean existsById(long id);
+
+
+    /**
+     * Delete order with numeric id: {@literal id} from repository, if order exists.
+     * No change of repository if no order with id: {@literal id} exists.
+     *
+     * @param id numeric {@literal id} of order to delete.
+     */
+    void deleteById(long id);
+
+
+    /**
+     * Return orders created in time range {@code [from, to)}, ordered by creation
+     * date, e.g. orders of the last 24h. Adjacent ranges do not overlap, so hourly
+     * or daily ranges count each order once. Lookup takes {@code O(log n + k)} for
+     * {@code k} orders in range.
+     *
+     * @param from lowest creation date (inclusive) in milliseconds since 01/01/1970.
+     * @param to upper bound of creation date (exclusive) in milliseconds since 01/01/1970.
+     * @return orders created in range, empty if {@code from >= to}.
+     */
+    Iterable<Order> findByCreationDateBetween(long from, long to);
+
+}
@@ -0,0 +1,164 @@
+package system;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+
+/**
+ * Declarative query over the objects of a {@link Repository}, obtained from
+ * {@link Repository#query()}, e.g.:
+ * <pre>
+ * orders.query()
+ *     .where("customer", Query.Op.EQ, 892474L)
+ *     .where("creationDate", Query.Op.GE, since)
+ *     .orderByDescending("creationDate")
+ *     .limit(10)
+ *     .list();
+ * </pre>
+ * <p>
+ * Fields are named by the name of an index of the repository (e.g. {@code "customer"},
+ * {@code "tax"}, {@code "creationDate"}) or by the name of a getter of the entity
+ * (e.g. {@code "unitPrice"} for {@code getUnitPrice()}). Conditions on indexed
+ * fields let the query planner look up candidates in the index instead of
+ * scanning all objects: equality conditions use hash or sorted indexes, range
+ * conditions use sorted indexes. Queries without usable index scan the
+ * repository in parallel. Ordered queries with a limit keep only the top
+ * {@code k} objects instead of sorting all matches.
+ * </p>
+ * <p>
+ * Queries are builders that are not thread-safe. A query is evaluated each time
+ * a result method such as {@link #list()} is called.
+ * </p>
+ *
+ * @param <T> generic type of queried objects (entities).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+
+public interface Query<T> {
+
+    /**
+     * Comparison operators of conditions. Values of {@link #LT}, {@link #LE},
+     * {@link #GT} and {@link #GE} conditions must be {@link Comparable}.
+     */
+    enum Op {
+        EQ, LT, LE, GT, GE
+    }
+
+
+    /**
+     * Add condition on a named field, conditions are combined with logical and.
+     * Objects for which the field is {@code null} never match.
+     *
+     * @param field name of an index or of a getter of the entity.
+     * @param op comparison operator.
+     * @param value value the field is compared with.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal field}, {@literal op} or
+     * {@literal value} is {@literal null}, or when objects are evaluated, no index
+     * or getter with name exists.
+     */
+    Query<T> where(String field, Op op, Object value);
+
+
+    /**
+     * Add condition on a field obtained by a function, conditions are combined
+     * with logical and. Conditions on functions cannot use indexes.
+     *
+     * @param <K> generic type of field.
+     * @param field function that obtains field from entity.
+     * @param op comparison operator.
+     * @param value value the field is compared with.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException an argument is {@literal null}.
+     */
+    <K> Query<T> where(Function<? super T, K> field, Op op, K value);
+
+
+    /**
+     * Add condition as predicate, conditions are combined with logical and.
+     * Predicates cannot use indexes.
+     *
+     * @param predicate predicate objects must match.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal predicate} is {@literal null}.
+     */
+    Query<T> where(Predicate<? super T> predicate);
+
+
+    /**
+     * Order result by a named field in ascending order, further calls add
+     * secondary orders. Objects for which the field is {@code null} come last.
+     *
+     * @param field name of an index or of a getter of the entity with {@link Comparable} values.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal field} is {@literal null}, or
+     * when objects are evaluated, no index or getter with name exists.
+     */
+    Query<T> orderBy(String field);
+
+
+    /**
+     * Order result by a named field in descending order, further calls add
+     * secondary orders. Objects for which the field is {@code null} come last.
+     *
+     * @param field name of an index or of a getter of the entity with {@link Comparable} values.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal field} is {@literal null}, or
+     * when objects are evaluated, no index or getter with name exists.
+     */
+    Query<T> orderByDescending(String field);
+
+
+    /**
+     * Limit the number of objects in result.
+     *
+     * @param n maximum number of objects in result.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal n} is negative.
+     */
+    Query<T> limit(int n);
+
+
+    /**
+     * Evaluate query and return result as stream.
+     *
+     * @return stream of objects that match the query.
+     */
+    Stream<T> stream();
+
+
+    /**
+     * Evaluate query and return result as list.
+     *
+     * @return list of objects that match the query.
+     */
+    default List<T> list() {
+        return stream().toList();
+    }
+
+
+    /**
+     * Evaluate query and return first object of result.
+     *
+     * @return first object that matches the query or empty result.
+     */
+    default Optional<T> first() {
+        return limit(1).stream().findFirst();
+    }
+
+
+    /**
+     * Evaluate query and return number of objects in result.
+     *
+     * @return number of objects that match the query.
+     */
+    default long count() {
+        return stream().count();
+    }
+
+}
@@ -1,6 +1,9 @@
 package system;
 
-import java.util.Optional;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -47,6 +50,95 @@ public interface Repository<T, ID> {
     Iterable<T> findAll();
 
 
+    /**
+     * Return a sequential stream over all repository objects. The stream reports
+     * its size if the repository can determine it without counting.
+     * 
+     * @return sequential stream over all repository objects.
+     */
+    default Stream<T> stream() {
+        return StreamSupport.stream(findAll().spliterator(), false);
+    }
+
+
+    /**
+     * Return a parallel stream over all repository objects. The underlying
+     * spliterator splits the storage of the repository into ranges that are
+     * processed by the common fork/join pool.
+     * 
+     * @return parallel stream over all repository objects.
+     */
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(findAll().spliterator(), true);
+    }
+
+
+    /**
+     * Return one page of repository objects: at most {@literal limit} objects after
+     * skipping {@literal offset} objects. Pages are stable as long as the repository
+     * is not modified. Use {@link #findAllPaged(int)} to walk through all pages
+     * without skipping from the start for each page.
+     * 
+     * @param offset number of objects skipped.
+     * @param limit maximum number of objects returned.
+     * @return page of repository objects.
+     * @throws IllegalArgumentException {@literal offset} or {@literal limit} is negative.
+     */
+    default Iterable<T> findAll(long offset, int limit) {
+        if(offset < 0 || limit < 0)
+            throw new IllegalArgumentException("argument offset or limit is negative.");
+        //
+        return stream().skip(offset).limit(limit).toList();
+    }
+
+
+    /**
+     * Return all repository objects as pages of at most {@literal pageSize} objects.
+     * Iteration keeps a cursor into the repository. Each page continues where the
+     * previous page ended and is fetched only when it is requested.
+     * 
+     * @param pageSize maximum number of objects per page.
+     * @return pages of repository objects.
+     * @throws IllegalArgumentException {@literal pageSize} is not positive.
+     */
+    default Iterable<List<T>> findAllPaged(int pageSize) {
+        if(pageSize <= 0)
+            throw new IllegalArgumentException("argument pageSize is not positive.");
+        //
+        return () -> new Iterator<List<T>>() {
+            private final Iterator<T> cursor = findAll().iterator();
+
+            @Override
+            public boolean hasNext() {
+                return cursor.hasNext();
+            }
+
+            @Override
+            public List<T> next() {
+                if( ! cursor.hasNext())
+                    throw new NoSuchElementException();
+                //
+                var page = new ArrayList<T>(pageSize);
+                while(page.size() < pageSize && cursor.hasNext()) {
+                    page.add(cursor.next());
+                }
+                return page;
+            }
+        };
+    }
+
+
+    /**
+     * Return new declarative {@link Query} over repository objects, e.g.
+     * {@code query().where("tax", Query.Op.EQ, TAX.GER_VAT).orderBy("unitPrice").limit(10).list()}.
+     * Conditions on indexed fields are looked up in indexes of the repository
+     * instead of scanning all objects.
+     * 
+     * @return new query over repository objects.
+     */
+    Query<T> query();
+
+
     /**
      * Return result of a lookup of an object by its {@literal id}.
      * 
@@ -78,6 +170,41 @@ public interface Repository<T, ID> {
     Iterable<T> findAllById(Iterable<ID> ids);
 
 
+    /**
+     * Create a secondary index with a {@literal name} over keys obtained from
+     * repository objects by a {@literal keyExtractor} function, for example
+     * {@code Order::getCustomer} or {@code Article::getTax}. Objects can then
+     * be looked up by key with {@link #findAllByIndex(String, Object)} without
+     * scanning the repository. Objects for which the extractor returns
+     * {@literal null} are not indexed.
+     * <p>
+     * The index is built from objects already in the repository and is kept
+     * consistent by all {@code save} and {@code delete} methods.
+     * </p>
+     * 
+     * @param <K> generic type of index key.
+     * @param name name of index, replaces a prior index with the same name.
+     * @param keyExtractor function that obtains the index key from an object.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal name} or {@literal keyExtractor}
+     * is {@literal null}.
+     */
+    <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor);
+
+
+    /**
+     * Return objects of the repository that have {@literal key} in the secondary
+     * index with {@literal name}.
+     * 
+     * @param name name of index created with {@link #createIndex(String, Function)}.
+     * @param key key looked up in index.
+     * @return objects with {@literal key} in index, empty if none match.
+     * @throws IllegalArgumentException {@literal name} is {@literal null} or no
+     * index with {@literal name} exists.
+     */
+    Iterable<T> findAllByIndex(String name, Object key);
+
+
     /**
      * Save object (entity) to a repository. Object replaces a prior object
      * with the same {@literal id}.
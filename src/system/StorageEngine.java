@@ -0,0 +1,69 @@
+package system;
+
+import java.util.Map;
+
+
+/**
+ * Service provider interface of storage engines that open {@link DataStore}
+ * instances, e.g. in-memory, journaled or partitioned data stores.
+ * <p>
+ * The engine of the {@link IoC#getDataStore()} singleton is selected by name
+ * with system property {@code -Dse1.datastore.engine=<name>} and configured by
+ * the other {@code se1.datastore.*} system properties, passed to the engine
+ * without prefix (e.g. {@code -Dse1.datastore.journal=orders.jnl} as
+ * {@code journal}). Engines can also be opened with
+ * {@link IoC#createDataStore(String, Map)}, e.g. to run the same workload on
+ * different engines.
+ * </p>
+ * <p>
+ * Built-in engines are {@code "memory"}, {@code "journal"}, {@code "mapped"}
+ * and {@code "partitioned"}. Other engines are discovered with
+ * {@link java.util.ServiceLoader} as providers of this interface or named by
+ * the fully qualified name of a class with a public no-argument constructor.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+
+public interface StorageEngine {
+
+    /**
+     * Property {@code "true"} for data stores used by multiple threads.
+     */
+    String CONCURRENT = "concurrent";
+
+    /**
+     * Property with path of a snapshot file.
+     */
+    String SNAPSHOT = "snapshot";
+
+    /**
+     * Property with path of a journal file.
+     */
+    String JOURNAL = "journal";
+
+    /**
+     * Property with number of partitions.
+     */
+    String PARTITIONS = "partitions";
+
+
+    /**
+     * Return name by which the engine is selected.
+     *
+     * @return name of engine, e.g. {@code "memory"}.
+     */
+    String getName();
+
+
+    /**
+     * Open a new data store.
+     *
+     * @param properties configuration of data store, e.g. {@link #JOURNAL}.
+     * @return new data store, closed by the caller.
+     * @throws IllegalArgumentException a required property is missing or invalid.
+     */
+    DataStore open(Map<String, String> properties);
+
+}
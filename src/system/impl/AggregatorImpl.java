@@ -0,0 +1,200 @@
+package system.impl;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import datamodel.Order;
+import datamodel.OrderItem;
+import datamodel.TAX;
+import system.Aggregator;
+import system.Calculator;
+import system.DataStore;
+
+
+/**
+ * Non-public implementation of the {@link Aggregator} interface.
+ * <p>
+ * Aggregations are mutable reductions of parallel streams of orders into
+ * {@link GroupAccumulator} instances, one per thread, that are merged when
+ * threads join. Orders of the data store are read from a snapshot, writers are
+ * not blocked while an aggregation runs if the data store is in concurrent mode.
+ * Outside concurrent mode, the snapshot copies the references of all orders
+ * while writers are excluded before the aggregation starts. Articles without id are grouped under
+ * the empty id {@code ""}.
+ * </p>
+ * <p>
+ * The snapshot fixes which orders are aggregated, not their items: orders are
+ * shared with the data store and may be changed in place while they are
+ * aggregated. Items of an order are therefore read while holding the lock of
+ * the order, which its item mutators hold as well, so each order contributes
+ * the items it has either before or after a concurrent change.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class AggregatorImpl implements Aggregator {
+
+    /**
+     * Tax rates indexed by ordinal.
+     */
+    private static final TAX[] taxes = TAX.values();
+
+    /**
+     * Data store with orders.
+     */
+    private final DataStore dataStore;
+
+    /**
+     * Calculator of values and VATs of order items.
+     */
+    private final Calculator calculator;
+
+
+    /**
+     * Constructor of aggregator of the orders of a data store.
+     *
+     * @param dataStore data store with orders.
+     * @param calculator calculator of values and VATs of order items.
+     * @throws IllegalArgumentException {@literal dataStore} or {@literal calculator}
+     * is {@literal null}.
+     */
+    AggregatorImpl(DataStore dataStore, Calculator calculator) {
+        if(dataStore==null)
+            throw new IllegalArgumentException("argument dataStore is null.");
+        if(calculator==null)
+            throw new IllegalArgumentException("argument calculator is null.");
+        //
+        this.dataStore = dataStore;
+        this.calculator = calculator;
+    }
+
+
+    @Override
+    public <K extends Comparable<? super K>> Aggregates<K> aggregate(Grouping<K> grouping) {
+        if(grouping==null)
+            throw new IllegalArgumentException("argument grouping is null.");
+        //
+        try(var snapshot = dataStore.snapshot()) {
+            return aggregate(grouping, snapshot.orders().parallelStream());
+        }
+    }
+
+
+    @Override
+    public <K extends Comparable<? super K>> Aggregates<K> aggregate(Grouping<K> grouping, Iterable<Order> orders) {
+        if(grouping==null)
+            throw new IllegalArgumentException("argument grouping is null.");
+        if(orders==null)
+            throw new IllegalArgumentException("argument orders is null.");
+        //
+        return aggregate(grouping, StreamSupport.stream(orders.spliterator(), true).map(order -> {
+            if(order==null)
+                throw new IllegalArgumentException("argument order is null.");
+            return order;
+        }));
+    }
+
+
+    /**
+     * Reduce stream of orders into aggregates of a grouping.
+     *
+     * @param <K> generic type of group keys.
+     * @param grouping grouping of order items.
+     * @param orders parallel stream of orders.
+     * @return sums by key of grouping.
+     */
+    @SuppressWarnings("unchecked")
+    private <K extends Comparable<? super K>> Aggregates<K> aggregate(Grouping<K> grouping, Stream<Order> orders) {
+        switch(grouping.getName()) {
+        case "tax":
+            return (Aggregates<K>)orders.collect(GroupAccumulator.LongKeys::new, this::addByTax,
+                GroupAccumulator.LongKeys::merge).aggregates(ordinal -> taxes[(int)ordinal]);
+        //
+        case "customer":
+            return (Aggregates<K>)orders.collect(GroupAccumulator.LongKeys::new,
+                (acc, order) -> addOrder(acc, order.getCustomer().getId(), order),
+                GroupAccumulator.LongKeys::merge).aggregates(Long::valueOf);
+        //
+        case "article":
+            return (Aggregates<K>)orders.collect(GroupAccumulator.ObjectKeys<String>::new, this::addByArticle,
+                GroupAccumulator.ObjectKeys::merge).aggregates();
+        //
+        case "day":
+            ZoneId zone = grouping.getZone();
+            return (Aggregates<K>)orders.collect(GroupAccumulator.LongKeys::new,
+                (acc, order) -> addOrder(acc, day(order, zone), order),
+                GroupAccumulator.LongKeys::merge).aggregates(LocalDate::ofEpochDay);
+        //
+        default:
+            throw new IllegalArgumentException("unknown grouping: \"" + grouping.getName() + "\".");
+        }
+    }
+
+
+    /**
+     * Add items of an order to the groups of their tax rates.
+     *
+     * @param acc accumulator of the current thread.
+     * @param order order to add.
+     */
+    private void addByTax(GroupAccumulator.LongKeys acc, Order order) {
+        synchronized(order) {
+            for(OrderItem item : order.getItems()) {
+                acc.add(item.getArticle().getTax().ordinal(), calculator.calculateOrderItemValue(item),
+                    calculator.calculateOrderItemVAT(item), item.getUnitsOrdered());
+            }
+        }
+    }
+
+
+    /**
+     * Add items of an order to the groups of their articles.
+     *
+     * @param acc accumulator of the current thread.
+     * @param order order to add.
+     */
+    private void addByArticle(GroupAccumulator.ObjectKeys<String> acc, Order order) {
+        synchronized(order) {
+            for(OrderItem item : order.getItems()) {
+                var id = item.getArticle().getId();
+                acc.add(id==null? "" : id, calculator.calculateOrderItemValue(item),
+                    calculator.calculateOrderItemVAT(item), item.getUnitsOrdered());
+            }
+        }
+    }
+
+
+    /**
+     * Add all items of an order to one group.
+     *
+     * @param acc accumulator of the current thread.
+     * @param key group key of order.
+     * @param order order to add.
+     */
+    private void addOrder(GroupAccumulator.LongKeys acc, long key, Order order) {
+        synchronized(order) {
+            long units = 0L;
+            for(OrderItem item : order.getItems()) {
+                units += item.getUnitsOrdered();
+            }
+            acc.add(key, calculator.calculateOrderValue(order), calculator.calculateOrderVAT(order), units);
+        }
+    }
+
+
+    /**
+     * Return day of creation of an order.
+     *
+     * @param order order.
+     * @param zone time zone in which days begin and end.
+     * @return day of creation as epoch day.
+     */
+    private static long day(Order order, ZoneId zone) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(order.getCreationDate()), zone).toEpochDay();
+    }
+
+}
@@ -0,0 +1,796 @@
+package system.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
+
+import datamodel.Article;
+import datamodel.Currency;
+import datamodel.TAX;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public {@link Repository} of {@link Article} objects that stores articles
+ * in direct (off-heap) memory instead of keeping {@link Article} objects on the heap.
+ * <p>
+ * Each article occupies a fixed-width record of {@value #RECORD} bytes in a direct
+ * {@link ByteBuffer}: references of id and description, price, currency, tax and
+ * the version of the article.
+ * Ids and descriptions are interned in a {@link StringArena}, articles with equal
+ * descriptions share one copy. Ids are looked up in an off-heap hash table of
+ * record slots. A catalog of millions of articles therefore consists of a few
+ * buffers on the heap the garbage collector does not have to scan.
+ * </p>
+ * <p>
+ * Lookups return flyweight {@link Article} views that read their fields from
+ * the record on each access. Setters of a view write through to the record.
+ * Changes of price or tax by setters of views and by saving an article again
+ * change the version of the record, so orders account items of the article
+ * again. A view becomes invalid when its article is deleted from the catalog, access then
+ * throws {@link IllegalStateException}. Saved objects are copied into records and
+ * are not retained by the catalog.
+ * </p>
+ * <p>
+ * The catalog is thread-safe, reads share a read lock and changes take the write
+ * lock. It is a standalone repository for large, read-mostly catalogs: it is not
+ * part of the snapshots, transactions and journal of a {@link system.DataStore}.
+ * Secondary indexes are evaluated by scanning records, since an on-heap index
+ * would hold the objects the catalog avoids. Memory of replaced descriptions and
+ * of ids of deleted articles is not reclaimed.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class ArticleCatalog implements Repository<Article, String> {
+
+    /**
+     * Record layout: offsets of fields and size of a record in bytes.
+     */
+    private static final int ID = 0;            // int, reference of id, -1 for free slots
+    private static final int DESCRIPTION = 4;   // int, reference of description, next free slot for free slots
+    private static final int PRICE = 8;         // long, unit price in cent
+    private static final int CURRENCY = 16;     // byte, ordinal of Currency
+    private static final int TAX_RATE = 17;     // byte, ordinal of TAX
+    private static final int VERSION = 20;      // int, number of price or tax changes
+    private static final int RECORD = 24;
+
+    /**
+     * Enum values decoded from ordinals.
+     */
+    private static final Currency[] currencies = Currency.values();
+    private static final TAX[] taxes = TAX.values();
+
+    /**
+     * Records of articles, grows by doubling.
+     */
+    private ByteBuffer records;
+
+    /**
+     * Number of record slots in use, including free slots.
+     */
+    private int top = 0;
+
+    /**
+     * First slot of the list of free slots, {@code -1} if list is empty.
+     */
+    private int free = -1;
+
+    /**
+     * Number of articles.
+     */
+    private int size = 0;
+
+    /**
+     * Hash table of record slots + 1 by id, {@code 0} marks an empty entry.
+     */
+    private IntBuffer table;
+
+    /**
+     * Interned ids and descriptions.
+     */
+    private final StringArena strings;
+
+    /**
+     * Key extractors of indexes by name.
+     */
+    private final Map<String, Function<? super Article, ?>> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Lock that guards records, table and arena.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+
+    /**
+     * Constructor of an empty catalog.
+     *
+     * @param capacity expected number of articles.
+     */
+    ArticleCatalog(int capacity) {
+        int n = Math.max(capacity, 16);
+        this.records = ByteBuffer.allocateDirect(n * RECORD);
+        this.table = allocateTable(n);
+        this.strings = new StringArena(n * 32);
+    }
+
+
+    /**
+     * Return the number of articles in the catalog.
+     *
+     * @return number of articles.
+     */
+    @Override
+    public long count() {
+        return read(() -> (long)size);
+    }
+
+
+    /**
+     * Return views of all articles. The iteration is weakly consistent: it never
+     * throws {@link ConcurrentModificationException} and returns articles that
+     * exist when the iteration reaches them.
+     *
+     * @return views of all articles.
+     */
+    @Override
+    public Iterable<Article> findAll() {
+        return new Iterable<Article>() {
+            @Override
+            public Iterator<Article> iterator() {
+                return new Iterator<Article>() {
+                    private int slot = 0;
+                    private Article next = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        if(next==null) {
+                            next = read(() -> {
+                                for( ; slot < top; slot++) {
+                                    int ref = records.getInt(slot * RECORD + ID);
+                                    if(ref >= 0)
+                                        return new View(slot++, ref, null);
+                                }
+                                return null;
+                            });
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Article next() {
+                        if( ! hasNext())
+                            throw new NoSuchElementException();
+                        //
+                        Article view = next;
+                        next = null;
+                        return view;
+                    }
+                };
+            }
+            @Override
+            public Spliterator<Article> spliterator() {
+                return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.NONNULL);
+            }
+        };
+    }
+
+
+    /**
+     * Return new query over the catalog. Queries scan the records and resolve
+     * fields by getters of {@link Article}.
+     *
+     * @return new query over articles.
+     */
+    @Override
+    public Query<Article> query() {
+        return new QueryImpl<Article>(this, name -> null, false);
+    }
+
+
+    /**
+     * Return result of a lookup of an article by its {@literal id}.
+     *
+     * @param id {@literal id} of article to find.
+     * @return view of article with {@literal id} or empty result.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public Optional<Article> findById(String id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        return Optional.ofNullable(read(() -> {
+            int slot = slotOf(id);
+            return slot < 0? null : new View(slot, records.getInt(slot * RECORD + ID), id);
+        }));
+    }
+
+
+    /**
+     * Return result of a lookup of an article by its {@literal id}.
+     *
+     * @param id {@literal id} of article to find.
+     * @return true if an article with {@literal id} exists.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public boolean existsById(String id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        return read(() -> slotOf(id) >= 0);
+    }
+
+
+    /**
+     * Return views of articles with {@literal ids}.
+     *
+     * @param ids collection of {@literal ids} for which articles are looked up.
+     * @return views of articles found.
+     * @throws IllegalArgumentException {@literal ids} is {@literal null}.
+     */
+    @Override
+    public Iterable<Article> findAllById(Iterable<String> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        return StreamSupport.stream(ids.spliterator(), false)
+            .filter(id -> id != null)
+            .map(id -> findById(id).orElse(null))
+            .filter(a -> a != null).toList();
+    }
+
+
+    /**
+     * Register a secondary index. Lookups by the index scan the records and
+     * extract keys from views, no index is kept on the heap.
+     *
+     * @param <K> generic type of index key.
+     * @param name name of index, replaces a prior index with the same name.
+     * @param keyExtractor function that obtains the index key from an article.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal name} or {@literal keyExtractor}
+     * is {@literal null}.
+     */
+    @Override
+    public <K> Repository<Article, String> createIndex(String name, Function<? super Article, K> keyExtractor) {
+        if(name==null || keyExtractor==null)
+            throw new IllegalArgumentException("argument name or keyExtractor is null.");
+        //
+        indexes.put(name, keyExtractor);
+        return this;
+    }
+
+
+    /**
+     * Return views of articles that have {@literal key} in the index with {@literal name}.
+     *
+     * @param name name of index created with {@link #createIndex(String, Function)}.
+     * @param key key looked up in index.
+     * @return views of articles with {@literal key}, empty if none match.
+     * @throws IllegalArgumentException {@literal name} is {@literal null} or no
+     * index with {@literal name} exists.
+     */
+    @Override
+    public Iterable<Article> findAllByIndex(String name, Object key) {
+        if(name==null)
+            throw new IllegalArgumentException("argument name is null.");
+        //
+        var keyExtractor = indexes.get(name);
+        if(keyExtractor==null)
+            throw new IllegalArgumentException(String.format("no index: \"%s\".", name));
+        //
+        return stream().filter(a -> Objects.equals(key, keyExtractor.apply(a))).toList();
+    }
+
+
+    /**
+     * Copy article into its record, replaces the record of a prior article with
+     * the same {@literal id}.
+     *
+     * @param <S> sub-class of {@link Article}.
+     * @param entity article saved to the catalog.
+     * @return the saved entity.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public <S extends Article> S save(S entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        if(entity.getId()==null)
+            throw new IllegalArgumentException("entity.id is null.");
+        //
+        write(() -> put(entity));
+        return entity;
+    }
+
+
+    /**
+     * Copy collection of articles into records under one write lock.
+     *
+     * @param <S> sub-class of {@link Article}.
+     * @param entities collection of articles saved to the catalog.
+     * @return collection of saved articles.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null} or
+     * contains {@literal null} or an article with a {@literal null} id.
+     */
+    @Override
+    public <S extends Article> Iterable<S> saveAll(Iterable<S> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        var saved = new ArrayList<S>();
+        write(() -> {
+            for(S entity : entities) {
+                if(entity==null)
+                    throw new IllegalArgumentException("argument entity is null.");
+                //
+                if(entity.getId()==null)
+                    throw new IllegalArgumentException("entity.id is null.");
+                //
+                put(entity);
+                saved.add(entity);
+            }
+        });
+        return saved;
+    }
+
+
+    /**
+     * Delete article with id: {@literal id}, if article exists.
+     *
+     * @param id {@literal id} of article to delete.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public void deleteById(String id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        write(() -> remove(id));
+    }
+
+
+    /**
+     * Delete article, if article exists.
+     *
+     * @param entity {@literal entity} to delete.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public void delete(Article entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        String id = entity.getId();
+        if(id==null)
+            throw new IllegalArgumentException("entity.id is null.");
+        //
+        write(() -> remove(id));
+    }
+
+
+    /**
+     * Delete articles with matching {@literal ids}.
+     *
+     * @param ids collection of {@literal ids} to delete.
+     * @throws IllegalArgumentException {@literal ids} is {@literal null}.
+     */
+    @Override
+    public void deleteAllById(Iterable<? extends String> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        write(() -> {
+            for(String id : ids) {
+                if(id != null) {
+                    remove(id);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Delete collection of articles.
+     *
+     * @param entities collection of {@literal entities} to delete.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null}.
+     */
+    @Override
+    public void deleteAll(Iterable<? extends Article> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        write(() -> {
+            for(Article a : entities) {
+                String id = a==null? null : a.getId();
+                if(id != null) {
+                    remove(id);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * Delete all articles. Interned Strings are kept.
+     */
+    @Override
+    public void deleteAll() {
+        write(() -> {
+            table = allocateTable(16);
+            top = 0;
+            free = -1;
+            size = 0;
+        });
+    }
+
+
+    /**
+     * Copy fields of article into the record of its id, allocate a record if no
+     * article with the id exists. Caller holds the write lock.
+     *
+     * @param article article to copy.
+     */
+    private void put(Article article) {
+        int ref = strings.intern(article.getId());
+        int slot = slotOf(ref);
+        boolean replaced = slot >= 0;
+        if( ! replaced) {
+            slot = allocate();
+            records.putInt(slot * RECORD + ID, ref);
+            records.putInt(slot * RECORD + VERSION, 0);
+            insert(slot);
+        }
+        int base = slot * RECORD;
+        boolean modified = replaced && (records.getLong(base + PRICE) != article.getUnitPrice()
+            || records.get(base + TAX_RATE) != (byte)article.getTax().ordinal());
+        records.putInt(base + DESCRIPTION, strings.intern(article.getDescription()));
+        records.putLong(base + PRICE, article.getUnitPrice());
+        records.put(base + CURRENCY, (byte)article.getCurrency().ordinal());
+        records.put(base + TAX_RATE, (byte)article.getTax().ordinal());
+        if(modified) {
+            new View(slot, ref, article.getId()).modified();    // views of the record show the new price or tax
+        }
+    }
+
+
+    /**
+     * Remove article with id and free its record. Caller holds the write lock.
+     *
+     * @param id id of article to remove.
+     */
+    private void remove(String id) {
+        int ref = strings.find(id);
+        if(ref < 0)
+            return;
+        //
+        int mask = table.capacity() - 1;
+        for(int i = StringArena.spread(strings.hash(ref)) & mask, s; (s = table.get(i)) != 0; i = (i + 1) & mask) {
+            int slot = s - 1;
+            if(records.getInt(slot * RECORD + ID)==ref) {
+                shiftBack(i);
+                records.putInt(slot * RECORD + ID, -1);
+                records.putInt(slot * RECORD + DESCRIPTION, free);
+                free = slot;
+                size--;
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Return slot of article with id. Caller holds a lock.
+     *
+     * @param id id of article.
+     * @return slot of article or {@code -1}.
+     */
+    private int slotOf(String id) {
+        int ref = strings.find(id);
+        return ref < 0? -1 : slotOf(ref);
+    }
+
+
+    /**
+     * Return slot of article with interned id. Caller holds a lock.
+     *
+     * @param ref reference of interned id.
+     * @return slot of article or {@code -1}.
+     */
+    private int slotOf(int ref) {
+        int mask = table.capacity() - 1;
+        for(int i = StringArena.spread(strings.hash(ref)) & mask, s; (s = table.get(i)) != 0; i = (i + 1) & mask) {
+            if(records.getInt((s - 1) * RECORD + ID)==ref)
+                return s - 1;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Take a slot from the list of free slots or append a slot, grow records
+     * if needed. Caller holds the write lock.
+     *
+     * @return allocated slot.
+     */
+    private int allocate() {
+        if(free >= 0) {
+            int slot = free;
+            free = records.getInt(slot * RECORD + DESCRIPTION);
+            return slot;
+        }
+        if((top + 1) * RECORD > records.capacity()) {
+            long grown = 2L * records.capacity();
+            if(grown > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("article catalog is full.");
+            //
+            var copy = ByteBuffer.allocateDirect((int)grown);
+            copy.put(0, records, 0, top * RECORD);
+            records = copy;
+        }
+        return top++;
+    }
+
+
+    /**
+     * Insert slot of a new article into the hash table, grow table if needed.
+     * Caller holds the write lock.
+     *
+     * @param slot slot of new article.
+     */
+    private void insert(int slot) {
+        if(++size > table.capacity() / 4 * 3) {
+            var old = table;
+            table = allocateTable(table.capacity());
+            for(int j=0; j < old.capacity(); j++) {
+                if(old.get(j) != 0) {
+                    place(old.get(j) - 1);
+                }
+            }
+        }
+        place(slot);
+    }
+
+
+    /**
+     * Place slot at the first empty entry of its probe sequence.
+     *
+     * @param slot slot to place.
+     */
+    private void place(int slot) {
+        int mask = table.capacity() - 1;
+        int ref = records.getInt(slot * RECORD + ID);
+        int i = StringArena.spread(strings.hash(ref)) & mask;
+        for( ; table.get(i) != 0; i = (i + 1) & mask);
+        table.put(i, slot + 1);
+    }
+
+
+    /**
+     * Close the gap at a removed table entry by moving following entries of the
+     * probe sequence back (no tombstones are needed).
+     *
+     * @param gap removed entry.
+     */
+    private void shiftBack(int gap) {
+        int mask = table.capacity() - 1;
+        table.put(gap, 0);
+        for(int i = (gap + 1) & mask, s; (s = table.get(i)) != 0; i = (i + 1) & mask) {
+            int home = StringArena.spread(strings.hash(records.getInt((s - 1) * RECORD + ID))) & mask;
+            // move entry if its home entry is not cyclically within (gap, i]
+            if(((i - home) & mask) >= ((i - gap) & mask)) {
+                table.put(gap, s);
+                table.put(i, 0);
+                gap = i;
+            }
+        }
+    }
+
+
+    /**
+     * Allocate hash table that holds {@literal expected} slots below the load factor.
+     *
+     * @param expected expected number of slots.
+     * @return empty hash table.
+     */
+    private static IntBuffer allocateTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) * 2;
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+    }
+
+
+    /**
+     * Run reader under the read lock.
+     *
+     * @param <R> type of result.
+     * @param reader reader to run.
+     * @return result of reader.
+     */
+    private <R> R read(Supplier<R> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+
+    /**
+     * Run change under the write lock.
+     *
+     * @param change change to run.
+     */
+    private void write(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Flyweight {@link Article} that reads and writes the fields of a record.
+     */
+    private final class View extends Article {
+
+        /**
+         * Slot of record and reference of id the record had when the view was created.
+         */
+        private final int slot;
+        private final int ref;
+
+        /**
+         * Decoded id, {@code null} until first accessed.
+         */
+        private String id;
+
+
+        /**
+         * Constructor of view of a record.
+         *
+         * @param slot slot of record.
+         * @param ref reference of id of record.
+         * @param id decoded id, {@code null} to decode on first access.
+         */
+        View(int slot, int ref, String id) {
+            this.slot = slot;
+            this.ref = ref;
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            if(id==null) {
+                id = read(() -> strings.get(ref));
+            }
+            return id;
+        }
+
+        @Override
+        public Article setId(String id) {
+            if(id == null || id.isEmpty())
+                throw new IllegalArgumentException("invalid id (null or \"\").");
+            //
+            return this;    // id of a catalog article is immutable
+        }
+
+        @Override
+        public String getDescription() {
+            return read(() -> strings.get(records.getInt(base() + DESCRIPTION)));
+        }
+
+        @Override
+        public Article setDescription(String description) {
+            if(description == null || description.equals(""))
+                throw new IllegalArgumentException("invalid description (null or \"\").");
+            //
+            write(() -> {
+                records.putInt(base() + DESCRIPTION, strings.intern(description));
+            });
+            return this;
+        }
+
+        @Override
+        public long getUnitPrice() {
+            return read(() -> records.getLong(base() + PRICE));
+        }
+
+        @Override
+        public Article setUnitPrice(long unitPrice) {
+            if(unitPrice >= 0) {
+                write(() -> {
+                    int base = base();
+                    if(records.getLong(base + PRICE) != unitPrice) {
+                        records.putLong(base + PRICE, unitPrice);
+                        modified();
+                    }
+                });
+            }
+            return this;
+        }
+
+        @Override
+        public Currency getCurrency() {
+            return read(() -> currencies[records.get(base() + CURRENCY)]);
+        }
+
+        @Override
+        public Article setCurrency(Currency currency) {
+            if(currency == null)
+                throw new IllegalArgumentException("invalid currency (null).");
+            //
+            write(() -> {
+                records.put(base() + CURRENCY, (byte)currency.ordinal());
+            });
+            return this;
+        }
+
+        @Override
+        public TAX getTax() {
+            return read(() -> taxes[records.get(base() + TAX_RATE)]);
+        }
+
+        @Override
+        public Article setTax(TAX tax) {
+            if(tax == null)
+                throw new IllegalArgumentException("invalid tax (null).");
+            //
+            write(() -> {
+                int base = base();
+                if(records.get(base + TAX_RATE) != (byte)tax.ordinal()) {
+                    records.put(base + TAX_RATE, (byte)tax.ordinal());
+                    modified();
+                }
+            });
+            return this;
+        }
+
+        @Override
+        public long getVersion() {
+            return read(() -> records.getInt(base() + VERSION));
+        }
+
+        /**
+         * Count a change of price or tax in the version of the record, caller
+         * holds the write lock.
+         */
+        @Override
+        protected void modified() {
+            int base = base();
+            records.putInt(base + VERSION, records.getInt(base + VERSION) + 1);
+            super.modified();
+        }
+
+        /**
+         * Return offset of record, caller holds a lock.
+         *
+         * @return offset of record.
+         * @throws IllegalStateException article was deleted from the catalog.
+         */
+        private int base() {
+            int base = slot * RECORD;
+            if(slot >= top || records.getInt(base + ID) != ref)
+                throw new IllegalStateException("article was deleted.");
+            //
+            return base;
+        }
+    }
+
+}
@@ -0,0 +1,254 @@
+package system.impl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.StreamSupport;
+
+import system.AsyncRepository;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public implementation of the {@link AsyncRepository} interface.
+ * <p>
+ * Calls run on virtual threads if the Java runtime provides them (Java 21 and
+ * later, looked up by reflection so the class also runs on older runtimes).
+ * Each call acquires a permit of a fair {@link Semaphore} before it runs
+ * against the repository, waiting for a permit parks the virtual thread
+ * without blocking a platform thread. On runtimes without virtual threads,
+ * calls run on a pool of daemon threads of the size of the permits, waiting
+ * calls then queue without occupying threads.
+ * </p>
+ * <p>
+ * Repositories of data stores report whether they were created in concurrent
+ * mode, partitioned and caching repositories report the mode of their shards or
+ * backend. The facade refuses to run concurrent calls against repositories that
+ * are not in concurrent mode. The thread safety of other repositories is not
+ * checked.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class AsyncRepositoryImpl<T, ID> implements AsyncRepository<T, ID> {
+
+    /**
+     * Executor that starts a virtual thread per task, {@code null} if the
+     * runtime has no virtual threads.
+     */
+    private static final Executor virtualThreads = virtualThreadExecutor();
+
+    /**
+     * Repository calls run against.
+     */
+    private final Repository<T, ID> repository;
+
+    /**
+     * Maximum number of concurrent calls.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Permits of calls that run against the repository.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Executor that runs calls.
+     */
+    private final Executor executor;
+
+
+    /**
+     * Constructor of asynchronous facade of a repository.
+     *
+     * @param repository repository calls run against.
+     * @param maxConcurrency maximum number of concurrent calls.
+     * @throws IllegalArgumentException {@literal repository} is {@literal null},
+     * {@literal maxConcurrency} is not positive or greater than 1 for a repository
+     * of a data store outside concurrent mode, also behind a cache.
+     */
+    AsyncRepositoryImpl(Repository<T, ID> repository, int maxConcurrency) {
+        if(repository==null)
+            throw new IllegalArgumentException("argument repository is null.");
+        if(maxConcurrency <= 0)
+            throw new IllegalArgumentException("argument maxConcurrency is not positive.");
+        if(maxConcurrency > 1 && ! RepositoryImpl.isConcurrent(repository))
+            throw new IllegalArgumentException("repository is not in concurrent mode, maxConcurrency must be 1.");
+        //
+        this.repository = repository;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency, true);
+        if(virtualThreads != null) {
+            this.executor = virtualThreads;
+        } else {
+            var pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    var thread = new Thread(task, "async-repository");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            pool.allowCoreThreadTimeOut(true);  // idle facades hold no threads
+            this.executor = pool;
+        }
+    }
+
+
+    @Override
+    public Repository<T, ID> repository() {
+        return repository;
+    }
+
+
+    @Override
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+
+    @Override
+    public CompletableFuture<Long> countAsync() {
+        return call(repository::count);
+    }
+
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return call(() -> repository.stream().toList());
+    }
+
+
+    @Override
+    public CompletableFuture<Optional<T>> findByIdAsync(ID id) {
+        return call(() -> repository.findById(id));
+    }
+
+
+    @Override
+    public CompletableFuture<Boolean> existsByIdAsync(ID id) {
+        return call(() -> repository.existsById(id));
+    }
+
+
+    @Override
+    public CompletableFuture<List<T>> findAllByIdAsync(Iterable<ID> ids) {
+        return call(() -> list(repository.findAllById(ids)));
+    }
+
+
+    @Override
+    public CompletableFuture<List<T>> findAllByIndexAsync(String name, Object key) {
+        return call(() -> list(repository.findAllByIndex(name, key)));
+    }
+
+
+    @Override
+    public CompletableFuture<List<T>> listAsync(Query<T> query) {
+        if(query==null)
+            throw new IllegalArgumentException("argument query is null.");
+        //
+        return call(query::list);
+    }
+
+
+    @Override
+    public <S extends T> CompletableFuture<S> saveAsync(S entity) {
+        return call(() -> repository.save(entity));
+    }
+
+
+    @Override
+    public <S extends T> CompletableFuture<Iterable<S>> saveAllAsync(Iterable<S> entities) {
+        return call(() -> repository.saveAll(entities));
+    }
+
+
+    @Override
+    public CompletableFuture<Void> deleteByIdAsync(ID id) {
+        return call(() -> {
+            repository.deleteById(id);
+            return null;
+        });
+    }
+
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(T entity) {
+        return call(() -> {
+            repository.delete(entity);
+            return null;
+        });
+    }
+
+
+    @Override
+    public CompletableFuture<Void> deleteAllByIdAsync(Iterable<? extends ID> ids) {
+        return call(() -> {
+            repository.deleteAllById(ids);
+            return null;
+        });
+    }
+
+
+    /**
+     * Run call against the repository when a permit is available.
+     *
+     * @param <R> generic type of result.
+     * @param call call of repository method.
+     * @return future that completes with the result of the call or exceptionally
+     * with the exception it threw.
+     */
+    private <R> CompletableFuture<R> call(Supplier<R> call) {
+        var future = new CompletableFuture<R>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+            } catch(InterruptedException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            try {
+                future.complete(call.get());
+            } catch(Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                permits.release();
+            }
+        });
+        return future;
+    }
+
+
+    /**
+     * Copy objects into list, e.g. results that are lazy views of a repository.
+     *
+     * @param objects objects to copy.
+     * @return list of objects.
+     */
+    private List<T> list(Iterable<T> objects) {
+        return StreamSupport.stream(objects.spliterator(), false).toList();
+    }
+
+
+    /**
+     * Look up {@code Executors.newVirtualThreadPerTaskExecutor()} by reflection.
+     *
+     * @return executor that starts a virtual thread per task or {@code null}
+     * if the runtime has no virtual threads.
+     */
+    private static Executor virtualThreadExecutor() {
+        try {
+            return (Executor)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        //
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            return null;    // Java 20 or earlier, or preview feature not enabled
+        }
+    }
+
+}
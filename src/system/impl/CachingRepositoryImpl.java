@@ -0,0 +1,302 @@
+package system.impl;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import system.CachingRepository;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public implementation of the {@link CachingRepository} interface that
+ * decorates a backend {@link Repository} with a bounded LRU cache.
+ * <p>
+ * The cache is an access-ordered {@link LinkedHashMap} that evicts the least
+ * recently used object when it exceeds its capacity. The cache is guarded by
+ * its own monitor, the backend is never called while the monitor is held, so
+ * slow backend I/O does not block cache hits of other threads.
+ * </p>
+ * <p>
+ * Changes are written through to the backend first and then invalidate the
+ * cached object, the next lookup loads it from the backend. Objects loaded on
+ * a miss are only cached if no change passed through the cache while they were
+ * loaded. Concurrent saves and deletes of the same id therefore never leave an
+ * object in the cache that differs from the backend: an object cached after a
+ * change completed was loaded after the change.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class CachingRepositoryImpl<T, ID> implements CachingRepository<T, ID> {
+
+    /**
+     * Backend repository that holds all objects.
+     */
+    private final Repository<T, ID> backend;
+
+    /**
+     * Externally provided function that obtains id from entity.
+     */
+    private final Function<T, ID> getIdFunc;
+
+    /**
+     * Cache of recently used objects in access order, least recently used first.
+     */
+    private final LinkedHashMap<ID, T> cache;
+
+    /**
+     * Number of changes that passed through the cache, guarded by cache monitor.
+     */
+    private long changes = 0L;
+
+    /**
+     * Hit and miss counters.
+     */
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+
+    /**
+     * Constructor of cache in front of a backend repository.
+     *
+     * @param backend backend repository.
+     * @param getIdFunc function that obtains id from entity of type T.
+     * @param capacity maximum number of cached objects.
+     * @throws IllegalArgumentException {@literal backend} or {@literal getIdFunc}
+     * is {@literal null} or {@literal capacity} is not positive.
+     */
+    CachingRepositoryImpl(Repository<T, ID> backend, Function<T, ID> getIdFunc, int capacity) {
+        if(backend==null || getIdFunc==null)
+            throw new IllegalArgumentException("argument backend or getIdFunc is null.");
+        //
+        if(capacity <= 0)
+            throw new IllegalArgumentException("argument capacity is not positive.");
+        //
+        this.backend = backend;
+        this.getIdFunc = getIdFunc;
+        this.cache = new LinkedHashMap<ID, T>(Math.min(capacity, 1 << 16), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ID, T> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+
+    /**
+     * Return true if the backend is in concurrent mode and the repository can
+     * be used by multiple threads.
+     *
+     * @return true if the backend is in concurrent mode.
+     */
+    boolean isConcurrent() {
+        return RepositoryImpl.isConcurrent(backend);
+    }
+
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+
+    @Override
+    public int getCacheSize() {
+        synchronized(cache) {
+            return cache.size();
+        }
+    }
+
+
+    @Override
+    public void invalidate(ID id) {
+        synchronized(cache) {
+            cache.remove(id);
+            changes++;
+        }
+    }
+
+
+    @Override
+    public void invalidateAll() {
+        synchronized(cache) {
+            cache.clear();
+            changes++;
+        }
+    }
+
+
+    @Override
+    public long count() {
+        return backend.count();
+    }
+
+
+    @Override
+    public Iterable<T> findAll() {
+        return backend.findAll();
+    }
+
+
+    @Override
+    public Query<T> query() {
+        return backend.query();
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its {@literal id} from the cache
+     * or, on a miss, from the backend.
+     *
+     * @param id {@literal id} of object to find.
+     * @return result of lookup of an object by its {@literal id}.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public Optional<T> findById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        long observed;
+        synchronized(cache) {
+            T cached = cache.get(id);
+            if(cached != null) {
+                hits.increment();
+                return Optional.of(cached);
+            }
+            observed = changes;
+        }
+        misses.increment();
+        var loaded = backend.findById(id);
+        loaded.ifPresent(e -> {
+            synchronized(cache) {
+                if(changes==observed) {     // no change while loading
+                    cache.put(id, e);
+                }
+            }
+        });
+        return loaded;
+    }
+
+
+    @Override
+    public boolean existsById(ID id) {
+        return findById(id).isPresent();
+    }
+
+
+    @Override
+    public Iterable<T> findAllById(Iterable<ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        var found = new ArrayList<T>();
+        for(ID id : ids) {
+            if(id != null) {
+                findById(id).ifPresent(found::add);
+            }
+        }
+        return found;
+    }
+
+
+    @Override
+    public <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor) {
+        backend.createIndex(name, keyExtractor);
+        return this;
+    }
+
+
+    @Override
+    public Iterable<T> findAllByIndex(String name, Object key) {
+        return backend.findAllByIndex(name, key);
+    }
+
+
+    /**
+     * Save object to the backend and then invalidate the cached object.
+     *
+     * @param <S> sub-class of {@code <T>}.
+     * @param entity object saved to the repository.
+     * @return the saved entity.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public <S extends T> S save(S entity) {
+        S saved = backend.save(entity);
+        invalidate(getIdFunc.apply(saved));
+        return saved;
+    }
+
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        Iterable<S> saved = backend.saveAll(entities);
+        synchronized(cache) {
+            saved.forEach(e -> cache.remove(getIdFunc.apply(e)));
+            changes++;
+        }
+        return saved;
+    }
+
+
+    @Override
+    public void deleteById(ID id) {
+        backend.deleteById(id);
+        invalidate(id);
+    }
+
+
+    @Override
+    public void delete(T entity) {
+        backend.delete(entity);
+        invalidate(getIdFunc.apply(entity));
+    }
+
+
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        backend.deleteAllById(ids);
+        synchronized(cache) {
+            ids.forEach(id -> cache.remove(id));
+            changes++;
+        }
+    }
+
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        backend.deleteAll(entities);
+        synchronized(cache) {
+            for(T e : entities) {
+                ID id = e==null? null : getIdFunc.apply(e);
+                if(id != null) {
+                    cache.remove(id);
+                }
+            }
+            changes++;
+        }
+    }
+
+
+    @Override
+    public void deleteAll() {
+        backend.deleteAll();
+        invalidateAll();
+    }
+
+}
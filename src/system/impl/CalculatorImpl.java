@@ -5,26 +5,25 @@ import datamodel.Order;
 import datamodel.OrderItem;
 import datamodel.TAX;
 
-import java.util.Map;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.StreamSupport;
 
 class CalculatorImpl implements Calculator {
 
-    private final Map<TAX, Double> taxRateMapper = Map.of(
-            TAX.TAXFREE, 0.0,   // tax free rate
-            TAX.GER_VAT, 0.19,   // German VAT tax (MwSt) 19.0%
-            TAX.GER_VAT_REDUCED, 0.07    // German reduced VAT tax (MwSt) 7.0%
-    );
+    /**
+     * Number of orders below which calculateTotalsParallel() does not split work.
+     */
+    private static final int BATCH = 1024;
 
     @Override
     public long calculateOrderValue(final Order order) {
         if (order == null)
             throw new IllegalArgumentException("argument order is null.");
 
-        long value = 0;
-        for (OrderItem oi : order.getItems()) {
-            value += calculateOrderItemValue(oi);
-        }
-        return value;
+        return order.getValue();
     }
 
     @Override
@@ -41,11 +40,7 @@ class CalculatorImpl implements Calculator {
         if (order == null)
             throw new IllegalArgumentException("argument order is null.");
 
-        long value = 0;
-        for (OrderItem oi : order.getItems()) {
-            value += calculateOrderItemVAT(oi);
-        }
-        return value;
+        return order.getVAT();
     }
 
     @Override
@@ -54,19 +49,29 @@ class CalculatorImpl implements Calculator {
             throw new IllegalArgumentException("argument item is null.");
         }
 
-        double percentage = 0;
-        if (item.getArticle().getTax() == TAX.GER_VAT) {
-            percentage = 0.19;
-        } else if (item.getArticle().getTax() == TAX.GER_VAT_REDUCED) {
-            percentage = 0.07;
-        }
-
         long priceInCent = item.getArticle().getUnitPrice() * item.getUnitsOrdered();
-        double priceInEuro = (double) priceInCent / 100;
-        double nettoPreis = priceInEuro / (1.0 + percentage);
-        double mehrwertsteuer = nettoPreis * percentage;
+        return item.getArticle().getTax().includedVAT(priceInCent);
+    }
+
+    @Override
+    public Totals calculateTotals(final Iterable<Order> orders) {
+        Order[] array = toArray(orders);
+        var totals = new Totals(array.length);
+        calculateTotals(array, 0, array.length, totals.getValues(), totals.getVATs());
+        return totals;
+    }
 
-        return Math.round(mehrwertsteuer * 100);
+    @Override
+    public Totals calculateTotalsParallel(final Iterable<Order> orders) {
+        Order[] array = toArray(orders);
+        var totals = new Totals(array.length);
+        ForkJoinPool.commonPool().invoke(new TotalsTask(array, 0, array.length, totals.getValues(), totals.getVATs()));
+        return totals;
+    }
+
+    @Override
+    public long calculateItemsValue(final Iterable<Order> orders) {
+        return Items.of(toArray(orders)).sum();
     }
 
     @Override
@@ -77,11 +82,133 @@ class CalculatorImpl implements Calculator {
             return 0;
         }
 
-        double taxRate = taxRateMapper.get(tax);
-        double netValue = grossValue / (1.0 + taxRate);
-        double calculatedTax = grossValue - netValue;
+        return tax.includedVAT(grossValue);
+    }
+
+    /**
+     * Copy value and VAT of a range of orders from their running totals.
+     *
+     * @param orders orders to calculate.
+     * @param from index of first order.
+     * @param to index after last order.
+     * @param values destination of order values.
+     * @param vats destination of order VATs.
+     */
+    private void calculateTotals(final Order[] orders, final int from, final int to, final long[] values, final long[] vats) {
+        for (int i = from; i < to; i++) {
+            values[i] = orders[i].getValue();
+            vats[i] = orders[i].getVAT();
+        }
+    }
 
-        return Math.round(calculatedTax);
+    /**
+     * Copy orders into array.
+     *
+     * @param orders orders to copy.
+     * @return array of orders.
+     * @throws IllegalArgumentException if orders is null or contains null.
+     */
+    private static Order[] toArray(final Iterable<Order> orders) {
+        if (orders == null)
+            throw new IllegalArgumentException("argument orders is null.");
+
+        Order[] array = orders instanceof Collection ?
+                ((Collection<Order>) orders).toArray(new Order[0]) :
+                StreamSupport.stream(orders.spliterator(), false).toArray(Order[]::new);
+        for (Order order : array) {
+            if (order == null)
+                throw new IllegalArgumentException("argument order is null.");
+        }
+        return array;
+    }
+
+    /**
+     * Fork/join task that splits a range of orders in halves until ranges are
+     * smaller than {@link #BATCH}, each range writes its own slots of the result.
+     */
+    private final class TotalsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Order[] orders;
+        private final int from, to;
+        private final long[] values, vats;
+
+        TotalsTask(Order[] orders, int from, int to, long[] values, long[] vats) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+            this.values = values;
+            this.vats = vats;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH) {
+                calculateTotals(orders, from, to, values, vats);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new TotalsTask(orders, from, mid, values, vats),
+                        new TotalsTask(orders, mid, to, values, vats));
+            }
+        }
+    }
+
+    /**
+     * Order items laid out in columns of primitive arrays, unit prices and
+     * units ordered of an item are stored at the same index. The loop over
+     * primitive arrays in {@link #sum()} is simple enough to be vectorized by
+     * the JIT compiler.
+     */
+    private static final class Items {
+        private long[] unitPrices;
+        private int[] units;
+        private int size = 0;
+
+        private Items(int capacity) {
+            this.unitPrices = new long[capacity];
+            this.units = new int[capacity];
+        }
+
+        /**
+         * Lay out the items of orders in columns, the items of an order are
+         * counted and copied in one pass while holding the lock of the order.
+         *
+         * @param orders orders with items.
+         * @return items of all orders in order of orders.
+         */
+        static Items of(final Order[] orders) {
+            var items = new Items(Math.max(16, orders.length * 2));
+            for (Order order : orders) {
+                synchronized (order) {
+                    items.ensureCapacity(items.size + order.itemsCount());
+                    for (OrderItem item : order.getItems()) {
+                        items.unitPrices[items.size] = item.getArticle().getUnitPrice();
+                        items.units[items.size++] = item.getUnitsOrdered();
+                    }
+                }
+            }
+            return items;
+        }
+
+        /**
+         * Return sum of unitPrice * units of all items.
+         *
+         * @return total value of items.
+         */
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < size; i++) {
+                sum += unitPrices[i] * units[i];
+            }
+            return sum;
+        }
+
+        private void ensureCapacity(final int capacity) {
+            if (capacity > units.length) {
+                int length = Math.max(capacity, units.length * 2);
+                unitPrices = Arrays.copyOf(unitPrices, length);
+                units = Arrays.copyOf(units, length);
+            }
+        }
     }
 
     @Override
@@ -89,6 +216,6 @@ class CalculatorImpl implements Calculator {
         if (tax == null)
             throw new IllegalArgumentException("argument taxRate is null.");
 
-        return Math.round(taxRateMapper.get(tax) * 100);
+        return tax.getRate();
     }
 }
\ No newline at end of file
@@ -0,0 +1,264 @@
+package system.impl;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import system.ChangeEvent;
+import system.DataStore;
+
+
+/**
+ * Non-public change-data-capture feed of a {@link DataStoreImpl} that publishes
+ * inserts, updates and deletes of its repositories to subscribers.
+ * <p>
+ * Events are numbered and queued for each subscriber in one global order while
+ * the repository holds the entry of the changed object. Each subscriber has a
+ * queue of bounded capacity drained by its own delivery thread. When a subscriber
+ * falls behind, writers wait after their change was applied (outside of any
+ * repository lock) until the subscriber's backlog is within capacity again.
+ * Slow subscribers therefore throttle writers instead of letting queues grow.
+ * </p>
+ * <p>
+ * Delivery threads are never throttled, neither by their own nor by other
+ * subscriptions of any feed. Otherwise two subscribers that write back into
+ * data stores while both of their queues are full would each wait for the
+ * other to drain its queue and deadlock. Queues may therefore exceed their
+ * capacity by the changes that subscribers make.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class ChangeFeed {
+
+    /**
+     * Sequence number of last published event, guarded by this.
+     */
+    private long sequence = 0L;
+
+    /**
+     * Active subscriptions.
+     */
+    private final List<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Number used to name delivery threads.
+     */
+    private final AtomicInteger threads = new AtomicInteger();
+
+    /**
+     * True on delivery threads of subscriptions, which are never throttled.
+     */
+    private static final ThreadLocal<Boolean> delivering = new ThreadLocal<>();
+
+
+    /**
+     * Create listener that publishes changes of a repository to the feed.
+     *
+     * @param <T> generic type of repository objects.
+     * @param <ID> generic type of object identifier (id).
+     * @return listener for repository.
+     */
+    <T, ID> ChangeListener<T, ID> listener() {
+        return new ChangeListener<T, ID>() {
+            @Override
+            public void changed(ID id, T before, T after) {
+                publish(id, before, after);
+            }
+            @Override
+            public void flush() {
+                subscriptions.forEach(s -> s.awaitCapacity());
+            }
+        };
+    }
+
+
+    /**
+     * Register subscriber that receives events of objects of a type.
+     *
+     * @param <T> generic type of objects.
+     * @param type class of objects of which events are delivered.
+     * @param capacity maximum backlog of events before writers are throttled.
+     * @param subscriber callout that receives events.
+     * @return subscription that cancels delivery when closed.
+     */
+    <T> DataStore.Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+        var subscription = new Subscription<T>(type, capacity, subscriber);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+
+    /**
+     * Publish change to all subscriptions in one global order.
+     *
+     * @param id id of changed object.
+     * @param before object before the change, {@code null} for inserts.
+     * @param after object after the change, {@code null} for deletes.
+     */
+    private void publish(Object id, Object before, Object after) {
+        if(subscriptions.isEmpty())
+            return;
+        //
+        ChangeEvent.Type type = before==null? ChangeEvent.Type.INSERT :
+            after==null? ChangeEvent.Type.DELETE : ChangeEvent.Type.UPDATE;
+        Object entity = after != null? after : before;
+        synchronized(this) {
+            var event = new Event(++sequence, type, id, before, after);
+            for(var subscription : subscriptions) {
+                if(subscription.type.isInstance(entity)) {
+                    subscription.offer(event);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Immutable change event.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class Event implements ChangeEvent {
+        private final long sequence;
+        private final Type type;
+        private final Object id;
+        private final Object before;
+        private final Object after;
+
+        Event(long sequence, Type type, Object id, Object before, Object after) {
+            this.sequence = sequence;
+            this.type = type;
+            this.id = id;
+            this.before = before;
+            this.after = after;
+        }
+
+        @Override
+        public long getSequence() { return sequence; }
+
+        @Override
+        public Type getType() { return type; }
+
+        @Override
+        public Object getId() { return id; }
+
+        @Override
+        public Object getBefore() { return before; }
+
+        @Override
+        public Object getAfter() { return after; }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %s %s", sequence, type, id);
+        }
+    }
+
+
+    /**
+     * Subscription with a bounded queue of events drained by a delivery thread.
+     *
+     * @param <T> generic type of objects of which events are delivered.
+     */
+    private class Subscription<T> implements DataStore.Subscription {
+        private final Class<T> type;
+        private final int capacity;
+        private final Consumer<? super ChangeEvent<T>> subscriber;
+        private final ArrayDeque<Event> queue = new ArrayDeque<>();
+        private final Thread thread;
+        private boolean closed = false;
+
+        Subscription(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+            this.type = type;
+            this.capacity = capacity;
+            this.subscriber = subscriber;
+            this.thread = new Thread(this::deliver, "datastore-subscriber-" + threads.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Queue event, called while the feed is locked.
+         */
+        synchronized void offer(Event event) {
+            if( ! closed) {
+                queue.add(event);
+                notifyAll();
+            }
+        }
+
+        /**
+         * Block writer while the backlog exceeds capacity. Delivery threads are
+         * never blocked, so subscribers may write to data stores.
+         */
+        synchronized void awaitCapacity() {
+            if(delivering.get() != null)
+                return;
+            //
+            boolean interrupted = false;
+            while(queue.size() > capacity && ! closed) {
+                try {
+                    wait();
+                } catch(InterruptedException e) {
+                    interrupted = true;     // the change was already applied
+                }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Loop of delivery thread. The subscription is closed when the loop ends
+         * for any reason, e.g. a subscriber that throws an exception or error is
+         * cancelled, so writers are never left waiting for a dead thread.
+         */
+        @SuppressWarnings("unchecked")
+        private void deliver() {
+            delivering.set(Boolean.TRUE);
+            try {
+                while(true) {
+                    Event event;
+                    synchronized(this) {
+                        while(queue.isEmpty() && ! closed) {
+                            try {
+                                wait();
+                            } catch(InterruptedException e) {
+                                return;
+                            }
+                        }
+                        if(closed)
+                            return;
+                        //
+                        event = queue.poll();
+                        notifyAll();    // wake up throttled writers
+                    }
+                    subscriber.accept((ChangeEvent<T>)event);
+                }
+            } finally {
+                close();
+            }
+        }
+
+        @Override
+        public boolean isActive() {
+            synchronized(this) {
+                return ! closed;
+            }
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            synchronized(this) {
+                closed = true;
+                queue.clear();
+                notifyAll();
+            }
+        }
+    }
+
+}
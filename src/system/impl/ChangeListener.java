@@ -0,0 +1,36 @@
+package system.impl;
+
+
+/**
+ * Non-public listener that is notified of changes of a {@link RepositoryImpl}.
+ * <p>
+ * {@link #changed(Object, Object, Object)} is called while the repository holds
+ * the entry of the changed id: changes of the same id are reported in the order
+ * in which they are applied. The method must therefore be short and must not
+ * block. {@link #flush()} is called after the change has been applied, outside
+ * of any lock, and may block, e.g. to wait for a change to become durable.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+interface ChangeListener<T, ID> {
+
+    /**
+     * Called when an entity was inserted, replaced or removed.
+     *
+     * @param id id of changed entity.
+     * @param before entity before the change, {@code null} for inserts.
+     * @param after entity after the change, {@code null} for removals.
+     */
+    void changed(ID id, T before, T after);
+
+    /**
+     * Called after a change was applied to the repository.
+     */
+    default void flush() { }
+
+}
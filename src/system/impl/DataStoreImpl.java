@@ -1,11 +1,19 @@
 package system.impl;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 import datamodel.*;
 import system.Repository;
+import system.ChangeEvent;
 import system.DataStore;
+import system.LongIdRepository;
+import system.OrderRepository;
 
 
 /**
@@ -25,26 +33,115 @@ class DataStoreImpl implements DataStore {
     /**
      * Repository of Customer objects (entities).
      */
-    private final Repository<Customer, Long> customersRepository;
+    private final LongIdRepositoryImpl<Customer> customersRepository;
 
     /**
      * Repository of Article objects (entities).
      */
-    private final Repository<Article, String> articlesRepository;
+    private final RepositoryImpl<Article, String> articlesRepository;
 
     /**
      * Repository of Order objects (entities).
      */
-    private final Repository<Order, String> ordersRepository;
+    private final OrderRepositoryImpl ordersRepository;
+
+    /**
+     * Clock shared by the repositories that provides versions for snapshots.
+     */
+    private final VersionClock clock = new VersionClock();
+
+    /**
+     * Journal that records changes in durable mode, {@code null} otherwise.
+     */
+    private StoreJournal journal = null;
+
+    /**
+     * Feed of change events, attached to the repositories with the first subscription.
+     */
+    private final ChangeFeed feed = new ChangeFeed();
+
+    /**
+     * True after feed was attached to the repositories.
+     */
+    private final AtomicBoolean feedAttached = new AtomicBoolean(false);
 
 
     /**
      * Constructor.
      */
     DataStoreImpl() {
-        this.customersRepository = new RepositoryImpl<Customer, Long>(c -> c.getId());
-        this.articlesRepository = new RepositoryImpl<Article, String>(a -> a.getId());
-        this.ordersRepository = new RepositoryImpl<Order, String>(o -> o.getId());
+        this(false);
+    }
+
+
+    /**
+     * Constructor with flag to create repositories in concurrent mode. Concurrent
+     * repositories can be used by multiple threads, e.g. threads that save orders
+     * while other threads iterate over {@code findAll()} for reporting.
+     * 
+     * @param concurrent true creates thread-safe repositories.
+     */
+    DataStoreImpl(boolean concurrent) {
+        this(concurrent, null, null);
+    }
+
+
+    /**
+     * Constructor with flag to create repositories in concurrent mode, path of a
+     * snapshot file loaded at startup and path of a journal file for durable mode.
+     * In durable mode, the repositories are rebuilt from the snapshot and the journal
+     * file and each {@code save} and {@code delete} is appended to the journal. Calls
+     * return after their change is durable. Journal writes of concurrent callers are
+     * committed to disk together (group commit).
+     * 
+     * @param concurrent true creates thread-safe repositories.
+     * @param snapshotFile path of snapshot file loaded at startup if it exists, may be {@code null}.
+     * @param journalFile path of journal file, {@code null} for in-memory mode.
+     */
+    DataStoreImpl(boolean concurrent, Path snapshotFile, Path journalFile) {
+        this.customersRepository = new LongIdRepositoryImpl<Customer>(
+            c -> c.getId()==null? -1L : c.getId(), concurrent, clock);
+        this.articlesRepository = new RepositoryImpl<Article, String>(a -> a.getId(), concurrent, clock);
+        this.ordersRepository = new OrderRepositoryImpl(concurrent, clock);
+        //
+        // secondary indexes: orders by customer id, articles by tax class
+        this.ordersRepository.createIndex("customer", o -> o.getCustomer().getId());
+        this.articlesRepository.createIndex("tax", a -> a.getTax());
+        //
+        if(snapshotFile != null && Files.exists(snapshotFile)) {
+            load(snapshotFile);
+        }
+        if(journalFile != null) {
+            openJournal(journalFile, true);
+        }
+    }
+
+
+    /**
+     * Record further changes in a journal file, called before the data store is
+     * used. Partitions of a {@link PartitionedDataStore} open their journals
+     * after all journals were replayed. A checkpoint of the journal replaces
+     * objects loaded before, e.g. from a snapshot file.
+     * 
+     * @param journalFile path of journal file.
+     * @param replay true if journal file is replayed into the repositories.
+     */
+    void openJournal(Path journalFile, boolean replay) {
+        if(replay && StoreJournal.hasCheckpoint(journalFile)) {
+            clear();
+        }
+        this.journal = new StoreJournal(journalFile, clock,
+            customersRepository, articlesRepository, ordersRepository, replay);
+    }
+
+
+    /**
+     * Remove all objects from the repositories.
+     */
+    void clear() {
+        ordersRepository.deleteAll();
+        articlesRepository.deleteAll();
+        customersRepository.deleteAll();
     }
 
 
@@ -75,25 +172,44 @@ class DataStoreImpl implements DataStore {
     /**
      * Save a collection of objects (entities) to a repository. Objects replace
      * prior objects with the same {@literal id}.
+     * <p>
+     * The collection may contain objects of different types. Objects are
+     * partitioned by type in one pass and saved with one bulk call per repository,
+     * customers and articles before the orders that refer to them. Objects of
+     * other types are ignored.
+     * </p>
      * 
      * @param <T> generic type of a {@link datamodel} class.
      * @param entities collection of objects (entities) saved to repository.
      * @return chainable self-reference.
      * @throws IllegalArgumentException {@literal entities} is {@literal null}.
      */
-    @SuppressWarnings("unchecked")
     @Override
     public <T> DataStore saveAll(Iterable<T> entities) {
         if(entities==null)
             throw new IllegalArgumentException("argument entities is null.");
         //
-        var it = entities.iterator();
-        if(it.hasNext()) {
-            var entity = it.next();
-            Optional.ofNullable(
-                entity instanceof Customer? customers().saveAll((Iterable<Customer>)entities) :
-                entity instanceof Article? articles().saveAll((Iterable<Article>)entities) :
-                entity instanceof Order? orders().saveAll((Iterable<Order>)entities) : null);
+        int size = entities instanceof Collection? ((Collection<?>)entities).size() : 10;
+        var customers = new ArrayList<Customer>(size);
+        var articles = new ArrayList<Article>();
+        var orders = new ArrayList<Order>();
+        for(T entity : entities) {
+            if(entity instanceof Customer) {
+                customers.add((Customer)entity);
+            } else if(entity instanceof Article) {
+                articles.add((Article)entity);
+            } else if(entity instanceof Order) {
+                orders.add((Order)entity);
+            }
+        }
+        if(customers.size() > 0) {
+            customers().saveAll(customers);
+        }
+        if(articles.size() > 0) {
+            articles().saveAll(articles);
+        }
+        if(orders.size() > 0) {
+            orders().saveAll(orders);
         }
         return this;
     }
@@ -115,13 +231,207 @@ class DataStoreImpl implements DataStore {
     }
 
 
+    /**
+     * Run work that saves and deletes objects as one transaction. Changes are
+     * buffered while the work runs and applied to all repositories in one batch
+     * that excludes other writers, so snapshots see all changes or none. Reads
+     * of the live repositories by other threads are not isolated and may see a
+     * part of the changes while they are applied. In durable mode, the changes
+     * are journaled as one record before they are applied and synced once.
+     * 
+     * @param work callout that performs changes on the transaction's data store.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal work} is {@literal null}.
+     * @throws java.io.UncheckedIOException if the changes cannot be journaled,
+     * nothing is applied then.
+     */
+    @Override
+    public DataStore transaction(Consumer<DataStore> work) {
+        if(work==null)
+            throw new IllegalArgumentException("argument work is null.");
+        //
+        var tx = newTransaction();
+        work.accept(tx);    // nothing is applied if work throws
+        //
+        clock.beginBatch();
+        try {
+            journal(tx);    // nothing is applied if journal fails
+            commit(tx);
+        } finally {
+            clock.endBatch();
+        }
+        flush();    // wait for durability outside of the batch lock
+        return this;
+    }
+
+
+    /**
+     * Create transaction that buffers changes of the repositories.
+     * 
+     * @return new transaction.
+     */
+    TransactionDataStore newTransaction() {
+        return new TransactionDataStore(customersRepository, articlesRepository, ordersRepository);
+    }
+
+
+    /**
+     * Append buffered changes of a transaction to the journal as one record,
+     * before they are applied with {@link #commit(TransactionDataStore)}. The
+     * caller holds the batch lock of the {@link #clock()}. No-op outside durable mode.
+     * 
+     * @param tx transaction created by {@link #newTransaction()}.
+     * @throws java.io.UncheckedIOException if the journal is closed or failed.
+     */
+    void journal(TransactionDataStore tx) {
+        if(journal != null) {
+            journal.append(tx.records());
+        }
+    }
+
+
+    /**
+     * Apply buffered changes of a transaction to the repositories after they
+     * were journaled with {@link #journal(TransactionDataStore)}, the caller
+     * holds the batch lock of the {@link #clock()}.
+     * 
+     * @param tx transaction created by {@link #newTransaction()}.
+     */
+    void commit(TransactionDataStore tx) {
+        if(journal != null) {
+            journal.begin();    // changes were journaled before
+        }
+        try {
+            tx.commit();
+        } finally {
+            if(journal != null) {
+                journal.end();
+            }
+        }
+    }
+
+
+    /**
+     * Flush listeners of the repositories, e.g. wait until committed changes
+     * are durable.
+     */
+    void flush() {
+        customersRepository.flush();
+        articlesRepository.flush();
+        ordersRepository.flush();
+    }
+
+
+    /**
+     * Return clock shared by the repositories.
+     * 
+     * @return clock of the data store.
+     */
+    VersionClock clock() {
+        return clock;
+    }
+
+
+    /**
+     * Write a binary snapshot of all customers, articles and orders to a file.
+     * An existing file is replaced only after the new snapshot was written completely.
+     * 
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be written.
+     */
+    @Override
+    public DataStore dump(Path file) {
+        if(file==null)
+            throw new IllegalArgumentException("argument file is null.");
+        //
+        SnapshotFile.write(file, customers().findAll(), articles().findAll(), orders().findAll());
+        return this;
+    }
+
+
+    /**
+     * Load a binary snapshot written by {@link #dump(Path)}. The file is memory-mapped
+     * and objects are decoded directly from the mapped buffer. Loaded objects replace
+     * objects with the same {@literal id}.
+     * 
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be read.
+     */
+    @Override
+    public DataStore load(Path file) {
+        if(file==null)
+            throw new IllegalArgumentException("argument file is null.");
+        //
+        SnapshotFile.read(file, customersRepository, articlesRepository, ordersRepository);
+        return this;
+    }
+
+
+    /**
+     * Return a read-only view of the data store frozen at the current point in time.
+     * The view resolves objects from the live repositories and the prior states
+     * they keep while the view is open; it must be closed after use.
+     * 
+     * @return read-only view of data store.
+     */
+    @Override
+    public DataStore snapshot() {
+        return new SnapshotDataStore(clock, clock.open(), customersRepository, articlesRepository, ordersRepository);
+    }
+
+
+    /**
+     * Subscribe to inserts, updates and deletes of objects of a type. The feed
+     * is attached to the repositories with the first subscription, repositories
+     * without subscribers do not publish events.
+     * 
+     * @param <T> generic type of objects, e.g. {@link Order}.
+     * @param type class of objects of which events are delivered, {@code Object.class} for all.
+     * @param capacity maximum number of events waiting for the subscriber.
+     * @param subscriber callout that receives events.
+     * @return subscription that stops delivery when closed.
+     * @throws IllegalArgumentException {@literal type} or {@literal subscriber} is
+     * {@literal null} or {@literal capacity} is not positive.
+     */
+    @Override
+    public <T> Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+        if(type==null || subscriber==null)
+            throw new IllegalArgumentException("argument type or subscriber is null.");
+        if(capacity <= 0)
+            throw new IllegalArgumentException("argument capacity is not positive.");
+        //
+        if(feedAttached.compareAndSet(false, true)) {
+            customersRepository.addListener(feed.listener());
+            articlesRepository.addListener(feed.listener());
+            ordersRepository.addListener(feed.listener());
+        }
+        return feed.subscribe(type, capacity, subscriber);
+    }
+
+
+    /**
+     * Close data store, write pending journal records and close the journal file
+     * in durable mode.
+     */
+    @Override
+    public void close() {
+        if(journal != null) {
+            journal.close();
+        }
+    }
+
+
     /**
      * Return repository of customers.
      * 
      * @return repository of customers.
      */
     @Override
-    public Repository<Customer, Long> customers() {
+    public LongIdRepository<Customer> customers() {
         return customersRepository;
     }
 
@@ -143,7 +453,7 @@ class DataStoreImpl implements DataStore {
      * @return repository of orders.
      */
     @Override
-    public Repository<Order, String> orders() {
+    public OrderRepository orders() {
         return ordersRepository;
     }
 
@@ -0,0 +1,267 @@
+package system.impl;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+import datamodel.*;
+
+
+/**
+ * Non-public binary encoding of {@link datamodel} objects used to persist
+ * {@link Customer}, {@link Article} and {@link Order} objects.
+ * <p>
+ * Objects are written to a {@link DataOutput} and read back from a
+ * {@link ByteBuffer}, which can be a heap buffer or a memory-mapped file.
+ * Orders refer to their customer and to ordered articles by id. Decoding
+ * resolves these ids with lookup functions, usually backed by repositories
+ * that were loaded before the orders.
+ * </p>
+ * <pre>
+ * Customer: long id, str firstName, str lastName, int n, str[n] contacts,
+ *           str country, str zip, str city, str street
+ * Article:  str id, str description, long unitPrice, byte currency, byte tax
+ * Order:    str id, long customerId, long creationDate,
+ *           int n, (str articleId, int units)[n]
+ * str:      int length (-1 for null), UTF-8 bytes
+ * </pre>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class EntityCodec {
+
+    /**
+     * Type tag of Customer objects.
+     */
+    static final byte CUSTOMER = 1;
+
+    /**
+     * Type tag of Article objects.
+     */
+    static final byte ARTICLE = 2;
+
+    /**
+     * Type tag of Order objects.
+     */
+    static final byte ORDER = 3;
+
+    /**
+     * Cached values of enum types, values() allocates a new array each call.
+     */
+    private static final Currency[] currencies = Currency.values();
+    private static final TAX[] taxes = TAX.values();
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private EntityCodec() { }
+
+
+    /**
+     * Return type tag of an entity.
+     *
+     * @param entity {@link Customer}, {@link Article} or {@link Order} object.
+     * @return type tag of entity.
+     * @throws IllegalArgumentException if entity is not of a supported type.
+     */
+    static byte typeOf(Object entity) {
+        if(entity instanceof Customer)
+            return CUSTOMER;
+        if(entity instanceof Article)
+            return ARTICLE;
+        if(entity instanceof Order)
+            return ORDER;
+        throw new IllegalArgumentException("unsupported entity: " + entity);
+    }
+
+
+    /**
+     * Write entity preceded by its type tag.
+     *
+     * @param out destination of encoded entity.
+     * @param entity {@link Customer}, {@link Article} or {@link Order} object.
+     * @throws IOException if writing to out fails.
+     */
+    static void write(DataOutput out, Object entity) throws IOException {
+        byte type = typeOf(entity);
+        out.writeByte(type);
+        switch(type) {
+        case CUSTOMER: writeCustomer(out, (Customer)entity); break;
+        case ARTICLE: writeArticle(out, (Article)entity); break;
+        default: writeOrder(out, (Order)entity); break;
+        }
+    }
+
+
+    /**
+     * Write customer.
+     *
+     * @param out destination of encoded customer.
+     * @param c customer to write.
+     * @throws IOException if writing to out fails.
+     */
+    static void writeCustomer(DataOutput out, Customer c) throws IOException {
+        out.writeLong(c.getId());
+        writeString(out, c.getFirstName());
+        writeString(out, c.getLastName());
+        String[] contacts = c.getContacts();
+        out.writeInt(contacts.length);
+        for(String contact : contacts) {
+            writeString(out, contact);
+        }
+        Address adr = c.getAddress();
+        Object country = adr.getCountry();  // enum Country is not accessible
+        writeString(out, country==null? "" : country.toString());
+        writeString(out, adr.getZip());
+        writeString(out, adr.getCity());
+        writeString(out, adr.getStreet());
+    }
+
+
+    /**
+     * Write article.
+     *
+     * @param out destination of encoded article.
+     * @param a article to write.
+     * @throws IOException if writing to out fails.
+     */
+    static void writeArticle(DataOutput out, Article a) throws IOException {
+        writeString(out, a.getId());
+        writeString(out, a.getDescription());
+        out.writeLong(a.getUnitPrice());
+        out.writeByte(a.getCurrency().ordinal());
+        out.writeByte(a.getTax().ordinal());
+    }
+
+
+    /**
+     * Write order with references to customer and articles by id.
+     *
+     * @param out destination of encoded order.
+     * @param o order to write.
+     * @throws IOException if writing to out fails.
+     */
+    static void writeOrder(DataOutput out, Order o) throws IOException {
+        writeString(out, o.getId());
+        out.writeLong(o.getCustomer().getId());
+        out.writeLong(o.getCreationDate());
+        out.writeInt(o.itemsCount());
+        for(OrderItem item : o.getItems()) {
+            writeString(out, item.getArticle().getId());
+            out.writeInt(item.getUnitsOrdered());
+        }
+    }
+
+
+    /**
+     * Read customer.
+     *
+     * @param in buffer positioned at encoded customer.
+     * @return decoded customer.
+     */
+    static Customer readCustomer(ByteBuffer in) {
+        var c = new Customer().setId(in.getLong())
+            .setName(readString(in), readString(in));
+        for(int n = in.getInt(); n > 0; n--) {
+            c.addContact(readString(in));
+        }
+        String country = readString(in);
+        String zip = readString(in), city = readString(in), street = readString(in);
+        return c.setAddress(country.isEmpty()?
+            new Address(zip, city, street) : new Address(country, zip, city, street));
+    }
+
+
+    /**
+     * Read article.
+     *
+     * @param in buffer positioned at encoded article.
+     * @return decoded article.
+     */
+    static Article readArticle(ByteBuffer in) {
+        var a = new Article().setId(readString(in));
+        String description = readString(in);
+        if( ! description.isEmpty()) {
+            a.setDescription(description);
+        }
+        return a.setUnitPrice(in.getLong())
+            .setCurrency(currencies[in.get()])
+            .setTax(taxes[in.get()]);
+    }
+
+
+    /**
+     * Read order and resolve customer and articles by id.
+     *
+     * @param in buffer positioned at encoded order.
+     * @param customers lookup of customers by id.
+     * @param articles lookup of articles by id.
+     * @return decoded order.
+     * @throws IllegalStateException if customer or article ids cannot be resolved.
+     */
+    static Order readOrder(ByteBuffer in, Function<Long, Customer> customers, Function<String, Article> articles) {
+        String id = readString(in);
+        long customerId = in.getLong();
+        Customer customer = customers.apply(customerId);
+        if(customer==null)
+            throw new IllegalStateException(String.format("order %s: unknown customer %d.", id, customerId));
+        //
+        var o = new Order(customer).setId(id).setCreationDate(in.getLong());
+        for(int n = in.getInt(); n > 0; n--) {
+            String articleId = readString(in);
+            Article article = articles.apply(articleId);
+            if(article==null)
+                throw new IllegalStateException(String.format("order %s: unknown article %s.", id, articleId));
+            //
+            o.addItem(article, in.getInt());
+        }
+        return o;
+    }
+
+
+    /**
+     * Write String as length-prefixed UTF-8 bytes.
+     *
+     * @param out destination of encoded String.
+     * @param s String to write, may be {@code null}.
+     * @throws IOException if writing to out fails.
+     */
+    static void writeString(DataOutput out, String s) throws IOException {
+        if(s==null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+
+    /**
+     * Read length-prefixed UTF-8 String.
+     *
+     * @param in buffer positioned at encoded String.
+     * @return decoded String, may be {@code null}.
+     */
+    static String readString(ByteBuffer in) {
+        int len = in.getInt();
+        if(len < 0)
+            return null;
+        //
+        String s;
+        if(in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), len, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[len];
+            in.get(in.position(), bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + len);
+        return s;
+    }
+
+}
@@ -0,0 +1,320 @@
+package system.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.LongFunction;
+
+import system.Aggregator.Aggregates;
+
+
+/**
+ * Non-public mutable accumulator of value, VAT and units sums by group key,
+ * used by {@link AggregatorImpl} in parallel reductions.
+ * <p>
+ * Groups are slots of an open-addressing hash table with linear probing, sums
+ * are stored in primitive arrays at the slot of their key, so adding to a group
+ * neither allocates nor boxes. Each thread sums into its own accumulator,
+ * accumulators are merged slot by slot.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+abstract class GroupAccumulator<A extends GroupAccumulator<A>> {
+
+    /**
+     * Initial number of slots, a power of two.
+     */
+    private static final int CAPACITY = 16;
+
+    /**
+     * Sums of groups indexed by slot.
+     */
+    long[] values, vats, units;
+
+    /**
+     * Number of groups.
+     */
+    int size = 0;
+
+
+    /**
+     * Constructor of empty accumulator.
+     */
+    GroupAccumulator() {
+        allocate(CAPACITY);
+    }
+
+
+    /**
+     * Merge sums of another accumulator into this accumulator.
+     *
+     * @param other accumulator to merge.
+     */
+    abstract void merge(A other);
+
+
+    /**
+     * Allocate arrays of sums and keys, sums are cleared.
+     *
+     * @param capacity number of slots, a power of two.
+     */
+    void allocate(int capacity) {
+        values = new long[capacity];
+        vats = new long[capacity];
+        units = new long[capacity];
+    }
+
+
+    /**
+     * Add sums to a slot.
+     *
+     * @param slot slot of group.
+     * @param value value to add.
+     * @param vat VAT to add.
+     * @param unitsOrdered units to add.
+     */
+    final void addToSlot(int slot, long value, long vat, long unitsOrdered) {
+        values[slot] += value;
+        vats[slot] += vat;
+        units[slot] += unitsOrdered;
+    }
+
+
+    /**
+     * Return true if a new group would fill more than half of the slots.
+     *
+     * @return true if table must grow before a group is added.
+     */
+    final boolean full() {
+        return (size + 1) * 2 > values.length;
+    }
+
+
+    /**
+     * Copy sums of slots in order into aggregates.
+     *
+     * @param <K> generic type of group keys.
+     * @param slots occupied slots in order of their keys.
+     * @param keys keys of slots.
+     * @return aggregates.
+     */
+    final <K extends Comparable<? super K>> Aggregates<K> aggregates(int[] slots, ArrayList<K> keys) {
+        var v = new long[slots.length];
+        var t = new long[slots.length];
+        var u = new long[slots.length];
+        for(int i = 0; i < slots.length; i++) {
+            v[i] = values[slots[i]];
+            t[i] = vats[slots[i]];
+            u[i] = units[slots[i]];
+        }
+        return new Aggregates<>(keys, v, t, u);
+    }
+
+
+    /**
+     * Accumulator with {@code long} group keys, e.g. customer ids, days or
+     * ordinals of tax rates.
+     */
+    static final class LongKeys extends GroupAccumulator<LongKeys> {
+
+        /**
+         * Keys and occupation of slots.
+         */
+        private long[] keys;
+        private boolean[] used;
+
+        @Override
+        void allocate(int capacity) {
+            super.allocate(capacity);
+            keys = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        /**
+         * Add sums to the group of a key.
+         *
+         * @param key group key.
+         * @param value value to add.
+         * @param vat VAT to add.
+         * @param unitsOrdered units to add.
+         */
+        void add(long key, long value, long vat, long unitsOrdered) {
+            addToSlot(slot(key), value, vat, unitsOrdered);
+        }
+
+        @Override
+        void merge(LongKeys other) {
+            for(int i = 0; i < other.used.length; i++) {
+                if(other.used[i]) {
+                    add(other.keys[i], other.values[i], other.vats[i], other.units[i]);
+                }
+            }
+        }
+
+        /**
+         * Return aggregates with keys in numeric order of {@code long} keys.
+         *
+         * @param <K> generic type of group keys.
+         * @param key function that maps {@code long} keys to group keys in the same order.
+         * @return aggregates.
+         */
+        <K extends Comparable<? super K>> Aggregates<K> aggregates(LongFunction<K> key) {
+            var slots = new int[size];
+            for(int i = 0, n = 0; i < used.length; i++) {
+                if(used[i]) slots[n++] = i;
+            }
+            var sorted = Arrays.stream(slots).boxed()
+                .sorted(Comparator.comparingLong(i -> keys[i])).mapToInt(Integer::intValue).toArray();
+            var list = new ArrayList<K>(size);
+            for(int slot : sorted) {
+                list.add(key.apply(keys[slot]));
+            }
+            return aggregates(sorted, list);
+        }
+
+        /**
+         * Find slot of key, occupy a free slot if key is new.
+         *
+         * @param key group key.
+         * @return slot of key.
+         */
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = StringArena.spread(Long.hashCode(key)) & mask;
+            while(used[i]) {
+                if(keys[i] == key) return i;
+                i = (i + 1) & mask;
+            }
+            if(full()) {
+                grow();
+                return slot(key);
+            }
+            used[i] = true;
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        /**
+         * Double number of slots and move groups.
+         */
+        private void grow() {
+            var oldKeys = keys;
+            var oldUsed = used;
+            var oldValues = values;
+            var oldVats = vats;
+            var oldUnits = units;
+            allocate(keys.length * 2);
+            size = 0;
+            for(int i = 0; i < oldUsed.length; i++) {
+                if(oldUsed[i]) {
+                    add(oldKeys[i], oldValues[i], oldVats[i], oldUnits[i]);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Accumulator with object group keys, e.g. article ids.
+     *
+     * @param <K> generic type of group keys.
+     */
+    static final class ObjectKeys<K extends Comparable<? super K>> extends GroupAccumulator<ObjectKeys<K>> {
+
+        /**
+         * Keys of slots, {@code null} for free slots.
+         */
+        private Object[] keys;
+
+        @Override
+        void allocate(int capacity) {
+            super.allocate(capacity);
+            keys = new Object[capacity];
+        }
+
+        /**
+         * Add sums to the group of a key.
+         *
+         * @param key group key, not {@code null}.
+         * @param value value to add.
+         * @param vat VAT to add.
+         * @param unitsOrdered units to add.
+         */
+        void add(K key, long value, long vat, long unitsOrdered) {
+            addToSlot(slot(key), value, vat, unitsOrdered);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void merge(ObjectKeys<K> other) {
+            for(int i = 0; i < other.keys.length; i++) {
+                if(other.keys[i] != null) {
+                    add((K)other.keys[i], other.values[i], other.vats[i], other.units[i]);
+                }
+            }
+        }
+
+        /**
+         * Return aggregates with keys in natural order.
+         *
+         * @return aggregates.
+         */
+        @SuppressWarnings("unchecked")
+        Aggregates<K> aggregates() {
+            var slots = new int[size];
+            for(int i = 0, n = 0; i < keys.length; i++) {
+                if(keys[i] != null) slots[n++] = i;
+            }
+            var sorted = Arrays.stream(slots).boxed()
+                .sorted(Comparator.comparing(i -> (K)keys[i])).mapToInt(Integer::intValue).toArray();
+            var list = new ArrayList<K>(size);
+            for(int slot : sorted) {
+                list.add((K)keys[slot]);
+            }
+            return aggregates(sorted, list);
+        }
+
+        /**
+         * Find slot of key, occupy a free slot if key is new.
+         *
+         * @param key group key.
+         * @return slot of key.
+         */
+        private int slot(K key) {
+            int mask = keys.length - 1;
+            int i = StringArena.spread(key.hashCode()) & mask;
+            while(keys[i] != null) {
+                if(keys[i].equals(key)) return i;
+                i = (i + 1) & mask;
+            }
+            if(full()) {
+                grow();
+                return slot(key);
+            }
+            keys[i] = key;
+            size++;
+            return i;
+        }
+
+        /**
+         * Double number of slots and move groups.
+         */
+        @SuppressWarnings("unchecked")
+        private void grow() {
+            var oldKeys = keys;
+            var oldValues = values;
+            var oldVats = vats;
+            var oldUnits = units;
+            allocate(keys.length * 2);
+            size = 0;
+            for(int i = 0; i < oldKeys.length; i++) {
+                if(oldKeys[i] != null) {
+                    add((K)oldKeys[i], oldValues[i], oldVats[i], oldUnits[i]);
+                }
+            }
+        }
+    }
+}
@@ -52,7 +52,19 @@ public class IoC_Impl implements IoC {
     private IoC_Impl() {
         this.calculator = new CalculatorImpl();    // replace with new class CalculatorImpl.java
         this.formatter = new FormatterImpl();      // replace with new class FormatterImpl.java
-        this.dataStore = new DataStoreImpl();
+        // -Dse1.datastore.engine=<name> selects the storage engine (see StorageEngines),
+        // -Dse1.datastore.concurrent=true creates thread-safe repositories,
+        // -Dse1.datastore.snapshot=<file> loads a snapshot file at startup,
+        // -Dse1.datastore.journal=<file> records changes in a journal file,
+        // -Dse1.datastore.partitions=<n> partitions repositories over n shards
+        var properties = new java.util.HashMap<String, String>();
+        System.getProperties().stringPropertyNames().stream()
+            .filter(key -> key.startsWith("se1.datastore."))
+            .forEach(key -> properties.put(key.substring("se1.datastore.".length()), System.getProperty(key)));
+        this.dataStore = StorageEngines.open(properties.remove("engine"), properties);
+        // applications never close the singleton, engines that write on close
+        // (e.g. "mapped" or journals) are closed when the JVM shuts down
+        Runtime.getRuntime().addShutdownHook(new Thread(dataStore::close, "datastore-shutdown"));
         //
         // inject dependencies into PrinterImpl constructor
         this.printer = new PrinterImpl(calculator, formatter);
@@ -211,6 +223,76 @@ public class IoC_Impl implements IoC {
 }
 
 
+    /**
+     * Create repository for large, read-mostly article catalogs that stores
+     * articles off-heap.
+     *
+     * @param capacity expected number of articles.
+     * @return reference to new article catalog.
+     */
+    @Override
+    public Repository<datamodel.Article, String> createArticleCatalog(int capacity) {
+        return new ArticleCatalog(capacity);
+    }
+
+
+    /**
+     * Create LRU cache in front of a slower backend repository.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     * @param <ID> generic type of object identifier (id).
+     * @param backend repository that holds all objects.
+     * @param getIdFunc function that obtains id from an object.
+     * @param capacity maximum number of cached objects.
+     * @return reference to new caching repository.
+     */
+    @Override
+    public <T, ID> CachingRepository<T, ID> createCachingRepository(Repository<T, ID> backend,
+            java.util.function.Function<T, ID> getIdFunc, int capacity) {
+        return new CachingRepositoryImpl<T, ID>(backend, getIdFunc, capacity);
+    }
+
+
+    /**
+     * Open a new data store with a storage engine.
+     *
+     * @param engine name of storage engine or {@code null}.
+     * @param properties configuration of data store.
+     * @return new data store.
+     */
+    @Override
+    public DataStore createDataStore(String engine, java.util.Map<String, String> properties) {
+        return StorageEngines.open(engine, properties);
+    }
+
+
+    /**
+     * Create asynchronous facade of a repository.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     * @param <ID> generic type of object identifier (id).
+     * @param repository repository calls run against.
+     * @param maxConcurrency maximum number of concurrent calls.
+     * @return reference to new asynchronous repository.
+     */
+    @Override
+    public <T, ID> AsyncRepository<T, ID> createAsyncRepository(Repository<T, ID> repository, int maxConcurrency) {
+        return new AsyncRepositoryImpl<T, ID>(repository, maxConcurrency);
+    }
+
+
+    /**
+     * Create aggregator of the orders of a data store.
+     *
+     * @param dataStore data store with orders.
+     * @return reference to new aggregator.
+     */
+    @Override
+    public Aggregator createAggregator(DataStore dataStore) {
+        return new AggregatorImpl(dataStore, calculator);
+    }
+
+
    @Override public LabelPrinter getLabelPrinter() {
     return new LabelPrinter() { // return mock instance of LabelPrinter interface
         @Override public StringBuilder printLabels(Iterable<Order> orders) {
@@ -0,0 +1,349 @@
+package system.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+
+/**
+ * Non-public append-only journal file (write-ahead log) with group commit.
+ * <p>
+ * Records are appended to an in-memory buffer and written by a single flusher
+ * thread that forces the file to disk after each write. Records appended while
+ * a write is in progress are collected and committed together with the next
+ * write, so one {@code fsync} makes many records durable (group commit).
+ * {@link #sync()} blocks the caller until all records it appended are durable.
+ * </p>
+ * <p>
+ * Each record is framed as {@code [int length][int crc32][payload]}. A record
+ * that was only partially written when the process stopped is detected by
+ * {@link #replay(Path, Consumer)} and cut off.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class Journal implements AutoCloseable {
+
+    /**
+     * Size of record header: length and checksum.
+     */
+    private static final int HEADER = 8;
+
+    /**
+     * Size of chunks in which journal files are read during replay.
+     */
+    static final int CHUNK = 256 * 1024;
+
+    /**
+     * Channel of journal file opened for appending.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Stream that writes to channel.
+     */
+    private final OutputStream out;
+
+    /**
+     * Buffer collecting appended records, swapped with spare by the flusher.
+     */
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+
+    /**
+     * Buffer written by the flusher.
+     */
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+
+    /**
+     * Size of journal file including records not yet written.
+     */
+    private long size;
+
+    /**
+     * Sequence number of last appended record.
+     */
+    private long appended = 0L;
+
+    /**
+     * Sequence number of last record forced to disk.
+     */
+    private long durable = 0L;
+
+    /**
+     * First failure of the flusher, reported to all waiting callers.
+     */
+    private IOException failure = null;
+
+    /**
+     * True after close() was called.
+     */
+    private boolean closed = false;
+
+    /**
+     * Thread that writes and forces batches of records.
+     */
+    private final Thread flusher;
+
+
+    /**
+     * Constructor that opens (or creates) a journal file for appending.
+     *
+     * @param file path of journal file.
+     * @throws IOException if file cannot be opened.
+     */
+    Journal(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.out = Channels.newOutputStream(channel);
+        this.size = channel.size();
+        this.flusher = new Thread(this::flushLoop, "journal-flusher-" + file.getFileName());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+
+    /**
+     * Read all valid records of a journal file and pass their payloads to a
+     * consumer in the order they were appended. A partially written or corrupt
+     * record at the end of the file is cut off, together with anything after it.
+     * <p>
+     * The file is read through a {@link FileChannel} in chunks of {@link #CHUNK}
+     * bytes, heap use is bounded by the chunk size or the size of the largest
+     * record, not by the size of the file. The buffer passed to the consumer is
+     * only valid during the call.
+     * </p>
+     *
+     * @param file path of journal file, a missing file has no records.
+     * @param consumer callout that receives a buffer positioned at a payload.
+     * @return number of records read.
+     * @throws IOException if file cannot be read.
+     */
+    static long replay(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        if( ! Files.exists(file))
+            return 0L;
+        //
+        long count = 0L;
+        long valid = 0L;    // file position after the last valid record
+        long fileSize;
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            fileSize = ch.size();
+            ByteBuffer buf = ByteBuffer.allocate(CHUNK).flip();
+            CRC32 crc = new CRC32();
+            while(fill(ch, buf, HEADER)) {
+                int pos = buf.position();
+                int len = buf.getInt(pos);
+                int sum = buf.getInt(pos + 4);
+                if(len < 0 || len > fileSize - valid - HEADER)
+                    break;  // torn record
+                //
+                if(HEADER + len > buf.capacity()) {
+                    buf = ByteBuffer.allocate(HEADER + len).put(buf).flip();   // record larger than chunk
+                }
+                if( ! fill(ch, buf, HEADER + len))
+                    break;  // torn record
+                //
+                pos = buf.position();
+                crc.reset();
+                crc.update(buf.array(), pos + HEADER, len);
+                if((int)crc.getValue() != sum)
+                    break;  // corrupt record
+                //
+                consumer.accept(buf.duplicate().position(pos + HEADER).limit(pos + HEADER + len));
+                buf.position(pos + HEADER + len);
+                valid += HEADER + len;
+                count++;
+            }
+        }
+        if(valid < fileSize) {
+            try(FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(valid);
+            }
+        }
+        return count;
+    }
+
+
+    /**
+     * Read from channel until buffer holds at least {@literal n} unread bytes.
+     * Unread bytes are moved to the start of the buffer before reading.
+     *
+     * @param ch channel to read from.
+     * @param buf buffer in read mode with capacity of at least {@literal n} bytes.
+     * @param n number of unread bytes needed.
+     * @return true if buffer holds {@literal n} bytes, false at end of file.
+     * @throws IOException if channel cannot be read.
+     */
+    private static boolean fill(FileChannel ch, ByteBuffer buf, int n) throws IOException {
+        if(buf.remaining() >= n)
+            return true;
+        //
+        buf.compact();
+        try {
+            while(buf.position() < n) {
+                if(ch.read(buf) < 0)
+                    return false;
+            }
+            return true;
+        } finally {
+            buf.flip();
+        }
+    }
+
+
+    /**
+     * Append record to journal without waiting for it to become durable.
+     *
+     * @param payload record payload.
+     * @return sequence number of appended record.
+     * @throws UncheckedIOException if journal is closed or failed.
+     */
+    long append(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        synchronized(this) {
+            check();
+            var dout = new DataOutputStream(pending);
+            try {
+                dout.writeInt(payload.length);
+                dout.writeInt((int)crc.getValue());
+                dout.write(payload);
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);  // not thrown by ByteArrayOutputStream
+            }
+            size += HEADER + payload.length;
+            notifyAll();    // wake up flusher
+            return ++appended;
+        }
+    }
+
+
+    /**
+     * Return size of journal file including appended records not yet written.
+     *
+     * @return size of journal in bytes.
+     */
+    synchronized long size() {
+        return size;
+    }
+
+
+    /**
+     * Block until all records appended so far are durable.
+     *
+     * @throws UncheckedIOException if writing the journal failed.
+     */
+    void sync() {
+        synchronized(this) {
+            sync(appended);
+        }
+    }
+
+
+    /**
+     * Block until record with sequence number seq is durable.
+     *
+     * @param seq sequence number returned by append().
+     * @throws UncheckedIOException if writing the journal failed.
+     */
+    synchronized void sync(long seq) {
+        boolean interrupted = false;
+        while(durable < seq) {
+            if(failure != null)
+                throw new UncheckedIOException("journal write failed.", failure);
+            //
+            try {
+                wait();
+            } catch(InterruptedException e) {
+                interrupted = true;     // do not abandon a commit half-way
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Write pending records, stop flusher and close journal file.
+     *
+     * @throws IOException if pending records could not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            if(closed)
+                return;
+            //
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if(failure != null)
+            throw failure;
+    }
+
+
+    /**
+     * Loop of flusher thread: swap buffers, write batch, force to disk and
+     * signal waiting callers.
+     */
+    private void flushLoop() {
+        while(true) {
+            long upTo;
+            ByteArrayOutputStream batch;
+            synchronized(this) {
+                while(pending.size()==0 && ! closed) {
+                    try {
+                        wait();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                }
+                if(pending.size()==0)
+                    return;     // closed and drained
+                //
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                upTo = appended;
+            }
+            try {
+                batch.writeTo(out);
+                channel.force(false);
+                batch.reset();
+                synchronized(this) {
+                    durable = upTo;
+                    notifyAll();
+                }
+            } catch(IOException e) {
+                synchronized(this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Throw if journal is closed or flusher failed.
+     */
+    private void check() {
+        if(failure != null)
+            throw new UncheckedIOException("journal write failed.", failure);
+        if(closed)
+            throw new UncheckedIOException(new IOException("journal is closed."));
+    }
+
+}
@@ -0,0 +1,237 @@
+package system.impl;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import system.LongIdRepository;
+
+
+/**
+ * Non-public implementation of the {@link LongIdRepository} interface for
+ * entities with numeric {@code long} ids.
+ * <p>
+ * Outside concurrent mode, entities are stored in a {@link LongKeyMap} with
+ * primitive keys and no per-entry {@link Long} or map node objects. Ids are
+ * obtained with a {@link ToLongFunction}, {@code save} and {@code saveAll} store
+ * entities under primitive ids without boxing as long as the repository has no
+ * listeners, indexes or open snapshots. Otherwise ids are boxed for the change
+ * reports and indexes of {@link RepositoryImpl}.
+ * </p>
+ * <p>
+ * In concurrent mode, the repository uses the thread-safe map of {@link RepositoryImpl},
+ * a {@link java.util.concurrent.ConcurrentHashMap} with boxed {@link Long} keys,
+ * and boxes ids on every save and lookup.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * 
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class LongIdRepositoryImpl<T> extends RepositoryImpl<T, Long> implements LongIdRepository<T> {
+
+    /**
+     * Primitive map that stores entities, {@code null} in concurrent mode.
+     */
+    private final LongKeyMap<T> longMap;
+
+    /**
+     * Function that obtains the primitive id from an entity, negative if unassigned.
+     */
+    private final ToLongFunction<T> getIdFunc;
+
+
+    /**
+     * Constructor with function argument to obtain the id from an entity of type T
+     * and a flag to select the concurrent mode.
+     * 
+     * @param getIdFunc function that obtains id from entity of type T, negative if unassigned.
+     * @param concurrent true selects the concurrent mode.
+     */
+    LongIdRepositoryImpl(ToLongFunction<T> getIdFunc, boolean concurrent) {
+        this(getIdFunc, concurrent, new VersionClock());
+    }
+
+
+    /**
+     * Constructor with function argument to obtain the id from an entity of type T,
+     * a flag to select the concurrent mode and the clock shared with the other
+     * repositories of a data store.
+     * 
+     * @param getIdFunc function that obtains id from entity of type T, negative if unassigned.
+     * @param concurrent true selects the concurrent mode.
+     * @param clock clock that provides versions for snapshots.
+     */
+    LongIdRepositoryImpl(ToLongFunction<T> getIdFunc, boolean concurrent, VersionClock clock) {
+        this(getIdFunc, concurrent? null : new LongKeyMap<T>(), clock);
+    }
+
+
+    /**
+     * Private constructor that passes the map to the super class.
+     * 
+     * @param getIdFunc function that obtains id from entity of type T, negative if unassigned.
+     * @param longMap primitive map or {@code null} for concurrent mode.
+     * @param clock clock that provides versions for snapshots.
+     */
+    private LongIdRepositoryImpl(ToLongFunction<T> getIdFunc, LongKeyMap<T> longMap, VersionClock clock) {
+        super(boxed(getIdFunc), longMap != null? longMap : newMap(true), longMap==null, clock);
+        this.longMap = longMap;
+        this.getIdFunc = getIdFunc;
+    }
+
+
+    /**
+     * Save object (entity) to a repository under its primitive id. Object replaces
+     * a prior object with the same {@literal id}.
+     * 
+     * @param <S> sub-class of {@code <T>}.
+     * @param entity object saved to the repository.
+     * @return the saved entity.
+     * @throws IllegalArgumentException {@literal entity} is {@literal null} or
+     * entity's {@literal id} is unassigned.
+     */
+    @Override
+    public <S extends T> S save(S entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        if(longMap != null) {
+            try {
+                if(beginDirectWrite()) {
+                    longMap.put(longIdOf(entity, getIdFunc), entity);
+                    return entity;
+                }
+            } finally {
+                endDirectWrite();
+            }
+        }
+        return super.save(entity);
+    }
+
+
+    /**
+     * Save a collection of objects (entities) to a repository under their primitive
+     * ids. Objects replace prior objects with the same {@literal id}.
+     * 
+     * @param <S> sub-class of {@code <T>}.
+     * @param entities collection of objects (entities) saved to repository.
+     * @return collection of saved objects.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null} or
+     * contains {@literal null} or an object with an unassigned {@literal id}.
+     */
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        if(longMap != null && entities instanceof Collection) {
+            try {
+                if(beginDirectWrite()) {
+                    longMap.ensureCapacity(longMap.size() + ((Collection<?>)entities).size());
+                    for(S entity : entities) {
+                        if(entity==null)
+                            throw new IllegalArgumentException("argument entity is null.");
+                        //
+                        longMap.put(longIdOf(entity, getIdFunc), entity);
+                    }
+                    return entities;
+                }
+            } finally {
+                endDirectWrite();
+            }
+        }
+        return super.saveAll(entities);
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its primitive {@literal id}.
+     * 
+     * @param id {@literal id} of object to find.
+     * @return result of lookup of an object by its {@literal id}.
+     */
+    @Override
+    public Optional<T> findById(long id) {
+        return longMap != null? Optional.ofNullable(live(longMap.get(id))) : findById(Long.valueOf(id));
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its primitive {@literal id}.
+     * 
+     * @param id {@literal id} of object to find.
+     * @return true if an object with {@literal id} exists in repository.
+     */
+    @Override
+    public boolean existsById(long id) {
+        return longMap != null? live(longMap.get(id)) != null : existsById(Long.valueOf(id));
+    }
+
+
+    /**
+     * Delete object with primitive id: {@literal id} from repository, if objects exists.
+     * No change of repository if no object with id: {@literal id} exists.
+     * 
+     * @param id {@literal id} of entity to delete.
+     */
+    @Override
+    public void deleteById(long id) {
+        if(longMap==null || longMap.containsKey(id)) {
+            deleteById(Long.valueOf(id));   // updates indexes
+        }
+    }
+
+
+    /**
+     * Return read-only view of the repository as of a snapshot version that
+     * supports lookups by primitive ids.
+     * 
+     * @param version version of snapshot.
+     * @return read-only view of repository at version.
+     */
+    @Override
+    LongIdRepository<T> snapshot(long version) {
+        return new SnapshotRepository.LongIds<T>(this, version);
+    }
+
+
+    /**
+     * Return primitive id of an entity.
+     * 
+     * @param <T> generic type of entity.
+     * @param entity entity.
+     * @param getIdFunc function that obtains id from entity.
+     * @return id of entity.
+     * @throws IllegalArgumentException entity's {@literal id} is unassigned.
+     */
+    private static <T> long longIdOf(T entity, ToLongFunction<T> getIdFunc) {
+        long id = getIdFunc.applyAsLong(entity);
+        if(id < 0)
+            throw new IllegalArgumentException("entity.id is null.");
+        //
+        return id;
+    }
+
+
+    /**
+     * Return function that obtains boxed ids for {@link RepositoryImpl},
+     * {@code null} for unassigned ids.
+     * 
+     * @param <T> generic type of entity.
+     * @param getIdFunc function that obtains primitive id from entity.
+     * @return function that obtains boxed id from entity.
+     */
+    private static <T> Function<T, Long> boxed(ToLongFunction<T> getIdFunc) {
+        if(getIdFunc==null)
+            throw new IllegalArgumentException("argument getIdFunc is null.");
+        //
+        return entity -> {
+            long id = getIdFunc.applyAsLong(entity);
+            return id < 0? null : Long.valueOf(id);
+        };
+    }
+
+}
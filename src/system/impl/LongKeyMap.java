@@ -0,0 +1,455 @@
+package system.impl;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+
+/**
+ * Non-public map with primitive {@code long} keys that stores keys and values
+ * in two parallel arrays using open addressing with linear probing.
+ * <p>
+ * Unlike {@link HashMap}, the map allocates no {@link Long} key objects and no
+ * entry nodes per mapping. A mapping costs one {@code long} and one reference slot,
+ * which roughly halves the heap footprint of large maps and removes per-entry
+ * objects that the garbage collector would otherwise have to trace.
+ * </p>
+ * <p>
+ * Primitive methods {@link #get(long)}, {@link #put(long, Object)} and
+ * {@link #remove(long)} avoid boxing. The {@link Map} methods box keys only at
+ * the edge. The map is not thread-safe.
+ * </p>
+ *
+ * @param <T> generic type of values.
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class LongKeyMap<T> extends AbstractMap<Long, T> {
+
+    /**
+     * Maximum fill ratio of the tables before they grow.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Table of keys, slot is used when {@code values[slot] != null}.
+     */
+    private long[] keys;
+
+    /**
+     * Table of values, {@code null} marks an empty slot.
+     */
+    private Object[] values;
+
+    /**
+     * Number of mappings.
+     */
+    private int size = 0;
+
+    /**
+     * Number of mappings at which tables grow.
+     */
+    private int threshold;
+
+
+    /**
+     * Constructor of an empty map.
+     */
+    LongKeyMap() {
+        this(16);
+    }
+
+
+    /**
+     * Constructor of an empty map that holds {@literal expected} mappings
+     * without growing.
+     *
+     * @param expected expected number of mappings.
+     */
+    LongKeyMap(int expected) {
+        allocate(tableSizeFor(expected));
+    }
+
+
+    /**
+     * Return value mapped to key.
+     *
+     * @param key key to look up.
+     * @return value mapped to key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    T get(long key) {
+        int mask = keys.length - 1;
+        for(int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i]==key)
+                return (T)values[i];
+        }
+        return null;
+    }
+
+
+    /**
+     * Return true if key is mapped.
+     *
+     * @param key key to look up.
+     * @return true if key is mapped.
+     */
+    boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+
+    /**
+     * Map key to value, replaces a prior value.
+     *
+     * @param key key of mapping.
+     * @param value value of mapping, must not be {@code null}.
+     * @return prior value mapped to key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    T put(long key, T value) {
+        if(value==null)
+            throw new IllegalArgumentException("argument value is null.");
+        //
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        for( ; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i]==key) {
+                T prior = (T)values[i];
+                values[i] = value;
+                return prior;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if(++size > threshold) {
+            resize(keys.length << 1);
+        }
+        return null;
+    }
+
+
+    /**
+     * Remove mapping of key.
+     *
+     * @param key key of mapping to remove.
+     * @return removed value or {@code null} if key was not mapped.
+     */
+    @SuppressWarnings("unchecked")
+    T remove(long key) {
+        int mask = keys.length - 1;
+        for(int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i]==key) {
+                T prior = (T)values[i];
+                shiftBack(i);
+                size--;
+                return prior;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Grow tables such that {@literal expected} mappings fit without further
+     * resizing.
+     *
+     * @param expected expected number of mappings.
+     */
+    void ensureCapacity(int expected) {
+        int capacity = tableSizeFor(expected);
+        if(capacity > keys.length) {
+            resize(capacity);
+        }
+    }
+
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+
+    @Override
+    public T get(Object key) {
+        return key instanceof Long? get(((Long)key).longValue()) : null;
+    }
+
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+
+    @Override
+    public T put(Long key, T value) {
+        if(key==null)
+            throw new IllegalArgumentException("argument key is null.");
+        //
+        return put(key.longValue(), value);
+    }
+
+
+    @Override
+    public T remove(Object key) {
+        return key instanceof Long? remove(((Long)key).longValue()) : null;
+    }
+
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void forEach(BiConsumer<? super Long, ? super T> action) {
+        for(int i=0; i < values.length; i++) {
+            if(values[i] != null) {
+                action.accept(keys[i], (T)values[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Return values as collection view without boxing keys.
+     *
+     * @return values as collection view.
+     */
+    @Override
+    public Collection<T> values() {
+        return new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return new Slots<T>() {
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    T at(int i) { return (T)values[i]; }
+                };
+            }
+            @Override
+            public int size() {
+                return size;
+            }
+            @Override
+            public Spliterator<T> spliterator() {
+                return new ValueSpliterator(0, values.length, size);
+            }
+        };
+    }
+
+
+    /**
+     * Return mappings as set view, keys are boxed on access.
+     *
+     * @return mappings as set view.
+     */
+    @Override
+    public Set<Map.Entry<Long, T>> entrySet() {
+        return new AbstractSet<Map.Entry<Long, T>>() {
+            @Override
+            public Iterator<Map.Entry<Long, T>> iterator() {
+                return new Slots<Map.Entry<Long, T>>() {
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    Map.Entry<Long, T> at(int i) {
+                        return new AbstractMap.SimpleImmutableEntry<>(keys[i], (T)values[i]);
+                    }
+                };
+            }
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+
+    /**
+     * Iterator over used slots of the tables.
+     *
+     * @param <E> type of elements returned for a slot.
+     */
+    private abstract class Slots<E> implements Iterator<E> {
+        private int next = advance(0);
+
+        abstract E at(int slot);
+
+        private int advance(int i) {
+            while(i < values.length && values[i]==null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public E next() {
+            if(next >= values.length)
+                throw new NoSuchElementException();
+            //
+            E e = at(next);
+            next = advance(next + 1);
+            return e;
+        }
+    }
+
+
+    /**
+     * Spliterator over a range of slots that splits the range in halves, used by
+     * parallel streams over values.
+     */
+    private class ValueSpliterator implements Spliterator<T> {
+        private int lo;
+        private final int hi;
+        private long estimate;
+
+        ValueSpliterator(int lo, int hi, long estimate) {
+            this.lo = lo;
+            this.hi = hi;
+            this.estimate = estimate;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public boolean tryAdvance(java.util.function.Consumer<? super T> action) {
+            while(lo < hi) {
+                Object v = values[lo++];
+                if(v != null) {
+                    action.accept((T)v);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void forEachRemaining(java.util.function.Consumer<? super T> action) {
+            Object[] vs = values;
+            for( ; lo < hi; lo++) {
+                if(vs[lo] != null) {
+                    action.accept((T)vs[lo]);
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (lo + hi) >>> 1;
+            if(mid - lo < 64)
+                return null;    // range too small to split
+            //
+            var prefix = new ValueSpliterator(lo, mid, estimate >>>= 1);
+            lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            // exact size is only known for the unsplit range over all slots
+            return Spliterator.NONNULL | (lo==0 && hi==values.length && estimate==size? Spliterator.SIZED : 0);
+        }
+    }
+
+
+    /**
+     * Close the gap at a removed slot by moving following entries of the probe
+     * sequence back (no tombstones are needed).
+     *
+     * @param gap removed slot.
+     */
+    private void shiftBack(int gap) {
+        int mask = keys.length - 1;
+        values[gap] = null;
+        for(int i = (gap + 1) & mask; values[i] != null; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            // move entry if its home slot is not cyclically within (gap, i]
+            if(((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = null;
+                gap = i;
+            }
+        }
+    }
+
+
+    /**
+     * Rehash all mappings into tables of a new capacity.
+     *
+     * @param capacity new table size, power of 2.
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for(int j=0; j < oldValues.length; j++) {
+            if(oldValues[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while(values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+
+    /**
+     * Allocate empty tables.
+     *
+     * @param capacity table size, power of 2.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        threshold = (int)(capacity * LOAD_FACTOR);
+    }
+
+
+    /**
+     * Return power of 2 table size that holds {@literal expected} mappings.
+     *
+     * @param expected expected number of mappings.
+     * @return table size.
+     */
+    private static int tableSizeFor(int expected) {
+        long needed = (long)Math.ceil(Math.max(expected, 2) / (double)LOAD_FACTOR) + 1;
+        if(needed > (1 << 30))
+            throw new IllegalArgumentException("capacity exceeded: " + expected);
+        //
+        return Integer.highestOneBit((int)needed - 1) << 1;
+    }
+
+
+    /**
+     * Spread key bits (finalizer of MurmurHash3) so that sequential ids do not
+     * cluster in the tables.
+     *
+     * @param key key to hash.
+     * @return hash of key.
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int)key;
+    }
+
+}
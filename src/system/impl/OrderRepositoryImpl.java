@@ -0,0 +1,192 @@
+package system.impl;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import datamodel.Order;
+import system.OrderRepository;
+
+
+/**
+ * Non-public implementation of the {@link OrderRepository} interface.
+ * <p>
+ * Outside concurrent mode, orders are stored in a {@link NumericKeyMap}: orders
+ * with numeric ids are kept by primitive {@code long} keys, lookups with String
+ * ids parse the id instead of hashing it and lookups with numeric ids use the
+ * number directly. In concurrent mode, the repository uses the thread-safe map
+ * of {@link RepositoryImpl} and formats numeric ids on lookup.
+ * </p>
+ * <p>
+ * Orders are indexed by creation date in a sorted {@link SecondaryIndex}. The
+ * repository listens to creation date changes of stored orders and moves them
+ * in the index. The listener is removed from orders that are replaced or deleted,
+ * so orders no longer stored do not keep the repository reachable.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class OrderRepositoryImpl extends RepositoryImpl<Order, String> implements OrderRepository {
+
+    /**
+     * Map that stores orders by numeric keys, {@code null} in concurrent mode.
+     */
+    private final NumericKeyMap<Order> numericMap;
+
+    /**
+     * Name of sorted index of orders by creation date.
+     */
+    static final String CREATION_DATE = "creationDate";
+
+    /**
+     * Sorted index of orders by creation date.
+     */
+    private final SecondaryIndex<Order, String> creationDates;
+
+    /**
+     * Listener added to stored orders that re-indexes orders after their
+     * creation date changed.
+     */
+    private final Consumer<Order> reindex = this::reindex;
+
+
+    /**
+     * Constructor with flag to select the concurrent mode and the clock shared
+     * with the other repositories of a data store.
+     *
+     * @param concurrent true selects the concurrent mode.
+     * @param clock clock that provides versions for snapshots.
+     */
+    OrderRepositoryImpl(boolean concurrent, VersionClock clock) {
+        this(concurrent? null : new NumericKeyMap<Order>(), clock);
+    }
+
+
+    /**
+     * Private constructor that passes the map to the super class.
+     *
+     * @param numericMap map with numeric keys or {@code null} for concurrent mode.
+     * @param clock clock that provides versions for snapshots.
+     */
+    private OrderRepositoryImpl(NumericKeyMap<Order> numericMap, VersionClock clock) {
+        super(o -> o.getId(), numericMap != null? numericMap : newMap(true), numericMap==null, clock);
+        this.numericMap = numericMap;
+        this.creationDates = new SecondaryIndex<Order, String>(Order::getCreationDate, numericMap==null, true) {
+            @Override
+            void put(String id, Order order) {
+                Order prior;
+                synchronized(this) {
+                    prior = find(id);
+                    super.put(id, order);
+                }
+                if(prior != null && prior != order) {
+                    prior.removeCreationDateListener(reindex);
+                }
+                order.addCreationDateListener(reindex);     // not added twice
+            }
+            @Override
+            void remove(String id) {
+                Order prior;
+                synchronized(this) {
+                    prior = find(id);
+                    super.remove(id);
+                }
+                if(prior != null) {
+                    prior.removeCreationDateListener(reindex);
+                }
+            }
+            @Override
+            void clear() {
+                synchronized(this) {
+                    forEach(order -> order.removeCreationDateListener(reindex));
+                    super.clear();
+                }
+            }
+        };
+        addIndex(CREATION_DATE, creationDates);
+    }
+
+
+    /**
+     * Return result of a lookup of an order by its numeric {@literal id}.
+     *
+     * @param id numeric {@literal id} of order to find.
+     * @return result of lookup of an order by its {@literal id}.
+     */
+    @Override
+    public Optional<Order> findById(long id) {
+        if(id < 0)
+            return Optional.empty();
+        //
+        return numericMap != null? Optional.ofNullable(live(numericMap.get(id))) : findById(Long.toString(id));
+    }
+
+
+    /**
+     * Return result of a lookup of an order by its numeric {@literal id}.
+     *
+     * @param id numeric {@literal id} of order to find.
+     * @return true if an order with {@literal id} exists in repository.
+     */
+    @Override
+    public boolean existsById(long id) {
+        return findById(id).isPresent();
+    }
+
+
+    /**
+     * Delete order with numeric id: {@literal id} from repository, if order exists.
+     * No change of repository if no order with id: {@literal id} exists.
+     *
+     * @param id numeric {@literal id} of order to delete.
+     */
+    @Override
+    public void deleteById(long id) {
+        if(id >= 0) {
+            deleteById(Long.toString(id));  // updates indexes
+        }
+    }
+
+
+    /**
+     * Return orders created in time range {@code [from, to)} from the sorted
+     * index, ordered by creation date.
+     *
+     * @param from lowest creation date (inclusive) in milliseconds since 01/01/1970.
+     * @param to upper bound of creation date (exclusive) in milliseconds since 01/01/1970.
+     * @return orders created in range, empty if {@code from >= to}.
+     */
+    @Override
+    public Iterable<Order> findByCreationDateBetween(long from, long to) {
+        return creationDates.range(from, to);
+    }
+
+
+    /**
+     * Move order in the index of creation dates after its creation date changed,
+     * if the order is still stored under its id.
+     *
+     * @param order order with changed creation date.
+     */
+    private void reindex(Order order) {
+        synchronized(creationDates) {   // no removal between check and put
+            if(creationDates.contains(order.getId(), order)) {
+                creationDates.put(order.getId(), order);
+            }
+        }
+    }
+
+
+    /**
+     * Return read-only view of the repository as of a snapshot version that
+     * supports lookups by numeric ids.
+     *
+     * @param version version of snapshot.
+     * @return read-only view of repository at version.
+     */
+    @Override
+    OrderRepository snapshot(long version) {
+        return new SnapshotRepository.Orders(this, version);
+    }
+
+}
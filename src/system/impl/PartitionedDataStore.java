@@ -0,0 +1,436 @@
+package system.impl;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import datamodel.*;
+import system.ChangeEvent;
+import system.DataStore;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Repository;
+
+
+/**
+ * Non-public {@link DataStore} that partitions customers, articles and orders
+ * over a fixed number of {@link DataStoreImpl} shards by the hash of their
+ * {@literal id}.
+ * <p>
+ * Each shard has its own repositories, clock and journal, writers of different
+ * shards therefore do not contend for locks. Operations by {@literal id} go to
+ * one shard, scans such as {@code findAll()} fan out to all shards in parallel
+ * (see {@link PartitionedRepository}).
+ * </p>
+ * <p>
+ * Snapshots and transactions span all shards. They take the batch lock of all
+ * shard clocks in partition order, so a snapshot sees a transaction in all
+ * shards or in none. Journals are written per shard ({@code <journal>.0},
+ * {@code <journal>.1}, ...), the number of partitions must therefore not change
+ * between runs that use the same journals. A crash while a transaction is
+ * journaled can leave it durable in some shards only.
+ * </p>
+ * <p>
+ * The same class implements views of snapshots and transactions over the
+ * snapshots and transactions of the shards.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class PartitionedDataStore implements DataStore {
+
+    /**
+     * Live shards, {@code null} for views of snapshots and transactions.
+     */
+    private final List<DataStoreImpl> live;
+
+    /**
+     * Shards of which repositories are partitioned, live shards, their
+     * snapshots or their transactions.
+     */
+    private final List<? extends DataStore> shards;
+
+    /**
+     * True for views of snapshots.
+     */
+    private final boolean readOnly;
+
+    /**
+     * Repositories over the repositories of the shards.
+     */
+    private final LongIdRepository<Customer> customers;
+    private final Repository<Article, String> articles;
+    private final OrderRepository orders;
+
+
+    /**
+     * Constructor of data store with a number of partitions.
+     *
+     * @param partitions number of partitions (shards).
+     * @param concurrent true if shards are used by multiple threads.
+     * @param snapshotFile snapshot file loaded at start if it exists or {@code null}.
+     * @param journalFile base path of per-shard journal files or {@code null}.
+     * @throws IllegalArgumentException {@literal partitions} is not positive.
+     */
+    PartitionedDataStore(int partitions, boolean concurrent, Path snapshotFile, Path journalFile) {
+        if(partitions <= 0)
+            throw new IllegalArgumentException("argument partitions is not positive.");
+        //
+        this.live = IntStream.range(0, partitions)
+            .mapToObj(i -> new DataStoreImpl(concurrent, null, null))
+            .toList();
+        this.shards = live;
+        this.readOnly = false;
+        this.customers = new PartitionedRepository.LongIds<Customer>(repositories(DataStore::customers), Customer::getId);
+        this.articles = new PartitionedRepository<Article, String>(repositories(DataStore::articles), Article::getId);
+        this.orders = new PartitionedRepository.Orders(repositories(DataStore::orders));
+        //
+        if(snapshotFile != null && Files.exists(snapshotFile)) {
+            load(snapshotFile);     // routes objects to shards before journals are replayed
+        }
+        if(journalFile != null) {
+            var journalFiles = IntStream.range(0, partitions)
+                .mapToObj(i -> journalFile.resolveSibling(journalFile.getFileName() + "." + i))
+                .toList();
+            for(int i=0; i < partitions; i++) {
+                if(StoreJournal.hasCheckpoint(journalFiles.get(i))) {
+                    live.get(i).clear();    // checkpoint replaces objects of snapshot file
+                }
+            }
+            StoreJournal.replay(journalFiles, customers, articles, orders);
+            for(int i=0; i < partitions; i++) {
+                live.get(i).openJournal(journalFiles.get(i), false);
+            }
+        }
+    }
+
+
+    /**
+     * Private constructor of a view of snapshots or transactions of shards.
+     *
+     * @param shards snapshots or transactions in partition order.
+     * @param readOnly true for snapshots.
+     */
+    private PartitionedDataStore(List<? extends DataStore> shards, boolean readOnly) {
+        this.live = null;
+        this.shards = shards;
+        this.readOnly = readOnly;
+        this.customers = new PartitionedRepository.LongIds<Customer>(repositories(DataStore::customers), Customer::getId);
+        this.articles = new PartitionedRepository<Article, String>(repositories(DataStore::articles), Article::getId);
+        this.orders = new PartitionedRepository.Orders(repositories(DataStore::orders));
+    }
+
+
+    /**
+     * Save object (entity) to the repository of its type in the shard of its
+     * {@literal id}.
+     *
+     * @param <T> generic type of a {@link datamodel} class.
+     * @param entity object saved to the repository.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public <T> DataStore save(T entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        if(readOnly)
+            throw SnapshotRepository.readOnly();
+        //
+        if(entity instanceof Customer) {
+            customers.save((Customer)entity);
+        } else if(entity instanceof Article) {
+            articles.save((Article)entity);
+        } else if(entity instanceof Order) {
+            orders.save((Order)entity);
+        }
+        return this;
+    }
+
+
+    /**
+     * Save a collection of objects (entities), objects are partitioned by type
+     * and saved by shards in parallel, customers and articles before orders.
+     *
+     * @param <T> generic type of a {@link datamodel} class.
+     * @param entities collection of objects (entities) saved to repository.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null}.
+     */
+    @Override
+    public <T> DataStore saveAll(Iterable<T> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        if(readOnly)
+            throw SnapshotRepository.readOnly();
+        //
+        var customers = new ArrayList<Customer>();
+        var articles = new ArrayList<Article>();
+        var orders = new ArrayList<Order>();
+        for(T entity : entities) {
+            if(entity instanceof Customer) {
+                customers.add((Customer)entity);
+            } else if(entity instanceof Article) {
+                articles.add((Article)entity);
+            } else if(entity instanceof Order) {
+                orders.add((Order)entity);
+            }
+        }
+        this.customers.saveAll(customers);
+        this.articles.saveAll(articles);
+        this.orders.saveAll(orders);
+        return this;
+    }
+
+
+    /**
+     * Builder method to create objects in DataStore.
+     *
+     * @param factory callout to factory that creates objects.
+     * @return chainable self-reference.
+     */
+    @Override
+    public DataStore build(Consumer<DataStore> factory) {
+        if(factory==null)
+            throw new IllegalArgumentException("argument factory is null.");
+        if(readOnly)
+            throw SnapshotRepository.readOnly();
+        //
+        factory.accept(this);   // callout to factory
+        return this;
+    }
+
+
+    /**
+     * Run work that saves and deletes objects as one transaction over all
+     * shards. Each shard buffers its changes while the work runs, changes are
+     * then applied while the batch locks of all shards are held.
+     *
+     * @param work callout that performs changes on the transaction's data store.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal work} is {@literal null}.
+     */
+    @Override
+    public DataStore transaction(Consumer<DataStore> work) {
+        if(work==null)
+            throw new IllegalArgumentException("argument work is null.");
+        if(readOnly)
+            throw SnapshotRepository.readOnly();
+        if(live==null)
+            return build(work);     // nested transaction joins the enclosing one
+        //
+        var txs = live.stream().map(DataStoreImpl::newTransaction).toList();
+        work.accept(new PartitionedDataStore(txs, false));   // nothing is applied if work throws
+        //
+        beginBatch();
+        try {
+            for(int i=0; i < live.size(); i++) {
+                live.get(i).journal(txs.get(i));    // journal all shards before applying changes
+            }
+            for(int i=0; i < live.size(); i++) {
+                live.get(i).commit(txs.get(i));
+            }
+        } finally {
+            endBatch();
+        }
+        live.forEach(DataStoreImpl::flush);     // wait for durability outside of the batch locks
+        return this;
+    }
+
+
+    /**
+     * Write a binary snapshot of all customers, articles and orders to a file
+     * from a consistent snapshot of all shards. The file has the format of
+     * {@link DataStoreImpl#dump(Path)} and does not depend on the number of
+     * partitions.
+     *
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be written.
+     */
+    @Override
+    public DataStore dump(Path file) {
+        if(file==null)
+            throw new IllegalArgumentException("argument file is null.");
+        if(live==null && ! readOnly)
+            throw new UnsupportedOperationException("not supported in transaction.");
+        //
+        if(live != null) {
+            try(var snapshot = snapshot()) {
+                snapshot.dump(file);
+            }
+        } else {
+            SnapshotFile.write(file, customers.findAll(), articles.findAll(), orders.findAll());
+        }
+        return this;
+    }
+
+
+    /**
+     * Load a binary snapshot written by {@link #dump(Path)}, objects are routed
+     * to the shards of their {@literal id}.
+     *
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be read.
+     */
+    @Override
+    public DataStore load(Path file) {
+        if(file==null)
+            throw new IllegalArgumentException("argument file is null.");
+        if(readOnly)
+            throw SnapshotRepository.readOnly();
+        if(live==null)
+            throw new UnsupportedOperationException("not supported in transaction.");
+        //
+        SnapshotFile.read(file, customers, articles, orders);
+        return this;
+    }
+
+
+    /**
+     * Return a read-only view of all shards frozen at the same point in time,
+     * it must be closed after use.
+     *
+     * @return read-only view of data store.
+     */
+    @Override
+    public DataStore snapshot() {
+        if(live==null && ! readOnly)
+            throw new UnsupportedOperationException("not supported in transaction.");
+        //
+        if(live==null)
+            return new PartitionedDataStore(shards.stream().map(DataStore::snapshot).toList(), true);
+        //
+        beginBatch();
+        try {
+            return new PartitionedDataStore(live.stream().map(DataStore::snapshot).toList(), true);
+        } finally {
+            endBatch();
+        }
+    }
+
+
+    /**
+     * Subscribe to inserts, updates and deletes of objects of a type in all
+     * shards. Shards deliver events from their own threads, deliveries to the
+     * subscriber are serialized. Events are ordered per shard, sequence numbers
+     * of events are assigned per shard.
+     *
+     * @param <T> generic type of objects, e.g. {@link Order}.
+     * @param type class of objects of which events are delivered, {@code Object.class} for all.
+     * @param capacity maximum number of events per shard waiting for the subscriber.
+     * @param subscriber callout that receives events.
+     * @return subscription that stops delivery when closed.
+     * @throws IllegalArgumentException {@literal type} or {@literal subscriber} is
+     * {@literal null} or {@literal capacity} is not positive.
+     */
+    @Override
+    public <T> Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+        if(type==null || subscriber==null)
+            throw new IllegalArgumentException("argument type or subscriber is null.");
+        if(live==null)
+            throw readOnly? SnapshotRepository.readOnly() : new UnsupportedOperationException("not supported in transaction.");
+        //
+        Consumer<ChangeEvent<T>> serialized = event -> {
+            synchronized(subscriber) {
+                subscriber.accept(event);
+            }
+        };
+        var subscriptions = live.stream()
+            .map(shard -> shard.subscribe(type, capacity, serialized))
+            .toList();
+        return new Subscription() {
+            @Override
+            public boolean isActive() {
+                return subscriptions.stream().anyMatch(Subscription::isActive);
+            }
+            @Override
+            public void close() {
+                subscriptions.forEach(Subscription::close);
+            }
+        };
+    }
+
+
+    /**
+     * Close all shards or, for a snapshot, release the snapshots of all shards.
+     */
+    @Override
+    public void close() {
+        if(live != null || readOnly) {
+            shards.forEach(DataStore::close);
+        }
+    }
+
+
+    /**
+     * Return repository of customers partitioned over all shards.
+     *
+     * @return repository of customers.
+     */
+    @Override
+    public LongIdRepository<Customer> customers() {
+        return customers;
+    }
+
+
+    /**
+     * Return repository of articles partitioned over all shards.
+     *
+     * @return repository of articles.
+     */
+    @Override
+    public Repository<Article, String> articles() {
+        return articles;
+    }
+
+
+    /**
+     * Return repository of orders partitioned over all shards.
+     *
+     * @return repository of orders.
+     */
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+
+    /**
+     * Collect repositories of shards in partition order.
+     *
+     * @param <R> generic type of repository.
+     * @param repository function that obtains repository from shard.
+     * @return list of repositories.
+     */
+    private <R> List<R> repositories(Function<DataStore, R> repository) {
+        return shards.stream().map(repository).toList();
+    }
+
+
+    /**
+     * Take batch locks of all shards in partition order.
+     */
+    private void beginBatch() {
+        live.forEach(shard -> shard.clock().beginBatch());
+    }
+
+
+    /**
+     * Release batch locks of all shards in reverse partition order.
+     */
+    private void endBatch() {
+        for(int i=live.size() - 1; i >= 0; i--) {
+            live.get(i).clock().endBatch();
+        }
+    }
+
+}
@@ -0,0 +1,532 @@
+package system.impl;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import datamodel.Order;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public {@link Repository} that partitions objects over a fixed number of
+ * repositories (shards) by the hash of their {@literal id}.
+ * <p>
+ * Lookups, saves and deletes by {@literal id} go to the one shard that owns the
+ * {@literal id}. Bulk operations group objects by shard and run one call per
+ * shard in parallel. Scans ({@link #findAll()}, {@link #parallelStream()},
+ * index lookups and queries) fan out to all shards and merge their results.
+ * </p>
+ * <p>
+ * Numeric ids are routed by their numeric value, a {@code long} id and its
+ * canonical decimal {@code String} form (e.g. order id {@code 8592356245L} and
+ * {@code "8592356245"}) therefore belong to the same shard.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class PartitionedRepository<T, ID> implements Repository<T, ID> {
+
+    /**
+     * Shards in partition order.
+     */
+    private final List<? extends Repository<T, ID>> shards;
+
+    /**
+     * Externally provided function that obtains id from entity.
+     */
+    private final Function<T, ID> getIdFunc;
+
+    /**
+     * View of all objects of all shards.
+     */
+    private final Iterable<T> values = new Iterable<T>() {
+        @Override
+        public Iterator<T> iterator() {
+            return stream().iterator();
+        }
+        @Override
+        public Spliterator<T> spliterator() {
+            return stream().spliterator();
+        }
+    };
+
+
+    /**
+     * Constructor of repository over shards.
+     *
+     * @param shards shards in partition order.
+     * @param getIdFunc function that obtains id from entity of type T.
+     * @throws IllegalArgumentException {@literal shards} or {@literal getIdFunc}
+     * is {@literal null} or {@literal shards} is empty.
+     */
+    PartitionedRepository(List<? extends Repository<T, ID>> shards, Function<T, ID> getIdFunc) {
+        if(shards==null || getIdFunc==null)
+            throw new IllegalArgumentException("argument shards or getIdFunc is null.");
+        if(shards.isEmpty())
+            throw new IllegalArgumentException("argument shards is empty.");
+        //
+        this.shards = List.copyOf(shards);
+        this.getIdFunc = getIdFunc;
+    }
+
+
+    /**
+     * Return true if all shards are in concurrent mode and the repository can
+     * be used by multiple threads.
+     *
+     * @return true if all shards are in concurrent mode.
+     */
+    boolean isConcurrent() {
+        return shards.stream().allMatch(shard -> RepositoryImpl.isConcurrent(shard));
+    }
+
+
+    /**
+     * Return partition of a numeric {@literal id}.
+     *
+     * @param id numeric id.
+     * @param partitions number of partitions.
+     * @return partition in range {@code [0, partitions)}.
+     */
+    static int partition(long id, int partitions) {
+        return Math.floorMod(StringArena.spread(Long.hashCode(id)), partitions);
+    }
+
+
+    /**
+     * Return partition of an {@literal id}, {@code Long} ids and canonical
+     * numeric {@code String} ids are routed by their numeric value.
+     *
+     * @param id id, not {@code null}.
+     * @param partitions number of partitions.
+     * @return partition in range {@code [0, partitions)}.
+     */
+    static int partition(Object id, int partitions) {
+        if(id instanceof Long)
+            return partition(((Long)id).longValue(), partitions);
+        //
+        if(id instanceof String) {
+            long n = NumericKeyMap.parse((String)id);
+            if(n >= 0)
+                return partition(n, partitions);
+        }
+        return Math.floorMod(StringArena.spread(id.hashCode()), partitions);
+    }
+
+
+    /**
+     * Return shard that owns an {@literal id}.
+     *
+     * @param id id, not {@code null}.
+     * @return shard of id.
+     */
+    Repository<T, ID> shardOf(ID id) {
+        return shards.get(partition(id, shards.size()));
+    }
+
+
+    /**
+     * Return number of objects in all shards, the sum of the shard counts
+     * that are maintained by each shard.
+     *
+     * @return number of objects in repository.
+     */
+    @Override
+    public long count() {
+        long count = 0L;
+        for(var shard : shards) {
+            count += shard.count();
+        }
+        return count;
+    }
+
+
+    @Override
+    public Iterable<T> findAll() {
+        return values;
+    }
+
+
+    @Override
+    public Stream<T> stream() {
+        return shards.stream().flatMap(Repository::stream);
+    }
+
+
+    /**
+     * Return parallel stream that scans the shards in parallel.
+     *
+     * @return parallel stream of all objects.
+     */
+    @Override
+    public Stream<T> parallelStream() {
+        return shards.parallelStream().flatMap(Repository::stream);
+    }
+
+
+    /**
+     * Return query that is evaluated on each shard in parallel, results of
+     * shards are merged in the order of the query.
+     *
+     * @return new query over all shards.
+     */
+    @Override
+    public Query<T> query() {
+        return new PartitionedQuery();
+    }
+
+
+    @Override
+    public Optional<T> findById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        return shardOf(id).findById(id);
+    }
+
+
+    @Override
+    public boolean existsById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        return shardOf(id).existsById(id);
+    }
+
+
+    @Override
+    public Iterable<T> findAllById(Iterable<ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        return StreamSupport.stream(ids.spliterator(), false)
+            .filter(id -> id != null)
+            .map(id -> shardOf(id).findById(id))
+            .flatMap(Optional::stream).toList();
+    }
+
+
+    /**
+     * Create index with the same {@literal name} and {@literal keyExtractor}
+     * in all shards.
+     */
+    @Override
+    public <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor) {
+        shards.forEach(shard -> shard.createIndex(name, keyExtractor));
+        return this;
+    }
+
+
+    @Override
+    public Iterable<T> findAllByIndex(String name, Object key) {
+        return shards.parallelStream()
+            .flatMap(shard -> StreamSupport.stream(shard.findAllByIndex(name, key).spliterator(), false))
+            .toList();
+    }
+
+
+    @Override
+    public <S extends T> S save(S entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        ID id = getIdFunc.apply(entity);
+        if(id==null)
+            throw new IllegalArgumentException("argument entity's id is null.");
+        //
+        return shardOf(id).save(entity);
+    }
+
+
+    /**
+     * Save objects grouped by shard, shards save their groups in parallel.
+     */
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        var groups = group(entities, getIdFunc);
+        IntStream.range(0, groups.size()).parallel()
+            .filter(i -> groups.get(i).size() > 0)
+            .forEach(i -> shards.get(i).saveAll(groups.get(i)));
+        return entities;
+    }
+
+
+    @Override
+    public void deleteById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        shardOf(id).deleteById(id);
+    }
+
+
+    @Override
+    public void delete(T entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        ID id = getIdFunc.apply(entity);
+        if(id != null) {
+            shardOf(id).deleteById(id);
+        }
+    }
+
+
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        var groups = group(ids, Function.identity());
+        for(int i=0; i < groups.size(); i++) {
+            if(groups.get(i).size() > 0) {
+                shards.get(i).deleteAllById(groups.get(i));
+            }
+        }
+    }
+
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        var ids = new ArrayList<ID>();
+        for(T e : entities) {
+            ID id = e==null? null : getIdFunc.apply(e);
+            if(id != null) {
+                ids.add(id);
+            }
+        }
+        deleteAllById(ids);
+    }
+
+
+    @Override
+    public void deleteAll() {
+        shards.forEach(Repository::deleteAll);
+    }
+
+
+    /**
+     * Group elements by the partition of their id, elements without id are
+     * skipped.
+     *
+     * @param <E> generic type of elements.
+     * @param elements elements to group.
+     * @param idOf function that obtains id from element.
+     * @return list of groups in partition order.
+     */
+    private <E> List<List<E>> group(Iterable<E> elements, Function<? super E, ? extends ID> idOf) {
+        var groups = new ArrayList<List<E>>(shards.size());
+        for(int i=0; i < shards.size(); i++) {
+            groups.add(new ArrayList<>());
+        }
+        for(E e : elements) {
+            ID id = e==null? null : idOf.apply(e);
+            if(id != null) {
+                groups.get(partition(id, shards.size())).add(e);
+            }
+        }
+        return groups;
+    }
+
+
+    /**
+     * Query that records the builder calls and replays them on a query of each
+     * shard. Shard results are already filtered, ordered and limited, merging
+     * them re-applies order and limit to at most {@code shards * limit} objects.
+     */
+    private final class PartitionedQuery implements Query<T> {
+
+        /**
+         * Query of the first shard that validates builder calls and provides
+         * the comparator to merge ordered results.
+         */
+        private final Query<T> probe = shards.get(0).query();
+
+        /**
+         * Recorded builder calls.
+         */
+        private final List<UnaryOperator<Query<T>>> calls = new ArrayList<>();
+
+        /**
+         * Limit of result or -1.
+         */
+        private int limit = -1;
+
+        @Override
+        public Query<T> where(String field, Op op, Object value) {
+            return record(q -> q.where(field, op, value));
+        }
+
+        @Override
+        public <K> Query<T> where(Function<? super T, K> field, Op op, K value) {
+            return record(q -> q.where(field, op, value));
+        }
+
+        @Override
+        public Query<T> where(Predicate<? super T> predicate) {
+            return record(q -> q.where(predicate));
+        }
+
+        @Override
+        public Query<T> orderBy(String field) {
+            return record(q -> q.orderBy(field));
+        }
+
+        @Override
+        public Query<T> orderByDescending(String field) {
+            return record(q -> q.orderByDescending(field));
+        }
+
+        @Override
+        public Query<T> limit(int n) {
+            record(q -> q.limit(n));
+            limit = n;
+            return this;
+        }
+
+        @Override
+        public Stream<T> stream() {
+            var results = shards.parallelStream()
+                .map(shard -> replay(shard.query()).list())
+                .toList();
+            Stream<T> merged = results.stream().flatMap(List::stream);
+            if(probe instanceof QueryImpl<T> q && q.comparator() != null) {
+                merged = merged.sorted(q.comparator());
+            }
+            return limit < 0? merged : merged.limit(limit);
+        }
+
+        /**
+         * Validate builder call on a query of the first shard and record it.
+         *
+         * @param call builder call.
+         * @return chainable self-reference.
+         */
+        private Query<T> record(UnaryOperator<Query<T>> call) {
+            call.apply(probe);     // fail early on invalid arguments
+            calls.add(call);
+            return this;
+        }
+
+        /**
+         * Replay recorded builder calls on a query.
+         *
+         * @param query query of a shard.
+         * @return query with recorded calls applied.
+         */
+        private Query<T> replay(Query<T> query) {
+            for(var call : calls) {
+                query = call.apply(query);
+            }
+            return query;
+        }
+    }
+
+
+    /**
+     * Partitioned repository of objects with {@code long} ids, e.g. customers.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     */
+    static class LongIds<T> extends PartitionedRepository<T, Long> implements LongIdRepository<T> {
+
+        /**
+         * Shards in partition order.
+         */
+        private final List<? extends LongIdRepository<T>> shards;
+
+        /**
+         * Constructor of repository over shards.
+         *
+         * @param shards shards in partition order.
+         * @param getIdFunc function that obtains id from entity of type T.
+         */
+        LongIds(List<? extends LongIdRepository<T>> shards, Function<T, Long> getIdFunc) {
+            super(shards, getIdFunc);
+            this.shards = List.copyOf(shards);
+        }
+
+        @Override
+        public Optional<T> findById(long id) {
+            return shards.get(partition(id, shards.size())).findById(id);
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return shards.get(partition(id, shards.size())).existsById(id);
+        }
+
+        @Override
+        public void deleteById(long id) {
+            shards.get(partition(id, shards.size())).deleteById(id);
+        }
+    }
+
+
+    /**
+     * Partitioned repository of orders.
+     */
+    static class Orders extends PartitionedRepository<Order, String> implements OrderRepository {
+
+        /**
+         * Shards in partition order.
+         */
+        private final List<? extends OrderRepository> shards;
+
+        /**
+         * Constructor of repository over shards.
+         *
+         * @param shards shards in partition order.
+         */
+        Orders(List<? extends OrderRepository> shards) {
+            super(shards, Order::getId);
+            this.shards = List.copyOf(shards);
+        }
+
+        @Override
+        public Optional<Order> findById(long id) {
+            return shards.get(partition(id, shards.size())).findById(id);
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return shards.get(partition(id, shards.size())).existsById(id);
+        }
+
+        @Override
+        public void deleteById(long id) {
+            shards.get(partition(id, shards.size())).deleteById(id);
+        }
+
+        /**
+         * Return orders created in {@code [from, to)} in order of creation date,
+         * shards look up their ranges in parallel and results are merged.
+         */
+        @Override
+        public Iterable<Order> findByCreationDateBetween(long from, long to) {
+            return shards.parallelStream()
+                .flatMap(shard -> StreamSupport.stream(shard.findByCreationDateBetween(from, to).spliterator(), false))
+                .sorted(Comparator.comparingLong(Order::getCreationDate))
+                .toList();
+        }
+    }
+
+}
@@ -1,6 +1,6 @@
 package system.impl;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -125,8 +125,6 @@ class PrinterImpl implements Printer {
         if(orders==null)
             throw new IllegalArgumentException("argument orders is null.");
         //
-        long[] totals = new long[] {0L, 0L};
-
         final var tf = new TableFormatter(
                 // column specification
                 "|%-10s|", " %-25s", " %8s", "%1s", " %12s", "| %8s", " %12s|"
@@ -135,19 +133,13 @@ class PrinterImpl implements Printer {
             .row("Bestell-ID", "Bestellungen", "MwSt", "*", "Preis", "MwSt", "Gesamt")
             .line();
 
-        StreamSupport.stream(orders.spliterator(), false)
-            .map(order -> {
-                printOrder(order, tf).line();
-                return order;
-            })
-            .forEach(order -> {
-// @REMOVE.BEGIN
-                totals[0] += calculator.calculateOrderValue(order);
-                totals[1] += calculator.calculateOrderVAT(order);
-// @REMOVE.END
-            });
+        var list = StreamSupport.stream(orders.spliterator(), false).toList();
+        var totals = calculator.calculateTotals(list);     // one pass over all items
+        for(int i=0; i < list.size(); i++) {
+            printOrder(list.get(i), tf, totals.getValues()[i], totals.getVATs()[i]).line();
+        }
         //
-        tf.row(null, null, null, null, "Gesamt:", formatter.fmtPrice(totals[1]), formatter.fmtPrice(totals[0], 1));
+        tf.row(null, null, null, null, "Gesamt:", formatter.fmtPrice(totals.getTotalVAT()), formatter.fmtPrice(totals.getTotalValue(), 1));
         tf.line(null, null, null, null, null, "=", "=");
         //
         return tf.get();
@@ -165,8 +157,25 @@ class PrinterImpl implements Printer {
         if(order==null || tf==null)
             throw new IllegalArgumentException("order or table formatter tf is null.");
         //
+        return printOrder(order, tf, calculator.calculateOrderValue(order), calculator.calculateOrderVAT(order));
+    }
+
+
+    /**
+     * Print one order with precomputed totals in table format.
+     * 
+     * @param order order to print into table.
+     * @param tf table formatter used by printOrders().
+     * @param orderValue value of order.
+     * @param orderVAT VAT of order.
+     * @return table formatter used by printOrders().
+     */
+    private TableFormatter printOrder(Order order, TableFormatter tf, long orderValue, long orderVAT) {
+        if(order==null)
+            throw new IllegalArgumentException("argument order is null.");
+        //
 // @REMOVE.BEGIN
-        var id = Long.valueOf(order.getId()).toString();
+        var id = order.getId();     // printed as is, no parsing of numeric ids
         // limit name length so 'Bestellung' is not cut off
         var name = String.format("%.11s%s", order.getCustomer().getFirstName(), "'s Bestellung:");
         //
@@ -189,8 +198,8 @@ class PrinterImpl implements Printer {
             );
             String[] totals = i < order.itemsCount() - 1?   // last row?
                 new String[] { "", ""} :
-                new String[] { formatter.fmtPrice(calculator.calculateOrderVAT(order)),
-                        formatter.fmtPrice(calculator.calculateOrderValue(order), 1) };
+                new String[] { formatter.fmtPrice(orderVAT),
+                        formatter.fmtPrice(orderValue, 1) };
             //
             // item rows with item description, VAT, value and totals in the last row
             tf.row("", itemDescr, formatter.fmtPrice(vat), reducedTax, formatter.fmtPrice(value, 1), totals[0], totals[1]);
@@ -236,12 +245,15 @@ class PrinterImpl implements Printer {
         if(it.hasNext()) {
             T t = it.next();
             //
+            // sized stream from collections, e.g. Repository.findAll() or findAll(offset, limit)
+            Stream<T> stream = collection instanceof Collection?
+                ((Collection<T>)collection).stream() : StreamSupport.stream(collection.spliterator(), false);
             collection = callout==null? collection : // pass as stream to caller
-                callout.apply(StreamSupport.stream(collection.spliterator(), false)).toList();
+                callout.apply(stream).toList();
             //
-            sb = t instanceof Customer? printCustomers((List<Customer>)collection) :
-                 t instanceof Article? printArticles((List<Article>)collection) :
-                 t instanceof Order? printOrders((List<Order>)collection) : null;
+            sb = t instanceof Customer? printCustomers((Iterable<Customer>)collection) :
+                 t instanceof Article? printArticles((Iterable<Article>)collection) :
+                 t instanceof Order? printOrders((Iterable<Order>)collection) : null;
         }
         return Optional.ofNullable(sb).orElse(new StringBuilder());
     }
@@ -0,0 +1,495 @@
+package system.impl;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public implementation of the {@link Query} interface with a simple
+ * query planner.
+ * <p>
+ * Named fields resolve to the key extractor of an index with that name or to
+ * a public getter of the entity class. When a query is evaluated, the planner
+ * selects candidates in this order:
+ * </p>
+ * <ol>
+ * <li>an equality condition on an indexed field, the smallest index bucket wins,</li>
+ * <li>range conditions on a field with a sorted index, the bounds of all range
+ *     conditions on the field are combined,</li>
+ * <li>for ordered queries with a limit, a walk over the sorted index of the
+ *     order field that stops after {@code limit} matches,</li>
+ * <li>otherwise a parallel scan of the repository.</li>
+ * </ol>
+ * <p>
+ * All conditions are then applied to the candidates. Candidates from a sorted
+ * index that is also the order of the query are already ordered. Other ordered
+ * queries with a limit keep the top {@code k} objects in bounded heaps that
+ * are merged across threads, instead of sorting all matches.
+ * </p>
+ *
+ * @param <T> generic type of queried objects (entities).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class QueryImpl<T> implements Query<T> {
+
+    /**
+     * Queried repository.
+     */
+    private final Repository<T, ?> source;
+
+    /**
+     * Lookup of indexes of the repository by name, returns {@code null} if
+     * no index with name exists.
+     */
+    private final Function<String, SecondaryIndex<T, ?>> indexes;
+
+    /**
+     * True if candidates can be looked up in indexes, false if indexes are only
+     * used to resolve field names, e.g. for snapshots and transactions.
+     */
+    private final boolean pushdown;
+
+    /**
+     * Conditions on fields.
+     */
+    private final List<Condition<T>> conditions = new ArrayList<>();
+
+    /**
+     * Conditions as predicates.
+     */
+    private final List<Predicate<? super T>> predicates = new ArrayList<>();
+
+    /**
+     * Orders, first order is the primary order.
+     */
+    private final List<Order<T>> orders = new ArrayList<>();
+
+    /**
+     * Maximum number of objects in result, {@code -1} for no limit.
+     */
+    private int limit = -1;
+
+    /**
+     * Getters resolved by class and field name.
+     */
+    private static final Map<Class<?>, Map<String, Method>> getters = new ConcurrentHashMap<>();
+
+
+    /**
+     * Constructor of a query over a repository.
+     *
+     * @param source queried repository.
+     * @param indexes lookup of indexes by name, returns {@code null} if no index with name exists.
+     * @param pushdown true if candidates can be looked up in indexes.
+     */
+    QueryImpl(Repository<T, ?> source, Function<String, SecondaryIndex<T, ?>> indexes, boolean pushdown) {
+        this.source = source;
+        this.indexes = indexes;
+        this.pushdown = pushdown;
+    }
+
+
+    @Override
+    public Query<T> where(String field, Op op, Object value) {
+        if(field==null || op==null || value==null)
+            throw new IllegalArgumentException("argument field, op or value is null.");
+        //
+        conditions.add(new Condition<T>(field, extractor(field), op, SecondaryIndex.normalize(value)));
+        return this;
+    }
+
+
+    @Override
+    public <K> Query<T> where(Function<? super T, K> field, Op op, K value) {
+        if(field==null || op==null || value==null)
+            throw new IllegalArgumentException("argument field, op or value is null.");
+        //
+        conditions.add(new Condition<T>(null, e -> SecondaryIndex.normalize(field.apply(e)), op,
+            SecondaryIndex.normalize(value)));
+        return this;
+    }
+
+
+    @Override
+    public Query<T> where(Predicate<? super T> predicate) {
+        if(predicate==null)
+            throw new IllegalArgumentException("argument predicate is null.");
+        //
+        predicates.add(predicate);
+        return this;
+    }
+
+
+    @Override
+    public Query<T> orderBy(String field) {
+        if(field==null)
+            throw new IllegalArgumentException("argument field is null.");
+        //
+        orders.add(new Order<T>(field, extractor(field), false));
+        return this;
+    }
+
+
+    @Override
+    public Query<T> orderByDescending(String field) {
+        if(field==null)
+            throw new IllegalArgumentException("argument field is null.");
+        //
+        orders.add(new Order<T>(field, extractor(field), true));
+        return this;
+    }
+
+
+    @Override
+    public Query<T> limit(int n) {
+        if(n < 0)
+            throw new IllegalArgumentException("argument n is negative.");
+        //
+        this.limit = n;
+        return this;
+    }
+
+
+    @Override
+    public Optional<T> first() {
+        int prior = limit;
+        try {
+            limit = prior < 0? 1 : Math.min(prior, 1);
+            return stream().findFirst();
+        } finally {
+            limit = prior;
+        }
+    }
+
+
+    /**
+     * Return comparator of the orders of the query, e.g. to merge ordered
+     * results of partitions.
+     *
+     * @return comparator of orders or {@code null} if query is not ordered.
+     */
+    Comparator<T> comparator() {
+        if(orders.isEmpty())
+            return null;
+        //
+        Comparator<T> comparator = orders.get(0);
+        for(var o : orders.subList(1, orders.size())) {
+            comparator = comparator.thenComparing(o);
+        }
+        return comparator;
+    }
+
+
+    /**
+     * Plan and evaluate query.
+     *
+     * @return sequential stream of objects that match the query.
+     */
+    @Override
+    public Stream<T> stream() {
+        if(limit==0)
+            return Stream.empty();
+        //
+        Predicate<T> filter = e -> matches(e);
+        Order<T> primary = orders.isEmpty()? null : orders.get(0);
+        //
+        // 1. equality condition on an indexed field, smallest bucket wins
+        Condition<T> eq = null;
+        int eqSize = Integer.MAX_VALUE;
+        for(var c : pushdown? conditions : List.<Condition<T>>of()) {
+            var index = c.field==null || c.op != Op.EQ? null : indexes.apply(c.field);
+            if(index != null && index.size(c.value) < eqSize) {
+                eq = c;
+                eqSize = index.size(c.value);
+            }
+        }
+        if(eq != null)
+            return order(indexes.apply(eq.field).get(eq.value).stream().filter(filter));
+        //
+        // 2. range conditions on a field with a sorted index, prefer field of primary order
+        String rangeField = null;
+        for(var c : pushdown? conditions : List.<Condition<T>>of()) {
+            var index = c.field==null || c.op==Op.EQ? null : indexes.apply(c.field);
+            if(index != null && index.isSorted() && (rangeField==null || (primary != null && c.field.equals(primary.field)))) {
+                rangeField = c.field;
+            }
+        }
+        if(rangeField != null) {
+            boolean ordered = orders.size()==1 && rangeField.equals(primary.field);
+            Object from = null, to = null;
+            boolean fromInclusive = true, toInclusive = true;
+            for(var c : conditions) {
+                if(rangeField.equals(c.field)) {
+                    switch(c.op) {
+                    case GT: case GE:
+                        int lo = from==null? 1 : SecondaryIndex.compare(c.value, from);
+                        if(lo > 0 || (lo==0 && c.op==Op.GT)) {
+                            from = c.value;
+                            fromInclusive = c.op==Op.GE;
+                        }
+                        break;
+                    case LT: case LE:
+                        int hi = to==null? -1 : SecondaryIndex.compare(c.value, to);
+                        if(hi < 0 || (hi==0 && c.op==Op.LT)) {
+                            to = c.value;
+                            toInclusive = c.op==Op.LE;
+                        }
+                        break;
+                    default:
+                    }
+                }
+            }
+            var candidates = indexes.apply(rangeField)
+                .range(from, fromInclusive, to, toInclusive, ordered && primary.descending).filter(filter);
+            return ordered? limit(candidates) : order(candidates);
+        }
+        //
+        // 3. ordered walk over sorted index of order field, objects without key come last
+        var index = primary==null || ! pushdown || limit < 0 || orders.size() > 1? null : indexes.apply(primary.field);
+        if(index != null && index.isSorted()) {
+            var keyed = index.range(null, true, null, true, primary.descending);
+            var unkeyed = Stream.of(primary).flatMap(o -> source.stream().filter(e -> o.key.apply(e)==null));
+            return limit(Stream.concat(keyed, unkeyed).filter(filter));
+        }
+        //
+        // 4. parallel scan, results are collected before they are returned sequentially
+        var scan = source.parallelStream().filter(filter);
+        if( ! orders.isEmpty())
+            return order(scan);
+        //
+        return (limit < 0? scan : scan.unordered().limit(limit)).toList().stream();
+    }
+
+
+    /**
+     * Return true if object matches all conditions.
+     *
+     * @param entity object to test.
+     * @return true if object matches all conditions.
+     */
+    private boolean matches(T entity) {
+        for(var c : conditions) {
+            if( ! c.test(entity))
+                return false;
+        }
+        for(var p : predicates) {
+            if( ! p.test(entity))
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Order candidates and apply limit: keep the top {@code k} objects if a limit
+     * is set, otherwise sort all candidates.
+     *
+     * @param candidates stream of matching objects, may be parallel.
+     * @return sequential stream of ordered objects.
+     */
+    private Stream<T> order(Stream<T> candidates) {
+        if(orders.isEmpty())
+            return limit(candidates).toList().stream();
+        //
+        Comparator<T> comparator = comparator();
+        if(limit < 0)
+            return candidates.sorted(comparator).toList().stream();
+        //
+        return candidates.collect(TopK.collector(limit, comparator)).stream();
+    }
+
+
+    /**
+     * Apply limit to a stream.
+     *
+     * @param candidates stream of objects.
+     * @return stream with at most {@link #limit} objects.
+     */
+    private Stream<T> limit(Stream<T> candidates) {
+        return limit < 0? candidates : candidates.limit(limit);
+    }
+
+
+    /**
+     * Return function that obtains a named field: the key extractor of the index
+     * with that name or the getter of the entity class.
+     *
+     * @param field name of field.
+     * @return function that obtains field from an entity.
+     */
+    private Function<T, Object> extractor(String field) {
+        var index = indexes.apply(field);
+        if(index != null)
+            return e -> index.keyOf(e);
+        //
+        return e -> SecondaryIndex.normalize(get(e, field));
+    }
+
+
+    /**
+     * Invoke getter of a field, e.g. {@code getUnitPrice()} for field {@code "unitPrice"}.
+     *
+     * @param entity entity of which field is obtained.
+     * @param field name of field.
+     * @return value of field.
+     * @throws IllegalArgumentException entity class has no getter for field.
+     */
+    private static Object get(Object entity, String field) {
+        var method = getters.computeIfAbsent(entity.getClass(), c -> new ConcurrentHashMap<>())
+            .computeIfAbsent(field, f -> getter(entity.getClass(), f));
+        try {
+            return method.invoke(entity);
+        //
+        } catch(InvocationTargetException e) {
+            var cause = e.getCause();
+            throw cause instanceof RuntimeException? (RuntimeException)cause : new IllegalStateException(cause);
+        //
+        } catch(IllegalAccessException e) {
+            throw new IllegalArgumentException(String.format("no field: \"%s\".", field));
+        }
+    }
+
+
+    /**
+     * Find public getter for field in the nearest public class, e.g. the public
+     * entity class of a non-public flyweight subclass.
+     *
+     * @param type class of entity.
+     * @param field name of field.
+     * @return getter method.
+     * @throws IllegalArgumentException class has no getter for field.
+     */
+    private static Method getter(Class<?> type, String field) {
+        Class<?> c = type;
+        for( ; c != null && ! Modifier.isPublic(c.getModifiers()); c = c.getSuperclass());
+        var name = field.isEmpty()? field : Character.toUpperCase(field.charAt(0)) + field.substring(1);
+        for(var prefix : new String[] {"get", "is"}) {
+            try {
+                var method = c==null? null : c.getMethod(prefix + name);
+                if(method != null && method.getParameterCount()==0 && method.getReturnType() != void.class)
+                    return method;
+            } catch(NoSuchMethodException e) { }
+        }
+        throw new IllegalArgumentException(String.format("no field: \"%s\".", field));
+    }
+
+
+    /**
+     * Condition on a field.
+     *
+     * @param <T> generic type of queried objects (entities).
+     */
+    private static final class Condition<T> {
+        final String field;     // null for fields obtained by functions
+        final Function<? super T, ?> key;
+        final Op op;
+        final Object value;
+
+        Condition(String field, Function<? super T, ?> key, Op op, Object value) {
+            this.field = field;
+            this.key = key;
+            this.op = op;
+            this.value = value;
+        }
+
+        boolean test(T entity) {
+            Object k = key.apply(entity);
+            if(k==null)
+                return false;
+            //
+            if(op==Op.EQ)
+                return k.equals(value);
+            //
+            int cmp = SecondaryIndex.compare(k, value);
+            switch(op) {
+            case LT: return cmp < 0;
+            case LE: return cmp <= 0;
+            case GT: return cmp > 0;
+            default: return cmp >= 0;
+            }
+        }
+    }
+
+
+    /**
+     * Order by a field, {@code null} values come last in both directions.
+     *
+     * @param <T> generic type of queried objects (entities).
+     */
+    private static final class Order<T> implements Comparator<T> {
+        final String field;
+        final Function<? super T, ?> key;
+        final boolean descending;
+
+        Order(String field, Function<? super T, ?> key, boolean descending) {
+            this.field = field;
+            this.key = key;
+            this.descending = descending;
+        }
+
+        @Override
+        public int compare(T e1, T e2) {
+            Object k1 = key.apply(e1), k2 = key.apply(e2);
+            if(k1==null || k2==null)
+                return k1==null? (k2==null? 0 : 1) : -1;
+            //
+            int cmp = SecondaryIndex.compare(k1, k2);
+            return descending? -cmp : cmp;
+        }
+    }
+
+
+    /**
+     * Bounded heap that keeps the {@code k} smallest objects by a comparator.
+     *
+     * @param <T> generic type of objects.
+     */
+    private static final class TopK<T> {
+        final int k;
+        final Comparator<? super T> comparator;
+        final PriorityQueue<T> heap;    // largest kept object on top
+
+        TopK(int k, Comparator<? super T> comparator) {
+            this.k = k;
+            this.comparator = comparator;
+            this.heap = new PriorityQueue<T>(Math.min(k, 1024) + 1, comparator.reversed());
+        }
+
+        void add(T e) {
+            if(heap.size() < k) {
+                heap.add(e);
+            } else if(comparator.compare(e, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(e);
+            }
+        }
+
+        TopK<T> merge(TopK<T> other) {
+            other.heap.forEach(this::add);
+            return this;
+        }
+
+        List<T> sorted() {
+            var list = new ArrayList<T>(heap);
+            list.sort(comparator);
+            return list;
+        }
+
+        static <T> Collector<T, TopK<T>, List<T>> collector(int k, Comparator<? super T> comparator) {
+            return Collector.of(() -> new TopK<T>(k, comparator), TopK::add, TopK::merge, TopK::sorted);
+        }
+    }
+
+}
@@ -1,17 +1,37 @@
 package system.impl;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.StreamSupport;
 
+import system.Query;
 import system.Repository;
 
 
 /**
- * 
+ * Non-public implementation of the {@link Repository} interface that stores
+ * entities in a {@link Map} by their {@literal id}.
+ * <p>
+ * The backing map is either a {@link HashMap} (default, single-threaded use) or a
+ * {@link ConcurrentHashMap} (concurrent mode) that allows threads to save and look
+ * up entities in parallel without external locking. Iteration over {@link #findAll()}
+ * is weakly consistent in concurrent mode: it never throws
+ * {@link ConcurrentModificationException} and reflects the state of the repository
+ * at some point at or since the creation of the iterator.
+ * </p>
+ * <p>
+ * Repositories share a {@link VersionClock} with the other repositories of a
+ * data store. While snapshots are open, each change keeps the prior state of the
+ * object in a short version chain and deleted objects remain in the map as
+ * tombstones, so snapshot views obtained by {@link #snapshot(long)} can resolve
+ * objects as of their version in a single pass over the map.
+ * </p>
  *
- * @param <T>
- * @param <ID>
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
  * 
  * @version <code style=color:green>{@value application.package_info#Version}</code>
  * @author <code style=color:blue>{@value application.package_info#Author}</code>
@@ -21,13 +41,68 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
     /**
      * Map that actually stores {@link datamodel} objects of type T.
      */
-    private final Map<ID, T> map = new HashMap<>();
+    private final Map<ID, T> map;
 
     /**
      * Externally provided function that obtains id from entity. 
      */
     private final Function<T, ID> getIdFunc;
 
+    /**
+     * Secondary indexes by name, maintained by save and delete methods.
+     */
+    private final Map<String, SecondaryIndex<T, ID>> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * Listeners notified of changes, e.g. to write changes to a journal.
+     */
+    private final List<ChangeListener<T, ID>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * True if repository was created in concurrent mode.
+     */
+    private final boolean concurrent;
+
+    /**
+     * Clock shared with other repositories that provides versions for snapshots.
+     */
+    private final VersionClock clock;
+
+    /**
+     * Prior states of objects changed while snapshots are open, newest first.
+     */
+    private final Map<ID, Version<T>> history;
+
+    /**
+     * Ids of objects deleted while snapshots are open that remain in map as
+     * {@link #TOMBSTONE} until no snapshot can see them anymore.
+     */
+    private final Set<ID> tombstones;
+
+    /**
+     * Map value of deleted objects that are still visible to open snapshots.
+     */
+    private static final Object TOMBSTONE = new Object();
+
+    /**
+     * Live view of repository objects returned by {@link #findAll()}.
+     */
+    private final Collection<T> values = new AbstractCollection<T>() {
+        @Override
+        public Iterator<T> iterator() {
+            return tombstones.isEmpty()? map.values().iterator() : Spliterators.iterator(spliterator());
+        }
+        @Override
+        public Spliterator<T> spliterator() {
+            return tombstones.isEmpty()? map.values().spliterator() :
+                new Resolving<T, T>(map.values().spliterator(), v -> live(v));
+        }
+        @Override
+        public int size() {
+            return (int)count();
+        }
+    };
+
 
     /**
      * Constructor with function argument to obtain the id from an entity of type T.
@@ -35,10 +110,61 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
      * @param getIdFunc function that obtains id from entity of type T.
      */
     RepositoryImpl(Function<T, ID> getIdFunc) {
-        if(getIdFunc==null)
-            throw new IllegalArgumentException("argument getIdFunc is null.");
+        this(getIdFunc, false);
+    }
+
+
+    /**
+     * Constructor with function argument to obtain the id from an entity of type T
+     * and a flag to select the concurrent mode.
+     * <p>
+     * In concurrent mode, entities are stored in a {@link ConcurrentHashMap}.
+     * Concurrent {@code save()} and {@code findById()} calls do not block each other
+     * and {@link #findAll()} can be iterated while other threads modify the repository.
+     * </p>
+     * 
+     * @param getIdFunc function that obtains id from entity of type T.
+     * @param concurrent true selects the concurrent mode.
+     */
+    RepositoryImpl(Function<T, ID> getIdFunc, boolean concurrent) {
+        this(getIdFunc, concurrent, new VersionClock());
+    }
+
+
+    /**
+     * Constructor with function argument to obtain the id from an entity of type T,
+     * a flag to select the concurrent mode and the clock shared with the other
+     * repositories of a data store.
+     * 
+     * @param getIdFunc function that obtains id from entity of type T.
+     * @param concurrent true selects the concurrent mode.
+     * @param clock clock that provides versions for snapshots.
+     */
+    RepositoryImpl(Function<T, ID> getIdFunc, boolean concurrent, VersionClock clock) {
+        this(getIdFunc, newMap(concurrent), concurrent, clock);
+    }
+
+
+    /**
+     * Constructor with function argument to obtain the id from an entity of type T
+     * and the map that stores entities, used by specialized repositories.
+     * 
+     * @param getIdFunc function that obtains id from entity of type T.
+     * @param map empty map that stores entities by id.
+     * @param concurrent true if map is thread-safe.
+     * @param clock clock that provides versions for snapshots.
+     */
+    RepositoryImpl(Function<T, ID> getIdFunc, Map<ID, T> map, boolean concurrent, VersionClock clock) {
+        if(getIdFunc==null || map==null || clock==null)
+            throw new IllegalArgumentException("argument getIdFunc, map or clock is null.");
         //
         this.getIdFunc = getIdFunc;
+        this.concurrent = concurrent;
+        this.map = map;
+        this.clock = clock;
+        this.history = newMap(concurrent);
+        this.tombstones = concurrent? ConcurrentHashMap.newKeySet() : new HashSet<>();
+        clock.register(this);
     }
 
 
@@ -49,7 +175,7 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
      */
     @Override
     public long count() {
-        return map.size();
+        return map.size() - tombstones.size();
     }
 
 
@@ -60,7 +186,19 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
      */
     @Override
     public Iterable<T> findAll() {
-        return map.values();
+        return values;
+    }
+
+
+    /**
+     * Return new query over repository objects that looks up candidates in
+     * secondary indexes.
+     * 
+     * @return new query over repository objects.
+     */
+    @Override
+    public Query<T> query() {
+        return new QueryImpl<T>(this, name -> findIndex(name), true);
     }
 
 
@@ -76,7 +214,7 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         if(id==null)
             throw new IllegalArgumentException("argument id is null.");
         //
-        return Optional.ofNullable(map.get(id));
+        return Optional.ofNullable(live(map.get(id)));
     }
 
 
@@ -108,11 +246,99 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         //
         return StreamSupport.stream(ids.spliterator(), false)
             .filter(id -> id != null)
-            .map(id -> map.get(id))
+            .map(id -> live(map.get(id)))
             .filter(e -> e != null).toList();
     }
 
 
+    /**
+     * Create a secondary index with a {@literal name} over keys obtained from
+     * repository objects by a {@literal keyExtractor} function, for example
+     * {@code Order::getCustomer} or {@code Article::getTax}. Objects can then
+     * be looked up by key with {@link #findAllByIndex(String, Object)} without
+     * scanning the repository. Objects for which the extractor returns
+     * {@literal null} are not indexed.
+     * 
+     * @param <K> generic type of index key.
+     * @param name name of index, replaces a prior index with the same name.
+     * @param keyExtractor function that obtains the index key from an object.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal name} or {@literal keyExtractor}
+     * is {@literal null}.
+     */
+    @Override
+    public <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor) {
+        if(name==null || keyExtractor==null)
+            throw new IllegalArgumentException("argument name or keyExtractor is null.");
+        //
+        addIndex(name, new SecondaryIndex<T, ID>(keyExtractor, concurrent));
+        return this;
+    }
+
+
+    /**
+     * Add secondary index with name, e.g. a sorted index, and index existing objects.
+     * 
+     * @param name name of index, replaces a prior index with the same name.
+     * @param index index to add.
+     */
+    void addIndex(String name, SecondaryIndex<T, ID> index) {
+        if( ! concurrent) {
+            map.forEach((id, e) -> {    // index existing objects
+                if(e != TOMBSTONE) {
+                    index.put(id, e);
+                }
+            });
+            indexes.put(name, index);
+        //
+        } else {    // register first, then index existing objects while holding their entries
+            indexes.put(name, index);
+            for(ID id : new ArrayList<>(map.keySet())) {
+                map.computeIfPresent(id, (i, e) -> {
+                    if(e != TOMBSTONE) {
+                        index.put(id, e);
+                    }
+                    return e;
+                });
+            }
+        }
+    }
+
+
+    /**
+     * Return objects with keys in range {@code [from, to)} of the sorted index
+     * with {@literal name}, ordered by key.
+     * 
+     * @param name name of sorted index.
+     * @param from lowest key (inclusive).
+     * @param to upper bound of keys (exclusive).
+     * @return objects with keys in range, empty if none match.
+     * @throws IllegalArgumentException no sorted index with {@literal name} exists.
+     */
+    Iterable<T> findAllByRange(String name, Object from, Object to) {
+        return index(name).range(from, to);
+    }
+
+
+    /**
+     * Return objects of the repository that have {@literal key} in the secondary
+     * index with {@literal name}.
+     * 
+     * @param name name of index created with {@link #createIndex(String, Function)}.
+     * @param key key looked up in index.
+     * @return objects with {@literal key} in index, empty if none match.
+     * @throws IllegalArgumentException {@literal name} is {@literal null} or no
+     * index with {@literal name} exists.
+     */
+    @Override
+    public Iterable<T> findAllByIndex(String name, Object key) {
+        if(name==null)
+            throw new IllegalArgumentException("argument name is null.");
+        //
+        return index(name).get(key);
+    }
+
+
     /**
      * Save object (entity) to a repository. Object replaces a prior object
      * with the same {@literal id}.
@@ -129,19 +355,14 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
             throw new IllegalArgumentException("argument entity is null.");
         //
         ID id = getIdFunc.apply(entity);
-        if(id != null) {
-            // found id from entity, test whether id is already present in map
-            Optional.ofNullable(map.get(id)).ifPresentOrElse(e2 -> {
-                // entity e2 with id already exists
-                // - policy 1: replace with new object
-                // - policy 2: keep object and update values
-                map.put(id, entity);    // use policy 1
-            //
-            }, () -> map.put(id, entity));  // id was not present, add
-        //
-        } else
+        if(id==null)
             throw new IllegalArgumentException("entity.id is null.");
         //
+        // entity with id may already exist
+        // - policy 1: replace with new object
+        // - policy 2: keep object and update values
+        put(id, entity);    // use policy 1
+        flush();
         return entity;
     }
 
@@ -149,20 +370,51 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
     /**
      * Save a collection of objects (entities) to a repository. Objects replace
      * prior objects with the same {@literal id}.
+     * <p>
+     * Objects are inserted in one pass. If {@literal entities} is a {@link Collection},
+     * storage that supports it (e.g. {@link LongKeyMap}) is grown once to the final
+     * size before inserting, and the collection itself is returned as the collection
+     * of saved objects. Listeners are flushed once for the whole collection, which
+     * makes all objects durable with one journal commit in durable mode.
+     * </p>
      * 
      * @param <S> sub-class of {@code <T>}.
      * @param entities collection of objects (entities) saved to repository.
      * @return collection of saved objects.
-     * @throws IllegalArgumentException {@literal entities} is {@literal null}.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null} or
+     * contains {@literal null} or an object with a {@literal null} id.
      */
     @Override
     public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
         if(entities==null)
             throw new IllegalArgumentException("argument entities is null.");
         //
-        List<S> saved = new ArrayList<>();
-        entities.forEach(e -> saved.add(save(e)));
-        return saved;
+        List<S> saved = null;
+        if(entities instanceof Collection) {
+            ensureCapacity(map.size() + ((Collection<?>)entities).size());
+        } else {
+            saved = new ArrayList<>();  // iterable may only be traversed once
+        }
+        clock.beginWrite();     // snapshots see all or none of the objects
+        try {
+            for(S entity : entities) {
+                if(entity==null)
+                    throw new IllegalArgumentException("argument entity is null.");
+                //
+                ID id = getIdFunc.apply(entity);
+                if(id==null)
+                    throw new IllegalArgumentException("entity.id is null.");
+                //
+                put(id, entity);
+                if(saved != null) {
+                    saved.add(entity);
+                }
+            }
+        } finally {
+            clock.endWrite();
+            flush();    // objects saved before a failure are flushed as well
+        }
+        return saved != null? saved : entities;
     }
 
 
@@ -178,7 +430,9 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         if(id==null)
             throw new IllegalArgumentException("argument id is null.");
         //
-        map.remove(id);
+        if(remove(id)) {
+            flush();
+        }
     }
 
 
@@ -196,7 +450,9 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         //
         ID id = getIdFunc.apply(entity);
         if(id != null) {
-            map.remove(id);
+            if(remove(id)) {
+                flush();
+            }
         //
         } else
             throw new IllegalArgumentException("entity.id is null.");
@@ -215,9 +471,15 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         if(ids==null)
             throw new IllegalArgumentException("argument ids is null.");
         //
-        ids.forEach(id -> {
-            map.remove(id);
-        });
+        boolean removed = false;
+        for(ID id : ids) {
+            if(id != null) {    // ConcurrentHashMap rejects null keys
+                removed |= remove(id);
+            }
+        }
+        if(removed) {
+            flush();    // one flush for all removals
+        }
     }
 
 
@@ -233,9 +495,16 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
         if(entities==null)
             throw new IllegalArgumentException("argument entities is null.");
         //
-        entities.forEach(e -> {
-            map.remove(e);
-        });
+        boolean removed = false;
+        for(T e : entities) {
+            ID id = e==null? null : getIdFunc.apply(e);
+            if(id != null) {
+                removed |= remove(id);
+            }
+        }
+        if(removed) {
+            flush();    // one flush for all removals
+        }
     }
 
 
@@ -245,7 +514,495 @@ class RepositoryImpl<T, ID> implements Repository<T, ID> {
      */
     @Override
     public void deleteAll() {
-        map.clear();
+        long epoch = clock.beginWrite();
+        try {
+            if( ! concurrent && listeners.isEmpty() && epoch==VersionClock.NONE) {
+                map.clear();
+                indexes.values().forEach(index -> index.clear());
+            //
+            } else {    // remove one by one to report removals, keep prior states and indexes in step
+                new ArrayList<>(map.keySet()).forEach(id -> remove(id));
+            }
+        } finally {
+            clock.endWrite();
+        }
+        flush();
+    }
+
+
+    /**
+     * Apply a batch of buffered changes, used to commit transactions. Objects
+     * are saved and deleted in the order of {@literal changes}, listeners must
+     * be flushed by {@link #flush()} afterwards.
+     * 
+     * @param cleared true deletes all objects before changes are applied.
+     * @param changes changed objects by id, {@code null} values delete objects.
+     */
+    void apply(boolean cleared, Map<ID, T> changes) {
+        clock.beginWrite();
+        try {
+            if(cleared) {
+                new ArrayList<>(map.keySet()).forEach(id -> remove(id));
+            }
+            changes.forEach((id, entity) -> {
+                if(entity != null) {
+                    put(id, entity);
+                } else {
+                    remove(id);
+                }
+            });
+        } finally {
+            clock.endWrite();
+        }
+    }
+
+
+    /**
+     * Return id of an object.
+     * 
+     * @param entity object.
+     * @return id of object, may be {@code null}.
+     */
+    ID idOf(T entity) {
+        return getIdFunc.apply(entity);
+    }
+
+
+    /**
+     * Return true if repository was created in concurrent mode and can be used
+     * by multiple threads.
+     *
+     * @return true if repository is in concurrent mode.
+     */
+    boolean isConcurrent() {
+        return concurrent;
+    }
+
+
+    /**
+     * Return true if a repository can be used by multiple threads. Wrappers,
+     * e.g. partitioned or caching repositories, are concurrent if all repositories
+     * they delegate to are concurrent. Repositories of other types are assumed
+     * to be thread-safe.
+     *
+     * @param repository repository to test.
+     * @return true if repository can be used by multiple threads.
+     */
+    static boolean isConcurrent(Repository<?, ?> repository) {
+        if(repository instanceof RepositoryImpl)
+            return ((RepositoryImpl<?, ?>)repository).isConcurrent();
+        if(repository instanceof PartitionedRepository)
+            return ((PartitionedRepository<?, ?>)repository).isConcurrent();
+        if(repository instanceof CachingRepositoryImpl)
+            return ((CachingRepositoryImpl<?, ?>)repository).isConcurrent();
+        return true;
+    }
+
+
+    /**
+     * Begin a write that stores entities directly in the storage of a sub-class,
+     * e.g. under primitive keys. Direct writes are possible outside concurrent
+     * mode if changes are neither reported to listeners, kept for snapshots nor
+     * indexed. {@link #endDirectWrite()} must be called in either case.
+     *
+     * @return true if entities can be stored directly.
+     */
+    final boolean beginDirectWrite() {
+        long epoch = clock.beginWrite();
+        return ! concurrent && listeners.isEmpty() && epoch==VersionClock.NONE && indexes.isEmpty();
+    }
+
+
+    /**
+     * End a write begun with {@link #beginDirectWrite()}.
+     */
+    final void endDirectWrite() {
+        clock.endWrite();
+    }
+
+
+    /**
+     * Register listener that is notified of changes of the repository.
+     * 
+     * @param listener listener to register.
+     */
+    void addListener(ChangeListener<T, ID> listener) {
+        if(listener==null)
+            throw new IllegalArgumentException("argument listener is null.");
+        //
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Remove a registered listener.
+     * 
+     * @param listener listener to remove.
+     */
+    void removeListener(ChangeListener<T, ID> listener) {
+        listeners.remove(listener);
+    }
+
+
+    /**
+     * Return read-only view of the repository as of a snapshot version opened
+     * with {@link VersionClock#open()}. The view is valid until the version
+     * is released.
+     * 
+     * @param version version of snapshot.
+     * @return read-only view of repository at version.
+     */
+    Repository<T, ID> snapshot(long version) {
+        return new SnapshotRepository<T, ID>(this, version);
+    }
+
+
+    /**
+     * Return object with id as of a snapshot version. Outside concurrent mode,
+     * the lookup excludes writers of other threads, see {@link VersionClock#beginRead()}.
+     * 
+     * @param id id of object.
+     * @param version version of snapshot.
+     * @return object visible at version or {@code null}.
+     */
+    T find(ID id, long version) {
+        if(concurrent)
+            return resolve(id, map.get(id), version);
+        //
+        boolean locked = clock.beginRead();
+        try {
+            return resolve(id, map.get(id), version);
+        } finally {
+            clock.endRead(locked);
+        }
+    }
+
+
+    /**
+     * Return spliterator over all objects as of a snapshot version.
+     * <p>
+     * In concurrent mode, the spliterator resolves objects while it walks the
+     * thread-safe map, writers are not blocked. Maps outside concurrent mode
+     * must not be walked while they are changed (they may resize or rehash),
+     * objects visible at version are therefore copied into a list while writers
+     * of other threads are excluded, and the spliterator walks the copy.
+     * </p>
+     * 
+     * @param version version of snapshot.
+     * @return spliterator over objects visible at version.
+     */
+    Spliterator<T> spliterator(long version) {
+        if(concurrent)
+            return new Resolving<Map.Entry<ID, T>, T>(map.entrySet().spliterator(),
+                e -> resolve(e.getKey(), e.getValue(), version));
+        //
+        boolean locked = clock.beginRead();
+        try {
+            var visible = new ArrayList<T>(map.size());
+            map.forEach((id, current) -> {
+                T value = resolve(id, current, version);
+                if(value != null) {
+                    visible.add(value);
+                }
+            });
+            return visible.spliterator();
+        } finally {
+            clock.endRead(locked);
+        }
+    }
+
+
+    /**
+     * Return secondary index with name or {@code null} if no index with name exists.
+     * 
+     * @param name name of index.
+     * @return index with name or {@code null}.
+     */
+    SecondaryIndex<T, ID> findIndex(String name) {
+        return name==null? null : indexes.get(name);
+    }
+
+
+    /**
+     * Return secondary index with name.
+     * 
+     * @param name name of index.
+     * @return index with name.
+     * @throws IllegalArgumentException no index with {@literal name} exists.
+     */
+    SecondaryIndex<T, ID> index(String name) {
+        var index = findIndex(name);
+        if(index==null)
+            throw new IllegalArgumentException(String.format("no index: \"%s\".", name));
+        //
+        return index;
+    }
+
+
+    /**
+     * Discard prior states that are older than the oldest open snapshot and
+     * remove tombstones no snapshot can see anymore. Called by {@link VersionClock}
+     * while no change is in progress.
+     * 
+     * @param oldest version of oldest open snapshot, {@link Long#MAX_VALUE} if none is open.
+     */
+    void prune(long oldest) {
+        for(var it = history.entrySet().iterator(); it.hasNext(); ) {
+            var entry = it.next();
+            Version<T> node = entry.getValue();
+            if(node.epoch < oldest) {
+                it.remove();
+                ID id = entry.getKey();
+                if(tombstones.remove(id)) {
+                    map.remove(id);
+                }
+            } else {
+                for( ; node.older != null && node.older.epoch >= oldest; node = node.older);
+                node.older = null;
+            }
+        }
+    }
+
+
+    /**
+     * Create map that stores entities: a {@link ConcurrentHashMap} in concurrent
+     * mode, otherwise a {@link HashMap}.
+     * 
+     * @param <ID> generic type of object identifier (id).
+     * @param <T> generic type of Repository objects (entities).
+     * @param concurrent true creates a thread-safe map.
+     * @return new map.
+     */
+    static <ID, T> Map<ID, T> newMap(boolean concurrent) {
+        return concurrent? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+
+    /**
+     * Store entity under id and update secondary indexes, {@link #flush()} must
+     * be called after changes. In concurrent mode, indexes are updated while
+     * the map entry of id is held, so concurrent saves and deletes of the same
+     * id leave map and indexes in agreement.
+     * 
+     * @param id id of entity.
+     * @param entity entity to store.
+     */
+    private void put(ID id, T entity) {
+        long epoch = clock.beginWrite();
+        try {
+            if( ! concurrent && listeners.isEmpty() && epoch==VersionClock.NONE) {
+                map.put(id, entity);
+                indexes.values().forEach(index -> index.put(id, entity));
+            //
+            } else {    // report change, keep prior state and index while holding the entry of id
+                map.compute(id, (i, prior) -> {
+                    T before = live(prior);
+                    if(epoch != VersionClock.NONE) {
+                        keep(id, before, epoch);
+                        if(prior==TOMBSTONE) {
+                            tombstones.remove(id);
+                        }
+                    }
+                    listeners.forEach(l -> l.changed(id, before, entity));
+                    indexes.values().forEach(index -> index.put(id, entity));
+                    return entity;
+                });
+            }
+        } finally {
+            clock.endWrite();
+        }
+    }
+
+
+    /**
+     * Flush listeners after changes were applied, e.g. wait until changes are
+     * durable in the journal.
+     */
+    void flush() {
+        listeners.forEach(l -> l.flush());
+    }
+
+
+    /**
+     * Grow storage to hold {@literal expected} entities without resizing, if the
+     * storage supports pre-sizing.
+     * 
+     * @param expected expected number of entities.
+     */
+    private void ensureCapacity(int expected) {
+        if(map instanceof LongKeyMap) {
+            ((LongKeyMap<?>)map).ensureCapacity(expected);
+        } else if(map instanceof NumericKeyMap) {
+            ((NumericKeyMap<?>)map).ensureCapacity(expected);
+        }
+    }
+
+
+    /**
+     * Remove entity with id and update secondary indexes while the map entry
+     * of id is held in concurrent mode, {@link #flush()} must be called after changes.
+     * 
+     * @param id id of entity to remove.
+     * @return true if an entity was removed.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean remove(ID id) {
+        boolean removed = false;
+        long epoch = clock.beginWrite();
+        try {
+            if( ! concurrent && listeners.isEmpty() && epoch==VersionClock.NONE) {
+                removed = map.remove(id) != null;
+                if(removed) {
+                    indexes.values().forEach(index -> index.remove(id));
+                }
+            //
+            } else {    // report change, keep prior state and unindex while holding the entry of id
+                boolean[] found = new boolean[] {false};
+                map.computeIfPresent(id, (i, prior) -> {
+                    if(prior==TOMBSTONE)
+                        return prior;   // already deleted
+                    //
+                    found[0] = true;
+                    listeners.forEach(l -> l.changed(id, prior, null));
+                    indexes.values().forEach(index -> index.remove(id));
+                    if(epoch==VersionClock.NONE)
+                        return null;
+                    //
+                    keep(id, prior, epoch);
+                    tombstones.add(id);
+                    return (T)TOMBSTONE;
+                });
+                removed = found[0];
+            }
+        } finally {
+            clock.endWrite();
+        }
+        return removed;
+    }
+
+
+    /**
+     * Keep prior state of object with id that is changed in epoch. Only the
+     * oldest prior state of an epoch is kept, since no snapshot can see later
+     * states of the same epoch.
+     * 
+     * @param id id of changed object.
+     * @param prior prior state of object, {@code null} if it did not exist.
+     * @param epoch epoch of change.
+     */
+    private void keep(ID id, T prior, long epoch) {
+        history.compute(id, (i, newest) ->
+            newest != null && newest.epoch==epoch? newest : new Version<T>(prior, epoch, newest));
+    }
+
+
+    /**
+     * Resolve object as of a snapshot version from its current map value and
+     * its prior states. The map value must be read before the prior states.
+     * 
+     * @param id id of object.
+     * @param current current map value.
+     * @param version version of snapshot.
+     * @return object visible at version or {@code null}.
+     */
+    private T resolve(ID id, T current, long version) {
+        T value = live(current);
+        for(Version<T> node = history.get(id); node != null && node.epoch >= version; node = node.older) {
+            value = node.value;
+        }
+        return value;
+    }
+
+
+    /**
+     * Return map value as object, {@code null} for tombstones.
+     * 
+     * @param value map value.
+     * @return object or {@code null}.
+     */
+    T live(T value) {
+        return value==TOMBSTONE? null : value;
+    }
+
+
+    /**
+     * Prior state of an object that was changed in an epoch.
+     * 
+     * @param <T> generic type of Repository objects (entities).
+     */
+    private static final class Version<T> {
+        final T value;
+        final long epoch;
+        Version<T> older;   // cut by prune()
+
+        Version(T value, long epoch, Version<T> older) {
+            this.value = value;
+            this.epoch = epoch;
+            this.older = older;
+        }
+    }
+
+
+    /**
+     * Spliterator that maps elements of a source spliterator and skips elements
+     * mapped to {@code null}. Splits along the source spliterator.
+     * 
+     * @param <E> type of source elements.
+     * @param <R> type of mapped elements.
+     */
+    private static final class Resolving<E, R> implements Spliterator<R>, Consumer<E> {
+        private final Spliterator<E> source;
+        private final Function<E, R> mapper;
+        private R next;
+
+        Resolving(Spliterator<E> source, Function<E, R> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public void accept(E e) {
+            next = mapper.apply(e);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super R> action) {
+            while(source.tryAdvance(this)) {
+                if(next != null) {
+                    R r = next;
+                    next = null;
+                    action.accept(r);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super R> action) {
+            source.forEachRemaining(e -> {
+                R r = mapper.apply(e);
+                if(r != null) {
+                    action.accept(r);
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<R> trySplit() {
+            Spliterator<E> prefix = source.trySplit();
+            return prefix==null? null : new Resolving<E, R>(prefix, mapper);
+        }
+
+        @Override
+        public long estimateSize() {
+            return source.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL | (source.characteristics() & Spliterator.CONCURRENT);
+        }
     }
 
 }
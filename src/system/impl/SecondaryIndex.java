@@ -0,0 +1,350 @@
+package system.impl;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+
+/**
+ * Non-public secondary index of a {@link RepositoryImpl} that maps keys obtained
+ * from entities by a key extractor function to the entities with that key.
+ * <p>
+ * The index remembers the key under which each entity {@literal id} was indexed.
+ * Entities that changed their key after indexing (e.g. after {@code setTax()})
+ * are therefore moved correctly when they are saved again or removed.
+ * Integral keys are normalized to {@link Long}, so lookups do not depend on
+ * the integral type of the key.
+ * </p>
+ * <p>
+ * Sorted indexes keep buckets in key order and support range lookups by
+ * {@link #range(Object, Object)} in {@code O(log n + k)}. Keys of sorted indexes
+ * must be {@link Comparable}. Changes of sorted indexes are serialized, since
+ * buckets of a skip list cannot be updated atomically with their entry.
+ * </p>
+ *
+ * @param <T> generic type of indexed entities.
+ * @param <ID> generic type of entity identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class SecondaryIndex<T, ID> {
+
+    /**
+     * Function that obtains the index key from an entity.
+     */
+    private final Function<? super T, ?> keyExtractor;
+
+    /**
+     * Index buckets: key to entities with that key, entities are stored by id.
+     */
+    private final Map<Object, Map<ID, T>> buckets;
+
+    /**
+     * Key under which an entity id is currently indexed.
+     */
+    private final Map<ID, Object> keys;
+
+    /**
+     * True if index is used by multiple threads.
+     */
+    private final boolean concurrent;
+
+    /**
+     * True if buckets are kept in key order.
+     */
+    private final boolean sorted;
+
+
+    /**
+     * Constructor with key extractor function.
+     *
+     * @param keyExtractor function that obtains the index key from an entity.
+     * @param concurrent true creates a thread-safe index.
+     */
+    SecondaryIndex(Function<? super T, ?> keyExtractor, boolean concurrent) {
+        this(keyExtractor, concurrent, false);
+    }
+
+
+    /**
+     * Constructor with key extractor function of an index that is optionally
+     * sorted by key.
+     *
+     * @param keyExtractor function that obtains the index key from an entity.
+     * @param concurrent true creates a thread-safe index.
+     * @param sorted true keeps buckets in key order for range lookups.
+     */
+    SecondaryIndex(Function<? super T, ?> keyExtractor, boolean concurrent, boolean sorted) {
+        this.keyExtractor = keyExtractor;
+        this.concurrent = concurrent;
+        this.sorted = sorted;
+        this.buckets = ! sorted? newMap() :
+            concurrent? new ConcurrentSkipListMap<>() : new TreeMap<>();
+        this.keys = newMap();
+    }
+
+
+    /**
+     * Add entity to index or move entity to bucket of its current key.
+     *
+     * @param id id of entity.
+     * @param entity entity to index.
+     */
+    void put(ID id, T entity) {
+        if(sorted) {
+            synchronized(this) {
+                index(id, entity);
+            }
+        } else {
+            index(id, entity);
+        }
+    }
+
+
+    /**
+     * Remove entity with id from index.
+     *
+     * @param id id of entity to remove.
+     */
+    void remove(ID id) {
+        if(sorted) {
+            synchronized(this) {
+                unindex(id);
+            }
+        } else {
+            unindex(id);
+        }
+    }
+
+
+    /**
+     * Return true if {@literal entity} is indexed under id, e.g. to check that
+     * an entity was not replaced or removed before it is re-indexed.
+     *
+     * @param id id of entity.
+     * @param entity entity to check.
+     * @return true if entity is indexed under id.
+     */
+    boolean contains(ID id, T entity) {
+        return entity != null && find(id)==entity;
+    }
+
+
+    /**
+     * Return entity indexed under id.
+     *
+     * @param id id of entity.
+     * @return entity indexed under id or {@code null}.
+     */
+    T find(ID id) {
+        Object key = keys.get(id);
+        Map<ID, T> bucket = key==null? null : buckets.get(key);
+        return bucket==null? null : bucket.get(id);
+    }
+
+
+    /**
+     * Perform action for each indexed entity.
+     *
+     * @param action action performed for entities.
+     */
+    void forEach(Consumer<? super T> action) {
+        buckets.values().forEach(bucket -> bucket.values().forEach(action));
+    }
+
+
+    /**
+     * Add entity to index or move entity to bucket of its current key.
+     *
+     * @param id id of entity.
+     * @param entity entity to index.
+     */
+    private void index(ID id, T entity) {
+        Object key = keyOf(entity);
+        keys.compute(id, (i, prior) -> {
+            if(prior != null) {
+                removeFromBucket(prior, id);
+            }
+            if(key != null) {
+                buckets.compute(key, (k, bucket) -> {
+                    bucket = bucket==null? newMap() : bucket;
+                    bucket.put(id, entity);
+                    return bucket;
+                });
+            }
+            return key;     // returning null removes id from keys
+        });
+    }
+
+
+    /**
+     * Remove entity with id from index.
+     *
+     * @param id id of entity to remove.
+     */
+    private void unindex(ID id) {
+        keys.computeIfPresent(id, (i, prior) -> {
+            removeFromBucket(prior, id);
+            return null;
+        });
+    }
+
+
+    /**
+     * Return entities indexed under key.
+     *
+     * @param key key to look up.
+     * @return unmodifiable view of entities with key, empty if none match.
+     */
+    Collection<T> get(Object key) {
+        Map<ID, T> bucket = key==null? null : buckets.get(normalize(key));
+        return bucket==null? Collections.emptyList() : Collections.unmodifiableCollection(bucket.values());
+    }
+
+
+    /**
+     * Return entities of a sorted index with keys in range {@code [from, to)},
+     * ordered by key.
+     *
+     * @param from lowest key (inclusive).
+     * @param to upper bound of keys (exclusive).
+     * @return entities with keys in range, empty if none match.
+     * @throws IllegalArgumentException index is not sorted.
+     */
+    Collection<T> range(Object from, Object to) {
+        return range(from, true, to, false, false).toList();
+    }
+
+
+    /**
+     * Return entities of a sorted index with keys between bounds as stream
+     * ordered by key. Buckets are visited lazily, so a limited stream only
+     * touches the buckets it consumes.
+     *
+     * @param from lower bound of keys, {@code null} for no lower bound.
+     * @param fromInclusive true if lower bound is included.
+     * @param to upper bound of keys, {@code null} for no upper bound.
+     * @param toInclusive true if upper bound is included.
+     * @param descending true returns entities in descending order of keys.
+     * @return entities with keys between bounds, empty if none match.
+     * @throws IllegalArgumentException index is not sorted.
+     */
+    Stream<T> range(Object from, boolean fromInclusive, Object to, boolean toInclusive, boolean descending) {
+        if( ! sorted)
+            throw new IllegalArgumentException("index is not sorted.");
+        //
+        from = normalize(from);
+        to = normalize(to);
+        if(from != null && to != null) {
+            int cmp = compare(from, to);
+            if(cmp > 0 || (cmp==0 && ! (fromInclusive && toInclusive)))
+                return Stream.empty();
+        }
+        var view = (NavigableMap<Object, Map<ID, T>>)buckets;
+        view = from==null? view : view.tailMap(from, fromInclusive);
+        view = to==null? view : view.headMap(to, toInclusive);
+        view = descending? view.descendingMap() : view;
+        return view.values().stream().flatMap(bucket -> bucket.values().stream());
+    }
+
+
+    /**
+     * Return true if index keeps entities in key order.
+     *
+     * @return true if index is sorted.
+     */
+    boolean isSorted() {
+        return sorted;
+    }
+
+
+    /**
+     * Return number of entities indexed under key.
+     *
+     * @param key key to look up.
+     * @return number of entities with key.
+     */
+    int size(Object key) {
+        Map<ID, T> bucket = key==null? null : buckets.get(normalize(key));
+        return bucket==null? 0 : bucket.size();
+    }
+
+
+    /**
+     * Compare keys of a sorted index.
+     *
+     * @param k1 first key.
+     * @param k2 second key.
+     * @return result of comparison by natural order.
+     */
+    @SuppressWarnings("unchecked")
+    static int compare(Object k1, Object k2) {
+        return ((Comparable<Object>)k1).compareTo(k2);
+    }
+
+
+    /**
+     * Return key of an entity, e.g. to match entities of a snapshot against a key.
+     *
+     * @param entity entity for which the key is obtained.
+     * @return key of entity, may be {@code null}.
+     */
+    Object keyOf(T entity) {
+        return normalize(keyExtractor.apply(entity));
+    }
+
+
+    /**
+     * Normalize key such that integral numbers of any type are equal by value,
+     * e.g. an {@link Integer} key finds entities indexed by {@link Long} keys.
+     *
+     * @param key key to normalize.
+     * @return {@link Long} for integral numbers, otherwise key.
+     */
+    static Object normalize(Object key) {
+        return key instanceof Integer || key instanceof Short || key instanceof Byte?
+            Long.valueOf(((Number)key).longValue()) : key;
+    }
+
+
+    /**
+     * Remove all entries from index.
+     */
+    void clear() {
+        synchronized(this) {
+            keys.clear();
+            buckets.clear();
+        }
+    }
+
+
+    /**
+     * Remove id from bucket with key, drop bucket when it becomes empty.
+     *
+     * @param key key of bucket.
+     * @param id id to remove.
+     */
+    private void removeFromBucket(Object key, ID id) {
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(id);
+            return bucket.isEmpty()? null : bucket;
+        });
+    }
+
+
+    /**
+     * Create map that matches the concurrency mode of the index.
+     *
+     * @param <K> key type of map.
+     * @param <V> value type of map.
+     * @return new map.
+     */
+    private <K, V> Map<K, V> newMap() {
+        return concurrent? new ConcurrentHashMap<>() : new HashMap<>();
+    }
+
+}
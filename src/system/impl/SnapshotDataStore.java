@@ -0,0 +1,218 @@
+package system.impl;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import datamodel.*;
+import system.ChangeEvent;
+import system.DataStore;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Repository;
+
+
+/**
+ * Non-public read-only {@link DataStore} that shows customers, articles and orders
+ * of a {@link DataStoreImpl} as of one point in time.
+ * <p>
+ * The snapshot holds a version of the shared {@link VersionClock}. Repositories
+ * keep prior states of objects changed after that version until the snapshot is
+ * closed, so snapshots should be closed after use, e.g. in a try-with-resources
+ * statement. Methods that modify the data store throw
+ * {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class SnapshotDataStore implements DataStore {
+
+    /**
+     * Clock that issued the snapshot version.
+     */
+    private final VersionClock clock;
+
+    /**
+     * Version of snapshot.
+     */
+    private final long version;
+
+    /**
+     * Views of the repositories at version.
+     */
+    private final LongIdRepository<Customer> customers;
+    private final Repository<Article, String> articles;
+    private final OrderRepository orders;
+
+    /**
+     * True after close() released the version.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+
+    /**
+     * Constructor of a snapshot of repositories at an open version.
+     *
+     * @param clock clock that issued version.
+     * @param version open version of snapshot, released by {@link #close()}.
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     */
+    SnapshotDataStore(VersionClock clock, long version, LongIdRepositoryImpl<Customer> customers,
+            RepositoryImpl<Article, String> articles, OrderRepositoryImpl orders) {
+        this.clock = clock;
+        this.version = version;
+        this.customers = customers.snapshot(version);
+        this.articles = articles.snapshot(version);
+        this.orders = orders.snapshot(version);
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public <T> DataStore save(T entity) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public <T> DataStore saveAll(Iterable<T> entities) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public DataStore build(Consumer<DataStore> factory) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public DataStore transaction(Consumer<DataStore> work) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Write the snapshot to a binary snapshot file. Writers can continue to
+     * change the data store while the file is written.
+     *
+     * @param file path of snapshot file.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal file} is {@literal null}.
+     * @throws java.io.UncheckedIOException if file cannot be written.
+     */
+    @Override
+    public DataStore dump(Path file) {
+        if(file==null)
+            throw new IllegalArgumentException("argument file is null.");
+        //
+        SnapshotFile.write(file, customers.findAll(), articles.findAll(), orders.findAll());
+        return this;
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public DataStore load(Path file) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Return another snapshot at the same version that must be closed separately.
+     *
+     * @return snapshot at the same version.
+     * @throws IllegalStateException if this snapshot is closed.
+     */
+    @Override
+    public DataStore snapshot() {
+        clock.retain(version);
+        return new SnapshotDataStore(clock, version, this);
+    }
+
+
+    /**
+     * Release the snapshot version, repeated calls have no effect.
+     */
+    @Override
+    public void close() {
+        if(closed.compareAndSet(false, true)) {
+            clock.release(version);
+        }
+    }
+
+
+    /**
+     * Not supported, snapshots do not change.
+     */
+    @Override
+    public <T> Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+        throw SnapshotRepository.readOnly();
+    }
+
+
+    /**
+     * Return repository of customers as of the snapshot.
+     *
+     * @return read-only repository of customers.
+     */
+    @Override
+    public LongIdRepository<Customer> customers() {
+        return customers;
+    }
+
+
+    /**
+     * Return repository of articles as of the snapshot.
+     *
+     * @return read-only repository of articles.
+     */
+    @Override
+    public Repository<Article, String> articles() {
+        return articles;
+    }
+
+
+    /**
+     * Return repository of orders as of the snapshot.
+     *
+     * @return read-only repository of orders.
+     */
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+
+    /**
+     * Private constructor of another snapshot that shares the views of a snapshot.
+     *
+     * @param clock clock that issued version.
+     * @param version retained version.
+     * @param other snapshot whose views are shared.
+     */
+    private SnapshotDataStore(VersionClock clock, long version, SnapshotDataStore other) {
+        this.clock = clock;
+        this.version = version;
+        this.customers = other.customers;
+        this.articles = other.articles;
+        this.orders = other.orders;
+    }
+
+}
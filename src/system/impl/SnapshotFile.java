@@ -0,0 +1,333 @@
+package system.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+import datamodel.*;
+import system.Repository;
+
+
+/**
+ * Non-public binary snapshot file of the customers, articles and orders of a
+ * {@link system.DataStore}.
+ * <p>
+ * Snapshots are loaded through a memory-mapped {@link FileChannel}. Objects are
+ * decoded straight from the mapped buffer into repositories; there is no text
+ * parsing and no replay of individual changes. Orders are stored after customers
+ * and articles, so references from orders to customers and from order items to
+ * articles are resolved from the repositories that were just loaded. Customers
+ * and articles that were deleted but are still referenced by orders are stored
+ * as retired objects that only resolve these references and are not loaded
+ * into repositories.
+ * </p>
+ * <pre>
+ * file:    int MAGIC, int VERSION, long customers, long articles, long retired
+ *          customers, long retired articles, long orders, records of customers,
+ *          articles, retired customers, retired articles and orders in that order
+ * record:  int length, entity encoded by {@link EntityCodec} (without type tag)
+ * </pre>
+ * <p>
+ * Files of version 1 have no retired objects and no counts of retired objects.
+ * </p>
+ * <p>
+ * Snapshots are written to a temporary file that is forced to disk and then
+ * renamed, so a crash while writing leaves the previous snapshot intact.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class SnapshotFile {
+
+    /**
+     * Magic number at the start of snapshot files: "SE1S".
+     */
+    private static final int MAGIC = 0x53453153;
+
+    /**
+     * Version of file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Size of file header.
+     */
+    private static final int HEADER = 48;
+
+    /**
+     * Size of mapped window; files larger than a window are mapped window by window.
+     */
+    private static final long WINDOW = 1L << 30;
+
+
+    /**
+     * Private constructor, class only has static methods.
+     */
+    private SnapshotFile() { }
+
+
+    /**
+     * Write snapshot of objects to file.
+     *
+     * @param file path of snapshot file, replaced if it exists.
+     * @param customers customers to write.
+     * @param articles articles to write.
+     * @param orders orders to write, customers and articles of orders must be included.
+     * @throws UncheckedIOException if file cannot be written.
+     */
+    static void write(Path file, Iterable<Customer> customers, Iterable<Article> articles, Iterable<Order> orders) {
+        write(file, customers, articles, orders, 0L);
+    }
+
+
+    /**
+     * Write snapshot of objects to file at a limited rate, e.g. in the background
+     * without saturating the disk.
+     *
+     * @param file path of snapshot file, replaced if it exists.
+     * @param customers customers to write.
+     * @param articles articles to write.
+     * @param orders orders to write, customers and articles of orders must be included.
+     * @param bytesPerSecond maximum write rate or 0 for no limit.
+     * @throws UncheckedIOException if file cannot be written.
+     */
+    static void write(Path file, Iterable<Customer> customers, Iterable<Article> articles,
+            Iterable<Order> orders, long bytesPerSecond) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream os = Channels.newOutputStream(ch);
+            if(bytesPerSecond > 0) {
+                os = new Throttle(os, bytesPerSecond);
+            }
+            var out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024));
+            out.write(new byte[HEADER]);    // header is written when counts are known
+            var record = new ByteArrayOutputStream(256);
+            var rout = new DataOutputStream(record);
+            var customerIds = new HashSet<Long>();
+            var articleIds = new HashSet<String>();
+            long nc = writeAll(out, record, customers, c -> {
+                customerIds.add(c.getId());
+                EntityCodec.writeCustomer(rout, c);
+            });
+            long na = writeAll(out, record, articles, a -> {
+                articleIds.add(a.getId());
+                EntityCodec.writeArticle(rout, a);
+            });
+            var retiredCustomers = new LinkedHashMap<Long, Customer>();
+            var retiredArticles = new LinkedHashMap<String, Article>();
+            for(Order o : orders) {     // deleted objects still referenced by orders
+                if( ! customerIds.contains(o.getCustomer().getId())) {
+                    retiredCustomers.putIfAbsent(o.getCustomer().getId(), o.getCustomer());
+                }
+                for(OrderItem item : o.getItems()) {
+                    if( ! articleIds.contains(item.getArticle().getId())) {
+                        retiredArticles.putIfAbsent(item.getArticle().getId(), item.getArticle());
+                    }
+                }
+            }
+            long nrc = writeAll(out, record, retiredCustomers.values(), c -> EntityCodec.writeCustomer(rout, c));
+            long nra = writeAll(out, record, retiredArticles.values(), a -> EntityCodec.writeArticle(rout, a));
+            long no = writeAll(out, record, orders, o -> EntityCodec.writeOrder(rout, o));
+            out.flush();
+            ch.write(ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION)
+                .putLong(nc).putLong(na).putLong(nrc).putLong(nra).putLong(no).flip(), 0);
+            ch.force(true);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Load snapshot from file into repositories. Objects replace objects with the
+     * same id already present in the repositories.
+     *
+     * @param file path of snapshot file.
+     * @param customers destination repository of customers.
+     * @param articles destination repository of articles.
+     * @param orders destination repository of orders.
+     * @throws UncheckedIOException if file cannot be read or is not a snapshot file.
+     */
+    static void read(Path file, Repository<Customer, Long> customers,
+            Repository<Article, String> articles, Repository<Order, String> orders) {
+        read(file, customers, articles, orders, true, true);
+    }
+
+
+    /**
+     * Load parts of a snapshot from file into repositories, e.g. customers and
+     * articles of all partitions before the orders that refer to them.
+     *
+     * @param file path of snapshot file.
+     * @param customers destination repository of customers.
+     * @param articles destination repository of articles.
+     * @param orders destination repository of orders.
+     * @param loadEntities true if customers and articles are loaded.
+     * @param loadOrders true if orders are loaded.
+     * @throws UncheckedIOException if file cannot be read or is not a snapshot file.
+     */
+    static void read(Path file, Repository<Customer, Long> customers, Repository<Article, String> articles,
+            Repository<Order, String> orders, boolean loadEntities, boolean loadOrders) {
+        try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            var reader = new Reader(ch);
+            ByteBuffer header = reader.next(8);
+            int version = header.getInt()==MAGIC? header.getInt() : -1;
+            if(version != 1 && version != VERSION)
+                throw new IOException("not a snapshot file: " + file);
+            //
+            header = reader.next(version==1? 24 : HEADER - 8);
+            long nc = header.getLong(), na = header.getLong();
+            long nrc = version==1? 0L : header.getLong(), nra = version==1? 0L : header.getLong();
+            long no = header.getLong();
+            for(long i=0; i < nc; i++) {
+                var record = reader.record();
+                if(loadEntities) {
+                    customers.save(EntityCodec.readCustomer(record));
+                }
+            }
+            for(long i=0; i < na; i++) {
+                var record = reader.record();
+                if(loadEntities) {
+                    articles.save(EntityCodec.readArticle(record));
+                }
+            }
+            var retiredCustomers = new HashMap<Long, Customer>();
+            var retiredArticles = new HashMap<String, Article>();
+            for(long i=0; i < nrc; i++) {
+                var c = EntityCodec.readCustomer(reader.record());
+                retiredCustomers.put(c.getId(), c);
+            }
+            for(long i=0; i < nra; i++) {
+                var a = EntityCodec.readArticle(reader.record());
+                retiredArticles.put(a.getId(), a);
+            }
+            for(long i=0; i < no && loadOrders; i++) {
+                orders.save(EntityCodec.readOrder(reader.record(),
+                    id -> customers.findById(id).orElseGet(() -> retiredCustomers.get(id)),
+                    id -> articles.findById(id).orElseGet(() -> retiredArticles.get(id))));
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Callout that encodes one object.
+     *
+     * @param <T> type of encoded objects.
+     */
+    @FunctionalInterface
+    private interface Encoder<T> {
+        void encode(T entity) throws IOException;
+    }
+
+
+    /**
+     * Write objects as length-prefixed records.
+     *
+     * @param <T> type of written objects.
+     * @param out destination stream.
+     * @param record reusable buffer that receives one encoded object.
+     * @param entities objects to write.
+     * @param encoder callout that encodes an object into record.
+     * @return number of written objects.
+     * @throws IOException if writing fails.
+     */
+    private static <T> long writeAll(DataOutputStream out, ByteArrayOutputStream record,
+            Iterable<T> entities, Encoder<T> encoder) throws IOException {
+        long count = 0L;
+        for(T entity : entities) {
+            record.reset();
+            encoder.encode(entity);
+            out.writeInt(record.size());
+            record.writeTo(out);
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Stream that limits the rate at which bytes are written by sleeping when
+     * it is ahead of the rate.
+     */
+    private static class Throttle extends FilterOutputStream {
+        private final long bytesPerSecond;
+        private final long start = System.currentTimeMillis();
+        private long written = 0L;
+
+        Throttle(OutputStream out, long bytesPerSecond) {
+            super(out);
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            written += len;
+            long ahead = written * 1000L / bytesPerSecond - (System.currentTimeMillis() - start);
+            if(ahead > 0L) {
+                try {
+                    Thread.sleep(ahead);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("snapshot write interrupted.");
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Sequential reader of records from a file that is mapped window by window.
+     */
+    private static class Reader {
+        private final FileChannel ch;
+        private final long size;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+        private long windowStart = 0L;
+
+        Reader(FileChannel ch) throws IOException {
+            this.ch = ch;
+            this.size = ch.size();
+        }
+
+        /**
+         * Return buffer over the next record.
+         */
+        ByteBuffer record() throws IOException {
+            return next(next(4).getInt());
+        }
+
+        /**
+         * Return buffer over the next len bytes, remaps window if needed.
+         */
+        ByteBuffer next(int len) throws IOException {
+            if(window.remaining() < len) {
+                windowStart += window.position();
+                long mapped = Math.min(Math.max(WINDOW, len), size - windowStart);
+                if(mapped < len)
+                    throw new EOFException("truncated snapshot file.");
+                //
+                window = ch.map(FileChannel.MapMode.READ_ONLY, windowStart, mapped);
+            }
+            ByteBuffer slice = window.slice(window.position(), len);
+            window.position(window.position() + len);
+            return slice;
+        }
+    }
+
+}
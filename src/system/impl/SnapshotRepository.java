@@ -0,0 +1,363 @@
+package system.impl;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.StreamSupport;
+
+import datamodel.Order;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public read-only view of a {@link RepositoryImpl} as of a snapshot version.
+ * <p>
+ * The view does not copy objects. Lookups and iteration resolve each object from
+ * the live repository and the prior states the repository keeps while the
+ * snapshot is open. Methods that modify the repository throw
+ * {@link UnsupportedOperationException}.
+ * </p>
+ * <p>
+ * Objects are shared with the live repository, the view freezes which object
+ * is stored under an id, not the state of the object. Changes made to a stored
+ * object in place, e.g. items added to a stored order, are visible in the view.
+ * Outside concurrent mode, iteration copies the objects visible at the version
+ * while writers are excluded, since the maps of the live repository must not
+ * be walked while they change.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class SnapshotRepository<T, ID> implements Repository<T, ID> {
+
+    /**
+     * Live repository.
+     */
+    private final RepositoryImpl<T, ID> source;
+
+    /**
+     * Version of snapshot.
+     */
+    private final long version;
+
+    /**
+     * Objects visible at version.
+     */
+    private final Iterable<T> values = new Iterable<T>() {
+        @Override
+        public Iterator<T> iterator() {
+            return Spliterators.iterator(spliterator());
+        }
+        @Override
+        public Spliterator<T> spliterator() {
+            return source.spliterator(version);
+        }
+    };
+
+
+    /**
+     * Constructor of view of a repository at a snapshot version.
+     *
+     * @param source live repository.
+     * @param version version of snapshot.
+     */
+    SnapshotRepository(RepositoryImpl<T, ID> source, long version) {
+        this.source = source;
+        this.version = version;
+    }
+
+
+    /**
+     * Return the number of objects visible in the snapshot. Objects are
+     * counted by iterating the snapshot.
+     *
+     * @return number of entities.
+     */
+    @Override
+    public long count() {
+        return stream().count();
+    }
+
+
+    /**
+     * Return all objects visible in the snapshot.
+     *
+     * @return all objects of the snapshot.
+     */
+    @Override
+    public Iterable<T> findAll() {
+        return values;
+    }
+
+
+    /**
+     * Return new query over the snapshot. Queries scan the snapshot, indexes of
+     * the live repository only resolve field names.
+     *
+     * @return new query over snapshot objects.
+     */
+    @Override
+    public Query<T> query() {
+        return new QueryImpl<T>(this, name -> source.findIndex(name), false);
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its {@literal id}.
+     *
+     * @param id {@literal id} of object to find.
+     * @return result of lookup of an object by its {@literal id}.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public Optional<T> findById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        return Optional.ofNullable(source.find(id, version));
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its {@literal id}.
+     *
+     * @param id {@literal id} of object to find.
+     * @return true if an object with {@literal id} exists in snapshot.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public boolean existsById(ID id) {
+        return findById(id).isPresent();
+    }
+
+
+    /**
+     * Return result of a lookup of objects by a collection of {@literal ids}.
+     *
+     * @param ids collection of {@literal ids} for which objects are looked up.
+     * @return result of lookup by a collection of {@literal ids}.
+     * @throws IllegalArgumentException {@literal ids} is {@literal null}.
+     */
+    @Override
+    public Iterable<T> findAllById(Iterable<ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        return StreamSupport.stream(ids.spliterator(), false)
+            .filter(id -> id != null)
+            .map(id -> source.find(id, version))
+            .filter(e -> e != null).toList();
+    }
+
+
+    /**
+     * Return objects of the snapshot that have {@literal key} in the secondary
+     * index with {@literal name}. Live indexes do not reflect the snapshot, the
+     * snapshot is scanned and matched against keys of the index.
+     *
+     * @param name name of index of the live repository.
+     * @param key key looked up.
+     * @return objects with {@literal key}, empty if none match.
+     * @throws IllegalArgumentException {@literal name} is {@literal null} or no
+     * index with {@literal name} exists.
+     */
+    @Override
+    public Iterable<T> findAllByIndex(String name, Object key) {
+        if(name==null)
+            throw new IllegalArgumentException("argument name is null.");
+        //
+        var index = source.index(name);
+        return stream().filter(e -> Objects.equals(SecondaryIndex.normalize(key), index.keyOf(e))).toList();
+    }
+
+
+    /**
+     * Return objects of the snapshot with keys in range {@code [from, to)} of the
+     * sorted index with {@literal name}, ordered by key. Keys are extracted by
+     * the index of the live repository while scanning the snapshot.
+     *
+     * @param name name of sorted index of the live repository.
+     * @param from lowest key (inclusive).
+     * @param to upper bound of keys (exclusive).
+     * @return objects with keys in range, empty if none match.
+     * @throws IllegalArgumentException no index with {@literal name} exists.
+     */
+    Iterable<T> findAllByRange(String name, Object from, Object to) {
+        var index = source.index(name);
+        return stream().filter(e -> inRange(index.keyOf(e), from, to))
+            .sorted((e1, e2) -> SecondaryIndex.compare(index.keyOf(e1), index.keyOf(e2))).toList();
+    }
+
+
+    /**
+     * Return true if key is in range {@code [from, to)}.
+     *
+     * @param key key to test, {@code null} keys are not in any range.
+     * @param from lowest key (inclusive).
+     * @param to upper bound of keys (exclusive).
+     * @return true if key is in range.
+     */
+    static boolean inRange(Object key, Object from, Object to) {
+        return key != null && SecondaryIndex.compare(key, from) >= 0 && SecondaryIndex.compare(key, to) < 0;
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public <S extends T> S save(S entity) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public void deleteById(ID id) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public void delete(T entity) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        throw readOnly();
+    }
+
+
+    /**
+     * Not supported, snapshots are read-only.
+     */
+    @Override
+    public void deleteAll() {
+        throw readOnly();
+    }
+
+
+    /**
+     * Return exception thrown by methods that modify the repository.
+     *
+     * @return exception to throw.
+     */
+    static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("snapshot is read-only.");
+    }
+
+
+    /**
+     * Read-only view of a {@link LongIdRepositoryImpl} as of a snapshot version.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     */
+    static class LongIds<T> extends SnapshotRepository<T, Long> implements LongIdRepository<T> {
+
+        /**
+         * Constructor of view of a repository at a snapshot version.
+         *
+         * @param source live repository.
+         * @param version version of snapshot.
+         */
+        LongIds(LongIdRepositoryImpl<T> source, long version) {
+            super(source, version);
+        }
+
+        @Override
+        public Optional<T> findById(long id) {
+            return findById(Long.valueOf(id));
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return findById(id).isPresent();
+        }
+
+        @Override
+        public void deleteById(long id) {
+            throw readOnly();
+        }
+    }
+
+
+    /**
+     * Read-only view of an {@link OrderRepositoryImpl} as of a snapshot version.
+     */
+    static class Orders extends SnapshotRepository<Order, String> implements OrderRepository {
+
+        /**
+         * Constructor of view of a repository at a snapshot version.
+         *
+         * @param source live repository.
+         * @param version version of snapshot.
+         */
+        Orders(OrderRepositoryImpl source, long version) {
+            super(source, version);
+        }
+
+        @Override
+        public Optional<Order> findById(long id) {
+            return id < 0? Optional.empty() : findById(Long.toString(id));
+        }
+
+        @Override
+        public Iterable<Order> findByCreationDateBetween(long from, long to) {
+            return findAllByRange(OrderRepositoryImpl.CREATION_DATE, from, to);
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return findById(id).isPresent();
+        }
+
+        @Override
+        public void deleteById(long id) {
+            throw readOnly();
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package system.impl;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.function.Function;
+
+import system.DataStore;
+import system.StorageEngine;
+
+
+/**
+ * Non-public registry of {@link StorageEngine} implementations: built-in
+ * engines, engines discovered with {@link ServiceLoader} and engines named by
+ * class name.
+ * <p>
+ * Built-in engines:
+ * </p>
+ * <pre>
+ * memory:      in-memory data store, loads snapshot file at start if it exists
+ * journal:     in-memory data store that replays and records a journal file
+ * mapped:      in-memory data store that loads a memory-mapped snapshot file at
+ *              start and writes it back when closed
+ * partitioned: data store partitioned over partitions (default: number of
+ *              processors) shards with per-shard journals
+ * </pre>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+final class StorageEngines {
+
+    /**
+     * Built-in engines.
+     */
+    private static final List<StorageEngine> builtin = List.of(
+        engine("memory", p -> new DataStoreImpl(concurrent(p), path(p, StorageEngine.SNAPSHOT), null)),
+        engine("journal", p -> new DataStoreImpl(concurrent(p), path(p, StorageEngine.SNAPSHOT), required(p, StorageEngine.JOURNAL))),
+        engine("mapped", p -> {
+            var file = required(p, StorageEngine.SNAPSHOT);
+            return new DataStoreImpl(concurrent(p), file, null) {
+                @Override
+                public void close() {
+                    dump(file);
+                    super.close();
+                }
+            };
+        }),
+        engine("partitioned", p -> new PartitionedDataStore(
+            partitions(p, Runtime.getRuntime().availableProcessors()), concurrent(p),
+            path(p, StorageEngine.SNAPSHOT), path(p, StorageEngine.JOURNAL)))
+    );
+
+
+    /**
+     * Private constructor of static class.
+     */
+    private StorageEngines() { }
+
+
+    /**
+     * Open data store with an engine, without name the engine is chosen by
+     * properties: {@code "partitioned"} with more than one partition,
+     * {@code "journal"} with a journal file or {@code "memory"}.
+     *
+     * @param name name of engine or {@code null}.
+     * @param properties configuration of data store.
+     * @return new data store.
+     * @throws IllegalArgumentException {@literal properties} is {@literal null},
+     * engine is unknown or a property is missing or invalid.
+     */
+    static DataStore open(String name, Map<String, String> properties) {
+        if(properties==null)
+            throw new IllegalArgumentException("argument properties is null.");
+        //
+        if(name==null) {
+            name = partitions(properties, 1) > 1? "partitioned" :
+                properties.containsKey(StorageEngine.JOURNAL)? "journal" : "memory";
+        }
+        return find(name).open(properties);
+    }
+
+
+    /**
+     * Find engine by name among built-in engines and engines provided with
+     * {@link ServiceLoader}, or by class name.
+     *
+     * @param name name of engine.
+     * @return engine with name.
+     * @throws IllegalArgumentException no engine with name exists.
+     */
+    static StorageEngine find(String name) {
+        for(var engine : builtin) {
+            if(engine.getName().equals(name))
+                return engine;
+        }
+        for(var engine : ServiceLoader.load(StorageEngine.class)) {
+            if(engine.getName().equals(name))
+                return engine;
+        }
+        try {
+            return (StorageEngine)Class.forName(name).getConstructor().newInstance();
+        //
+        } catch(ReflectiveOperationException | ClassCastException | LinkageError e) {
+            throw new IllegalArgumentException("unknown storage engine: \"" + name + "\".");
+        }
+    }
+
+
+    /**
+     * Create built-in engine.
+     *
+     * @param name name of engine.
+     * @param open function that opens data store from properties.
+     * @return engine.
+     */
+    private static StorageEngine engine(String name, Function<Map<String, String>, DataStore> open) {
+        return new StorageEngine() {
+            @Override
+            public String getName() {
+                return name;
+            }
+            @Override
+            public DataStore open(Map<String, String> properties) {
+                return open.apply(properties);
+            }
+        };
+    }
+
+
+    /**
+     * Return {@link StorageEngine#CONCURRENT} property.
+     *
+     * @param properties configuration of data store.
+     * @return true if property is {@code "true"}.
+     */
+    private static boolean concurrent(Map<String, String> properties) {
+        return Boolean.parseBoolean(properties.get(StorageEngine.CONCURRENT));
+    }
+
+
+    /**
+     * Return {@link StorageEngine#PARTITIONS} property.
+     *
+     * @param properties configuration of data store.
+     * @param defaultValue value if property is missing.
+     * @return number of partitions.
+     * @throws IllegalArgumentException property is not a number.
+     */
+    private static int partitions(Map<String, String> properties, int defaultValue) {
+        var value = properties.get(StorageEngine.PARTITIONS);
+        try {
+            return value==null? defaultValue : Integer.parseInt(value);
+        //
+        } catch(NumberFormatException e) {
+            throw new IllegalArgumentException("property partitions is not a number: \"" + value + "\".");
+        }
+    }
+
+
+    /**
+     * Return path property.
+     *
+     * @param properties configuration of data store.
+     * @param key key of property.
+     * @return path or {@code null} if property is missing.
+     */
+    private static Path path(Map<String, String> properties, String key) {
+        var value = properties.get(key);
+        return value==null? null : Path.of(value);
+    }
+
+
+    /**
+     * Return required path property.
+     *
+     * @param properties configuration of data store.
+     * @param key key of property.
+     * @return path.
+     * @throws IllegalArgumentException property is missing.
+     */
+    private static Path required(Map<String, String> properties, String key) {
+        var path = path(properties, key);
+        if(path==null)
+            throw new IllegalArgumentException("property " + key + " is missing.");
+        //
+        return path;
+    }
+
+}
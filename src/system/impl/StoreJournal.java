@@ -0,0 +1,622 @@
+package system.impl;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import datamodel.*;
+import system.Repository;
+
+
+/**
+ * Non-public component that writes all changes of the repositories of a
+ * {@link DataStoreImpl} to a {@link Journal} and rebuilds the repositories
+ * from the journal on startup.
+ * <p>
+ * Journal records have the form:
+ * </p>
+ * <pre>
+ * save:   byte SAVE, entity encoded by {@link EntityCodec#write(DataOutput, Object)}
+ * delete: byte DELETE, byte type, id (long for customers, str for articles and orders)
+ * batch:  byte BATCH, int n, (int length, save or delete record)[n]
+ * </pre>
+ * <p>
+ * Changes of a transaction are appended as one batch record by {@link #append(List)}
+ * before they are applied to the repositories, and are not journaled again
+ * while they are applied between {@link #begin()} and {@link #end()}. Replay
+ * applies a batch completely or, if it was torn by a crash, not at all.
+ * </p>
+ * <p>
+ * Objects are journaled when they are saved or deleted. Changes of an object that
+ * is not saved again, e.g. items added to an order after it was saved, are not
+ * recorded.
+ * </p>
+ * <p>
+ * The journal is compacted in the background when the active journal file
+ * outgrows the last checkpoint, so disk usage and replay time stay proportional
+ * to the live objects. Compaction renames the active file to a sealed segment,
+ * opens a new active file and an MVCC snapshot in one short batch, forces the
+ * sealed segment to disk and writes the snapshot as checkpoint with throttled
+ * I/O while writers continue, and then retires the segment and older checkpoints:
+ * </p>
+ * <pre>
+ * journal                 active file, records appended by writers
+ * journal.segment.n       sealed segment n, retired by checkpoint n
+ * journal.checkpoint.n    {@link SnapshotFile} of all objects up to segment n
+ * </pre>
+ * <p>
+ * Replay loads the latest checkpoint {@code n}, then sealed segments after
+ * {@code n} and the active file. Files left by an interrupted compaction are
+ * ignored and removed.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class StoreJournal implements AutoCloseable {
+
+    /**
+     * Record type of a saved entity.
+     */
+    static final byte SAVE = 1;
+
+    /**
+     * Record type of a deleted entity.
+     */
+    static final byte DELETE = 2;
+
+    /**
+     * Record type of a batch of records committed together.
+     */
+    static final byte BATCH = 3;
+
+    /**
+     * Replay phases: all records, records of customers and articles, records
+     * of orders.
+     */
+    private static final int ALL = 0, ENTITIES = 1, ORDERS = 2;
+
+    /**
+     * Minimum size of the active journal file before it is compacted.
+     */
+    static final long COMPACT_MIN_BYTES = 4L << 20;
+
+    /**
+     * Rate at which checkpoints are written, in bytes per second.
+     */
+    static final long COMPACT_BYTES_PER_SECOND = 32L << 20;
+
+    /**
+     * Thread shared by all journals that writes checkpoints one at a time.
+     */
+    private static final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        var thread = new Thread(task, "journal-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Path of active journal file.
+     */
+    private final Path file;
+
+    /**
+     * Clock of the repositories, its batch lock excludes writers while the
+     * journal is rolled over.
+     */
+    private final VersionClock clock;
+
+    /**
+     * Journaled repositories.
+     */
+    private final RepositoryImpl<Customer, Long> customers;
+    private final RepositoryImpl<Article, String> articles;
+    private final RepositoryImpl<Order, String> orders;
+
+    /**
+     * Active journal file, replaced when it is rolled over.
+     */
+    private volatile Journal journal;
+
+    /**
+     * Journal of a sealed segment until its pending records are durable,
+     * {@code null} outside of compaction.
+     */
+    private volatile Journal sealing = null;
+
+    /**
+     * True while the current thread applies changes that were journaled before,
+     * between begin() and end().
+     */
+    private final ThreadLocal<Boolean> applying = new ThreadLocal<>();
+
+    /**
+     * Number of the last sealed segment or checkpoint.
+     */
+    private long generation;
+
+    /**
+     * Size of the latest checkpoint.
+     */
+    private volatile long checkpointBytes;
+
+    /**
+     * True while a compaction is scheduled or running.
+     */
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+
+    /**
+     * Scheduled or running compaction, guarded by compacting.
+     */
+    private volatile Future<?> compaction = null;
+
+
+    /**
+     * Constructor that records all further changes of the repositories of a
+     * {@link DataStoreImpl}, optionally after replaying the journal.
+     *
+     * @param file path of journal file, created if it does not exist.
+     * @param clock clock of the repositories.
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     * @param replay true if journal is replayed into the repositories.
+     * @throws UncheckedIOException if journal files cannot be read or opened.
+     */
+    StoreJournal(Path file, VersionClock clock, RepositoryImpl<Customer, Long> customers,
+            RepositoryImpl<Article, String> articles, RepositoryImpl<Order, String> orders, boolean replay) {
+        this.file = file;
+        this.clock = clock;
+        this.customers = customers;
+        this.articles = articles;
+        this.orders = orders;
+        try {
+            if(replay) {
+                replay(List.of(file), new int[] {ALL}, customers, articles, orders, null);
+            }
+            long checkpoint = recover(file);
+            var segments = files(file, ".segment.");
+            this.generation = Math.max(checkpoint, segments.isEmpty()? 0L : segments.lastKey());
+            this.checkpointBytes = checkpoint > 0? Files.size(checkpoint(file, checkpoint)) : 0L;
+            this.journal = new Journal(file);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        customers.addListener(listener(EntityCodec.CUSTOMER));
+        articles.addListener(listener(EntityCodec.ARTICLE));
+        orders.addListener(listener(EntityCodec.ORDER));
+    }
+
+
+    /**
+     * Replay journals of the partitions of a {@link PartitionedDataStore}
+     * into repositories that route objects to their partitions. Orders may refer
+     * to customers and articles of other partitions, customers and articles of
+     * all journals are therefore replayed before the orders. Orders that refer to
+     * customers or articles deleted later resolve them to their last state.
+     *
+     * @param files paths of journal files, files that do not exist are skipped.
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     * @throws UncheckedIOException if a journal file cannot be read.
+     */
+    static void replay(List<Path> files, Repository<Customer, Long> customers,
+            Repository<Article, String> articles, Repository<Order, String> orders) {
+        try {
+            replay(files, new int[] {ENTITIES, ORDERS}, customers, articles, orders, new HashMap<>());
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Test whether a journal has a checkpoint, which replaces all objects the
+     * repositories held before the journal is replayed.
+     *
+     * @param file path of journal file.
+     * @return true if journal has a checkpoint.
+     * @throws UncheckedIOException if files of an interrupted compaction cannot be removed.
+     */
+    static boolean hasCheckpoint(Path file) {
+        try {
+            return recover(file) > 0;
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Wait for a running compaction, write pending records and close journal file.
+     *
+     * @throws UncheckedIOException if pending records cannot be written.
+     */
+    @Override
+    public void close() {
+        var running = compaction;
+        if(running != null) {
+            try {
+                running.get();
+            } catch(Exception e) {
+                // compaction failed, the journal stays valid without checkpoint
+            }
+        }
+        try {
+            journal.close();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    /**
+     * Append records of a transaction as one batch record, before the changes
+     * are applied to the repositories. The batch becomes durable with the next
+     * flush of a repository.
+     *
+     * @param records save and delete records of a transaction.
+     * @throws java.io.UncheckedIOException if the journal is closed or failed,
+     * the changes must then not be applied.
+     */
+    void append(List<byte[]> records) {
+        if(records.size() > 0) {
+            journal.append(records.size()==1? records.get(0) : batchRecord(records));
+            compactIfDue();
+        }
+    }
+
+
+    /**
+     * Begin applying changes of the current thread that were journaled with
+     * {@link #append(List)}, changes are not journaled again until {@link #end()}.
+     */
+    void begin() {
+        applying.set(Boolean.TRUE);
+    }
+
+
+    /**
+     * End applying changes begun with {@link #begin()}.
+     */
+    void end() {
+        applying.remove();
+    }
+
+
+    /**
+     * Compact journal: roll the active file over to a sealed segment, write a
+     * checkpoint of the snapshot at the roll-over point and retire the segment.
+     * Writers are only excluded while the active file is renamed to the segment
+     * and a new active file is opened. Records still pending in the sealed
+     * journal are written and forced to disk after writers were resumed.
+     *
+     * @throws UncheckedIOException if files cannot be written.
+     */
+    void compact() {
+        long n, version;
+        Journal sealed;
+        clock.beginBatch();     // no writer appends while the file is rolled over
+        try {
+            n = generation + 1;
+            Path segment = segment(file, n);
+            Files.move(file, segment, StandardCopyOption.ATOMIC_MOVE);  // open journal continues in segment
+            sealed = journal;
+            sealing = sealed;   // set before the swap, see flush()
+            try {
+                journal = new Journal(file);
+            } catch(IOException e) {
+                sealing = null;
+                Files.move(segment, file, StandardCopyOption.ATOMIC_MOVE);
+                throw e;
+            }
+            generation = n;
+            version = clock.open();
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            clock.endBatch();
+        }
+        try {
+            sealed.close();     // fsync outside of the batch
+            sealing = null;     // a failed segment keeps failing flushes
+            Path checkpoint = checkpoint(file, n);
+            SnapshotFile.write(checkpoint, customers.snapshot(version).findAll(),
+                articles.snapshot(version).findAll(), orders.snapshot(version).findAll(),
+                COMPACT_BYTES_PER_SECOND);
+            checkpointBytes = Files.size(checkpoint);
+            recover(file);      // retire segments and older checkpoints
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            clock.release(version);
+        }
+    }
+
+
+    /**
+     * Schedule compaction in the background if the active journal file outgrew
+     * the last checkpoint and no compaction is scheduled yet.
+     */
+    private void compactIfDue() {
+        if(journal.size() > Math.max(COMPACT_MIN_BYTES, checkpointBytes) && compacting.compareAndSet(false, true)) {
+            compaction = compactor.submit(() -> {
+                try {
+                    compact();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+
+    /**
+     * Replay checkpoints, sealed segments and active files of journals.
+     *
+     * @param files paths of active journal files.
+     * @param phases replay phases, each phase replays all journals.
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     * @param deleted last states of deleted customers and articles or {@code null}.
+     * @throws IOException if a file cannot be read.
+     */
+    private static void replay(List<Path> files, int[] phases, Repository<Customer, Long> customers,
+            Repository<Article, String> articles, Repository<Order, String> orders,
+            Map<Object, Object> deleted) throws IOException {
+        var checkpoints = new long[files.size()];
+        for(int i=0; i < files.size(); i++) {
+            checkpoints[i] = recover(files.get(i));
+        }
+        for(int phase : phases) {
+            for(int i=0; i < files.size(); i++) {
+                Path file = files.get(i);
+                if(checkpoints[i] > 0) {
+                    SnapshotFile.read(checkpoint(file, checkpoints[i]), customers, articles, orders,
+                        phase != ORDERS, phase != ENTITIES);
+                }
+                var segments = new ArrayList<>(files(file, ".segment.").values());
+                segments.add(file);
+                for(var segment : segments) {
+                    Journal.replay(segment, record -> apply(record, phase, customers, articles, orders, deleted));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Remove files of a journal that are superseded by its latest checkpoint:
+     * older checkpoints, sealed segments up to the checkpoint and temporary
+     * files of an interrupted checkpoint.
+     *
+     * @param file path of active journal file.
+     * @return number of latest checkpoint or 0 if journal has no checkpoint.
+     * @throws IOException if files cannot be listed or removed.
+     */
+    private static long recover(Path file) throws IOException {
+        var checkpoints = files(file, ".checkpoint.");
+        long latest = checkpoints.isEmpty()? 0L : checkpoints.lastKey();
+        for(var checkpoint : checkpoints.headMap(latest).values()) {
+            Files.deleteIfExists(checkpoint);
+        }
+        for(var segment : files(file, ".segment.").headMap(latest, true).values()) {
+            Files.deleteIfExists(segment);
+        }
+        return latest;
+    }
+
+
+    /**
+     * List numbered files of a journal, e.g. {@code journal.segment.n}.
+     *
+     * @param file path of active journal file.
+     * @param infix infix between file name and number, e.g. {@code ".segment."}.
+     * @return files by number in ascending order.
+     * @throws IOException if directory cannot be listed.
+     */
+    private static TreeMap<Long, Path> files(Path file, String infix) throws IOException {
+        var found = new TreeMap<Long, Path>();
+        Path dir = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + infix;
+        try(var entries = Files.newDirectoryStream(dir, prefix + "*")) {
+            for(Path entry : entries) {
+                long n = NumericKeyMap.parse(entry.getFileName().toString().substring(prefix.length()));
+                if(n > 0) {     // skips temporary files, e.g. journal.checkpoint.n.tmp
+                    found.put(n, entry);
+                }
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Return path of sealed segment.
+     *
+     * @param file path of active journal file.
+     * @param n number of segment.
+     * @return path of segment.
+     */
+    private static Path segment(Path file, long n) {
+        return file.resolveSibling(file.getFileName() + ".segment." + n);
+    }
+
+
+    /**
+     * Return path of checkpoint.
+     *
+     * @param file path of active journal file.
+     * @param n number of last segment included in checkpoint.
+     * @return path of checkpoint.
+     */
+    private static Path checkpoint(Path file, long n) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint." + n);
+    }
+
+
+    /**
+     * Create listener that appends changes of a repository to the journal and
+     * waits for them to become durable after the change was applied.
+     *
+     * @param <T> generic type of repository objects.
+     * @param <ID> generic type of object identifier (id).
+     * @param type type tag of repository objects.
+     * @return listener for repository.
+     */
+    private <T, ID> ChangeListener<T, ID> listener(byte type) {
+        return new ChangeListener<T, ID>() {
+            @Override
+            public void changed(ID id, T before, T after) {
+                if(applying.get()==null) {  // changes of transactions were journaled before
+                    journal.append(after != null? saveRecord(after) : deleteRecord(type, id));
+                    compactIfDue();
+                }
+            }
+            @Override
+            public void flush() {
+                if(applying.get()==null) {  // transactions are synced after they were applied
+                    Journal current = journal;
+                    Journal previous = sealing;     // read after journal, records may be in the sealed segment
+                    if(previous != null && previous != current) {
+                        previous.sync();
+                    }
+                    current.sync();
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Encode save record of entity.
+     *
+     * @param entity saved entity.
+     * @return encoded record.
+     */
+    static byte[] saveRecord(Object entity) {
+        var bytes = new ByteArrayOutputStream(128);
+        try(var out = new DataOutputStream(bytes)) {
+            out.writeByte(SAVE);
+            EntityCodec.write(out, entity);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Encode delete record of entity id.
+     *
+     * @param type type tag of deleted entity.
+     * @param id id of deleted entity.
+     * @return encoded record.
+     */
+    static byte[] deleteRecord(byte type, Object id) {
+        var bytes = new ByteArrayOutputStream(32);
+        try(var out = new DataOutputStream(bytes)) {
+            out.writeByte(DELETE);
+            out.writeByte(type);
+            if(type==EntityCodec.CUSTOMER) {
+                out.writeLong((Long)id);
+            } else {
+                EntityCodec.writeString(out, (String)id);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Encode batch record of records.
+     *
+     * @param records save and delete records of batch.
+     * @return encoded record.
+     */
+    static byte[] batchRecord(List<byte[]> records) {
+        var bytes = new ByteArrayOutputStream(records.stream().mapToInt(r -> r.length + 4).sum() + 5);
+        try(var out = new DataOutputStream(bytes)) {
+            out.writeByte(BATCH);
+            out.writeInt(records.size());
+            for(byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);  // not thrown by ByteArrayOutputStream
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Apply one journal record to the repositories.
+     *
+     * @param record buffer positioned at record.
+     * @param phase {@code ALL}, {@code ENTITIES} or {@code ORDERS} to apply only
+     * records of customers and articles or of orders.
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     * @param deleted last states of deleted customers and articles by id that
+     * resolve references of orders or {@code null}.
+     */
+    private static void apply(ByteBuffer record, int phase, Repository<Customer, Long> customers,
+            Repository<Article, String> articles, Repository<Order, String> orders, Map<Object, Object> deleted) {
+        byte op = record.get();
+        if(op==BATCH) {
+            for(int n = record.getInt(); n > 0; n--) {
+                int len = record.getInt();
+                apply(record.slice(record.position(), len), phase, customers, articles, orders, deleted);
+                record.position(record.position() + len);
+            }
+            return;
+        }
+        byte type = record.get();
+        if(phase != ALL && (phase==ORDERS) != (type==EntityCodec.ORDER))
+            return;
+        //
+        if(deleted != null && op==DELETE && type==EntityCodec.CUSTOMER) {
+            long id = record.getLong(record.position());
+            customers.findById(id).ifPresent(c -> deleted.put(id, c));
+        }
+        if(deleted != null && op==DELETE && type==EntityCodec.ARTICLE) {
+            String id = EntityCodec.readString(record.duplicate());
+            articles.findById(id).ifPresent(a -> deleted.put(id, a));
+        }
+        if(op==SAVE) {
+            switch(type) {
+            case EntityCodec.CUSTOMER: customers.save(EntityCodec.readCustomer(record)); break;
+            case EntityCodec.ARTICLE: articles.save(EntityCodec.readArticle(record)); break;
+            case EntityCodec.ORDER: orders.save(EntityCodec.readOrder(record,
+                    id -> customers.findById(id).orElseGet(() -> deleted==null? null : (Customer)deleted.get(id)),
+                    id -> articles.findById(id).orElseGet(() -> deleted==null? null : (Article)deleted.get(id))));
+                break;
+            default: throw new IllegalStateException("invalid journal record type: " + type);
+            }
+        } else if(op==DELETE) {
+            switch(type) {
+            case EntityCodec.CUSTOMER: customers.deleteById(record.getLong()); break;
+            case EntityCodec.ARTICLE: articles.deleteById(EntityCodec.readString(record)); break;
+            case EntityCodec.ORDER: orders.deleteById(EntityCodec.readString(record)); break;
+            default: throw new IllegalStateException("invalid journal record type: " + type);
+            }
+        } else
+            throw new IllegalStateException("invalid journal record: " + op);
+    }
+
+}
@@ -0,0 +1,250 @@
+package system.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+
+/**
+ * Non-public append-only store of interned Strings in direct (off-heap) memory.
+ * <p>
+ * Each String is stored once and referred to by an {@code int} reference (its
+ * offset in the arena). An entry consists of the hash code, a length header and
+ * the characters, stored as one byte per character if all characters fit into
+ * ISO-8859-1, otherwise as two bytes per character. Interning looks up equal
+ * Strings in an off-heap hash table of references with linear probing, so the
+ * arena keeps no objects on the heap besides its two buffers.
+ * </p>
+ * <p>
+ * Entries are never removed. The arena suits data that is rarely changed, such
+ * as the descriptions of an article catalog. The arena is not thread-safe.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class StringArena {
+
+    /**
+     * Bytes of the hash code and length header that precede the characters.
+     */
+    private static final int HEADER = 8;
+
+    /**
+     * Arena of entries, grows by doubling.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * Number of bytes used in arena.
+     */
+    private int used = 0;
+
+    /**
+     * Hash table of references + 1, {@code 0} marks an empty slot.
+     */
+    private IntBuffer table;
+
+    /**
+     * Number of interned Strings.
+     */
+    private int size = 0;
+
+
+    /**
+     * Constructor of an empty arena.
+     *
+     * @param capacity initial capacity in bytes.
+     */
+    StringArena(int capacity) {
+        this.bytes = ByteBuffer.allocateDirect(Math.max(capacity, 64));
+        this.table = ByteBuffer.allocateDirect(16 * Integer.BYTES).asIntBuffer();
+    }
+
+
+    /**
+     * Return reference of a String equal to {@literal s}, store {@literal s} if
+     * no equal String was interned before.
+     *
+     * @param s String to intern.
+     * @return reference of interned String.
+     */
+    int intern(String s) {
+        int hash = s.hashCode();
+        int mask = table.capacity() - 1;
+        int i = spread(hash) & mask;
+        for(int r; (r = table.get(i)) != 0; i = (i + 1) & mask) {
+            if(matches(r - 1, hash, s))
+                return r - 1;
+        }
+        int ref = append(hash, s);
+        table.put(i, ref + 1);
+        if(++size > table.capacity() / 4 * 3) {
+            rehash(table.capacity() * 2);
+        }
+        return ref;
+    }
+
+
+    /**
+     * Return reference of a String equal to {@literal s} without storing it.
+     *
+     * @param s String to look up.
+     * @return reference of interned String or {@code -1} if not interned.
+     */
+    int find(String s) {
+        int hash = s.hashCode();
+        int mask = table.capacity() - 1;
+        for(int i = spread(hash) & mask, r; (r = table.get(i)) != 0; i = (i + 1) & mask) {
+            if(matches(r - 1, hash, s))
+                return r - 1;
+        }
+        return -1;
+    }
+
+
+    /**
+     * Return hash code of String with reference.
+     *
+     * @param ref reference of String.
+     * @return hash code of String.
+     */
+    int hash(int ref) {
+        return bytes.getInt(ref);
+    }
+
+
+    /**
+     * Decode String with reference to a heap String.
+     *
+     * @param ref reference of String.
+     * @return decoded String.
+     */
+    String get(int ref) {
+        int header = bytes.getInt(ref + 4);
+        int pos = ref + HEADER;
+        if(header >= 0) {
+            var latin1 = new byte[header];
+            bytes.get(pos, latin1);
+            return new String(latin1, java.nio.charset.StandardCharsets.ISO_8859_1);
+        }
+        var chars = new char[-header - 1];
+        for(int k=0; k < chars.length; k++, pos += 2) {
+            chars[k] = bytes.getChar(pos);
+        }
+        return new String(chars);
+    }
+
+
+    /**
+     * Return number of bytes used by the arena and its hash table.
+     *
+     * @return number of off-heap bytes.
+     */
+    long footprint() {
+        return (long)bytes.capacity() + (long)table.capacity() * Integer.BYTES;
+    }
+
+
+    /**
+     * Compare String with reference to {@literal s} without decoding it.
+     *
+     * @param ref reference of String.
+     * @param hash hash code of {@literal s}.
+     * @param s String to compare.
+     * @return true if String with reference equals {@literal s}.
+     */
+    private boolean matches(int ref, int hash, String s) {
+        if(bytes.getInt(ref) != hash)
+            return false;
+        //
+        int header = bytes.getInt(ref + 4);
+        int len = s.length(), pos = ref + HEADER;
+        if(header >= 0) {
+            if(header != len)
+                return false;
+            //
+            for(int k=0; k < len; k++) {
+                if((bytes.get(pos + k) & 0xff) != s.charAt(k))
+                    return false;
+            }
+            return true;
+        }
+        if(-header - 1 != len)
+            return false;
+        //
+        for(int k=0; k < len; k++, pos += 2) {
+            if(bytes.getChar(pos) != s.charAt(k))
+                return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Append entry for {@literal s} to the arena.
+     *
+     * @param hash hash code of {@literal s}.
+     * @param s String to append.
+     * @return reference of new entry.
+     */
+    private int append(int hash, String s) {
+        int len = s.length();
+        boolean latin1 = s.chars().allMatch(c -> c < 256);
+        int need = HEADER + (latin1? len : 2 * len);
+        if(used + need > bytes.capacity()) {
+            long grown = Math.max(2L * bytes.capacity(), (long)used + need);
+            if(grown > Integer.MAX_VALUE - 8)
+                throw new IllegalStateException("string arena is full.");
+            //
+            var copy = ByteBuffer.allocateDirect((int)grown);
+            copy.put(0, bytes, 0, used);
+            bytes = copy;
+        }
+        int ref = used;
+        bytes.putInt(ref, hash);
+        bytes.putInt(ref + 4, latin1? len : -len - 1);
+        int pos = ref + HEADER;
+        for(int k=0; k < len; k++) {
+            if(latin1) {
+                bytes.put(pos++, (byte)s.charAt(k));
+            } else {
+                bytes.putChar(pos, s.charAt(k));
+                pos += 2;
+            }
+        }
+        used = pos;
+        return ref;
+    }
+
+
+    /**
+     * Rebuild hash table with a new capacity.
+     *
+     * @param capacity new capacity, a power of two.
+     */
+    private void rehash(int capacity) {
+        var grown = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+        int mask = capacity - 1;
+        for(int j=0; j < table.capacity(); j++) {
+            int r = table.get(j);
+            if(r != 0) {
+                int i = spread(hash(r - 1)) & mask;
+                for( ; grown.get(i) != 0; i = (i + 1) & mask);
+                grown.put(i, r);
+            }
+        }
+        table = grown;
+    }
+
+
+    /**
+     * Spread higher bits of hash code to lower bits used as table index.
+     *
+     * @param h hash code.
+     * @return spread hash code.
+     */
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+}
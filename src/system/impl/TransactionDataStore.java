@@ -0,0 +1,226 @@
+package system.impl;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import datamodel.*;
+import system.ChangeEvent;
+import system.DataStore;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Repository;
+
+
+/**
+ * Non-public {@link DataStore} passed to the work of a transaction that buffers
+ * all saves and deletes until {@link DataStoreImpl#transaction(Consumer)}
+ * commits them.
+ * <p>
+ * Repositories of the transaction read the committed objects overlaid with the
+ * changes buffered so far. Nothing is applied to the data store if the work of
+ * the transaction throws an exception.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class TransactionDataStore implements DataStore {
+
+    /**
+     * Transaction buffers of the repositories.
+     */
+    private final TransactionRepository.LongIds<Customer> customers;
+    private final TransactionRepository<Article, String> articles;
+    private final TransactionRepository.Orders orders;
+
+
+    /**
+     * Constructor of a transaction over repositories of a data store.
+     *
+     * @param customers repository of customers.
+     * @param articles repository of articles.
+     * @param orders repository of orders.
+     */
+    TransactionDataStore(LongIdRepositoryImpl<Customer> customers,
+            RepositoryImpl<Article, String> articles, OrderRepositoryImpl orders) {
+        this.customers = new TransactionRepository.LongIds<Customer>(customers);
+        this.articles = new TransactionRepository<Article, String>(articles);
+        this.orders = new TransactionRepository.Orders(orders);
+    }
+
+
+    /**
+     * Buffer object (entity) to be saved when the transaction is committed.
+     *
+     * @param <T> generic type of a {@link datamodel} class.
+     * @param entity object saved to the repository.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public <T> DataStore save(T entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        if(entity instanceof Customer) {
+            customers.save((Customer)entity);
+        } else if(entity instanceof Article) {
+            articles.save((Article)entity);
+        } else if(entity instanceof Order) {
+            orders.save((Order)entity);
+        }
+        return this;
+    }
+
+
+    /**
+     * Buffer collection of objects (entities) to be saved when the transaction
+     * is committed. Objects of other types than {@link Customer}, {@link Article}
+     * and {@link Order} are ignored.
+     *
+     * @param <T> generic type of a {@link datamodel} class.
+     * @param entities collection of objects (entities) saved to repository.
+     * @return chainable self-reference.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null}.
+     */
+    @Override
+    public <T> DataStore saveAll(Iterable<T> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        for(T entity : entities) {
+            if(entity != null) {
+                save(entity);
+            }
+        }
+        return this;
+    }
+
+
+    /**
+     * Builder method to create objects in the transaction.
+     *
+     * @param factory callout to factory that creates objects.
+     * @return chainable self-reference.
+     */
+    @Override
+    public DataStore build(Consumer<DataStore> factory) {
+        if(factory==null)
+            throw new IllegalArgumentException("argument factory is null.");
+        //
+        factory.accept(this);
+        return this;
+    }
+
+
+    /**
+     * Run work as part of this transaction, nested transactions are joined with
+     * the enclosing transaction.
+     *
+     * @param work callout that performs changes.
+     * @return chainable self-reference.
+     */
+    @Override
+    public DataStore transaction(Consumer<DataStore> work) {
+        return build(work);
+    }
+
+
+    /**
+     * Not supported inside a transaction.
+     */
+    @Override
+    public DataStore dump(Path file) {
+        throw new UnsupportedOperationException("not supported in transaction.");
+    }
+
+
+    /**
+     * Not supported inside a transaction.
+     */
+    @Override
+    public DataStore load(Path file) {
+        throw new UnsupportedOperationException("not supported in transaction.");
+    }
+
+
+    /**
+     * Not supported inside a transaction.
+     */
+    @Override
+    public DataStore snapshot() {
+        throw new UnsupportedOperationException("not supported in transaction.");
+    }
+
+
+    /**
+     * Not supported, subscribe to the data store instead.
+     */
+    @Override
+    public <T> Subscription subscribe(Class<T> type, int capacity, Consumer<? super ChangeEvent<T>> subscriber) {
+        throw new UnsupportedOperationException("not supported in transaction.");
+    }
+
+
+    /**
+     * Return repository of customers of the transaction.
+     *
+     * @return repository of customers.
+     */
+    @Override
+    public LongIdRepository<Customer> customers() {
+        return customers;
+    }
+
+
+    /**
+     * Return repository of articles of the transaction.
+     *
+     * @return repository of articles.
+     */
+    @Override
+    public Repository<Article, String> articles() {
+        return articles;
+    }
+
+
+    /**
+     * Return repository of orders of the transaction.
+     *
+     * @return repository of orders.
+     */
+    @Override
+    public OrderRepository orders() {
+        return orders;
+    }
+
+
+    /**
+     * Apply buffered changes to the repositories, customers and articles before
+     * the orders that refer to them.
+     */
+    void commit() {
+        customers.commit();
+        articles.commit();
+        orders.commit();
+    }
+
+
+    /**
+     * Return journal records of buffered changes in the order they are applied
+     * by {@link #commit()}.
+     *
+     * @return save and delete records, empty if nothing was changed.
+     */
+    List<byte[]> records() {
+        var records = new ArrayList<byte[]>();
+        customers.records(EntityCodec.CUSTOMER, records);
+        articles.records(EntityCodec.ARTICLE, records);
+        orders.records(EntityCodec.ORDER, records);
+        return records;
+    }
+
+}
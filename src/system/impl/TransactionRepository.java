@@ -0,0 +1,458 @@
+package system.impl;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import datamodel.Order;
+import system.LongIdRepository;
+import system.OrderRepository;
+import system.Query;
+import system.Repository;
+
+
+/**
+ * Non-public {@link Repository} of a transaction that buffers changes of a
+ * {@link RepositoryImpl} until the transaction is committed.
+ * <p>
+ * Lookups see the committed objects of the live repository overlaid with the
+ * changes buffered in the transaction, so work inside a transaction reads its
+ * own changes. Buffers are not thread-safe, a transaction is used by one thread.
+ * </p>
+ *
+ * @param <T> generic type of Repository objects (entities).
+ * @param <ID> generic type of object identifier (id).
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class TransactionRepository<T, ID> implements Repository<T, ID> {
+
+    /**
+     * Live repository to which changes are committed.
+     */
+    private final RepositoryImpl<T, ID> source;
+
+    /**
+     * Buffered changes by id in the order they were made, {@code null} values
+     * are deletions.
+     */
+    private final Map<ID, T> changes = new LinkedHashMap<>();
+
+    /**
+     * True if {@link #deleteAll()} was called, committed objects are hidden.
+     */
+    private boolean cleared = false;
+
+    /**
+     * Objects of live repository overlaid with buffered changes.
+     */
+    private final Iterable<T> values = new Iterable<T>() {
+        @Override
+        public Iterator<T> iterator() {
+            return stream().iterator();
+        }
+        @Override
+        public Spliterator<T> spliterator() {
+            return stream().spliterator();
+        }
+    };
+
+
+    /**
+     * Constructor of transaction buffer of a repository.
+     *
+     * @param source live repository.
+     */
+    TransactionRepository(RepositoryImpl<T, ID> source) {
+        this.source = source;
+    }
+
+
+    /**
+     * Return the number of objects including buffered changes.
+     *
+     * @return number of entities.
+     */
+    @Override
+    public long count() {
+        return cleared || changes.size() > 0? stream().count() : source.count();
+    }
+
+
+    /**
+     * Return all objects including buffered changes.
+     *
+     * @return all objects.
+     */
+    @Override
+    public Iterable<T> findAll() {
+        return values;
+    }
+
+
+    /**
+     * Return stream over all objects including buffered changes.
+     *
+     * @return stream over objects.
+     */
+    @Override
+    public Stream<T> stream() {
+        return Stream.concat(visible(source.stream()),
+            changes.values().stream().filter(e -> e != null));
+    }
+
+
+    /**
+     * Return new query over objects including buffered changes. Queries scan
+     * the transaction, indexes of the live repository only resolve field names.
+     *
+     * @return new query over objects of the transaction.
+     */
+    @Override
+    public Query<T> query() {
+        return new QueryImpl<T>(this, name -> source.findIndex(name), false);
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its {@literal id}.
+     *
+     * @param id {@literal id} of object to find.
+     * @return result of lookup of an object by its {@literal id}.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public Optional<T> findById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        if(changes.containsKey(id))
+            return Optional.ofNullable(changes.get(id));
+        //
+        return cleared? Optional.empty() : source.findById(id);
+    }
+
+
+    /**
+     * Return result of a lookup of an object by its {@literal id}.
+     *
+     * @param id {@literal id} of object to find.
+     * @return true if an object with {@literal id} exists.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public boolean existsById(ID id) {
+        return findById(id).isPresent();
+    }
+
+
+    /**
+     * Return result of a lookup of objects by a collection of {@literal ids}.
+     *
+     * @param ids collection of {@literal ids} for which objects are looked up.
+     * @return result of lookup by a collection of {@literal ids}.
+     * @throws IllegalArgumentException {@literal ids} is {@literal null}.
+     */
+    @Override
+    public Iterable<T> findAllById(Iterable<ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        return StreamSupport.stream(ids.spliterator(), false)
+            .filter(id -> id != null)
+            .map(id -> findById(id).orElse(null))
+            .filter(e -> e != null).toList();
+    }
+
+
+    /**
+     * Return objects that have {@literal key} in the secondary index with
+     * {@literal name}, including buffered changes.
+     *
+     * @param name name of index of the live repository.
+     * @param key key looked up in index.
+     * @return objects with {@literal key}, empty if none match.
+     * @throws IllegalArgumentException {@literal name} is {@literal null} or no
+     * index with {@literal name} exists.
+     */
+    @Override
+    public Iterable<T> findAllByIndex(String name, Object key) {
+        if(name==null)
+            throw new IllegalArgumentException("argument name is null.");
+        //
+        var index = source.index(name);
+        return Stream.concat(visible(StreamSupport.stream(index.get(key).spliterator(), false)),
+            changes.values().stream().filter(e -> e != null && Objects.equals(SecondaryIndex.normalize(key), index.keyOf(e)))).toList();
+    }
+
+
+    /**
+     * Return objects with keys in range {@code [from, to)} of the sorted index
+     * with {@literal name}, including buffered changes, ordered by key.
+     *
+     * @param name name of sorted index of the live repository.
+     * @param from lowest key (inclusive).
+     * @param to upper bound of keys (exclusive).
+     * @return objects with keys in range, empty if none match.
+     * @throws IllegalArgumentException no sorted index with {@literal name} exists.
+     */
+    Iterable<T> findAllByRange(String name, Object from, Object to) {
+        var index = source.index(name);
+        return Stream.concat(visible(index.range(from, to).stream()),
+            changes.values().stream().filter(e -> e != null && SnapshotRepository.inRange(index.keyOf(e), from, to)))
+            .sorted((e1, e2) -> SecondaryIndex.compare(index.keyOf(e1), index.keyOf(e2))).toList();
+    }
+
+
+    /**
+     * Not supported, indexes cannot be created inside a transaction.
+     */
+    @Override
+    public <K> Repository<T, ID> createIndex(String name, Function<? super T, K> keyExtractor) {
+        throw new UnsupportedOperationException("not supported in transaction.");
+    }
+
+
+    /**
+     * Buffer object to be saved when the transaction is committed.
+     *
+     * @param <S> sub-class of {@code <T>}.
+     * @param entity object saved to the repository.
+     * @return the saved entity.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public <S extends T> S save(S entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        ID id = source.idOf(entity);
+        if(id==null)
+            throw new IllegalArgumentException("entity.id is null.");
+        //
+        changes.put(id, entity);
+        return entity;
+    }
+
+
+    /**
+     * Buffer collection of objects to be saved when the transaction is committed.
+     *
+     * @param <S> sub-class of {@code <T>}.
+     * @param entities collection of objects (entities) saved to repository.
+     * @return collection of saved objects.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null} or
+     * contains {@literal null} or an object with a {@literal null} id.
+     */
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        var saved = new ArrayList<S>();
+        for(S entity : entities) {
+            saved.add(save(entity));
+        }
+        return saved;
+    }
+
+
+    /**
+     * Buffer deletion of object with {@literal id}.
+     *
+     * @param id {@literal id} of entity to delete.
+     * @throws IllegalArgumentException {@literal id} is {@literal null}.
+     */
+    @Override
+    public void deleteById(ID id) {
+        if(id==null)
+            throw new IllegalArgumentException("argument id is null.");
+        //
+        changes.put(id, null);
+    }
+
+
+    /**
+     * Buffer deletion of object (entity).
+     *
+     * @param entity {@literal entity} to delete.
+     * @throws IllegalArgumentException {@literal entity} or entity's {@literal id}
+     * is {@literal null}.
+     */
+    @Override
+    public void delete(T entity) {
+        if(entity==null)
+            throw new IllegalArgumentException("argument entity is null.");
+        //
+        ID id = source.idOf(entity);
+        if(id==null)
+            throw new IllegalArgumentException("entity.id is null.");
+        //
+        changes.put(id, null);
+    }
+
+
+    /**
+     * Buffer deletion of objects of matching collection of {@literal ids}.
+     *
+     * @param ids collection of {@literal ids} to delete.
+     * @throws IllegalArgumentException {@literal ids} is {@literal null}.
+     */
+    @Override
+    public void deleteAllById(Iterable<? extends ID> ids) {
+        if(ids==null)
+            throw new IllegalArgumentException("argument ids is null.");
+        //
+        for(ID id : ids) {
+            if(id != null) {
+                changes.put(id, null);
+            }
+        }
+    }
+
+
+    /**
+     * Buffer deletion of collection of objects (entities).
+     *
+     * @param entities collection of {@literal entities} to delete.
+     * @throws IllegalArgumentException {@literal entities} is {@literal null}.
+     */
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        if(entities==null)
+            throw new IllegalArgumentException("argument entities is null.");
+        //
+        for(T e : entities) {
+            ID id = e==null? null : source.idOf(e);
+            if(id != null) {
+                changes.put(id, null);
+            }
+        }
+    }
+
+
+    /**
+     * Buffer deletion of all objects, including objects saved before in the
+     * transaction.
+     */
+    @Override
+    public void deleteAll() {
+        changes.clear();
+        cleared = true;
+    }
+
+
+    /**
+     * Apply buffered changes to the live repository. The caller holds the batch
+     * lock of the {@link VersionClock} and flushes the repository afterwards.
+     */
+    void commit() {
+        if(cleared || changes.size() > 0) {
+            source.apply(cleared, changes);
+        }
+    }
+
+
+    /**
+     * Encode buffered changes as journal records in the order they are applied
+     * by {@link #commit()}. The caller holds the batch lock of the {@link VersionClock},
+     * so the objects deleted by {@link #deleteAll()} do not change until commit.
+     *
+     * @param type type tag of repository objects.
+     * @param records list to which records are added.
+     */
+    void records(byte type, List<byte[]> records) {
+        if(cleared) {
+            source.findAll().forEach(e -> records.add(StoreJournal.deleteRecord(type, source.idOf(e))));
+        }
+        changes.forEach((id, e) ->
+            records.add(e != null? StoreJournal.saveRecord(e) : StoreJournal.deleteRecord(type, id)));
+    }
+
+
+    /**
+     * Filter committed objects that are hidden or replaced by buffered changes.
+     *
+     * @param committed stream of committed objects.
+     * @return stream of committed objects that are still visible.
+     */
+    private Stream<T> visible(Stream<T> committed) {
+        return cleared? Stream.empty() : changes.isEmpty()? committed :
+            committed.filter(e -> ! changes.containsKey(source.idOf(e)));
+    }
+
+
+    /**
+     * Transaction buffer of a {@link LongIdRepositoryImpl}.
+     *
+     * @param <T> generic type of Repository objects (entities).
+     */
+    static class LongIds<T> extends TransactionRepository<T, Long> implements LongIdRepository<T> {
+
+        /**
+         * Constructor of transaction buffer of a repository.
+         *
+         * @param source live repository.
+         */
+        LongIds(LongIdRepositoryImpl<T> source) {
+            super(source);
+        }
+
+        @Override
+        public Optional<T> findById(long id) {
+            return findById(Long.valueOf(id));
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return findById(id).isPresent();
+        }
+
+        @Override
+        public void deleteById(long id) {
+            deleteById(Long.valueOf(id));
+        }
+    }
+
+
+    /**
+     * Transaction buffer of an {@link OrderRepositoryImpl}.
+     */
+    static class Orders extends TransactionRepository<Order, String> implements OrderRepository {
+
+        /**
+         * Constructor of transaction buffer of a repository.
+         *
+         * @param source live repository.
+         */
+        Orders(OrderRepositoryImpl source) {
+            super(source);
+        }
+
+        @Override
+        public Optional<Order> findById(long id) {
+            return id < 0? Optional.empty() : findById(Long.toString(id));
+        }
+
+        @Override
+        public Iterable<Order> findByCreationDateBetween(long from, long to) {
+            return findAllByRange(OrderRepositoryImpl.CREATION_DATE, from, to);
+        }
+
+        @Override
+        public boolean existsById(long id) {
+            return findById(id).isPresent();
+        }
+
+        @Override
+        public void deleteById(long id) {
+            if(id >= 0) {
+                deleteById(Long.toString(id));
+            }
+        }
+    }
+
+}
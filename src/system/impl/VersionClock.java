@@ -0,0 +1,193 @@
+package system.impl;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Non-public version clock shared by the repositories of a {@link DataStoreImpl}
+ * that provides point-in-time snapshots (multi-version concurrency control).
+ * <p>
+ * Time is divided into epochs. Opening a snapshot starts a new epoch and the
+ * snapshot sees all changes of earlier epochs. While snapshots are open,
+ * repositories keep the prior state of each changed object tagged with the epoch
+ * of the change, so snapshots resolve objects without copying the repositories.
+ * </p>
+ * <p>
+ * Writers hold the shared lock for the duration of one change (or one bulk save).
+ * Writers therefore never block each other and, in concurrent mode, never wait
+ * for readers of snapshots. Readers of repositories outside concurrent mode take
+ * the exclusive lock with {@link #beginRead()}, writers wait for them. Opening
+ * and releasing a snapshot takes the exclusive lock for as long as it takes to
+ * wait for in-flight changes to complete. Committing a transaction takes the
+ * exclusive lock to apply all of its changes at once.
+ * </p>
+ *
+ * @version <code style=color:green>{@value application.package_info#Version}</code>
+ * @author <code style=color:blue>{@value application.package_info#Author}</code>
+ */
+class VersionClock {
+
+    /**
+     * Returned by {@link #beginWrite()} when no snapshot is open and no prior
+     * state needs to be kept.
+     */
+    static final long NONE = -1L;
+
+    /**
+     * Shared lock held by writers, exclusive lock held to open and release snapshots
+     * and to apply batches.
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Current epoch, changes are tagged with the epoch in which they were made.
+     */
+    private long epoch = 0L;
+
+    /**
+     * Open snapshots: version to number of open references, guarded by lock.
+     */
+    private final TreeMap<Long, Integer> open = new TreeMap<>();
+
+    /**
+     * Repositories that keep prior state for open snapshots.
+     */
+    private final List<RepositoryImpl<?, ?>> repositories = new CopyOnWriteArrayList<>();
+
+
+    /**
+     * Register repository whose prior state is discarded when snapshots are released.
+     *
+     * @param repository repository that uses this clock.
+     */
+    void register(RepositoryImpl<?, ?> repository) {
+        repositories.add(repository);
+    }
+
+
+    /**
+     * Begin a change, must be paired with {@link #endWrite()} in a finally block.
+     * Calls may be nested by the same thread.
+     *
+     * @return epoch of the change or {@link #NONE} if no snapshot is open.
+     */
+    long beginWrite() {
+        lock.readLock().lock();
+        return open.isEmpty()? NONE : epoch;
+    }
+
+
+    /**
+     * End a change started with {@link #beginWrite()}.
+     */
+    void endWrite() {
+        lock.readLock().unlock();
+    }
+
+
+    /**
+     * Begin a batch of changes that excludes all other writers, e.g. to commit a
+     * transaction. Must be paired with {@link #endBatch()} in a finally block.
+     * Changes of the batch are made with {@link #beginWrite()} as usual.
+     */
+    void beginBatch() {
+        lock.writeLock().lock();
+    }
+
+
+    /**
+     * End a batch of changes started with {@link #beginBatch()}.
+     */
+    void endBatch() {
+        lock.writeLock().unlock();
+    }
+
+
+    /**
+     * Begin a read of repository storage that is not thread-safe, e.g. of the
+     * maps of repositories outside concurrent mode. The read excludes writers
+     * of other threads. A thread that is inside {@link #beginWrite()} is the
+     * only writer and reads without lock. Must be paired with
+     * {@link #endRead(boolean)} in a finally block.
+     *
+     * @return true if the lock was taken and must be released.
+     */
+    boolean beginRead() {
+        if(lock.getReadHoldCount() > 0)
+            return false;   // lock cannot be upgraded, caller is the writer
+        //
+        lock.writeLock().lock();
+        return true;
+    }
+
+
+    /**
+     * End a read started with {@link #beginRead()}.
+     *
+     * @param locked result of {@link #beginRead()}.
+     */
+    void endRead(boolean locked) {
+        if(locked) {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Open snapshot of all changes completed so far. Must not be called by a
+     * thread that is inside {@link #beginWrite()}.
+     *
+     * @return version of snapshot.
+     */
+    long open() {
+        lock.writeLock().lock();
+        try {
+            long version = ++epoch;
+            open.merge(version, 1, Integer::sum);
+            return version;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Add a reference to an open snapshot, released by {@link #release(long)}.
+     *
+     * @param version version of open snapshot.
+     */
+    void retain(long version) {
+        lock.writeLock().lock();
+        try {
+            if( ! open.containsKey(version))
+                throw new IllegalStateException("snapshot is closed.");
+            //
+            open.merge(version, 1, Integer::sum);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+
+    /**
+     * Release a reference to a snapshot. Prior state that is no longer visible
+     * to any open snapshot is discarded.
+     *
+     * @param version version of snapshot.
+     */
+    void release(long version) {
+        lock.writeLock().lock();
+        try {
+            if(open.computeIfPresent(version, (v, n) -> n > 1? n - 1 : null)==null) {
+                long oldest = open.isEmpty()? Long.MAX_VALUE : open.firstKey();
+                repositories.forEach(r -> r.prune(oldest));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package datamodel;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * Tests for Order class: [500..599] modification count tests.
+ * 
+ * @author sgra64
+ *
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Order_500_ModificationCountTest {
+    //
+    final Customer c1 = new Customer().setId(1L);
+    final datamodel.Order o1 = new datamodel.Order(c1);
+    final Article a1 = new Article("Article_1", 100).setId("SKU00001");
+    final Article a2 = new Article("Article_2", 100).setId("SKU00002");
+
+
+    /*
+     * Test case: adding and deleting items changes the count.
+     */
+    @Test @Order(500)
+    void test500_itemModificationsChangeCount() {
+        long count = o1.getModificationCount();
+        o1.addItem(a1, 1);
+        assertNotEquals(count, o1.getModificationCount());
+        count = o1.getModificationCount();
+        o1.addItem(a2, 2);
+        assertNotEquals(count, o1.getModificationCount());
+        count = o1.getModificationCount();
+        o1.deleteItem(0);
+        assertNotEquals(count, o1.getModificationCount());
+        count = o1.getModificationCount();
+        o1.deleteAllItems();
+        assertNotEquals(count, o1.getModificationCount());
+    }
+
+
+    /*
+     * Test case: operations without effect leave the count unchanged.
+     */
+    @Test @Order(510)
+    void test510_noModificationKeepsCount() {
+        o1.addItem(a1, 1);
+        long count = o1.getModificationCount();
+        o1.deleteItem(5);
+        o1.deleteItem(-1);
+        o1.itemsCount();
+        o1.getItems().iterator().next();
+        assertEquals(count, o1.getModificationCount());
+        o1.deleteAllItems();
+        count = o1.getModificationCount();
+        o1.deleteAllItems();
+        assertEquals(count, o1.getModificationCount());
+    }
+
+
+    /*
+     * Test case: items cannot be modified bypassing the count.
+     */
+    @Test @Order(520)
+    void test520_itemsAreReadOnly() {
+        o1.addItem(a1, 1);
+        var it = o1.getItems().iterator();
+        it.next();
+        assertThrows(UnsupportedOperationException.class, () -> it.remove());
+        assertEquals(1, o1.itemsCount());
+    }
+
+
+    /*
+     * Test case: article price and tax changes change the article count.
+     */
+    @Test @Order(530)
+    void test530_articleModificationsChangeCount() {
+        long count = Article.getModificationCount();
+        a1.setUnitPrice(100);
+        a1.setTax(a1.getTax());
+        assertEquals(count, Article.getModificationCount());
+        a1.setUnitPrice(200);
+        assertNotEquals(count, Article.getModificationCount());
+        count = Article.getModificationCount();
+        a1.setTax(TAX.GER_VAT_REDUCED);
+        assertNotEquals(count, Article.getModificationCount());
+    }
+
+
+    /*
+     * Test case: price and tax changes change the version of the changed article only.
+     */
+    @Test @Order(540)
+    void test540_articleModificationsChangeVersion() {
+        long v1 = a1.getVersion(), v2 = a2.getVersion();
+        a1.setUnitPrice(100);
+        assertEquals(v1, a1.getVersion());
+        a1.setUnitPrice(200);
+        assertNotEquals(v1, a1.getVersion());
+        v1 = a1.getVersion();
+        a1.setTax(TAX.GER_VAT_REDUCED);
+        assertNotEquals(v1, a1.getVersion());
+        assertEquals(v2, a2.getVersion());
+    }
+
+
+    /*
+     * Test case: items are accounted again with changed articles, items are
+     * deleted with the price they were accounted with.
+     */
+    @Test @Order(550)
+    void test550_articleModificationsUpdateTotals() {
+        o1.addItem(a1, 1).addItem(a2, 2);
+        assertEquals(300L, o1.getValue());
+        a1.setUnitPrice(1000);
+        assertEquals(1200L, o1.getValue());
+        a2.setUnitPrice(50).setTax(TAX.GER_VAT_REDUCED);
+        o1.deleteItem(0);
+        assertEquals(100L, o1.getValue());
+        assertEquals(100L, o1.getValue(TAX.GER_VAT_REDUCED));
+        assertEquals(0L, o1.getValue(TAX.GER_VAT));
+        assertEquals(7L, o1.getVAT());
+    }
+
+}
@@ -0,0 +1,124 @@
+package datamodel;
+
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+/**
+ * Tests for Order class: [600..699] running totals tests.
+ * 
+ * @author sgra64
+ *
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Order_600_RunningTotalsTest {
+    //
+    final Customer c1 = new Customer().setId(1L);
+    final Article a1 = new Article("Article_1", 1190).setId("SKU00001").setTax(TAX.GER_VAT);
+    final Article a2 = new Article("Article_2", 1070).setId("SKU00002").setTax(TAX.GER_VAT_REDUCED);
+    final Article a3 = new Article("Article_3", 500).setId("SKU00003").setTax(TAX.TAXFREE);
+    //
+    final datamodel.Order o3 = new datamodel.Order(c1)
+        .addItem(a1, 1)
+        .addItem(a2, 2)
+        .addItem(a3, 3);
+
+
+    /*
+     * Test case: totals of added items per tax rate.
+     */
+    @Test @Order(600)
+    void test600_addItems() {
+        assertEquals(1190L + 2140L + 1500L, o3.getValue());
+        assertEquals(190L + 140L, o3.getVAT());
+        assertEquals(1190L, o3.getValue(TAX.GER_VAT));
+        assertEquals(2140L, o3.getValue(TAX.GER_VAT_REDUCED));
+        assertEquals(1500L, o3.getValue(TAX.TAXFREE));
+        assertEquals(190L, o3.getVAT(TAX.GER_VAT));
+        assertEquals(140L, o3.getVAT(TAX.GER_VAT_REDUCED));
+        assertEquals(0L, o3.getVAT(TAX.TAXFREE));
+    }
+
+
+    /*
+     * Test case: totals follow deleted items.
+     */
+    @Test @Order(610)
+    void test610_deleteItems() {
+        o3.deleteItem(1);
+        assertEquals(1190L + 1500L, o3.getValue());
+        assertEquals(0L, o3.getValue(TAX.GER_VAT_REDUCED));
+        assertEquals(190L, o3.getVAT());
+        o3.deleteAllItems();
+        assertEquals(0L, o3.getValue());
+        assertEquals(0L, o3.getVAT());
+    }
+
+
+    /*
+     * Test case: totals follow changed units of items.
+     */
+    @Test @Order(620)
+    void test620_setUnitsOrdered() {
+        var item = o3.getItems().iterator().next();
+        long count = o3.getModificationCount();
+        item.setUnitsOrdered(3);
+        assertEquals(3, item.getUnitsOrdered());
+        assertEquals(3570L, o3.getValue(TAX.GER_VAT));
+        assertEquals(570L, o3.getVAT(TAX.GER_VAT));
+        assertEquals(count + 1, o3.getModificationCount());
+        item.setUnitsOrdered(0);
+        assertEquals(0L, o3.getValue(TAX.GER_VAT));
+        assertThrows(IllegalArgumentException.class, () -> item.setUnitsOrdered(-1));
+        assertEquals(0, item.getUnitsOrdered());
+    }
+
+
+    /*
+     * Test case: totals follow changed prices and tax rates of articles.
+     */
+    @Test @Order(630)
+    void test630_articleChanges() {
+        a1.setUnitPrice(2380);
+        assertEquals(2380L, o3.getValue(TAX.GER_VAT));
+        assertEquals(380L, o3.getVAT(TAX.GER_VAT));
+        a3.setTax(TAX.GER_VAT);
+        assertEquals(2380L + 1500L, o3.getValue(TAX.GER_VAT));
+        assertEquals(0L, o3.getValue(TAX.TAXFREE));
+    }
+
+
+    /*
+     * Test case: totals of many items equal the sum of item values.
+     */
+    @Test @Order(640)
+    void test640_manyItems() {
+        var o1 = new datamodel.Order(c1);
+        long value = 0L, vat = 0L;
+        for(int i=1; i <= 5000; i++) {
+            var article = (i % 2 == 0)? a1 : a2;
+            o1.addItem(article, i % 9 + 1);
+            value += article.getUnitPrice() * (i % 9 + 1);
+            vat += article.getTax().includedVAT(article.getUnitPrice() * (i % 9 + 1));
+        }
+        assertEquals(value, o1.getValue());
+        assertEquals(vat, o1.getVAT());
+    }
+
+
+    /*
+     * Test case: null tax argument.
+     */
+    @Test @Order(690)
+    void test690_nullTax() {
+        IllegalArgumentException thrown =
+            assertThrows(IllegalArgumentException.class, () -> o3.getValue(null));
+        assertEquals("tax is null.", thrown.getMessage());
+    }
+
+}
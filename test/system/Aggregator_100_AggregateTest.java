@@ -0,0 +1,150 @@
+package system;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for Aggregator component.
+ * 
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Aggregator_100_AggregateTest {
+
+    /*
+     * Data store with orders and unit under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+    private final Aggregator aggregator = IoC.getInstance().createAggregator(dataStore);
+    private final Calculator calc = IoC.getInstance().getCalculator();
+
+    private final Customer c1 = new Customer("Klara Schmidt").setId(120002L);
+    private final Customer c2 = new Customer("Felix Braun").setId(120001L);
+    private final Article stift = new Article("Stift", 150).setId("SKU-120-B").setTax(TAX.GER_VAT);
+    private final Article atlas = new Article("Atlas", 2499).setId("SKU-120-C").setTax(TAX.GER_VAT_REDUCED);
+    private final Article gutschein = new Article("Gutschein", 500).setId("SKU-120-A").setTax(TAX.TAXFREE);
+
+    private final ZoneId zone = ZoneId.of("Europe/Berlin");
+    private final long day1 = LocalDate.of(2024, 3, 1).atTime(12, 0).atZone(zone).toInstant().toEpochMilli();
+    private final long day2 = LocalDate.of(2024, 3, 2).atTime(0, 30).atZone(zone).toInstant().toEpochMilli();
+
+    private final List<datamodel.Order> orders = List.of(
+        new datamodel.Order(c1).setId("8592356245").addItem(stift, 2).addItem(atlas, 1),
+        new datamodel.Order(c2).setId("3563561357").addItem(stift, 1).addItem(gutschein, 4),
+        new datamodel.Order(c1).setId("5234968294").addItem(atlas, 3)
+    );
+
+
+    @BeforeEach
+    void setUp() {
+        orders.get(0).setCreationDate(day1);
+        orders.get(1).setCreationDate(day1);
+        orders.get(2).setCreationDate(day2);
+        dataStore.saveAll(List.of(c1, c2));
+        dataStore.saveAll(List.of(stift, atlas, gutschein));
+        dataStore.saveAll(orders);
+    }
+
+    @Test @Order(100)
+    void test100_aggregateByTax() {
+        var byTax = aggregator.aggregate(Aggregator.BY_TAX);
+        assertEquals(List.of(TAX.TAXFREE, TAX.GER_VAT, TAX.GER_VAT_REDUCED), byTax.getKeys());
+        assertEquals(3 * 150L, byTax.getValue(TAX.GER_VAT));
+        assertEquals(4 * 2499L, byTax.getValue(TAX.GER_VAT_REDUCED));
+        assertEquals(2000L, byTax.getValue(TAX.TAXFREE));
+        assertEquals(calc.calculateVAT(2 * 150L, TAX.GER_VAT) + calc.calculateVAT(150L, TAX.GER_VAT), byTax.getVAT(TAX.GER_VAT));
+        assertEquals(4L, byTax.getUnits(TAX.TAXFREE));
+    }
+
+    @Test @Order(110)
+    void test110_aggregateByCustomer() {
+        var byCustomer = aggregator.aggregate(Aggregator.BY_CUSTOMER);
+        assertEquals(List.of(120001L, 120002L), byCustomer.getKeys());
+        assertEquals(calc.calculateOrderValue(orders.get(0)) + calc.calculateOrderValue(orders.get(2)), byCustomer.getValue(120002L));
+        assertEquals(calc.calculateOrderVAT(orders.get(1)), byCustomer.getVAT(120001L));
+        assertEquals(6L, byCustomer.getUnits(120002L));
+        assertEquals(0L, byCustomer.getValue(1L));
+    }
+
+    @Test @Order(120)
+    void test120_aggregateByArticle() {
+        var byArticle = aggregator.aggregate(Aggregator.BY_ARTICLE);
+        assertEquals(List.of("SKU-120-A", "SKU-120-B", "SKU-120-C"), byArticle.getKeys());
+        assertEquals(4L, byArticle.getUnits("SKU-120-C"));
+        assertEquals(3 * 150L, byArticle.getValue("SKU-120-B"));
+    }
+
+    @Test @Order(130)
+    void test130_aggregateByDay() {
+        var byDay = aggregator.aggregate(Aggregator.byDay(zone));
+        assertEquals(List.of(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 2)), byDay.getKeys());
+        assertEquals(3 * 2499L, byDay.getValue(LocalDate.of(2024, 3, 2)));
+    }
+
+    @Test @Order(140)
+    void test140_aggregateTotals() {
+        long value = 0L, vat = 0L;
+        for(var order : orders) {
+            value += calc.calculateOrderValue(order);
+            vat += calc.calculateOrderVAT(order);
+        }
+        for(Aggregator.Aggregates<?> aggregates : List.<Aggregator.Aggregates<?>>of(
+                aggregator.aggregate(Aggregator.BY_TAX, orders),
+                aggregator.aggregate(Aggregator.BY_CUSTOMER, orders),
+                aggregator.aggregate(Aggregator.BY_ARTICLE, orders),
+                aggregator.aggregate(Aggregator.byDay(zone), orders))) {
+            assertEquals(value, aggregates.getTotalValue());
+            assertEquals(vat, aggregates.getTotalVAT());
+        }
+    }
+
+    @Test @Order(150)
+    void test150_aggregate_WhileWriterSavesOrders() throws Exception {
+        long value = aggregator.aggregate(Aggregator.BY_CUSTOMER).getTotalValue();
+        var pool = java.util.concurrent.Executors.newSingleThreadExecutor();
+        var stop = new java.util.concurrent.atomic.AtomicBoolean(false);
+        try {
+            var writer = pool.submit(() -> {
+                for(long id = 1; id < 100_000 && ! stop.get(); id++) {
+                    dataStore.save(new datamodel.Order(c2).setId(Long.toString(id)).addItem(atlas, 1));
+                }
+            });
+            for(int i = 0; i < 50; i++) {
+                // orders saved after the snapshot of an aggregation are not aggregated
+                assertTrue(aggregator.aggregate(Aggregator.BY_TAX).getTotalValue() >= value);
+            }
+            stop.set(true);
+            writer.get(60, java.util.concurrent.TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+        long saved = dataStore.orders().count() - orders.size();
+        assertEquals(value + saved * 2499L, aggregator.aggregate(Aggregator.BY_ARTICLE).getTotalValue());
+    }
+
+    @Test @Order(190)
+    void test190_aggregate_NullArgs() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    aggregator.aggregate(null);
+        });
+        assertEquals("argument grouping is null.", thrown.getMessage());
+        thrown = assertThrows(IllegalArgumentException.class, () -> aggregator.aggregate(Aggregator.BY_TAX, null));
+        assertEquals("argument orders is null.", thrown.getMessage());
+    }
+
+}
@@ -81,6 +81,15 @@ public class Calculator_500_CalculateVATTest {
         assertEquals(0L, calc.calculateVAT(1000000L, TAX.TAXFREE)); 
     }
  
+    @Test @Order(530)
+    void test530_calculateVAT_LargeValues() {
+        // exact integer arithmetic, no overflow or floating point error
+        assertEquals(159663865546218L, calc.calculateVAT(1000000000000000L, TAX.GER_VAT));
+        assertEquals(1472639232775132272L, calc.calculateVAT(Long.MAX_VALUE, TAX.GER_VAT));
+        assertEquals(603398170635359165L, calc.calculateVAT(Long.MAX_VALUE, TAX.GER_VAT_REDUCED));
+        assertEquals(0L, calc.calculateVAT(Long.MAX_VALUE, TAX.TAXFREE));
+    }
+
     @Test @Order(570)
     void test570_calculateVAT_NegValues() {
         assertEquals(0.0, calc.calculateVAT(-10L, TAX.TAXFREE));
@@ -0,0 +1,150 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for batch calculations of Calculator component.
+ * 
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Calculator_700_CalculateTotalsTest {
+
+    /*
+     * Unit under test.
+     */
+    private final Calculator calc = IoC.getInstance().getCalculator();
+
+    /*
+     * Orders with items of all tax rates.
+     */
+    private final List<datamodel.Order> orders = new ArrayList<>();
+
+
+    @BeforeEach
+    void setUp() {
+        var customer = new Customer("Eric Meyer").setId(892474L);
+        var articles = new Article[] {
+            new Article("Tasse", 299).setId("SKU-458362").setTax(TAX.GER_VAT),
+            new Article("Buch", 1799).setId("SKU-638035").setTax(TAX.GER_VAT_REDUCED),
+            new Article("Karte", 250).setId("SKU-310851").setTax(TAX.TAXFREE)
+        };
+        for(int i=0; i < 3000; i++) {
+            var order = new datamodel.Order(customer);
+            for(int k=0; k <= i % 4; k++) {
+                order.addItem(articles[(i + k) % articles.length], 1 + (i + k) % 7);
+            }
+            orders.add(order);
+        }
+    }
+
+    @Test @Order(700)
+    void test700_calculateTotals() {
+        var totals = calc.calculateTotals(orders);
+        assertEquals(orders.size(), totals.size());
+        for(int i=0; i < orders.size(); i++) {
+            assertEquals(calc.calculateOrderValue(orders.get(i)), totals.getValues()[i]);
+            assertEquals(calc.calculateOrderVAT(orders.get(i)), totals.getVATs()[i]);
+        }
+    }
+
+    @Test @Order(710)
+    void test710_calculateTotalsParallel() {
+        var totals = calc.calculateTotals(orders);
+        var parallel = calc.calculateTotalsParallel(orders);
+        assertArrayEquals(totals.getValues(), parallel.getValues());
+        assertArrayEquals(totals.getVATs(), parallel.getVATs());
+        assertEquals(Arrays.stream(totals.getValues()).sum(), parallel.getTotalValue());
+        assertEquals(Arrays.stream(totals.getVATs()).sum(), parallel.getTotalVAT());
+    }
+
+    @Test @Order(715)
+    void test715_calculateTotals_AfterModifications() {
+        var order = orders.get(3);
+        var article = order.getItems().iterator().next().getArticle();
+        long value = calc.calculateOrderValue(order);
+        assertNotEquals(0L, calc.calculateOrderVAT(order));
+        // added item
+        order.addItem(article, 2);
+        assertEquals(value + 2 * article.getUnitPrice(), calc.calculateOrderValue(order));
+        // changed price
+        long units = 0;
+        for(var item : order.getItems()) {
+            units += item.getArticle()==article? item.getUnitsOrdered() : 0;
+        }
+        value = calc.calculateOrderValue(order);
+        article.setUnitPrice(article.getUnitPrice() + 100);
+        assertEquals(value + 100 * units, calc.calculateOrderValue(order));
+        // deleted items
+        order.deleteAllItems();
+        assertEquals(0L, calc.calculateOrderValue(order));
+        assertEquals(0L, calc.calculateOrderVAT(order));
+    }
+
+    @Test @Order(720)
+    void test720_calculateTotals_Empty() {
+        var totals = calc.calculateTotals(List.of());
+        assertEquals(0, totals.size());
+        assertEquals(0L, totals.getTotalValue());
+    }
+
+    @Test @Order(730)
+    void test730_calculateItemsValue() {
+        assertEquals(calc.calculateTotals(orders).getTotalValue(), calc.calculateItemsValue(orders));
+        assertEquals(0L, calc.calculateItemsValue(List.of()));
+    }
+
+    @Test @Order(740)
+    void test740_calculateItemsValue_ConcurrentAddItem() throws InterruptedException {
+        var order = orders.get(0);
+        var article = order.getItems().iterator().next().getArticle();
+        var writer = new Thread(() -> {
+            for(int i=0; i < 20000; i++) {
+                order.addItem(article, 1);
+            }
+        });
+        writer.start();
+        long previous = 0;
+        while(writer.isAlive()) {
+            long value = calc.calculateItemsValue(List.of(order));
+            assertTrue(value >= previous);
+            previous = value;
+        }
+        writer.join();
+        assertEquals(calc.calculateOrderValue(order), calc.calculateItemsValue(List.of(order)));
+    }
+
+    @Test @Order(790)
+    void test790_calculateTotals_NullArgs() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    calc.calculateTotals(null);
+        });
+        assertEquals("argument orders is null.", thrown.getMessage());
+    }
+
+    @Test @Order(795)
+    void test795_calculateItemsValue_NullArgs() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    calc.calculateItemsValue(null);
+        });
+        assertEquals("argument orders is null.", thrown.getMessage());
+    }
+
+}
@@ -0,0 +1,146 @@
+package system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for DataStore component with journal engine.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_100_JournalTest {
+
+    /*
+     * Directory with journal files.
+     */
+    private Path dir;
+    private Path journal;
+
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-test");
+        journal = dir.resolve("store.journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try(var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+    private DataStore open() {
+        return IoC.getInstance().createDataStore("journal",
+            Map.of(StorageEngine.JOURNAL, journal.toString(), StorageEngine.CONCURRENT, "true"));
+    }
+
+
+    @Test @Order(100)
+    void test100_replay_RestoresSavesAndDeletes() {
+        try(var store = open()) {
+            var c1 = new Customer("Paula Wendt").setId(100201L);
+            var ordner = new Article("Ordner", 399).setId("SKU-100201").setTax(TAX.GER_VAT);
+            store.save(c1).save(new Customer("Bruno Sander").setId(100202L)).save(ordner);
+            store.save(new datamodel.Order(c1).setId("1000000001").addItem(ordner, 2));
+            store.customers().deleteById(100202L);
+        }
+        try(var store = open()) {
+            assertEquals(1L, store.customers().count());
+            assertEquals("Wendt", store.customers().findById(100201L).get().getLastName());
+            var order = store.orders().findById("1000000001").get();
+            assertEquals(798L, order.getValue());
+            assertSame(store.articles().findById("SKU-100201").get(), order.getItems().iterator().next().getArticle());
+        }
+    }
+
+    @Test @Order(110)
+    void test110_save_GroupCommitOfConcurrentWriters() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try(var store = open()) {
+            var futures = new ArrayList<Future<?>>();
+            for(int t = 0; t < 8; t++) {
+                final long base = t * 1000L;
+                futures.add(pool.submit(() -> {
+                    for(long i = 0; i < 200; i++) {
+                        store.save(new Customer("Eric Meyer").setId(base + i));
+                    }
+                }));
+            }
+            for(var f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+        try(var store = open()) {
+            assertEquals(1600L, store.customers().count());
+        }
+    }
+
+    @Test @Order(120)
+    void test120_replay_CutsOffTornRecord() throws IOException {
+        try(var store = open()) {
+            store.save(new Customer("Eric Meyer").setId(1L)).save(new Customer("Anne Bayer").setId(2L));
+        }
+        long size = Files.size(journal);
+        Files.write(journal, new byte[] {0, 0, 1, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+        try(var store = open()) {
+            assertEquals(2L, store.customers().count());
+        }
+        assertEquals(size, Files.size(journal));
+    }
+
+    @Test @Order(130)
+    void test130_replay_StopsAtCorruptRecord() throws IOException {
+        try(var store = open()) {
+            store.save(new Customer("Eric Meyer").setId(1L));
+        }
+        long size = Files.size(journal);
+        try(var store = open()) {
+            store.save(new Customer("Anne Bayer").setId(2L));
+        }
+        byte[] bytes = Files.readAllBytes(journal);
+        bytes[bytes.length - 1] ^= 0x5a;     // payload no longer matches checksum
+        Files.write(journal, bytes);
+        try(var store = open()) {
+            assertEquals(1L, store.customers().count());
+            assertFalse(store.customers().existsById(2L));
+        }
+        assertEquals(size, Files.size(journal));
+    }
+
+    @Test @Order(140)
+    void test140_replay_RecordsLargerThanReadChunk() {
+        var description = "Tasse ".repeat(100_000);
+        try(var store = open()) {
+            for(int i = 0; i < 3; i++) {
+                store.save(new Article(description, 299).setId("SKU-" + i));
+            }
+        }
+        try(var store = open()) {
+            assertEquals(3L, store.articles().count());
+            assertEquals(description, store.articles().findById("SKU-2").get().getDescription());
+        }
+    }
+
+}
@@ -0,0 +1,128 @@
+package system;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for binary snapshot files of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_200_SnapshotFileTest {
+
+    /*
+     * Directory with snapshot files.
+     */
+    private Path dir;
+    private Path snapshot;
+
+    /*
+     * Objects with multi-byte characters, ids and prices beyond int range.
+     */
+    private final Customer c1 = new Customer("Jürgen Groß").setId(9_000_000_001L);
+    private final Customer c2 = new Customer("Zoë Ørsted").setId(7L);
+    private final Article becher = new Article("Becher „Café“ ☕", 499).setId("SKU-Ü-100").setTax(TAX.GER_VAT);
+    private final Article lexikon = new Article("Lexikon", 3_000_000_000L).setId("SKU-Ü-200").setTax(TAX.GER_VAT_REDUCED);
+
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot-test");
+        snapshot = dir.resolve("store.snapshot");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try(var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+
+    @Test @Order(200)
+    void test200_dumpLoad_RestoresObjectsAndReferences() {
+        var store = IoC.getInstance().createDataStore("memory", Map.of());
+        store.save(c1).save(c2).save(becher).save(lexikon);
+        store.save(new datamodel.Order(c1).setId("2000000001").addItem(becher, 2).addItem(lexikon, 1));
+        store.dump(snapshot);
+        //
+        var loaded = IoC.getInstance().createDataStore("memory", Map.of()).load(snapshot);
+        assertEquals(2L, loaded.customers().count());
+        assertEquals(2L, loaded.articles().count());
+        var order = loaded.orders().findById("2000000001").get();
+        assertSame(loaded.customers().findById(9_000_000_001L).get(), order.getCustomer());
+        assertEquals("Groß", order.getCustomer().getLastName());
+        assertSame(loaded.articles().findById("SKU-Ü-200").get(), item(order, 1).getArticle());
+        assertEquals(2 * 499L + 3_000_000_000L, order.getValue());
+        assertEquals(TAX.GER_VAT_REDUCED, loaded.articles().findById("SKU-Ü-200").get().getTax());
+    }
+
+    @Test @Order(210)
+    void test210_dumpLoad_KeepsDeletedObjectsReferencedByOrders() {
+        var store = IoC.getInstance().createDataStore("memory", Map.of());
+        store.save(c1).save(becher);
+        store.save(new datamodel.Order(c1).setId("2000000001").addItem(becher, 1));
+        store.articles().deleteById("SKU-Ü-100");
+        store.dump(snapshot);
+        //
+        var loaded = IoC.getInstance().createDataStore("memory", Map.of()).load(snapshot);
+        assertFalse(loaded.articles().existsById("SKU-Ü-100"));
+        var item = item(loaded.orders().findById("2000000001").get(), 0);
+        assertEquals("Becher „Café“ ☕", item.getArticle().getDescription());
+    }
+
+    @Test @Order(220)
+    void test220_mappedEngine_WritesSnapshotOnClose() {
+        var properties = Map.of(StorageEngine.SNAPSHOT, snapshot.toString());
+        try(var store = IoC.getInstance().createDataStore("mapped", properties)) {
+            store.save(c1).save(c2);
+        }
+        assertTrue(Files.exists(snapshot));
+        try(var store = IoC.getInstance().createDataStore("mapped", properties)) {
+            assertEquals(2L, store.customers().count());
+            store.customers().deleteById(7L);
+        }
+        try(var store = IoC.getInstance().createDataStore("mapped", properties)) {
+            assertEquals(1L, store.customers().count());
+        }
+    }
+
+    @Test @Order(290)
+    void test290_load_NotASnapshotFile() throws IOException {
+        Files.writeString(snapshot, "no snapshot file");
+        var store = IoC.getInstance().createDataStore("memory", Map.of());
+        assertThrows(UncheckedIOException.class, () -> {
+            store.load(snapshot);
+        });
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    store.dump(null);
+        });
+        assertEquals("argument file is null.", thrown.getMessage());
+    }
+
+
+    private static datamodel.OrderItem item(datamodel.Order order, int index) {
+        var it = order.getItems().iterator();
+        for(int i = 0; i < index; i++) it.next();
+        return it.next();
+    }
+
+}
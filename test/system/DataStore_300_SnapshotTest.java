@@ -0,0 +1,124 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for point-in-time snapshots of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_300_SnapshotTest {
+
+    /*
+     * Data store under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+
+    private final Customer c1 = new Customer("Hans Vogel").setId(310001L);
+    private final Customer c2 = new Customer("Petra Lange").setId(310002L);
+    private final Article kalender = new Article("Kalender", 1250).setId("SKU-310001").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(300)
+    void test300_snapshot_HidesLaterChanges() {
+        dataStore.save(c1).save(c2).save(kalender);
+        try(var snapshot = dataStore.snapshot()) {
+            var replacement = new Customer("Hans Krüger").setId(310001L);
+            dataStore.save(replacement);
+            dataStore.customers().deleteById(310002L);
+            dataStore.save(new Customer("Lea Vogel").setId(310003L));
+            //
+            assertEquals(2L, snapshot.customers().count());
+            assertSame(c1, snapshot.customers().findById(310001L).get());
+            assertSame(c2, snapshot.customers().findById(310002L).get());
+            assertFalse(snapshot.customers().existsById(310003L));
+            assertSame(replacement, dataStore.customers().findById(310001L).get());
+            assertEquals(2L, dataStore.customers().count());
+        }
+        assertEquals(2L, dataStore.customers().count());
+        assertFalse(dataStore.customers().existsById(310002L));
+    }
+
+    @Test @Order(310)
+    void test310_snapshot_SharesObjectsWithDataStore() {
+        dataStore.save(c1).save(kalender);
+        var order = new datamodel.Order(c1).setId("3000000001").addItem(kalender, 1);
+        dataStore.save(order);
+        try(var snapshot = dataStore.snapshot()) {
+            order.addItem(kalender, 1);     // changed in place, not replaced
+            assertEquals(2500L, snapshot.orders().findById("3000000001").get().getValue());
+        }
+    }
+
+    @Test @Order(320)
+    void test320_snapshot_IsReadOnly() {
+        try(var snapshot = dataStore.snapshot()) {
+            assertThrows(UnsupportedOperationException.class, () -> {
+                snapshot.save(c1);
+            });
+            assertThrows(UnsupportedOperationException.class, () -> {
+                snapshot.customers().deleteById(310001L);
+            });
+        }
+    }
+
+    @Test @Order(330)
+    void test330_snapshot_StableWhileWriterGrowsMaps() throws Exception {
+        assertStableWhileWriterSaves(dataStore);
+    }
+
+    @Test @Order(340)
+    void test340_snapshot_StableWhileWriterGrowsMapsConcurrentMode() throws Exception {
+        assertStableWhileWriterSaves(
+            IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true")));
+    }
+
+
+    private static void assertStableWhileWriterSaves(DataStore store) throws Exception {
+        var initial = new ArrayList<Object>();
+        for(long id = 0; id < 10; id++) {
+            initial.add(new Customer("Olaf Alt").setId(id));
+            initial.add(new Article("Alt", 100).setId("SKU-" + id));
+        }
+        store.saveAll(initial);
+        var pool = Executors.newSingleThreadExecutor();
+        var stop = new AtomicBoolean(false);
+        try(var snapshot = store.snapshot()) {
+            // writer grows and rehashes the maps of the live repositories
+            Future<?> writer = pool.submit(() -> {
+                for(long id = 10; id < 200_000 && ! stop.get(); id++) {
+                    store.save(new Customer("Nina Neu").setId(id));
+                    store.save(new Article("Neu", 200).setId("SKU-" + id));
+                }
+            });
+            for(int i = 0; i < 200; i++) {
+                assertEquals(10L, snapshot.customers().count());
+                assertEquals(10L, snapshot.articles().stream().count());
+                assertTrue(snapshot.customers().existsById(9L));
+                assertFalse(snapshot.customers().existsById(10L));
+            }
+            stop.set(true);
+            writer.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package system;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for transactions of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_400_TransactionTest {
+
+    /*
+     * Data store under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+
+    private final Customer c1 = new Customer("Lisa Berger").setId(400101L);
+    private final Customer c2 = new Customer("Karl Roth").setId(400102L);
+    private final Article maschine = new Article("Kaffeemaschine", 8999).setId("SKU-400101").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(400)
+    void test400_transaction_AppliesAllChanges() {
+        dataStore.save(c2);
+        dataStore.transaction(tx -> {
+            tx.save(c1).save(maschine);
+            tx.save(new datamodel.Order(c1).setId("4001000001").addItem(maschine, 1));
+            tx.customers().deleteById(400102L);
+            // work reads its own changes
+            assertTrue(tx.customers().existsById(400101L));
+            assertFalse(tx.customers().existsById(400102L));
+            assertEquals(1L, tx.orders().count());
+            // nothing is applied before the work returns
+            assertFalse(dataStore.customers().existsById(400101L));
+        });
+        assertEquals(1L, dataStore.customers().count());
+        assertTrue(dataStore.customers().existsById(400101L));
+        assertTrue(dataStore.orders().existsById("4001000001"));
+    }
+
+    @Test @Order(410)
+    void test410_transaction_NothingAppliedIfWorkThrows() {
+        dataStore.save(c2);
+        assertThrows(IllegalStateException.class, () -> {
+            dataStore.transaction(tx -> {
+                tx.save(c1);
+                tx.customers().deleteAll();
+                throw new IllegalStateException("abort");
+            });
+        });
+        assertEquals(1L, dataStore.customers().count());
+        assertTrue(dataStore.customers().existsById(400102L));
+    }
+
+    @Test @Order(420)
+    void test420_transaction_SnapshotsSeeAllChangesOrNone() throws Exception {
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for(long id = 0; id < 2_000; id += 2) {
+                    final long first = id;
+                    dataStore.transaction(tx -> tx.saveAll(List.of(
+                        new Customer("Ina Paar").setId(first), new Customer("Ole Paar").setId(first + 1))));
+                }
+            });
+            while( ! writer.isDone()) {
+                try(var snapshot = dataStore.snapshot()) {
+                    assertEquals(0L, snapshot.customers().count() % 2);
+                }
+            }
+            writer.get(60, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(2_000L, dataStore.customers().count());
+    }
+
+    @Test @Order(430)
+    void test430_transaction_JournaledAndReplayed() throws IOException {
+        var dir = Files.createTempDirectory("transaction-test");
+        var properties = Map.of(StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        try {
+            try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+                store.save(c2);
+                store.transaction(tx -> {
+                    tx.customers().deleteAll();
+                    tx.save(c1).save(maschine);
+                    tx.save(new datamodel.Order(c1).setId("4001000001").addItem(maschine, 3));
+                });
+            }
+            try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+                assertEquals(1L, store.customers().count());
+                assertTrue(store.customers().existsById(400101L));
+                assertEquals(3 * 8999L, store.orders().findById("4001000001").get().getValue());
+            }
+        } finally {
+            try(var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    @Test @Order(440)
+    void test440_transaction_NothingAppliedIfJournalFails() throws IOException {
+        var dir = Files.createTempDirectory("transaction-test");
+        var properties = Map.of(StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        try {
+            var store = IoC.getInstance().createDataStore("journal", properties);
+            store.save(c2);
+            store.close();      // journal no longer accepts records
+            assertThrows(UncheckedIOException.class, () -> {
+                store.transaction(tx -> {
+                    tx.save(c1);
+                    tx.customers().deleteById(400102L);
+                });
+            });
+            assertFalse(store.customers().existsById(400101L));
+            assertTrue(store.customers().existsById(400102L));
+        } finally {
+            try(var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for change subscriptions of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_500_ChangeFeedTest {
+
+    /*
+     * Data store under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+
+    private final Customer c1 = new Customer("Mia Sommer").setId(500001L);
+    private final Customer c2 = new Customer("Jan Winter").setId(500002L);
+
+
+    @Test @Order(500)
+    void test500_subscribe_EventsInOrder() throws InterruptedException {
+        var events = new ArrayList<ChangeEvent<Customer>>();
+        var done = new CountDownLatch(4);
+        try(var subscription = dataStore.subscribe(Customer.class, 10, e -> {
+            synchronized(events) { events.add(e); }
+            done.countDown();
+        })) {
+            dataStore.save(c1).save(c2);
+            var replacement = new Customer("Mia Herbst").setId(500001L);
+            dataStore.save(replacement);
+            dataStore.customers().deleteById(500002L);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertTrue(subscription.isActive());
+            synchronized(events) {
+                assertEquals(List.of(ChangeEvent.Type.INSERT, ChangeEvent.Type.INSERT,
+                    ChangeEvent.Type.UPDATE, ChangeEvent.Type.DELETE),
+                    events.stream().map(e -> e.getType()).toList());
+                for(int i = 1; i < events.size(); i++) {
+                    assertTrue(events.get(i - 1).getSequence() < events.get(i).getSequence());
+                }
+                assertSame(c1, events.get(2).getBefore());
+                assertSame(replacement, events.get(2).getAfter());
+                assertEquals(500002L, events.get(3).getId());
+            }
+        }
+    }
+
+    @Test @Order(510)
+    void test510_subscribe_OtherTypesNotDelivered() throws InterruptedException {
+        var done = new CountDownLatch(1);
+        var types = new ArrayList<Object>();
+        try(var subscription = dataStore.subscribe(Article.class, 10, e -> {
+            synchronized(types) { types.add(e.getAfter()); }
+            done.countDown();
+        })) {
+            dataStore.save(c1);
+            dataStore.save(new Article("Abo", 999).setId("SKU-500001"));
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertTrue(subscription.isActive());
+            synchronized(types) {
+                assertEquals(1, types.size());
+                assertTrue(types.get(0) instanceof Article);
+            }
+        }
+    }
+
+    @Test @Order(520)
+    void test520_subscribe_SlowSubscriberThrottlesWriters() throws Exception {
+        var release = new CountDownLatch(1);
+        var pool = Executors.newSingleThreadExecutor();
+        try(var subscription = dataStore.subscribe(Customer.class, 2, e -> {
+            try {
+                release.await();
+            } catch(InterruptedException ex) { }
+        })) {
+            Future<?> writer = pool.submit(() -> {
+                for(long id = 0; id < 20; id++) {
+                    dataStore.save(new Customer("Max Muster").setId(id));
+                }
+            });
+            assertThrows(java.util.concurrent.TimeoutException.class, () -> {
+                writer.get(200, TimeUnit.MILLISECONDS);
+            });
+            assertTrue(dataStore.customers().count() < 20L);
+            release.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+            assertEquals(20L, dataStore.customers().count());
+            assertTrue(subscription.isActive());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test @Order(530)
+    void test530_subscribe_SubscriberThrowingErrorIsCancelled() throws Exception {
+        var subscription = dataStore.subscribe(Customer.class, 1, e -> {
+            throw new AssertionError("subscriber failed");
+        });
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for(long id = 0; id < 100; id++) {
+                    dataStore.save(new Customer("Max Muster").setId(id));
+                }
+            });
+            writer.get(10, TimeUnit.SECONDS);   // writers are not left waiting
+            assertTrue(await(() -> ! subscription.isActive()));
+            assertEquals(100L, dataStore.customers().count());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test @Order(540)
+    void test540_subscribe_SubscribersWritingBackDoNotDeadlock() throws Exception {
+        // both subscribers write into the data store while the other's queue is full
+        var dataStore = IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true"));
+        var a = dataStore.subscribe(Customer.class, 1, e -> {
+            if(e.getType()==ChangeEvent.Type.INSERT)
+                dataStore.save(new Article("Abo", 999).setId("A-" + e.getId()));
+        });
+        var b = dataStore.subscribe(Customer.class, 1, e -> {
+            if(e.getType()==ChangeEvent.Type.INSERT)
+                dataStore.save(new Article("Buch", 1799).setId("B-" + e.getId()));
+        });
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = pool.submit(() -> {
+                for(long id = 0; id < 200; id++) {
+                    dataStore.save(new Customer("Max Muster").setId(id));
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            assertTrue(await(() -> dataStore.articles().count()==400L));
+            assertTrue(a.isActive());
+            assertTrue(b.isActive());
+        } finally {
+            a.close();
+            b.close();
+            pool.shutdown();
+        }
+    }
+
+    @Test @Order(550)
+    void test550_close_StopsDelivery() throws InterruptedException {
+        var events = new ArrayList<ChangeEvent<Customer>>();
+        var subscription = dataStore.subscribe(Customer.class, 10, e -> {
+            synchronized(events) { events.add(e); }
+        });
+        dataStore.save(c1);
+        assertTrue(await(() -> { synchronized(events) { return events.size()==1; } }));
+        subscription.close();
+        assertFalse(subscription.isActive());
+        dataStore.save(c2);
+        Thread.sleep(50);
+        synchronized(events) {
+            assertEquals(1, events.size());
+        }
+    }
+
+    @Test @Order(560)
+    void test560_subscribe_IllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            dataStore.subscribe(null, 10, e -> { });
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            dataStore.subscribe(Customer.class, 0, e -> { });
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            dataStore.subscribe(Customer.class, 10, null);
+        });
+    }
+
+
+    private static boolean await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while( ! condition.getAsBoolean()) {
+            if(System.currentTimeMillis() > deadline)
+                return false;
+            Thread.sleep(5);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,196 @@
+package system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the partitioned storage engine of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_600_PartitionedTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long JAN_2024 = 1_704_067_200_000L;    // 2024-01-01 00:00:00 UTC
+
+    /*
+     * Data store under test with four partitions.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("partitioned",
+        Map.of(StorageEngine.PARTITIONS, "4", StorageEngine.CONCURRENT, "true"));
+
+    private final Article tasse = new Article("Tasse", 299).setId("SKU-458362").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(600)
+    void test600_save_ObjectsFoundInTheirPartition() {
+        var objects = objects(100, 400);
+        dataStore.saveAll(objects);
+        assertEquals(100L, dataStore.customers().count());
+        assertEquals(1L, dataStore.articles().count());
+        assertEquals(400L, dataStore.orders().count());
+        for(long id = 0; id < 100; id++) {
+            assertEquals(id, dataStore.customers().findById(id).get().getId());
+        }
+        for(long id = 1_000_000_000L; id < 1_000_000_400L; id++) {
+            // long and String forms of order ids belong to the same partition
+            assertSame(dataStore.orders().findById(id).get(), dataStore.orders().findById(Long.toString(id)).get());
+        }
+        var ids = new HashSet<String>();
+        dataStore.orders().findAll().forEach(o -> assertTrue(ids.add(o.getId())));
+        assertEquals(400, ids.size());
+    }
+
+    @Test @Order(610)
+    void test610_delete_RemovesFromPartition() {
+        dataStore.saveAll(objects(10, 20));
+        dataStore.orders().deleteById(1_000_000_000L);
+        dataStore.orders().deleteAllById(List.of("1000000001", "1000000002"));
+        dataStore.customers().deleteById(9L);
+        assertEquals(17L, dataStore.orders().count());
+        assertEquals(9L, dataStore.customers().count());
+        assertFalse(dataStore.orders().existsById("1000000001"));
+        dataStore.orders().deleteAll();
+        assertEquals(0L, dataStore.orders().count());
+    }
+
+    @Test @Order(620)
+    void test620_findAllByIndex_MergesPartitions() {
+        var objects = objects(10, 200);
+        dataStore.saveAll(objects);
+        var expected = objects.stream().filter(o -> o instanceof datamodel.Order)
+            .map(o -> (datamodel.Order)o).filter(o -> o.getCustomer().getId()==3L).count();
+        var found = new AtomicInteger();
+        dataStore.orders().findAllByIndex("customer", 3L).forEach(o -> found.incrementAndGet());
+        assertEquals(expected, found.get());
+        // creation date ranges are merged in date order
+        var dates = new ArrayList<Long>();
+        dataStore.orders().findByCreationDateBetween(JAN_2024, JAN_2024 + 10 * DAY)
+            .forEach(o -> dates.add(o.getCreationDate()));
+        assertEquals(dates.stream().sorted().toList(), dates);
+        assertEquals(objects.stream().filter(o -> o instanceof datamodel.Order)
+            .filter(o -> ((datamodel.Order)o).getCreationDate() < JAN_2024 + 10 * DAY).count(), dates.size());
+    }
+
+    @Test @Order(630)
+    void test630_query_OrderedAcrossPartitions() {
+        var objects = objects(10, 200);
+        dataStore.saveAll(objects);
+        var latest = dataStore.orders().query()
+            .orderByDescending("creationDate").orderBy("id").limit(10).list();
+        var expected = objects.stream().filter(o -> o instanceof datamodel.Order).map(o -> (datamodel.Order)o)
+            .sorted(Comparator.comparingLong(datamodel.Order::getCreationDate).reversed()
+                .thenComparing(datamodel.Order::getId))
+            .limit(10).toList();
+        assertEquals(expected, latest);
+    }
+
+    @Test @Order(640)
+    void test640_transaction_SpansPartitions() {
+        dataStore.saveAll(objects(10, 0));
+        try(var snapshot = dataStore.snapshot()) {
+            dataStore.transaction(tx -> {
+                tx.customers().deleteAll();
+                tx.saveAll(objects(20, 0));
+            });
+            assertEquals(10L, snapshot.customers().count());
+        }
+        assertEquals(20L, dataStore.customers().count());
+        assertThrows(IllegalStateException.class, () -> {
+            dataStore.transaction(tx -> {
+                tx.customers().deleteAll();
+                throw new IllegalStateException("abort");
+            });
+        });
+        assertEquals(20L, dataStore.customers().count());
+    }
+
+    @Test @Order(650)
+    void test650_journal_ReplayedPerPartition() throws IOException {
+        var dir = Files.createTempDirectory("partitioned-test");
+        var properties = Map.of(StorageEngine.PARTITIONS, "3",
+            StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        try {
+            try(var store = IoC.getInstance().createDataStore("partitioned", properties)) {
+                store.saveAll(objects(30, 60));
+                store.orders().deleteById(1_000_000_000L);
+            }
+            assertTrue(Files.exists(dir.resolve("store.journal.0")));
+            assertTrue(Files.exists(dir.resolve("store.journal.2")));
+            try(var store = IoC.getInstance().createDataStore("partitioned", properties)) {
+                assertEquals(30L, store.customers().count());
+                assertEquals(59L, store.orders().count());
+                assertFalse(store.orders().existsById(1_000_000_000L));
+            }
+        } finally {
+            try(var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    @Test @Order(660)
+    void test660_dump_LoadedIntoOtherPartitioning() throws IOException {
+        var dir = Files.createTempDirectory("partitioned-test");
+        try {
+            dataStore.saveAll(objects(30, 60));
+            dataStore.dump(dir.resolve("store.snapshot"));
+            var other = IoC.getInstance().createDataStore("partitioned", Map.of(StorageEngine.PARTITIONS, "2"));
+            other.load(dir.resolve("store.snapshot"));
+            assertEquals(30L, other.customers().count());
+            assertEquals(60L, other.orders().count());
+            assertTrue(other.orders().existsById(1_000_000_059L));
+        } finally {
+            try(var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+            }
+        }
+    }
+
+    @Test @Order(670)
+    void test670_createDataStore_InvalidPartitions() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("partitioned", Map.of(StorageEngine.PARTITIONS, "0"));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("partitioned", Map.of(StorageEngine.PARTITIONS, "four"));
+        });
+    }
+
+
+    /*
+     * Customers with ids 0.. and orders with ids 1000000000.. of these customers.
+     */
+    private List<Object> objects(int customers, int orders) {
+        var objects = new ArrayList<Object>();
+        for(long id = 0; id < customers; id++) {
+            objects.add(new Customer("Eric Meyer").setId(id));
+        }
+        objects.add(tasse);
+        for(int i = 0; i < orders; i++) {
+            var customer = (Customer)objects.get(i % customers);
+            objects.add(new datamodel.Order(customer).setId(Long.toString(1_000_000_000L + i))
+                .setCreationDate(JAN_2024 + (i % 20) * DAY).addItem(tasse, 1));
+        }
+        return objects;
+    }
+
+}
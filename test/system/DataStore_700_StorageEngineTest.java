@@ -0,0 +1,176 @@
+package system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the selection of storage engines of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_700_StorageEngineTest {
+
+    /*
+     * Directory of journal and snapshot files, deleted after each test.
+     */
+    private Path dir;
+
+    private final Customer c1 = new Customer("Eric Meyer").setId(892474L);
+
+
+    /**
+     * Engine named by class name that opens in-memory data stores and remembers
+     * the properties it was opened with.
+     */
+    public static class RecordingEngine implements StorageEngine {
+        static final Map<String, String> opened = new HashMap<>();
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public DataStore open(Map<String, String> properties) {
+            opened.putAll(properties);
+            return IoC.getInstance().createDataStore("memory", properties);
+        }
+    }
+
+
+    /**
+     * Program that saves a customer in the singleton data store and exits
+     * without closing it, run in a separate JVM.
+     */
+    public static class SingletonWriter {
+        public static void main(String[] args) {
+            IoC.getInstance().getDataStore().save(new Customer("Eric Meyer").setId(892474L));
+        }
+    }
+
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("engine-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try(var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+
+    @Test @Order(700)
+    void test700_createDataStore_EngineByClassName() {
+        RecordingEngine.opened.clear();
+        var store = IoC.getInstance().createDataStore(RecordingEngine.class.getName(), Map.of("color", "blue"));
+        store.save(c1);
+        assertTrue(store.customers().existsById(892474L));
+        assertEquals(Map.of("color", "blue"), RecordingEngine.opened);
+    }
+
+    @Test @Order(710)
+    void test710_createDataStore_UnknownEngine() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("cassandra", Map.of());
+        });
+        // classes that are not storage engines
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("java.lang.String", Map.of());
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("memory", null);
+        });
+    }
+
+    @Test @Order(720)
+    void test720_createDataStore_RequiredProperties() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("journal", Map.of());
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createDataStore("mapped", Map.of());
+        });
+    }
+
+    @Test @Order(730)
+    void test730_createDataStore_JournalChosenByProperties() {
+        var properties = Map.of(StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        try(var store = IoC.getInstance().createDataStore(null, properties)) {
+            store.save(c1);
+        }
+        assertTrue(Files.exists(dir.resolve("store.journal")));
+        try(var store = IoC.getInstance().createDataStore(null, properties)) {
+            assertTrue(store.customers().existsById(892474L));
+        }
+    }
+
+    @Test @Order(740)
+    void test740_createDataStore_PartitionedChosenByProperties() {
+        var properties = Map.of(StorageEngine.PARTITIONS, "3",
+            StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        try(var store = IoC.getInstance().createDataStore(null, properties)) {
+            store.save(c1);
+        }
+        assertTrue(Files.exists(dir.resolve("store.journal.0")));
+        assertTrue(Files.exists(dir.resolve("store.journal.2")));
+        assertFalse(Files.exists(dir.resolve("store.journal")));
+    }
+
+    @Test @Order(750)
+    void test750_createDataStore_MemoryChosenWithoutProperties() {
+        try(var store = IoC.getInstance().createDataStore(null, Map.of())) {
+            store.save(c1);
+            assertEquals(1L, store.customers().count());
+        }
+        try(var store = IoC.getInstance().createDataStore(null, Map.of())) {
+            assertEquals(0L, store.customers().count());
+        }
+    }
+
+    @Test @Order(760)
+    void test760_createDataStore_MappedWritesSnapshotWhenClosed() {
+        var properties = Map.of(StorageEngine.SNAPSHOT, dir.resolve("store.snapshot").toString());
+        try(var store = IoC.getInstance().createDataStore("mapped", properties)) {
+            store.save(c1);
+            assertFalse(Files.exists(dir.resolve("store.snapshot")));
+        }
+        assertTrue(Files.exists(dir.resolve("store.snapshot")));
+        try(var store = IoC.getInstance().createDataStore("memory", properties)) {
+            assertTrue(store.customers().existsById(892474L));
+        }
+    }
+
+    @Test @Order(770)
+    void test770_getDataStore_MappedSingletonWritesSnapshotAtExit() throws Exception {
+        var snapshot = dir.resolve("singleton.snapshot");
+        var java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        var process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "-Dse1.datastore.engine=mapped", "-Dse1.datastore.snapshot=" + snapshot,
+                SingletonWriter.class.getName())
+            .inheritIO().start();
+        assertTrue(process.waitFor(60, TimeUnit.SECONDS));
+        assertEquals(0, process.exitValue());
+        try(var store = IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.SNAPSHOT, snapshot.toString()))) {
+            assertTrue(store.customers().existsById(892474L));
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package system;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the background compaction of journals of DataStore component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class DataStore_800_CompactionTest {
+
+    /*
+     * Directory of journal files, deleted after each test.
+     */
+    private Path dir;
+
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        dir = Files.createTempDirectory("compaction-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try(var files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+        }
+    }
+
+
+    @Test @Order(800)
+    void test800_compaction_CheckpointReplacesRecords() throws Exception {
+        var properties = Map.of(StorageEngine.JOURNAL, dir.resolve("store.journal").toString());
+        int rounds;
+        try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+            // overwrite the same customers until the journal is compacted
+            for(rounds = 0; ! exists("store.journal.checkpoint.") && rounds < 2_000; rounds++) {
+                store.saveAll(customers(1_000, rounds));
+            }
+            assertTrue(exists("store.journal.checkpoint."));
+            // changes while and after the journal was compacted
+            store.saveAll(customers(1_000, rounds));
+            store.customers().deleteById(0L);
+        }
+        assertFalse(exists("store.journal.segment."));
+        assertTrue(Files.size(dir.resolve("store.journal.checkpoint.1")) < 1L << 20);
+        try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+            assertEquals(999L, store.customers().count());
+            assertFalse(store.customers().existsById(0L));
+            assertEquals(name(rounds), store.customers().findById(999L).get().getLastName());
+        }
+    }
+
+    @Test @Order(810)
+    void test810_compaction_WritersContinueAndStayDurable() throws Exception {
+        var properties = Map.of(StorageEngine.JOURNAL, dir.resolve("store.journal").toString(),
+            StorageEngine.CONCURRENT, "true");
+        var threads = new ArrayList<Thread>();
+        try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+            for(int t = 0; t < 4; t++) {
+                final long first = t * 250L;
+                threads.add(new Thread(() -> {
+                    for(int round = 0; round < 600; round++) {
+                        var batch = new ArrayList<Customer>();
+                        for(long id = first; id < first + 250; id++) {
+                            batch.add(new Customer("Eric", name(round)).setId(id));
+                        }
+                        store.saveAll(batch);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for(var thread : threads) {
+                thread.join();
+            }
+        }
+        assertTrue(exists("store.journal.checkpoint."));
+        try(var store = IoC.getInstance().createDataStore("journal", properties)) {
+            assertEquals(1_000L, store.customers().count());
+            for(long id = 0; id < 1_000; id++) {
+                assertEquals(name(599), store.customers().findById(id).get().getLastName());
+            }
+        }
+    }
+
+
+    /*
+     * Return true if a file with a name that starts with prefix exists.
+     */
+    private boolean exists(String prefix) throws IOException {
+        try(var files = Files.list(dir)) {
+            return files.anyMatch(f -> f.getFileName().toString().startsWith(prefix)
+                && ! f.getFileName().toString().endsWith(".tmp"));
+        }
+    }
+
+    private static List<Customer> customers(int n, int round) {
+        var customers = new ArrayList<Customer>();
+        for(long id = 0; id < n; id++) {
+            customers.add(new Customer("Eric", name(round)).setId(id));
+        }
+        return customers;
+    }
+
+    private static String name(int round) {
+        return "Meyer-" + round;
+    }
+
+}
@@ -0,0 +1,108 @@
+package system;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for lookups of orders by numeric ids of OrderRepository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class OrderRepository_100_NumericKeyTest {
+
+    private final Customer c1 = new Customer("Nora Zahl").setId(100001L);
+    private final Article block = new Article("Notizblock", 249).setId("SKU-100001").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(100)
+    void test100_findById_NumericAndStringIds() {
+        for(var orders : repositories()) {
+            var o1 = new datamodel.Order(c1).setId("8592356245").addItem(block, 1);
+            orders.save(o1);
+            assertSame(o1, orders.findById(8592356245L).get());
+            assertSame(o1, orders.findById("8592356245").get());
+            assertTrue(orders.existsById(8592356245L));
+            assertFalse(orders.existsById(8592356246L));
+            assertFalse(orders.findById(-8592356245L).isPresent());
+        }
+    }
+
+    @Test @Order(110)
+    void test110_findById_NonCanonicalIds() {
+        for(var orders : repositories()) {
+            var o1 = new datamodel.Order(c1).setId("0042").addItem(block, 1);
+            var o2 = new datamodel.Order(c1).setId("A-42").addItem(block, 2);
+            var o3 = new datamodel.Order(c1).setId("42").addItem(block, 3);
+            orders.save(o1);
+            orders.save(o2);
+            orders.save(o3);
+            assertEquals(3L, orders.count());
+            assertSame(o1, orders.findById("0042").get());
+            assertSame(o2, orders.findById("A-42").get());
+            assertSame(o3, orders.findById("42").get());
+            assertSame(o3, orders.findById(42L).get());
+            // 19 digits exceed the numeric range and are kept as Strings
+            var o4 = new datamodel.Order(c1).setId("9999999999999999999").addItem(block, 1);
+            orders.save(o4);
+            assertSame(o4, orders.findById("9999999999999999999").get());
+        }
+    }
+
+    @Test @Order(120)
+    void test120_deleteById_NumericId() {
+        for(var orders : repositories()) {
+            orders.save(new datamodel.Order(c1).setId("8592356245").addItem(block, 1));
+            orders.save(new datamodel.Order(c1).setId("3563561357").addItem(block, 1));
+            orders.deleteById(8592356245L);
+            orders.deleteById(-1L);
+            assertFalse(orders.existsById("8592356245"));
+            assertTrue(orders.existsById(3563561357L));
+            assertEquals(1L, orders.count());
+        }
+    }
+
+    @Test @Order(130)
+    void test130_findAll_NumericAndOtherIds() {
+        for(var orders : repositories()) {
+            var expected = new HashSet<String>();
+            for(long id = 1_000_000_000L; id < 1_000_001_000L; id++) {
+                orders.save(new datamodel.Order(c1).setId(Long.toString(id)).addItem(block, 1));
+                expected.add(Long.toString(id));
+            }
+            orders.save(new datamodel.Order(c1).setId("A-1").addItem(block, 1));
+            expected.add("A-1");
+            Set<String> ids = new HashSet<>();
+            for(var order : orders.findAll()) {
+                assertTrue(ids.add(order.getId()));
+            }
+            assertEquals(expected, ids);
+            assertEquals(1_001L, orders.stream().count());
+            assertEquals(1_001L, orders.count());
+        }
+    }
+
+
+    /*
+     * Order repositories of data stores outside and in concurrent mode.
+     */
+    private static OrderRepository[] repositories() {
+        return new OrderRepository[] {
+            IoC.getInstance().createDataStore("memory", Map.of()).orders(),
+            IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true")).orders()
+        };
+    }
+
+}
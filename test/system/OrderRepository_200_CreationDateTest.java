@@ -0,0 +1,134 @@
+package system;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the creation date index of OrderRepository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class OrderRepository_200_CreationDateTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long JAN_2024 = 1_704_067_200_000L;    // 2024-01-01 00:00:00 UTC
+
+    private final Customer c1 = new Customer("Frieda Tag").setId(200001L);
+    private final Article kalender = new Article("Wandkalender", 1499).setId("SKU-2024").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(200)
+    void test200_findByCreationDateBetween_OrderedByDate() {
+        for(var orders : repositories()) {
+            var o1 = order("2024000001", JAN_2024 + 2 * DAY);
+            var o2 = order("3563561357", JAN_2024);
+            var o3 = order("5234968294", JAN_2024 + DAY);
+            orders.save(o1);
+            orders.save(o2);
+            orders.save(o3);
+            assertEquals(List.of(o2, o3, o1), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + 3 * DAY)));
+            // adjacent ranges do not overlap
+            assertEquals(List.of(o2), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + DAY)));
+            assertEquals(List.of(o3), list(orders.findByCreationDateBetween(JAN_2024 + DAY, JAN_2024 + 2 * DAY)));
+            assertEquals(List.of(), list(orders.findByCreationDateBetween(JAN_2024 + DAY, JAN_2024)));
+        }
+    }
+
+    @Test @Order(210)
+    void test210_setCreationDate_MovesStoredOrder() {
+        for(var orders : repositories()) {
+            var o1 = order("2024000001", JAN_2024);
+            orders.save(o1);
+            o1.setCreationDate(JAN_2024 + 5 * DAY);
+            assertEquals(List.of(), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + DAY)));
+            assertEquals(List.of(o1), list(orders.findByCreationDateBetween(JAN_2024 + 5 * DAY, JAN_2024 + 6 * DAY)));
+        }
+    }
+
+    @Test @Order(220)
+    void test220_setCreationDate_ReplacedAndDeletedOrdersNotReindexed() {
+        for(var orders : repositories()) {
+            var o1 = order("2024000001", JAN_2024);
+            var o2 = order("3563561357", JAN_2024);
+            var replacement = order("2024000001", JAN_2024 + DAY);
+            orders.save(o1);
+            orders.save(o2);
+            orders.save(replacement);
+            orders.deleteById("3563561357");
+            o1.setCreationDate(JAN_2024 + 2 * DAY);
+            o2.setCreationDate(JAN_2024 + 2 * DAY);
+            assertEquals(List.of(replacement), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + 3 * DAY)));
+        }
+    }
+
+    @Test @Order(230)
+    void test230_save_SavedAgainIndexedOnce() {
+        for(var orders : repositories()) {
+            var o1 = order("2024000001", JAN_2024);
+            orders.save(o1);
+            orders.save(o1);
+            orders.deleteById("2024000001");
+            orders.save(o1);
+            o1.setCreationDate(JAN_2024 + DAY);
+            assertEquals(List.of(o1), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + 2 * DAY)));
+            orders.deleteAll();
+            o1.setCreationDate(JAN_2024);
+            assertEquals(List.of(), list(orders.findByCreationDateBetween(JAN_2024, JAN_2024 + 2 * DAY)));
+        }
+    }
+
+    @Test @Order(240)
+    void test240_delete_OrdersDoNotKeepRepositoryReachable() throws InterruptedException {
+        var deleted = order("2024000001", JAN_2024);
+        var replaced = order("3563561357", JAN_2024);
+        var dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+        dataStore.save(deleted).save(replaced);
+        dataStore.orders().deleteById("2024000001");
+        dataStore.save(order("3563561357", JAN_2024));
+        var reference = new WeakReference<>(dataStore.orders());
+        dataStore = null;
+        for(int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(reference.get());
+        assertNotNull(deleted);
+        assertNotNull(replaced);
+    }
+
+
+    private datamodel.Order order(String id, long creationDate) {
+        return new datamodel.Order(c1).setId(id).setCreationDate(creationDate).addItem(kalender, 1);
+    }
+
+    private static List<datamodel.Order> list(Iterable<datamodel.Order> orders) {
+        var list = new ArrayList<datamodel.Order>();
+        orders.forEach(list::add);
+        return list;
+    }
+
+    /*
+     * Order repositories of data stores outside and in concurrent mode.
+     */
+    private static OrderRepository[] repositories() {
+        return new OrderRepository[] {
+            IoC.getInstance().createDataStore("memory", Map.of()).orders(),
+            IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true")).orders()
+        };
+    }
+
+}
@@ -0,0 +1,109 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for Repository component in concurrent mode.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_100_ConcurrentModeTest {
+
+    /*
+     * Data store with thread-safe repositories under test.
+     */
+    private final DataStore dataStore =
+        IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true"));
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        pool.shutdownNow();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Test @Order(100)
+    void test100_save_ConcurrentWritersLoseNoObjects() throws Exception {
+        var futures = new ArrayList<Future<?>>();
+        for(int t = 0; t < 4; t++) {
+            final long base = t * 10_000L;
+            futures.add(pool.submit(() -> {
+                for(long i = 0; i < 5_000; i++) {
+                    dataStore.customers().save(new Customer("Eric Meyer").setId(base + i));
+                    dataStore.articles().save(new Article("Tasse", 299).setId("SKU-" + (base + i)));
+                }
+            }));
+        }
+        for(var f : futures) f.get(60, TimeUnit.SECONDS);
+        assertEquals(20_000L, dataStore.customers().count());
+        assertEquals(20_000L, dataStore.articles().count());
+        assertTrue(dataStore.customers().existsById(34_999L));
+        assertTrue(dataStore.articles().existsById("SKU-4999"));
+    }
+
+    @Test @Order(110)
+    void test110_findAll_IteratesWhileWritersSave() throws Exception {
+        var start = new CountDownLatch(1);
+        Future<?> writer = pool.submit(() -> {
+            start.countDown();
+            for(long i = 0; i < 20_000; i++) {
+                dataStore.customers().save(new Customer("Eric Meyer").setId(i));
+                if(i % 3 == 0) dataStore.customers().deleteById(i / 2);
+            }
+        });
+        start.await();
+        for(int i = 0; i < 50; i++) {
+            long n = 0;
+            for(Customer c : dataStore.customers().findAll()) {
+                assertNotNull(c.getId());
+                n++;
+            }
+            assertTrue(n <= 20_000);
+        }
+        writer.get(60, TimeUnit.SECONDS);
+        var all = new ArrayList<Customer>();
+        dataStore.customers().findAll().forEach(all::add);
+        assertEquals(dataStore.customers().count(), all.size());
+    }
+
+    @Test @Order(120)
+    void test120_deleteById_ConcurrentDeletesOfSameIds() throws Exception {
+        var saved = new ArrayList<Customer>();
+        for(long i = 0; i < 10_000; i++) {
+            saved.add(new Customer("Eric Meyer").setId(i));
+        }
+        dataStore.customers().saveAll(saved);
+        var futures = new ArrayList<Future<?>>();
+        for(int t = 0; t < 4; t++) {
+            futures.add(pool.submit(() -> {
+                for(long i = 0; i < 10_000; i += 2) {
+                    dataStore.customers().deleteById(i);
+                }
+            }));
+        }
+        for(var f : futures) f.get(60, TimeUnit.SECONDS);
+        assertEquals(5_000L, dataStore.customers().count());
+        assertTrue(dataStore.customers().findById(0L).isEmpty());
+        assertTrue(dataStore.customers().existsById(9_999L));
+    }
+
+}
@@ -0,0 +1,130 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for secondary indexes of Repository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_200_SecondaryIndexTest {
+
+    /*
+     * Data store with repositories under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+
+    private final Customer c1 = new Customer("Eric Meyer").setId(892474L);
+    private final Customer c2 = new Customer("Anne Bayer").setId(643270L);
+    private final Article tasse = new Article("Tasse", 299).setId("SKU-458362").setTax(TAX.GER_VAT);
+    private final Article buch = new Article("Buch", 1799).setId("SKU-638035").setTax(TAX.GER_VAT_REDUCED);
+
+
+    @Test @Order(200)
+    void test200_findAllByIndex_BuiltInIndexes() {
+        dataStore.saveAll(List.of(c1, c2, tasse, buch));
+        var o1 = new datamodel.Order(c1).setId("8592356245").addItem(tasse, 1);
+        var o2 = new datamodel.Order(c2).setId("3563561357").addItem(buch, 1);
+        var o3 = new datamodel.Order(c1).setId("5234968294").addItem(buch, 2);
+        dataStore.saveAll(List.of(o1, o2, o3));
+        assertEquals(List.of(o3, o1), sorted(dataStore.orders().findAllByIndex("customer", 892474L)));
+        assertEquals(List.of(o2), sorted(dataStore.orders().findAllByIndex("customer", 643270L)));
+        assertEquals(List.of(tasse), list(dataStore.articles().findAllByIndex("tax", TAX.GER_VAT)));
+        assertEquals(List.of(), list(dataStore.articles().findAllByIndex("tax", TAX.TAXFREE)));
+    }
+
+    @Test @Order(210)
+    void test210_findAllByIndex_FollowsReplaceAndDelete() {
+        dataStore.saveAll(List.of(c1, c2, tasse, buch));
+        var o1 = new datamodel.Order(c1).setId("8592356245");
+        dataStore.save(o1);
+        var replacement = new datamodel.Order(c2).setId("8592356245");
+        dataStore.save(replacement);
+        assertEquals(List.of(), list(dataStore.orders().findAllByIndex("customer", 892474L)));
+        assertEquals(List.of(replacement), list(dataStore.orders().findAllByIndex("customer", 643270L)));
+        dataStore.orders().delete(replacement);
+        assertEquals(List.of(), list(dataStore.orders().findAllByIndex("customer", 643270L)));
+    }
+
+    @Test @Order(220)
+    void test220_createIndex_IndexesExistingObjects() {
+        dataStore.saveAll(List.of(c1, c2));
+        dataStore.customers().createIndex("lastName", Customer::getLastName);
+        assertEquals(List.of(c2), list(dataStore.customers().findAllByIndex("lastName", "Bayer")));
+        var c3 = new Customer("Tim Bayer").setId(100000L);
+        dataStore.save(c3);
+        assertEquals(2, list(dataStore.customers().findAllByIndex("lastName", "Bayer")).size());
+    }
+
+    @Test @Order(230)
+    void test230_findAllByIndex_ConcurrentWritersAgreeWithFindById() throws InterruptedException {
+        var store = IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true"));
+        var articles = store.articles();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for(int t = 0; t < 4; t++) {
+            final int seed = t;
+            pool.submit(() -> {
+                for(int i = 0; i < 20_000; i++) {
+                    var id = "SKU-" + ((i * 7 + seed) % 64);
+                    if((i + seed) % 3 == 0) {
+                        articles.deleteById(id);
+                    } else {
+                        articles.save(new Article("A", 100).setId(id)
+                            .setTax((i + seed) % 2==0? TAX.GER_VAT : TAX.GER_VAT_REDUCED));
+                    }
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(60, TimeUnit.SECONDS));
+        int indexed = 0;
+        for(TAX tax : TAX.values()) {
+            for(Article a : articles.findAllByIndex("tax", tax)) {
+                assertSame(a, articles.findById(a.getId()).orElse(null));
+                assertEquals(tax, a.getTax());
+                indexed++;
+            }
+        }
+        assertEquals(articles.count(), indexed);
+    }
+
+    @Test @Order(290)
+    void test290_findAllByIndex_UnknownIndex() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    dataStore.orders().findAllByIndex("unknown", 1L);
+        });
+        assertNotNull(thrown.getMessage());
+    }
+
+
+    private static <T> List<T> list(Iterable<T> iterable) {
+        var list = new ArrayList<T>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    private static List<datamodel.Order> sorted(Iterable<datamodel.Order> orders) {
+        var list = list(orders);
+        list.sort((a, b) -> Long.compare(Long.parseLong(a.getId()), Long.parseLong(b.getId())));
+        return list;
+    }
+}
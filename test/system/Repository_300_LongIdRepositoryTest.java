@@ -0,0 +1,107 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for LongIdRepository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_300_LongIdRepositoryTest {
+
+    /*
+     * Unit under test.
+     */
+    private final LongIdRepository<Customer> customers =
+        IoC.getInstance().createDataStore("memory", Map.of()).customers();
+
+
+    @Test @Order(300)
+    void test300_findById_PrimitiveIds() {
+        var c1 = customers.save(new Customer("Eric Meyer").setId(892474L));
+        var c2 = customers.save(new Customer("Anne Bayer").setId(643270L));
+        assertSame(c1, customers.findById(892474L).orElse(null));
+        assertSame(c2, customers.findById(Long.valueOf(643270L)).orElse(null));
+        assertTrue(customers.existsById(643270L));
+        assertFalse(customers.existsById(1L));
+        assertEquals(2L, customers.count());
+    }
+
+    @Test @Order(310)
+    void test310_save_ReplacesObjectWithSameId() {
+        customers.save(new Customer("Eric Meyer").setId(892474L));
+        var replacement = customers.save(new Customer("Eric Schulz").setId(892474L));
+        assertSame(replacement, customers.findById(892474L).orElse(null));
+        assertEquals(1L, customers.count());
+    }
+
+    @Test @Order(320)
+    void test320_deleteById_KeepsCollidingIdsReachable() {
+        // ids that are multiples of the table size probe into neighbouring slots,
+        // deleting them shifts later entries of the probe sequence backward
+        var saved = new ArrayList<Customer>();
+        for(long id = 0; id < 2000; id++) {
+            saved.add(new Customer("Eric Meyer").setId(id * 1024L));
+        }
+        customers.saveAll(saved);
+        for(long id = 0; id < 2000; id += 2) {
+            customers.deleteById(id * 1024L);
+        }
+        assertEquals(1000L, customers.count());
+        for(long id = 0; id < 2000; id++) {
+            assertEquals(id % 2 == 1, customers.existsById(id * 1024L));
+        }
+        customers.deleteById(5L);   // no object with id, no change
+        assertEquals(1000L, customers.count());
+    }
+
+    @Test @Order(330)
+    void test330_saveAll_ReturnsSavedObjects() {
+        var saved = List.of(new Customer("Eric Meyer").setId(1L), new Customer("Anne Bayer").setId(2L));
+        assertSame(saved, customers.saveAll(saved));
+        assertEquals(2L, customers.count());
+    }
+
+    @Test @Order(340)
+    void test340_save_WithIndexUsesBoxedPath() {
+        customers.createIndex("lastName", Customer::getLastName);
+        customers.save(new Customer("Anne Bayer").setId(643270L));
+        customers.saveAll(List.of(new Customer("Tim Bayer").setId(1L)));
+        var found = new ArrayList<Customer>();
+        customers.findAllByIndex("lastName", "Bayer").forEach(found::add);
+        assertEquals(2, found.size());
+        customers.deleteById(1L);
+        found.clear();
+        customers.findAllByIndex("lastName", "Bayer").forEach(found::add);
+        assertEquals(1, found.size());
+    }
+
+    @Test @Order(390)
+    void test390_save_UnassignedId() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    customers.save(new Customer("Eric Meyer"));
+        });
+        assertEquals("entity.id is null.", thrown.getMessage());
+        thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    customers.save(null);
+        });
+        assertEquals("argument entity is null.", thrown.getMessage());
+    }
+
+}
@@ -0,0 +1,108 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for bulk saves of Repository and DataStore components.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_400_SaveAllTest {
+
+    /*
+     * Data store with repositories under test.
+     */
+    private final DataStore dataStore = IoC.getInstance().createDataStore("memory", Map.of());
+
+    private final Customer c1 = new Customer("Rita Lang").setId(411001L);
+    private final Article schraube = new Article("Schraube M4x20", 15).setId("SKU-M4-20").setTax(TAX.GER_VAT);
+
+
+    @Test @Order(400)
+    void test400_saveAll_MixedTypesInOneCall() {
+        var order = new datamodel.Order(c1).setId("4110000001").addItem(schraube, 2);
+        // orders before the objects they refer to, data store saves them last
+        dataStore.saveAll(List.of(order, c1, schraube, "ignored"));
+        assertEquals(1L, dataStore.customers().count());
+        assertEquals(1L, dataStore.articles().count());
+        assertSame(order, dataStore.orders().findById("4110000001").get());
+    }
+
+    @Test @Order(410)
+    void test410_saveAll_ReturnsCollectionItself() {
+        var articles = new ArrayList<Article>();
+        for(int i = 0; i < 10_000; i++) {
+            articles.add(new Article("Schraube M4x20", 15).setId("SKU-" + i));
+        }
+        assertSame(articles, dataStore.articles().saveAll(articles));
+        assertEquals(10_000L, dataStore.articles().count());
+        assertEquals(10_000L, dataStore.articles().query().where("tax", Query.Op.EQ, TAX.GER_VAT).count());
+    }
+
+    @Test @Order(420)
+    void test420_saveAll_IterableTraversedOnce() {
+        var source = List.of(new Customer("Rita Lang").setId(1L), new Customer("Kai Lang").setId(2L));
+        Iterable<Customer> once = new Iterable<>() {
+            private boolean used = false;
+            @Override
+            public Iterator<Customer> iterator() {
+                assertFalse(used);
+                used = true;
+                return source.iterator();
+            }
+        };
+        var saved = new ArrayList<Customer>();
+        dataStore.customers().saveAll(once).forEach(saved::add);
+        assertEquals(source, saved);
+        assertEquals(2L, dataStore.customers().count());
+    }
+
+    @Test @Order(430)
+    void test430_saveAll_ReplacesObjectsWithSameId() {
+        dataStore.articles().saveAll(List.of(schraube, new Article("Mutter M4", 8).setId("SKU-M4-00")));
+        var replacement = new Article("Schraube M4x20 verzinkt", 19).setId("SKU-M4-20");
+        dataStore.articles().saveAll(List.of(replacement));
+        assertEquals(2L, dataStore.articles().count());
+        assertSame(replacement, dataStore.articles().findById("SKU-M4-20").get());
+    }
+
+    @Test @Order(490)
+    void test490_saveAll_NullArgs() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    dataStore.articles().saveAll(null);
+        });
+        assertEquals("argument entities is null.", thrown.getMessage());
+        var withNull = new ArrayList<Customer>(List.of(c1));
+        withNull.add(null);
+        thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    dataStore.customers().saveAll(withNull);
+        });
+        assertEquals("argument entity is null.", thrown.getMessage());
+        thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    dataStore.saveAll(null);
+        });
+        assertEquals("argument entities is null.", thrown.getMessage());
+    }
+
+}
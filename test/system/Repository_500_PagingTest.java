@@ -0,0 +1,103 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for streaming and paged queries of Repository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_500_PagingTest {
+
+    /*
+     * Unit under test.
+     */
+    private final LongIdRepository<Customer> customers =
+        IoC.getInstance().createDataStore("memory", Map.of()).customers();
+
+
+    @BeforeEach
+    void setUp() {
+        var saved = new ArrayList<Customer>();
+        for(long id = 1; id <= 25; id++) {
+            saved.add(new Customer("Eric Meyer").setId(id));
+        }
+        customers.saveAll(saved);
+    }
+
+    @Test @Order(500)
+    void test500_stream_AllObjects() {
+        assertEquals(25L, customers.stream().count());
+        assertEquals(325L, customers.parallelStream().mapToLong(Customer::getId).sum());
+    }
+
+    @Test @Order(510)
+    void test510_findAll_OffsetAndLimit() {
+        var all = customers.stream().collect(Collectors.toList());
+        assertEquals(all.subList(0, 10), list(customers.findAll(0, 10)));
+        assertEquals(all.subList(20, 25), list(customers.findAll(20, 10)));
+        assertEquals(List.of(), list(customers.findAll(25, 10)));
+        assertEquals(List.of(), list(customers.findAll(5, 0)));
+    }
+
+    @Test @Order(520)
+    void test520_findAllPaged_PagesCoverAllObjectsOnce() {
+        var sizes = new ArrayList<Integer>();
+        var ids = new HashSet<Long>();
+        for(List<Customer> page : customers.findAllPaged(10)) {
+            sizes.add(page.size());
+            page.forEach(c -> assertTrue(ids.add(c.getId())));
+        }
+        assertEquals(List.of(10, 10, 5), sizes);
+        assertEquals(25, ids.size());
+    }
+
+    @Test @Order(530)
+    void test530_findAllPaged_NoPageAfterLast() {
+        var pages = customers.findAllPaged(25).iterator();
+        assertEquals(25, pages.next().size());
+        assertFalse(pages.hasNext());
+        assertThrows(NoSuchElementException.class, () -> {
+            pages.next();
+        });
+    }
+
+    @Test @Order(590)
+    void test590_findAll_InvalidArgs() {
+        IllegalArgumentException thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    customers.findAll(-1, 10);
+        });
+        assertEquals("argument offset or limit is negative.", thrown.getMessage());
+        thrown =
+            assertThrows(
+                IllegalArgumentException.class, () -> {
+                    customers.findAllPaged(0);
+        });
+        assertEquals("argument pageSize is not positive.", thrown.getMessage());
+    }
+
+
+    private static <T> List<T> list(Iterable<T> iterable) {
+        var list = new ArrayList<T>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+}
@@ -0,0 +1,172 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Currency;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the off-heap article catalog of Repository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_600_ArticleCatalogTest {
+
+    /*
+     * Catalog under test, small capacity to exercise growth.
+     */
+    private final Repository<Article, String> catalog = IoC.getInstance().createArticleCatalog(16);
+
+    private final Article tasse = new Article("Tasse", 299).setId("SKU-458362").setTax(TAX.GER_VAT);
+    private final Article buch = new Article("Buch \"Java\"", 4990).setId("SKU-693856").setTax(TAX.GER_VAT_REDUCED);
+
+
+    @Test @Order(600)
+    void test600_findById_ReturnsCopyOfSavedArticle() {
+        catalog.save(tasse);
+        catalog.save(buch);
+        var view = catalog.findById("SKU-458362").get();
+        assertNotSame(tasse, view);
+        assertEquals("SKU-458362", view.getId());
+        assertEquals("Tasse", view.getDescription());
+        assertEquals(299L, view.getUnitPrice());
+        assertEquals(tasse.getCurrency(), view.getCurrency());
+        assertEquals(TAX.GER_VAT, view.getTax());
+        assertEquals(TAX.GER_VAT_REDUCED, catalog.findById("SKU-693856").get().getTax());
+        assertFalse(catalog.findById("SKU-000000").isPresent());
+        assertEquals(2L, catalog.count());
+    }
+
+    @Test @Order(610)
+    void test610_save_SavedObjectsNotRetained() {
+        catalog.save(tasse);
+        tasse.setUnitPrice(399);
+        assertEquals(299L, catalog.findById("SKU-458362").get().getUnitPrice());
+        catalog.save(tasse);    // replaces record
+        assertEquals(399L, catalog.findById("SKU-458362").get().getUnitPrice());
+        assertEquals(1L, catalog.count());
+    }
+
+    @Test @Order(620)
+    void test620_setters_WriteThroughToRecord() {
+        catalog.save(tasse);
+        var view = catalog.findById("SKU-458362").get();
+        view.setUnitPrice(1000).setDescription("Becher").setTax(TAX.GER_VAT_REDUCED).setCurrency(Currency.USD);
+        var other = catalog.findById("SKU-458362").get();
+        assertEquals(1000L, other.getUnitPrice());
+        assertEquals("Becher", other.getDescription());
+        assertEquals(TAX.GER_VAT_REDUCED, other.getTax());
+        assertEquals(Currency.USD, other.getCurrency());
+        view.setId("SKU-000000");   // ids of catalog articles are immutable
+        assertEquals("SKU-458362", view.getId());
+    }
+
+    @Test @Order(630)
+    void test630_deleteById_InvalidatesViews() {
+        catalog.save(tasse);
+        catalog.save(buch);
+        var view = catalog.findById("SKU-458362").get();
+        catalog.deleteById("SKU-458362");
+        assertFalse(catalog.existsById("SKU-458362"));
+        assertThrows(IllegalStateException.class, () -> view.getUnitPrice());
+        // the freed record is reused without reviving the old view
+        catalog.save(new Article("Teller", 599).setId("SKU-100000"));
+        assertThrows(IllegalStateException.class, () -> view.getDescription());
+        assertEquals("Buch \"Java\"", catalog.findById("SKU-693856").get().getDescription());
+        assertEquals(2L, catalog.count());
+    }
+
+    @Test @Order(640)
+    void test640_saveAll_GrowsBeyondCapacity() {
+        var articles = new ArrayList<Article>();
+        for(int i = 0; i < 10_000; i++) {
+            articles.add(new Article("Tasse", 100 + i).setId("SKU-" + i));
+        }
+        catalog.saveAll(articles);
+        assertEquals(10_000L, catalog.count());
+        for(int i = 0; i < 10_000; i++) {
+            assertEquals(100L + i, catalog.findById("SKU-" + i).get().getUnitPrice());
+        }
+        // delete every other article, all remaining articles are still found
+        for(int i = 0; i < 10_000; i += 2) {
+            catalog.deleteById("SKU-" + i);
+        }
+        assertEquals(5_000L, catalog.count());
+        for(int i = 0; i < 10_000; i++) {
+            assertEquals(i % 2==1, catalog.existsById("SKU-" + i));
+        }
+        var ids = new HashSet<String>();
+        for(var article : catalog.findAll()) {
+            assertTrue(ids.add(article.getId()));
+        }
+        assertEquals(5_000, ids.size());
+    }
+
+    @Test @Order(650)
+    void test650_findAllByIndex_ScansRecords() {
+        catalog.saveAll(List.of(tasse, buch, new Article("Teller", 599).setId("SKU-100000")));
+        catalog.createIndex("tax", Article::getTax);
+        var found = new HashSet<String>();
+        catalog.findAllByIndex("tax", TAX.GER_VAT).forEach(a -> found.add(a.getId()));
+        assertEquals(java.util.Set.of("SKU-458362", "SKU-100000"), found);
+        assertThrows(IllegalArgumentException.class, () -> {
+            catalog.findAllByIndex("price", 299L);
+        });
+    }
+
+    @Test @Order(660)
+    void test660_deleteAll_EmptiesCatalog() {
+        catalog.saveAll(List.of(tasse, buch));
+        var view = catalog.findById("SKU-693856").get();
+        catalog.deleteAll();
+        assertEquals(0L, catalog.count());
+        assertFalse(catalog.findAll().iterator().hasNext());
+        assertThrows(IllegalStateException.class, () -> view.getTax());
+        catalog.save(tasse);
+        assertEquals(299L, catalog.findById("SKU-458362").get().getUnitPrice());
+    }
+
+    @Test @Order(665)
+    void test665_setters_OrderTotalsFollowCatalogChanges() {
+        catalog.save(tasse);
+        var view = catalog.findById("SKU-458362").get();
+        var order = new datamodel.Order(new datamodel.Customer("Eric Meyer").setId(892474L)).addItem(view, 2);
+        assertEquals(598L, order.getValue());
+        long version = view.getVersion();
+        view.setUnitPrice(1000);
+        assertNotEquals(version, catalog.findById("SKU-458362").get().getVersion());
+        assertEquals(2000L, order.getValue());
+        view.setTax(TAX.GER_VAT_REDUCED);
+        assertEquals(2000L, order.getValue(TAX.GER_VAT_REDUCED));
+        assertEquals(131L, order.getVAT());
+        // saving the article again changes the record the view reads
+        catalog.save(new Article("Tasse", 500).setId("SKU-458362").setTax(TAX.GER_VAT));
+        assertEquals(1000L, order.getValue());
+        assertEquals(1000L, order.getValue(TAX.GER_VAT));
+    }
+
+    @Test @Order(670)
+    void test670_save_IllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            catalog.save(null);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            catalog.save(new Article("Tasse", 299));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            catalog.findById(null);
+        });
+    }
+
+}
@@ -0,0 +1,179 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.StreamSupport;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Article;
+import datamodel.Customer;
+import datamodel.TAX;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for queries of Repository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_700_QueryTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long JAN_2024 = 1_704_067_200_000L;    // 2024-01-01 00:00:00 UTC
+
+    /*
+     * Data stores outside and in concurrent mode with the same objects.
+     */
+    private static final DataStore[] dataStores = {
+        IoC.getInstance().createDataStore("memory", Map.of()),
+        IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true"))
+    };
+
+    private static final List<Article> articles = new ArrayList<>();
+    private static final List<datamodel.Order> orders = new ArrayList<>();
+
+    static {
+        var random = new Random(42);
+        var taxes = TAX.values();
+        var customers = new ArrayList<Customer>();
+        for(long id = 1; id <= 20; id++) {
+            customers.add(new Customer("Eric Meyer").setId(id));
+        }
+        for(int i = 0; i < 500; i++) {
+            articles.add(new Article("Tasse", random.nextInt(100) * 10).setId("SKU-" + i)
+                .setTax(taxes[random.nextInt(taxes.length)]));
+        }
+        for(long id = 1_000_000_000L; id < 1_000_002_000L; id++) {
+            orders.add(new datamodel.Order(customers.get(random.nextInt(customers.size())))
+                .setId(Long.toString(id)).setCreationDate(JAN_2024 + random.nextInt(30) * DAY)
+                .addItem(articles.get(random.nextInt(articles.size())), 1 + random.nextInt(3)));
+        }
+        for(var dataStore : dataStores) {
+            dataStore.saveAll(customers).saveAll(articles).saveAll(orders);
+        }
+    }
+
+
+    @Test @Order(700)
+    void test700_where_IndexedEquality() {
+        for(var dataStore : dataStores) {
+            var result = dataStore.articles().query().where("tax", Query.Op.EQ, TAX.GER_VAT).list();
+            assertEquals(ids(articles.stream().filter(a -> a.getTax()==TAX.GER_VAT).toList()), ids(result));
+            var byCustomer = dataStore.orders().query().where("customer", Query.Op.EQ, 7L).list();
+            assertEquals(ids(orders.stream().filter(o -> o.getCustomer().getId()==7L).toList()), ids(byCustomer));
+            // integral keys are normalized
+            assertEquals(byCustomer.size(), dataStore.orders().query().where("customer", Query.Op.EQ, 7).count());
+        }
+    }
+
+    @Test @Order(710)
+    void test710_where_SortedIndexRange() {
+        long from = JAN_2024 + 5 * DAY, to = JAN_2024 + 10 * DAY;
+        for(var dataStore : dataStores) {
+            var result = dataStore.orders().query()
+                .where("creationDate", Query.Op.GE, from)
+                .where("creationDate", Query.Op.LT, to).list();
+            assertEquals(ids(orders.stream().filter(o -> o.getCreationDate() >= from && o.getCreationDate() < to).toList()),
+                ids(result));
+            var after = dataStore.orders().query().where("creationDate", Query.Op.GT, to).count();
+            assertEquals(orders.stream().filter(o -> o.getCreationDate() > to).count(), after);
+        }
+    }
+
+    @Test @Order(720)
+    void test720_where_GetterAndIndexCombined() {
+        for(var dataStore : dataStores) {
+            var result = dataStore.articles().query()
+                .where("tax", Query.Op.EQ, TAX.GER_VAT_REDUCED)
+                .where("unitPrice", Query.Op.LE, 300L).list();
+            assertEquals(ids(articles.stream()
+                .filter(a -> a.getTax()==TAX.GER_VAT_REDUCED && a.getUnitPrice() <= 300L).toList()), ids(result));
+        }
+    }
+
+    @Test @Order(730)
+    void test730_orderBy_LimitKeepsTopK() {
+        var byPriceDesc = Comparator.comparingLong(Article::getUnitPrice).reversed()
+            .thenComparing(Article::getId);
+        for(var dataStore : dataStores) {
+            var top = dataStore.articles().query()
+                .orderByDescending("unitPrice").orderBy("id").limit(25).list();
+            assertEquals(articles.stream().sorted(byPriceDesc).limit(25).toList(), top);
+            var all = dataStore.articles().query().orderByDescending("unitPrice").orderBy("id").list();
+            assertEquals(articles.stream().sorted(byPriceDesc).toList(), all);
+        }
+    }
+
+    @Test @Order(740)
+    void test740_orderBy_LatestOrdersOfCustomer() {
+        for(var dataStore : dataStores) {
+            var latest = dataStore.orders().query()
+                .where("customer", Query.Op.EQ, 3L)
+                .orderByDescending("creationDate").orderBy("id").limit(5).list();
+            var expected = orders.stream().filter(o -> o.getCustomer().getId()==3L)
+                .sorted(Comparator.comparingLong(datamodel.Order::getCreationDate).reversed()
+                    .thenComparing(datamodel.Order::getId))
+                .limit(5).toList();
+            assertEquals(expected, latest);
+            assertEquals(expected.get(0), dataStore.orders().query()
+                .where("customer", Query.Op.EQ, 3L)
+                .orderByDescending("creationDate").orderBy("id").first().get());
+        }
+    }
+
+    @Test @Order(750)
+    void test750_where_FunctionsAndPredicates() {
+        for(var dataStore : dataStores) {
+            var result = dataStore.orders().query()
+                .where(datamodel.Order::getValue, Query.Op.GE, 1_000L)
+                .where(o -> o.getId().endsWith("7")).list();
+            assertEquals(ids(orders.stream().filter(o -> o.getValue() >= 1_000L && o.getId().endsWith("7")).toList()),
+                ids(result));
+        }
+    }
+
+    @Test @Order(760)
+    void test760_limit_ZeroAndNoMatches() {
+        for(var dataStore : dataStores) {
+            assertEquals(0L, dataStore.articles().query().limit(0).count());
+            assertEquals(0L, dataStore.orders().query().where("customer", Query.Op.EQ, 99L).count());
+            assertFalse(dataStore.articles().query().where("unitPrice", Query.Op.LT, 0L).first().isPresent());
+        }
+    }
+
+    @Test @Order(770)
+    void test770_query_IllegalArguments() {
+        var query = dataStores[0].articles().query();
+        // unknown fields are detected when objects are evaluated
+        assertThrows(IllegalArgumentException.class, () -> {
+            dataStores[0].articles().query().where("weight", Query.Op.EQ, 1L).list();
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            dataStores[0].articles().query().orderBy("weight").list();
+        });
+        assertThrows(IllegalArgumentException.class, () -> query.where("unitPrice", null, 1L));
+        assertThrows(IllegalArgumentException.class, () -> query.where("unitPrice", Query.Op.EQ, null));
+        assertThrows(IllegalArgumentException.class, () -> query.orderBy(null));
+        assertThrows(IllegalArgumentException.class, () -> query.limit(-1));
+    }
+
+
+    /*
+     * Return sorted ids of articles or orders, results of unordered queries
+     * have no defined order.
+     */
+    private static List<String> ids(Iterable<?> entities) {
+        return StreamSupport.stream(entities.spliterator(), false)
+            .map(e -> e instanceof Article? ((Article)e).getId() : ((datamodel.Order)e).getId())
+            .sorted().toList();
+    }
+
+}
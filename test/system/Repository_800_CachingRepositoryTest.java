@@ -0,0 +1,220 @@
+package system;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the LRU cache of CachingRepository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_800_CachingRepositoryTest {
+
+    /*
+     * Thread-safe backend repository and cache of three customers under test.
+     */
+    private final Repository<Customer, Long> backend = IoC.getInstance()
+        .createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true")).customers();
+
+    private final CachingRepository<Customer, Long> cache =
+        IoC.getInstance().createCachingRepository(backend, Customer::getId, 3);
+
+    private final Customer c1 = new Customer("Lukas Kaiser").setId(880001L);
+    private final Customer c2 = new Customer("Sofia Koch").setId(880002L);
+    private final Customer c3 = new Customer("Tim Schulz").setId(286516L);
+    private final Customer c4 = new Customer("Nadine Blumenfeld").setId(412396L);
+
+
+    @Test @Order(800)
+    void test800_findById_MissLoadsThenHits() {
+        backend.saveAll(List.of(c1, c2));
+        assertSame(c1, cache.findById(880001L).get());
+        assertEquals(0L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+        assertSame(c1, cache.findById(880001L).get());
+        assertTrue(cache.existsById(880001L));
+        assertEquals(2L, cache.getHitCount());
+        assertEquals(1, cache.getCacheSize());
+        // unknown ids are not cached
+        assertFalse(cache.findById(1L).isPresent());
+        assertFalse(cache.findById(1L).isPresent());
+        assertEquals(3L, cache.getMissCount());
+        assertEquals(1, cache.getCacheSize());
+    }
+
+    @Test @Order(810)
+    void test810_findById_EvictsLeastRecentlyUsed() {
+        backend.saveAll(List.of(c1, c2, c3, c4));
+        cache.findById(880001L);
+        cache.findById(880002L);
+        cache.findById(286516L);
+        cache.findById(880001L);    // c1 used more recently than c2
+        cache.findById(412396L);    // evicts c2
+        assertEquals(3, cache.getCacheSize());
+        long misses = cache.getMissCount();
+        cache.findById(880001L);
+        cache.findById(286516L);
+        cache.findById(412396L);
+        assertEquals(misses, cache.getMissCount());
+        cache.findById(880002L);
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(3, cache.getCacheSize());
+    }
+
+    @Test @Order(820)
+    void test820_save_WritesThroughAndInvalidates() {
+        cache.save(c1);
+        assertSame(c1, backend.findById(880001L).get());
+        assertEquals(0, cache.getCacheSize());
+        assertSame(c1, cache.findById(880001L).get());
+        assertSame(c1, cache.findById(880001L).get());
+        assertEquals(1L, cache.getHitCount());
+        assertEquals(1L, cache.getMissCount());
+        var replacement = new Customer("Lukas Kaiser-Koch").setId(880001L);
+        cache.save(replacement);
+        assertEquals(0, cache.getCacheSize());
+        assertSame(replacement, backend.findById(880001L).get());
+        assertSame(replacement, cache.findById(880001L).get());
+        cache.saveAll(List.of(c2, c3, c4));
+        assertEquals(1, cache.getCacheSize());
+        assertEquals(4L, cache.count());
+    }
+
+    @Test @Order(830)
+    void test830_delete_WritesThroughAndInvalidates() {
+        cache.saveAll(List.of(c1, c2, c3));
+        cache.findAllById(List.of(880001L, 880002L, 286516L));
+        assertEquals(3, cache.getCacheSize());
+        cache.deleteById(880001L);
+        cache.delete(c2);
+        assertFalse(backend.existsById(880001L));
+        assertFalse(backend.existsById(880002L));
+        assertFalse(cache.existsById(880001L));
+        assertFalse(cache.existsById(880002L));
+        assertEquals(1, cache.getCacheSize());
+        cache.deleteAll();
+        assertEquals(0, cache.getCacheSize());
+        assertEquals(0L, backend.count());
+    }
+
+    @Test @Order(840)
+    void test840_invalidate_ReloadsChangesOfBackend() {
+        cache.save(c1);
+        cache.findById(880001L);
+        var replacement = new Customer("Lukas Kaiser-Koch").setId(880001L);
+        backend.save(replacement);  // bypasses the cache
+        assertSame(c1, cache.findById(880001L).get());
+        cache.invalidate(880001L);
+        assertSame(replacement, cache.findById(880001L).get());
+        backend.deleteById(880001L);
+        cache.invalidateAll();
+        assertEquals(0, cache.getCacheSize());
+        assertFalse(cache.findById(880001L).isPresent());
+    }
+
+    @Test @Order(850)
+    void test850_findAll_PassedToBackend() {
+        backend.saveAll(List.of(c1, c2, c3, c4));
+        assertEquals(4L, cache.count());
+        assertEquals(4L, cache.stream().count());
+        assertEquals(0, cache.getCacheSize());
+        var found = new ArrayList<Customer>();
+        cache.findAllById(List.of(880001L, 1L, 880002L)).forEach(found::add);
+        assertEquals(List.of(c1, c2), found);
+        assertEquals(2, cache.getCacheSize());
+    }
+
+    @Test @Order(860)
+    void test860_save_ConcurrentSavesOfSameIdAgreeWithBackend() throws Exception {
+        var a = new Customer("Lukas Kaiser").setId(880001L);
+        var b = new Customer("Lukas Kaiser-Koch").setId(880001L);
+        var written = new CountDownLatch(1);
+        var resume = new CountDownLatch(1);
+        var paused = IoC.getInstance().createCachingRepository(
+            pausedAfterSave(a, written, resume), Customer::getId, 3);
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            var first = pool.submit(() -> paused.save(a));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            paused.save(b);     // overtakes a between backend and cache
+            assertSame(b, paused.findById(880001L).get());
+            resume.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            assertSame(b, backend.findById(880001L).get());
+            assertSame(b, paused.findById(880001L).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test @Order(870)
+    void test870_save_ConcurrentDeleteDoesNotResurrectObject() throws Exception {
+        var written = new CountDownLatch(1);
+        var resume = new CountDownLatch(1);
+        var paused = IoC.getInstance().createCachingRepository(
+            pausedAfterSave(c1, written, resume), Customer::getId, 3);
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            var save = pool.submit(() -> paused.save(c1));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            paused.deleteById(880001L);
+            resume.countDown();
+            save.get(10, TimeUnit.SECONDS);
+            assertFalse(backend.existsById(880001L));
+            assertFalse(paused.findById(880001L).isPresent());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+     * Backend that pauses the save of {@literal entity} after it was written
+     * until {@literal resume} is released.
+     */
+    @SuppressWarnings("unchecked")
+    private Repository<Customer, Long> pausedAfterSave(Customer entity, CountDownLatch written, CountDownLatch resume) {
+        return (Repository<Customer, Long>) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {Repository.class}, (proxy, method, args) -> {
+                try {
+                    var result = method.invoke(backend, args);
+                    if(method.getName().equals("save") && args[0]==entity) {
+                        written.countDown();
+                        resume.await();
+                    }
+                    return result;
+                } catch(InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    @Test @Order(880)
+    void test880_createCachingRepository_IllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createCachingRepository(backend, Customer::getId, 0);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createCachingRepository(null, Customer::getId, 3);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            cache.findById(null);
+        });
+    }
+
+}
@@ -0,0 +1,126 @@
+package system;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.*;
+
+import datamodel.Customer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * JUnit5 Tests for the asynchronous facade of Repository component.
+ *
+ * @author sgra64
+ *
+ */
+
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class Repository_900_AsyncRepositoryTest {
+
+    /*
+     * Concurrent data store and asynchronous facade of its customers under test.
+     */
+    private final DataStore dataStore =
+        IoC.getInstance().createDataStore("memory", Map.of(StorageEngine.CONCURRENT, "true"));
+
+    private final AsyncRepository<Customer, Long> customers =
+        IoC.getInstance().createAsyncRepository(dataStore.customers(), 2);
+
+    private final Customer c1 = new Customer("Ben Fischer").setId(990001L);
+    private final Customer c2 = new Customer("Emma Wolf").setId(990002L);
+
+
+    @Test @Order(900)
+    void test900_calls_CompleteWithResults() {
+        assertSame(c1, customers.saveAsync(c1).join());
+        customers.saveAllAsync(List.of(c2)).join();
+        assertEquals(2L, customers.countAsync().join());
+        assertSame(c2, customers.findByIdAsync(990002L).join().get());
+        assertTrue(customers.existsByIdAsync(990001L).join());
+        assertEquals(2, customers.findAllAsync().join().size());
+        assertEquals(List.of(c1), customers.findAllByIdAsync(List.of(990001L, 1L)).join());
+        customers.deleteByIdAsync(990001L).join();
+        assertFalse(customers.existsByIdAsync(990001L).join());
+        assertSame(dataStore.customers(), customers.repository());
+        assertEquals(2, customers.getMaxConcurrency());
+    }
+
+    @Test @Order(910)
+    void test910_calls_CompleteExceptionally() {
+        var future = customers.findByIdAsync(null);
+        var e = assertThrows(CompletionException.class, () -> future.join());
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    @Test @Order(920)
+    void test920_calls_BoundedConcurrency() {
+        customers.saveAsync(c1).join();
+        var active = new AtomicInteger();
+        var peak = new AtomicInteger();
+        var calls = new ArrayList<CompletableFuture<List<Customer>>>();
+        for(int i = 0; i < 8; i++) {
+            calls.add(customers.listAsync(dataStore.customers().query().where(c -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch(InterruptedException ex) { }
+                active.decrementAndGet();
+                return true;
+            })));
+        }
+        calls.forEach(call -> assertEquals(List.of(c1), call.join()));
+        assertEquals(2, peak.get());
+    }
+
+    @Test @Order(930)
+    void test930_createAsyncRepository_RequiresConcurrentMode() {
+        var repository = IoC.getInstance().createDataStore("memory", Map.of()).customers();
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createAsyncRepository(repository, 2);
+        });
+        var serialized = IoC.getInstance().createAsyncRepository(repository, 1);
+        serialized.saveAsync(c1).join();
+        assertEquals(1L, serialized.countAsync().join());
+    }
+
+    @Test @Order(940)
+    void test940_createAsyncRepository_RequiresConcurrentShardsAndBackend() {
+        var partitioned = IoC.getInstance().createDataStore("partitioned",
+            Map.of(StorageEngine.PARTITIONS, "2")).customers();
+        var cached = IoC.getInstance().createCachingRepository(
+            IoC.getInstance().createDataStore("memory", Map.of()).customers(), Customer::getId, 4);
+        for(var repository : List.<Repository<Customer, Long>>of(partitioned, cached)) {
+            assertThrows(IllegalArgumentException.class, () -> {
+                IoC.getInstance().createAsyncRepository(repository, 2);
+            });
+            assertEquals(1, IoC.getInstance().createAsyncRepository(repository, 1).getMaxConcurrency());
+        }
+        var concurrentPartitioned = IoC.getInstance().createDataStore("partitioned",
+            Map.of(StorageEngine.PARTITIONS, "2", StorageEngine.CONCURRENT, "true")).customers();
+        var concurrentCached = IoC.getInstance().createCachingRepository(dataStore.customers(), Customer::getId, 4);
+        for(var repository : List.<Repository<Customer, Long>>of(concurrentPartitioned, concurrentCached)) {
+            var async = IoC.getInstance().createAsyncRepository(repository, 2);
+            async.saveAsync(c1).join();
+            assertSame(c1, async.findByIdAsync(990001L).join().get());
+        }
+    }
+
+    @Test @Order(950)
+    void test950_createAsyncRepository_IllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createAsyncRepository(null, 1);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            IoC.getInstance().createAsyncRepository(dataStore.customers(), 0);
+        });
+    }
+
+}